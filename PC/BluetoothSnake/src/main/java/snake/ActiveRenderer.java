@@ -0,0 +1,136 @@
+package snake;
+
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+import java.util.concurrent.locks.LockSupport;
+
+// Active rendering of a SnakeGame into a Canvas with a BufferStrategy.
+// A dedicated render thread draws and presents a frame as soon as a tick has happened,
+// capped at a configurable frame rate, instead of waiting for Swing to schedule a repaint.
+public class ActiveRenderer implements Runnable {
+    // Longest time to wait without a tick before redrawing anyway (window exposed, resized...)
+    private static final long IDLE_REDRAW_NANOS = 250_000_000L;
+
+    // The game being drawn
+    private final SnakeGame game;
+    // Minimum time between two frames, 0 for no cap
+    private final long frameIntervalNanos;
+    // Heavyweight surface the frames are presented on
+    private final Canvas canvas;
+    // Timing statistics of the presented frames
+    private final FrameStats stats;
+
+    // Render thread, null while not displayable
+    private volatile Thread renderThread;
+    // Set when the game state changed since the last frame
+    private volatile boolean dirty = true;
+
+    // Constructs a renderer for the given game with a frame cap (frames per second, 0 for uncapped).
+    public ActiveRenderer(SnakeGame game, int frameCap, FrameStats stats) {
+        this.game = game;
+        this.stats = stats;
+        this.frameIntervalNanos = frameCap > 0 ? 1_000_000_000L / frameCap : 0;
+        this.canvas = new Canvas() {
+            @Override
+            public void addNotify() {
+                super.addNotify();
+                start();
+            }
+
+            @Override
+            public void removeNotify() {
+                stop();
+                super.removeNotify();
+            }
+        };
+        // All drawing happens on the render thread
+        canvas.setIgnoreRepaint(true);
+        canvas.setBackground(Color.BLACK);
+    }
+
+    // Gets the canvas to place in the component hierarchy.
+    public Canvas getCanvas() {
+        return canvas;
+    }
+
+    // Asks for a new frame as soon as the frame cap allows.
+    public void requestFrame() {
+        dirty = true;
+        Thread thread = renderThread;
+        if (thread != null) LockSupport.unpark(thread);
+    }
+
+    // Starts the render thread. Called once the canvas is displayable.
+    private void start() {
+        if (renderThread != null) return;
+        canvas.createBufferStrategy(2);
+        Thread thread = new Thread(this, "SnakeRenderer");
+        thread.setDaemon(true);
+        renderThread = thread;
+        thread.start();
+    }
+
+    // Stops the render thread and waits for it to finish its current frame.
+    public void stop() {
+        Thread thread = renderThread;
+        renderThread = null;
+        if (thread == null) return;
+        LockSupport.unpark(thread);
+        if (thread != Thread.currentThread()) {
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Render loop.
+    @Override
+    public void run() {
+        long lastFrameStart = System.nanoTime() - frameIntervalNanos;
+        while (renderThread == Thread.currentThread()) {
+            // Sleep until a tick arrives, redrawing occasionally even without one
+            long idleDeadline = System.nanoTime() + IDLE_REDRAW_NANOS;
+            while (!dirty && renderThread == Thread.currentThread()) {
+                long remaining = idleDeadline - System.nanoTime();
+                if (remaining <= 0) break;
+                LockSupport.parkNanos(this, remaining);
+            }
+
+            // Respect the frame cap
+            long nextAllowed = lastFrameStart + frameIntervalNanos;
+            long now;
+            while ((now = System.nanoTime()) - nextAllowed < 0 && renderThread == Thread.currentThread()) {
+                LockSupport.parkNanos(this, nextAllowed - now);
+            }
+            if (renderThread != Thread.currentThread()) break;
+
+            dirty = false;
+            lastFrameStart = System.nanoTime();
+            long tickNanos = renderFrame();
+            stats.recordFrame(lastFrameStart, System.nanoTime(), tickNanos);
+        }
+    }
+
+    // Draws and presents one frame. Returns the tick time of the state that was shown.
+    private long renderFrame() {
+        BufferStrategy strategy = canvas.getBufferStrategy();
+        if (strategy == null) return 0;
+        long tickNanos;
+        do {
+            do {
+                Graphics2D g = (Graphics2D) strategy.getDrawGraphics();
+                try {
+                    tickNanos = game.render(g, canvas.getWidth(), canvas.getHeight(), canvas.getGraphicsConfiguration());
+                } finally {
+                    g.dispose();
+                }
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+        // Push the frame out now rather than whenever the window system gets to it
+        Toolkit.getDefaultToolkit().sync();
+        return tickNanos;
+    }
+}
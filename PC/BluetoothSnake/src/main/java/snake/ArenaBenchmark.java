@@ -0,0 +1,127 @@
+package snake;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Headless benchmark of the ArenaBoard engine, whose collision rules ArenaBoardTest checks.
+// Runs the same bot arena with each thread count in turn. For every run it reports snake
+// moves per second, the speedup over the first run, and tick time percentiles against the
+// Difficulty.HARD period. It also checks that the occupancy grid matches the
+// bodies and that every thread count ends in exactly the same state.
+// Usage: java snake.ArenaBenchmark [board size] [snakes] [ticks] [thread counts, e.g. 1,2,4,8]
+public class ArenaBenchmark {
+    // Ticks run before measuring, so the JIT has compiled the tick
+    private static final int WARM_UP_TICKS = 200;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int snakes = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int ticks = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        List<Integer> threadCounts = args.length > 3 ? parseList(args[3]) : defaultThreadCounts();
+
+        System.out.printf("%dx%d board, %d snakes, %d ticks; tick budget at HARD %d ms%n",
+                size, size, snakes, ticks, Difficulty.HARD.getDelay());
+        System.out.printf("%7s %14s %8s %10s %10s %10s %8s %18s%n",
+                "threads", "moves/s", "speedup", "p50 us", "p99 us", "max us", "fits", "state");
+        double baseline = 0;
+        long expectedState = 0;
+        for (int threads : threadCounts) {
+            try (ArenaBoard board = createArena(size, snakes, threads)) {
+                for (int t = 0; t < WARM_UP_TICKS; t++) {
+                    board.tick();
+                }
+                LatencyHistogram tickTimes = new LatencyHistogram();
+                long movesBefore = board.getMoves();
+                long start = System.nanoTime();
+                for (int t = 0; t < ticks; t++) {
+                    long tickStart = System.nanoTime();
+                    board.tick();
+                    tickTimes.record((System.nanoTime() - tickStart) / 1000);
+                }
+                long elapsed = System.nanoTime() - start;
+                checkOccupancy(board);
+
+                double movesPerSecond = (board.getMoves() - movesBefore) * 1e9 / elapsed;
+                if (baseline == 0) baseline = movesPerSecond;
+                long state = fingerprint(board);
+                if (expectedState == 0) expectedState = state;
+                boolean fits = tickTimes.percentile(99) <= Difficulty.HARD.getDelay() * 1000L;
+                System.out.printf("%7d %14.0f %7.2fx %10d %10d %10d %8s %18s%n", threads, movesPerSecond,
+                        movesPerSecond / baseline, tickTimes.percentile(50), tickTimes.percentile(99),
+                        tickTimes.percentile(100), fits ? "yes" : "no",
+                        state == expectedState ? Long.toHexString(state) : "MISMATCH");
+                if (state != expectedState) {
+                    throw new IllegalStateException(threads + " threads ended in a different state");
+                }
+            }
+        }
+    }
+
+    // Builds the arena used by every run: snakes spread over the board by a fixed seed.
+    static ArenaBoard createArena(int size, int snakes, int threads) {
+        ArenaBoard board = new ArenaBoard(size, size, snakes, 42, threads, true, true);
+        GameRandom placement = new GameRandom(7);
+        for (int i = 0; i < snakes; ) {
+            int column = placement.nextInt(size);
+            int row = placement.nextInt(size);
+            if (board.occupant(board.cellIndex(column, row)) != ArenaBoard.EMPTY) continue;
+            board.addSnake(column, row, Direction.values()[placement.nextInt(4)]);
+            i++;
+        }
+        board.fillFood();
+        return board;
+    }
+
+    // Hashes the occupancy grid and the snakes' scores.
+    static long fingerprint(ArenaBoard board) {
+        long hash = 1;
+        for (int cell = 0; cell < board.getColumns() * board.getRows(); cell++) {
+            hash = hash * 31 + board.occupant(cell);
+        }
+        for (int id = 0; id < board.getSnakeCount(); id++) {
+            hash = hash * 31 + board.getSnake(id).getScore();
+        }
+        return hash;
+    }
+
+    // Verifies that the occupancy grid holds exactly the live snakes' bodies.
+    static void checkOccupancy(ArenaBoard board) {
+        int[] expected = new int[board.getColumns() * board.getRows()];
+        for (int id = 0; id < board.getSnakeCount(); id++) {
+            BoardSnake snake = board.getSnake(id);
+            if (!snake.isAlive()) continue;
+            int cell = snake.headCell();
+            for (int i = 0; i < snake.getLength(); cell = snake.following(cell, i++)) {
+                if (expected[cell] != 0) throw new IllegalStateException("Cell " + cell + " holds two bodies");
+                expected[cell] = id + 1;
+            }
+        }
+        for (int cell = 0; cell < expected.length; cell++) {
+            int occupant = board.occupant(cell);
+            int snakeId = occupant > 0 ? occupant : 0;
+            if (snakeId != expected[cell]) {
+                throw new IllegalStateException("Occupancy of cell " + cell + " is " + occupant + ", expected " + expected[cell]);
+            }
+        }
+    }
+
+    // Powers of two up to the number of cores, and the number of cores itself.
+    private static List<Integer> defaultThreadCounts() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<Integer> counts = new ArrayList<>();
+        for (int n = 1; n < cores; n *= 2) {
+            counts.add(n);
+        }
+        counts.add(cores);
+        return counts;
+    }
+
+    // Parses a comma separated list of numbers.
+    private static List<Integer> parseList(String text) {
+        List<Integer> values = new ArrayList<>();
+        for (String part : text.split(",")) {
+            values.add(Integer.parseInt(part.trim()));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,448 @@
+package snake;
+
+import java.util.Arrays;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+// Board for a massive arena: hundreds to thousands of bot-driven snakes on a board of a
+// million cells or more, with each tick spread over several cores.
+//
+// The collision rules are those of SharedBoard. A tick runs in three parallel phases, separated
+// by barriers, followed by a short serial one:
+//  1. intents: each worker steers its share of the snakes from the occupancy at the start of
+//     the tick, computes their target cells, and files every unblocked target under the board
+//     partition (a band of rows) it falls in;
+//  2. claims: each worker resolves the claims on its own partitions. The rules do not depend
+//     on the order claims arrive in, and no two partitions share a cell, so this needs no
+//     locks and gives the same result for any number of workers;
+//  3. moves: each worker applies its share of the moves. Survivors only enter cells that were
+//     free, and only vacate cells nobody may enter this tick, so no two writes hit one cell;
+//  4. serially: food and dead snakes are replaced from one seeded generator, in id order.
+// Bots draw from one generator per snake, so a run is reproducible whatever the thread count.
+public class ArenaBoard implements AutoCloseable {
+    // Occupancy values besides snake ids (id + 1), as on SharedBoard
+    public static final int EMPTY = SharedBoard.EMPTY;
+    public static final int OBSTACLE = SharedBoard.OBSTACLE;
+    public static final int FOOD = SharedBoard.FOOD;
+
+    // Perpendicular directions for vertical and horizontal movement
+    private static final Direction[] HORIZONTAL = {Direction.LEFT, Direction.RIGHT};
+    private static final Direction[] VERTICAL = {Direction.UP, Direction.DOWN};
+    // Board partitions per worker, so uneven crowds still spread over the workers
+    private static final int PARTITIONS_PER_WORKER = 4;
+
+    // Board size in cells
+    private final int columns;
+    private final int rows;
+    // What each cell holds: EMPTY, OBSTACLE, FOOD or the id + 1 of the snake body on it
+    private final int[] occupancy;
+    // Tick stamp of the last claim on each cell, the snake holding it and whether it is tied;
+    // only touched by the worker owning the cell's partition
+    private final int[] claimStamp;
+    private final int[] claimOwner;
+    private final boolean[] claimTied;
+    // Rows per partition
+    private final int partitionRows;
+    private final int partitions;
+
+    // Snakes by id, their bot generators, and per-tick target cells and survival
+    private BoardSnake[] snakes = new BoardSnake[64];
+    private long[] botState = new long[64];
+    private int[] targets = new int[64];
+    private boolean[] survives = new boolean[64];
+    private int snakeCount = 0;
+
+    // Worker threads; the caller of tick() works as worker 0
+    private final int workers;
+    private final Thread[] threads;
+    private final CyclicBarrier barrier;
+    private volatile boolean running = true;
+    // Claims filed by each worker per partition: claims[worker][partition] holds snake ids
+    private final int[][][] claims;
+    private final int[][] claimCounts;
+    // Per-worker results of the move phase
+    private final int[] eatenBy;
+    private final int[] diedBy;
+    private final int[] movedBy;
+
+    // Whether the snakes are steered by bots
+    private final boolean bots;
+    // Places food and respawns snakes
+    private final GameRandom random;
+    private final int foodCount;
+    private final boolean respawn;
+    private int food = 0;
+    private int tick = 0;
+    private int aliveCount = 0;
+    private long moves = 0;
+
+    // Constructs an empty arena. With 'bots' set every snake steers itself; with 'respawn' set
+    // dead snakes come back at a random free cell, keeping the population up.
+    public ArenaBoard(int columns, int rows, int foodCount, long seed, int workers, boolean bots, boolean respawn) {
+        this.columns = columns;
+        this.rows = rows;
+        this.foodCount = foodCount;
+        this.random = new GameRandom(seed);
+        this.bots = bots;
+        this.respawn = respawn;
+        this.occupancy = new int[columns * rows];
+        this.claimStamp = new int[columns * rows];
+        this.claimOwner = new int[columns * rows];
+        this.claimTied = new boolean[columns * rows];
+
+        this.workers = workers;
+        this.partitions = Math.min(rows, workers * PARTITIONS_PER_WORKER);
+        this.partitionRows = (rows + partitions - 1) / partitions;
+        this.claims = new int[workers][partitions][16];
+        this.claimCounts = new int[workers][partitions];
+        this.eatenBy = new int[workers];
+        this.diedBy = new int[workers];
+        this.movedBy = new int[workers];
+
+        this.barrier = new CyclicBarrier(workers);
+        this.threads = new Thread[workers];
+        for (int w = 1; w < workers; w++) {
+            int worker = w;
+            threads[w] = new Thread(() -> work(worker), "ArenaWorker-" + w);
+            threads[w].setDaemon(true);
+            threads[w].start();
+        }
+    }
+
+    // Adds a one cell snake at a free cell. Returns its id.
+    public int addSnake(int column, int row, Direction direction) {
+        int cell = cellIndex(column, row);
+        if (occupancy[cell] != EMPTY) {
+            throw new IllegalArgumentException("Cell " + column + "," + row + " is not free");
+        }
+        int id = snakeCount++;
+        if (id == snakes.length) {
+            snakes = Arrays.copyOf(snakes, id * 2);
+            botState = Arrays.copyOf(botState, id * 2);
+            targets = new int[id * 2];
+            survives = new boolean[id * 2];
+        }
+        snakes[id] = new BoardSnake(id, columns, rows, cell, direction);
+        botState[id] = random.nextInt(Integer.MAX_VALUE) * 0x9E3779B97F4A7C15L + id;
+        occupancy[cell] = id + 1;
+        aliveCount++;
+        return id;
+    }
+
+    // Places an obstacle on a free cell. Returns false if the cell is taken.
+    public boolean addObstacle(int column, int row) {
+        int cell = cellIndex(column, row);
+        if (occupancy[cell] != EMPTY) return false;
+        occupancy[cell] = OBSTACLE;
+        return true;
+    }
+
+    // Places a food item on a free cell. Returns false if the cell is taken.
+    public boolean addFood(int column, int row) {
+        int cell = cellIndex(column, row);
+        if (occupancy[cell] != EMPTY) return false;
+        occupancy[cell] = FOOD;
+        food++;
+        return true;
+    }
+
+    // Tops the food up to the configured count.
+    public void fillFood() {
+        while (food < foodCount) {
+            int cell = randomFreeCell();
+            if (cell < 0) return;
+            occupancy[cell] = FOOD;
+            food++;
+        }
+    }
+
+    // Advances all snakes by one cell.
+    public void tick() {
+        tick++;
+        await(); // Release the workers into the tick
+        try {
+            work(0, tick);
+        } catch (RuntimeException e) {
+            barrier.reset(); // Releases the workers instead of leaving them waiting
+            throw e;
+        }
+
+        // Serial phase
+        int eaten = 0;
+        for (int w = 0; w < workers; w++) {
+            eaten += eatenBy[w];
+            aliveCount -= diedBy[w];
+            moves += movedBy[w];
+        }
+        food -= eaten;
+        if (respawn) respawnDead();
+        fillFood();
+    }
+
+    // Loop of the worker threads other than the caller.
+    private void work(int worker) {
+        try {
+            while (true) {
+                await();
+                if (!running) return;
+                work(worker, tick);
+            }
+        } catch (IllegalStateException e) {
+            // The tick failed elsewhere and broke the barrier
+        } catch (RuntimeException e) {
+            barrier.reset(); // Fails the tick instead of leaving the others waiting
+            throw e;
+        }
+    }
+
+    // Runs the three parallel phases of a tick as 'worker'.
+    private void work(int worker, int stamp) {
+        int from = (int) ((long) snakeCount * worker / workers);
+        int to = (int) ((long) snakeCount * (worker + 1) / workers);
+        fileIntents(worker, from, to);
+        await();
+        for (int p = worker; p < partitions; p += workers) {
+            resolveClaims(p, stamp);
+        }
+        await();
+        applyMoves(worker, from, to);
+        await();
+    }
+
+    // Phase 1: steers snakes 'from'..'to' and files their claims.
+    private void fileIntents(int worker, int from, int to) {
+        int[] counts = claimCounts[worker];
+        Arrays.fill(counts, 0);
+        for (int i = from; i < to; i++) {
+            BoardSnake snake = snakes[i];
+            survives[i] = false;
+            if (!snake.isAlive()) continue;
+            if (bots) steer(i, snake);
+
+            int target = next(snake.headCell(), snake.getDirection());
+            targets[i] = target;
+            int held = occupancy[target];
+            // Blocked by something present at the start of the tick
+            if (held > 0 || held == OBSTACLE) continue;
+            survives[i] = true;
+
+            int p = target / columns / partitionRows;
+            int[] list = claims[worker][p];
+            if (counts[p] == list.length) claims[worker][p] = list = Arrays.copyOf(list, list.length * 2);
+            list[counts[p]++] = i;
+        }
+    }
+
+    // Phase 2: resolves the claims on partition 'p'. The longest claimant of a cell takes it;
+    // if the longest is tied, all of them lose it.
+    private void resolveClaims(int p, int stamp) {
+        for (int w = 0; w < workers; w++) {
+            int[] list = claims[w][p];
+            for (int k = 0, n = claimCounts[w][p]; k < n; k++) {
+                int i = list[k];
+                int target = targets[i];
+                if (claimStamp[target] != stamp) {
+                    claimStamp[target] = stamp;
+                    claimOwner[target] = i;
+                    claimTied[target] = false;
+                    continue;
+                }
+                int owner = claimOwner[target];
+                int ownerLength = snakes[owner].getLength();
+                int length = snakes[i].getLength();
+                if (length > ownerLength) {
+                    survives[owner] = false;
+                    claimOwner[target] = i;
+                    claimTied[target] = false;
+                } else {
+                    survives[i] = false;
+                    if (length == ownerLength) claimTied[target] = true;
+                }
+            }
+        }
+        for (int w = 0; w < workers; w++) {
+            int[] list = claims[w][p];
+            for (int k = 0, n = claimCounts[w][p]; k < n; k++) {
+                int i = list[k];
+                if (survives[i] && claimTied[targets[i]]) survives[i] = false;
+            }
+        }
+    }
+
+    // Phase 3: moves the survivors among snakes 'from'..'to' and clears the dead.
+    private void applyMoves(int worker, int from, int to) {
+        int eaten = 0;
+        int died = 0;
+        int moved = 0;
+        for (int i = from; i < to; i++) {
+            BoardSnake snake = snakes[i];
+            if (!snake.isAlive()) continue;
+            if (!survives[i]) {
+                int cell = snake.headCell();
+                for (int k = 0; k < snake.getLength(); cell = snake.following(cell, k++)) {
+                    occupancy[cell] = EMPTY;
+                }
+                snake.kill();
+                died++;
+                continue;
+            }
+            int target = targets[i];
+            if (occupancy[target] == FOOD) {
+                snake.addScore();
+                eaten++;
+            } else {
+                occupancy[snake.popTail()] = EMPTY;
+            }
+            snake.pushHead(target);
+            occupancy[target] = i + 1;
+            moved++;
+        }
+        eatenBy[worker] = eaten;
+        diedBy[worker] = died;
+        movedBy[worker] = moved;
+    }
+
+    // Steers a snake like SnakeBot: straight on while free, sometimes turning at random, and
+    // otherwise towards a free side. Only reads the board.
+    private void steer(int id, BoardSnake snake) {
+        Direction current = snake.getDirection();
+        int head = snake.headCell();
+        boolean free = isFree(next(head, current));
+        if (free && nextBotInt(id, 10) != 0) return;
+        Direction[] sides = current == Direction.UP || current == Direction.DOWN ? HORIZONTAL : VERTICAL;
+        int first = nextBotInt(id, 2);
+        for (int i = 0; i < 2; i++) {
+            Direction side = sides[(first + i) % 2];
+            if (isFree(next(head, side))) {
+                snake.turn(side);
+                return;
+            }
+        }
+    }
+
+    // Draws from a snake's own generator (SplitMix64, as GameRandom).
+    private int nextBotInt(int id, int bound) {
+        long z = (botState[id] += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return (int) (((z >>> 32) * bound) >>> 32);
+    }
+
+    // Checks whether a cell can be entered.
+    private boolean isFree(int cell) {
+        int occupant = occupancy[cell];
+        return occupant == EMPTY || occupant == FOOD;
+    }
+
+    // Brings dead snakes back as one cell snakes at random free cells, in id order.
+    private void respawnDead() {
+        for (int id = 0; id < snakeCount; id++) {
+            if (snakes[id].isAlive()) continue;
+            int cell = randomFreeCell();
+            if (cell < 0) return;
+            snakes[id] = new BoardSnake(id, columns, rows, cell, Direction.values()[random.nextInt(4)]);
+            occupancy[cell] = id + 1;
+            aliveCount++;
+        }
+    }
+
+    // Finds a random free cell, or returns -1 if the board is full.
+    private int randomFreeCell() {
+        int size = occupancy.length;
+        // Random probing finds a free cell quickly unless the board is nearly full
+        for (int attempt = 0; attempt < 64; attempt++) {
+            int cell = random.nextInt(size);
+            if (occupancy[cell] == EMPTY) return cell;
+        }
+        int start = random.nextInt(size);
+        for (int i = 0; i < size; i++) {
+            int cell = (start + i) % size;
+            if (occupancy[cell] == EMPTY) return cell;
+        }
+        return -1;
+    }
+
+    // Waits for all workers at the next phase boundary.
+    private void await() {
+        try {
+            barrier.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Arena tick interrupted", e);
+        } catch (BrokenBarrierException e) {
+            throw new IllegalStateException("Arena worker failed", e);
+        }
+    }
+
+    // Stops the worker threads.
+    @Override
+    public void close() {
+        if (!running) return;
+        running = false;
+        await(); // Lets the workers see the flag
+    }
+
+    // Gets the cell next to 'cell' in 'direction', wrapping around the edges.
+    public int next(int cell, Direction direction) {
+        int column = cell % columns;
+        int row = cell / columns;
+        switch (direction) {
+            case UP -> row = row == 0 ? rows - 1 : row - 1;
+            case DOWN -> row = row == rows - 1 ? 0 : row + 1;
+            case LEFT -> column = column == 0 ? columns - 1 : column - 1;
+            case RIGHT -> column = column == columns - 1 ? 0 : column + 1;
+        }
+        return row * columns + column;
+    }
+
+    // Converts a column and row to a cell index.
+    public int cellIndex(int column, int row) {
+        return row * columns + column;
+    }
+
+    // Gets what a cell holds: EMPTY, OBSTACLE, FOOD or a snake id + 1.
+    public int occupant(int cell) {
+        return occupancy[cell];
+    }
+
+    // Gets a snake by id.
+    public BoardSnake getSnake(int id) {
+        return snakes[id];
+    }
+
+    // Gets the number of snakes ever added.
+    public int getSnakeCount() {
+        return snakeCount;
+    }
+
+    // Gets the number of snakes still alive.
+    public int getAliveCount() {
+        return aliveCount;
+    }
+
+    // Gets the number of snake moves made so far.
+    public long getMoves() {
+        return moves;
+    }
+
+    // Gets the number of ticks simulated.
+    public int getTick() {
+        return tick;
+    }
+
+    // Gets the board width in cells.
+    public int getColumns() {
+        return columns;
+    }
+
+    // Gets the board height in cells.
+    public int getRows() {
+        return rows;
+    }
+
+    // Gets the number of workers ticks are spread over.
+    public int getWorkers() {
+        return workers;
+    }
+}
@@ -0,0 +1,132 @@
+package snake;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+// Paces the Bluetooth server's retries while the adapter is unavailable.
+// Failed attempts back off exponentially with jitter, so a missing adapter costs next to no CPU.
+// The Bluetooth stack has no adapter state callbacks, but on Linux the kernel's rfkill device
+// reports radios being added, unblocked or switched on. Such an event cuts the current wait short,
+// so the adapter is picked up right away instead of at the next scheduled retry.
+public class BluetoothMonitor implements AutoCloseable {
+    // Wait after the first failure, doubled after each further one up to the maximum
+    private static final long INITIAL_DELAY_MS = 250;
+    private static final long MAX_DELAY_MS = 4000;
+
+    // Linux rfkill event device; each read returns one fixed-size event
+    private static final Path RFKILL = Path.of("/dev/rfkill");
+    private static final int RFKILL_EVENT_SIZE = 8;
+    private static final int RFKILL_TYPE_ALL = 0;
+    private static final int RFKILL_TYPE_BLUETOOTH = 2;
+
+    // Thread waiting in awaitRetry, null if none
+    private volatile Thread waiter;
+    // Set when the adapter may have become available since the last attempt
+    private volatile boolean adapterChanged = false;
+    // Failed attempts in a row, only touched by the waiting thread
+    private int failures = 0;
+    // Open rfkill device, null if not available on this platform
+    private final InputStream rfkill;
+
+    // Constructs a monitor, watching rfkill events where the platform has them.
+    public BluetoothMonitor() {
+        this(openRfkill());
+    }
+
+    // Constructs a monitor reading rfkill events from 'events', or relying on backoff alone if null.
+    BluetoothMonitor(InputStream events) {
+        rfkill = events;
+        if (rfkill != null) {
+            Thread watcher = new Thread(this::watchRfkill, "BluetoothMonitor");
+            watcher.setDaemon(true);
+            watcher.start();
+        }
+    }
+
+    // Opens the rfkill device, or returns null if this platform has none.
+    private static InputStream openRfkill() {
+        if (!Files.isReadable(RFKILL)) return null;
+        try {
+            return Files.newInputStream(RFKILL);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // Records a successful attempt, so the next failure waits the shortest delay again.
+    public void succeeded() {
+        failures = 0;
+    }
+
+    // Waits before retrying a failed attempt. Returns early if the adapter changed meanwhile.
+    public void awaitRetry() throws InterruptedException {
+        long delayMillis = nextDelayMillis(failures++);
+        long deadline = System.nanoTime() + delayMillis * 1_000_000L;
+        waiter = Thread.currentThread();
+        try {
+            while (!adapterChanged) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) break;
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.interrupted()) throw new InterruptedException();
+            }
+        } finally {
+            waiter = null;
+        }
+        if (adapterChanged) {
+            // Start over from the shortest delay in case the stack needs a moment to settle
+            adapterChanged = false;
+            failures = 0;
+        }
+    }
+
+    // Gets the delay before retry number 'failures' + 1: exponential, with the upper half jittered
+    // so several instances do not retry in lockstep.
+    static long nextDelayMillis(int failures) {
+        long delay = Math.min(MAX_DELAY_MS, INITIAL_DELAY_MS << Math.min(failures, 16));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    // Checks whether adapter changes are reported as they happen.
+    public boolean isEventDriven() {
+        return rfkill != null;
+    }
+
+    // Reads rfkill events until the device is closed, waking the waiter on Bluetooth ones.
+    private void watchRfkill() {
+        byte[] event = new byte[RFKILL_EVENT_SIZE];
+        try {
+            while (true) {
+                int read = 0;
+                while (read < RFKILL_EVENT_SIZE) {
+                    int n = rfkill.read(event, read, RFKILL_EVENT_SIZE - read);
+                    if (n < 0) return;
+                    read += n;
+                }
+                // struct rfkill_event { u32 idx; u8 type; u8 op; u8 soft; u8 hard; }
+                int type = event[4];
+                if (type == RFKILL_TYPE_BLUETOOTH || type == RFKILL_TYPE_ALL) {
+                    adapterChanged = true;
+                    Thread thread = waiter;
+                    if (thread != null) LockSupport.unpark(thread);
+                }
+            }
+        } catch (IOException ignored) {
+            // Device closed or gone; retries continue on backoff alone
+        }
+    }
+
+    // Stops watching for adapter changes.
+    @Override
+    public void close() {
+        if (rfkill == null) return;
+        try {
+            rfkill.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -8,27 +8,58 @@ import javax.microedition.io.Connector;
 import javax.microedition.io.StreamConnection;
 import javax.microedition.io.StreamConnectionNotifier;
 import javax.swing.*;
-import java.io.*;
-
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// Bluetooth listener of the desktop game.
+// Keeps accepting phones on one notifier, as KioskServer does, and gives each the lowest free
+// controller slot with a ControllerSession and reader thread of its own. Slot 0 steers the
+// single player game, and slot n steers player n + 1 on a shared board; a phone arriving while
+// every slot is taken is turned away.
 public class BluetoothServer implements Runnable {
     // UUID for the Serial Port Profile (SPP) service
     private static final String UUID_STRING = "0000110100001000800000805F9B34FB";
-    // Delay between retry attempts when Bluetooth is unavailable
-    private static final long RETRY_DELAY_MS = 1000;
-
+    // Phones that can be connected at once, one per shared board player
+    public static final int MAX_CONTROLLERS = 4;
     // Reference to the main application
     private final SnakeApp app;
     // Flag to control server execution
-    private boolean serverShouldBeRunning = true;
+    private volatile boolean serverShouldBeRunning = true;
+    // Parses the commands of the controller in each slot
+    private final ControllerSession[] sessions = new ControllerSession[MAX_CONTROLLERS];
+    // 1 for each slot a phone is connected to
+    private final AtomicIntegerArray connected = new AtomicIntegerArray(MAX_CONTROLLERS);
+    // Paces retries while Bluetooth is unavailable
+    private final BluetoothMonitor monitor = new BluetoothMonitor();
+    // Status last posted to the start menu, so unchanged ones are not posted again
+    private volatile String shownStatus;
 
     // Constructor for the Bluetooth server
     public BluetoothServer(SnakeApp app) {
         this.app = app;
+        for (int slot = 0; slot < MAX_CONTROLLERS; slot++) {
+            int bound = slot;
+            sessions[slot] = new ControllerSession(() -> currentTarget(bound));
+        }
     }
 
     // Main server thread execution method
     @Override
     public void run() {
+        try {
+            serve();
+        } catch (InterruptedException e) {
+            // Restore the interrupted status and stop the server
+            Thread.currentThread().interrupt();
+            serverShouldBeRunning = false;
+        } finally {
+            monitor.close();
+        }
+    }
+
+    // Runs the server until it is stopped.
+    private void serve() throws InterruptedException {
         LocalDevice localDevice = null;
 
         // First loop: Attempt to initialize Bluetooth
@@ -42,20 +73,18 @@ public class BluetoothServer implements Runnable {
                 } catch (BluetoothStateException ignored) {
                     // Discovery mode setting may fail, but we can still proceed
                 }
+                monitor.succeeded();
             } catch (BluetoothStateException bse) {
-                // Update UI and retry after delay if Bluetooth is off
-                SwingUtilities.invokeLater(() -> app.updateBluetoothStatus("Bluetooth: Off"));
-                if (sleepInterruptibly(RETRY_DELAY_MS)) return;
+                // Update UI and retry once the adapter may be back
+                ConnectionEvent.emit(ConnectionEvent.OFF, bse.getMessage());
+                showStatus("Bluetooth: Off");
+                monitor.awaitRetry();
             }
         }
 
         // Second loop: Main server operation
         while (serverShouldBeRunning) {
             StreamConnectionNotifier notifier = null;
-            StreamConnection connection = null;
-            InputStream inputStream = null;
-            OutputStream outputStream = null;
-
             try {
                 // Create a UUID object from our string
                 UUID uuid = new UUID(UUID_STRING, false);
@@ -64,115 +93,104 @@ public class BluetoothServer implements Runnable {
 
                 // Open the connection notifier
                 notifier = (StreamConnectionNotifier) Connector.open(url);
-                SwingUtilities.invokeLater(() -> app.updateBluetoothStatus("Bluetooth: Waiting for connection..."));
-
-                // Wait for and accept a client connection
-                connection = notifier.acceptAndOpen();
-                if (!serverShouldBeRunning) break;
-
-                // Connection established - update UI
-                SwingUtilities.invokeLater(() -> app.updateBluetoothStatus("Bluetooth: Connected"));
-
-                // Get the input and output streams
-                inputStream = connection.openInputStream();
-                outputStream = connection.openOutputStream();
-
-                // Create a reader for the input stream
-                BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-                String command;
+                ConnectionEvent.emit(ConnectionEvent.WAITING, null);
+                showConnected();
 
-                // Main command processing loop
+                // The one notifier keeps accepting phones for as long as it stays open
                 while (serverShouldBeRunning) {
-                    command = reader.readLine();
-                    if (command != null) {
-                        processCommand(command);
-                    } else {
-                        // Null command indicates connection was closed
-                        break;
-                    }
+                    StreamConnection connection = notifier.acceptAndOpen();
+                    monitor.succeeded();
+                    assign(connection);
                 }
             } catch (IOException e) {
-                // Handle connection errors
+                // The notifier failed - retry with backoff
                 if (serverShouldBeRunning) {
+                    ConnectionEvent.emit(ConnectionEvent.RETRY, e.getMessage());
                     if (e.getMessage() == null || !e.getMessage().contains("Notifier is closed")) {
-                        if (connection == null) {
-                            // No connection was established - retry after delay
-                            SwingUtilities.invokeLater(() -> app.updateBluetoothStatus("Bluetooth: Off"));
-                            if (sleepInterruptibly(1000)) return;
-                        }
+                        showStatus("Bluetooth: Off");
                     }
                 }
             } finally {
-                // Clean up resources
-                closeQuietly(inputStream);
-                closeQuietly(outputStream);
-                try {
-                    if (connection != null) connection.close();
-                } catch (IOException ignored) {
-                }
                 try {
                     if (notifier != null) notifier.close();
                 } catch (IOException ignored) {
                 }
+            }
+            if (serverShouldBeRunning) monitor.awaitRetry();
+        }
+    }
 
-                // If server should keep running, wait before retrying
-                if (serverShouldBeRunning) {
-                    if (sleepInterruptibly(500)) {
-                        return;
-                    }
-                }
+    // Hands a new connection to the lowest free slot, or closes it if there is none.
+    private void assign(StreamConnection connection) {
+        for (int slot = 0; slot < MAX_CONTROLLERS; slot++) {
+            if (connected.compareAndSet(slot, 0, 1)) {
+                int claimed = slot;
+                ConnectionEvent.emit(ConnectionEvent.CONNECTED, "Controller " + (slot + 1));
+                showConnected();
+                Thread reader = new Thread(() -> read(connection, claimed), "Controller-" + (slot + 1));
+                reader.setDaemon(true);
+                reader.start();
+                return;
             }
         }
+        ConnectionEvent.emit(ConnectionEvent.DISCONNECTED, "Every controller slot is taken");
+        try {
+            connection.close();
+        } catch (IOException ignored) {
+        }
     }
 
-    // Safely closes a Closeable resource, ignoring any exceptions
-    private void closeQuietly(Closeable resource) {
-        if (resource != null) {
+    // Hands a phone's commands straight to the game until the phone goes away.
+    private void read(StreamConnection connection, int slot) {
+        ControllerSession session = sessions[slot];
+        String reason = "Closed by controller";
+        try (InputStream in = connection.openInputStream()) {
+            session.serve(in);
+        } catch (IOException e) {
+            reason = e.getMessage();
+        } finally {
             try {
-                resource.close();
+                connection.close();
             } catch (IOException ignored) {
             }
+            ConnectionEvent.emit(ConnectionEvent.DISCONNECTED,
+                    "Controller " + (slot + 1) + ": " + reason + "; " + session.summary());
+            connected.set(slot, 0);
+            showConnected();
+            // The single player's controller is gone - pause and save the game
+            if (slot == 0) SwingUtilities.invokeLater(app::controllerDisconnected);
         }
     }
 
-    // Sleeps for the specified time, but can be interrupted
-    private boolean sleepInterruptibly(long millis) {
-        try {
-            Thread.sleep(millis);
-            return false;
-        } catch (InterruptedException ie) {
-            // Restore the interrupted status and stop the server
-            Thread.currentThread().interrupt();
-            serverShouldBeRunning = false;
-            return true;
-        }
+    // Checks whether a phone is connected to a controller slot.
+    public boolean isConnected(int slot) {
+        return slot >= 0 && slot < MAX_CONTROLLERS && connected.get(slot) != 0;
     }
 
-    // Processes a received command and updates the game state
-    private void processCommand(String command) {
-        final SnakeGame currentGame = app.game;
-        // Only process commands if game is in progress
-        if (app.gameState == GameState.GAME && currentGame != null) {
-            SwingUtilities.invokeLater(() -> {
-                // Verify game state hasn't changed since we checked
-                if (app.gameState == GameState.GAME && app.game == currentGame) {
-                    // Update snake direction based on command
-                    switch (command.toLowerCase()) {
-                        case "up":
-                            currentGame.setDirection(Direction.UP);
-                            break;
-                        case "down":
-                            currentGame.setDirection(Direction.DOWN);
-                            break;
-                        case "left":
-                            currentGame.setDirection(Direction.LEFT);
-                            break;
-                        case "right":
-                            currentGame.setDirection(Direction.RIGHT);
-                            break;
-                    }
-                }
-            });
+    // Shows how many phones are connected in the start menu.
+    private void showConnected() {
+        int count = 0;
+        for (int slot = 0; slot < MAX_CONTROLLERS; slot++) {
+            count += connected.get(slot);
         }
+        showStatus(count == 0 ? "Bluetooth: Waiting for connection..."
+                : count == 1 ? "Bluetooth: Connected" : "Bluetooth: " + count + " controllers connected");
+    }
+
+    // Shows a status in the start menu unless it is already showing.
+    private synchronized void showStatus(String status) {
+        if (status.equals(shownStatus)) return;
+        shownStatus = status;
+        SwingUtilities.invokeLater(() -> app.updateBluetoothStatus(status));
+    }
+
+    // Gets the game a controller slot's commands go to, or null if it has none.
+    // Slot 0 steers the single player game; on a shared board each slot steers its own snake.
+    private CommandTarget currentTarget(int slot) {
+        if (app.gameState != GameState.GAME) return null;
+        SnakeGame currentGame = app.game;
+        if (currentGame != null) return slot == 0 ? currentGame : null;
+        SharedBoardGame shared = app.sharedGame;
+        return shared != null ? shared.getController(slot) : null;
     }
-}
\ No newline at end of file
+}
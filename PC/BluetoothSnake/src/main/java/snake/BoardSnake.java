@@ -0,0 +1,95 @@
+package snake;
+
+// A snake on a SharedBoard or ArenaBoard.
+// The body is a PackedBody, so moving is an O(1) head push and tail pop and even a snake as
+// long as the board costs only a few bits per segment.
+public class BoardSnake {
+    // Index of the snake on its board
+    private final int id;
+    // Body cells
+    private final PackedBody body;
+    // Movement direction
+    private Direction direction;
+    // Food eaten
+    private int score = 0;
+    // Whether the snake is still on the board
+    private boolean alive = true;
+
+    // Constructs a one cell snake at 'cell' moving in 'direction', on a board of the given size.
+    BoardSnake(int id, int columns, int rows, int cell, Direction direction) {
+        this.id = id;
+        this.direction = direction;
+        this.body = new PackedBody(columns, rows, cell);
+    }
+
+    // Adds a new head cell, next to the current head.
+    void pushHead(int cell) {
+        body.pushHead(cell);
+    }
+
+    // Removes the tail cell and returns it.
+    int popTail() {
+        return body.popTail();
+    }
+
+    // Gets the cell of body segment i + 1, given 'cell', the cell of segment i (0 being the head).
+    // The body is walked head first: for (c = headCell(), i = 0; i < length; c = following(c, i++)).
+    public int following(int cell, int i) {
+        return body.following(cell, i);
+    }
+
+    // Gets the head cell.
+    public int headCell() {
+        return body.headCell();
+    }
+
+    // Gets the tail cell.
+    public int tailCell() {
+        return body.tailCell();
+    }
+
+    // Gets the index of the snake on its board.
+    public int getId() {
+        return id;
+    }
+
+    // Gets the number of body cells.
+    public int getLength() {
+        return body.getLength();
+    }
+
+    // Gets the movement direction.
+    public Direction getDirection() {
+        return direction;
+    }
+
+    // Sets the movement direction unless it would reverse the snake onto itself.
+    void turn(Direction newDirection) {
+        if ((direction == Direction.UP && newDirection != Direction.DOWN) ||
+                (direction == Direction.DOWN && newDirection != Direction.UP) ||
+                (direction == Direction.LEFT && newDirection != Direction.RIGHT) ||
+                (direction == Direction.RIGHT && newDirection != Direction.LEFT)) {
+            direction = newDirection;
+        }
+    }
+
+    // Gets the food eaten.
+    public int getScore() {
+        return score;
+    }
+
+    // Records eaten food.
+    void addScore() {
+        score++;
+    }
+
+    // Checks whether the snake is still on the board.
+    public boolean isAlive() {
+        return alive;
+    }
+
+    // Takes the snake off the board.
+    void kill() {
+        alive = false;
+    }
+}
@@ -0,0 +1,230 @@
+package snake;
+
+import java.awt.Point;
+import java.util.LinkedList;
+
+// Headless benchmark of snake body representations for very long snakes.
+// Grows the same random walk into a LinkedList<Point>, a ring of int cells and a PackedBody,
+// and reports the heap each retains per segment, then times moving (head push plus tail pop)
+// and walking the whole body as rendering does. Run with a heap large enough for the list,
+// e.g. -Xmx1g for the defaults.
+// Usage: java snake.BodyBenchmark [board size] [snake length] [snakes]
+public class BodyBenchmark {
+    // Moves timed per representation
+    private static final int MOVES = 5_000_000;
+    // Full body walks timed per representation
+    private static final int WALKS = 20;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        int length = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int snakes = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        // One walk shared by every representation, so they hold the same cells
+        int[] walk = randomWalk(size, length + MOVES, new GameRandom(1));
+        System.out.printf("%dx%d board, %d snakes of %d segments%n", size, size, snakes, length);
+        System.out.printf("%-12s %14s %14s %16s%n", "body", "bytes/segment", "moves/s", "segments/s walked");
+
+        Body[] kinds = {new ListBody(), new RingBody(), new Packed(size)};
+        double listBytes = 0;
+        for (Body kind : kinds) {
+            // Heap retained by a set of snakes, measured around a full collection
+            long before = usedHeap();
+            Body[] bodies = new Body[snakes];
+            for (int s = 0; s < snakes; s++) {
+                bodies[s] = kind.create(walk[0]);
+                for (int i = 1; i < length; i++) {
+                    bodies[s].push(walk[i]);
+                }
+            }
+            double bytesPerSegment = (usedHeap() - before) / (double) snakes / length;
+            if (listBytes == 0) listBytes = bytesPerSegment;
+
+            // Moving along the walk, then walking the moved body
+            Body body = bodies[0];
+            for (int s = 1; s < snakes; s++) {
+                bodies[s] = null;
+            }
+            long start = System.nanoTime();
+            body.move(walk, length, length + MOVES);
+            double movesPerSecond = MOVES * 1e9 / (System.nanoTime() - start);
+
+            long check = 0;
+            start = System.nanoTime();
+            for (int w = 0; w < WALKS; w++) {
+                check += body.walk();
+            }
+            double segmentsPerSecond = (double) WALKS * length * 1e9 / (System.nanoTime() - start);
+            if (check != (long) WALKS * body.walk()) throw new IllegalStateException("Walks disagree");
+
+            System.out.printf("%-12s %14.2f %14.0f %16.0f%s%n", kind.name(), bytesPerSegment, movesPerSecond,
+                    segmentsPerSecond, kind == kinds[0] ? "" : String.format("  (%.0fx smaller than the list)",
+                            listBytes / bytesPerSegment));
+        }
+    }
+
+    // Builds a walk of wrapping steps on the board that never reverses.
+    private static int[] randomWalk(int size, int steps, GameRandom random) {
+        int[] cells = new int[steps];
+        int column = size / 2;
+        int row = size / 2;
+        int direction = 3;
+        for (int i = 0; i < steps; i++) {
+            cells[i] = row * size + column;
+            // Mostly straight, sometimes a turn to either side
+            if (random.nextInt(8) == 0) direction = (direction < 2 ? 2 : 0) + random.nextInt(2);
+            switch (direction) {
+                case 0 -> row = (row + size - 1) % size;
+                case 1 -> row = (row + 1) % size;
+                case 2 -> column = (column + size - 1) % size;
+                default -> column = (column + 1) % size;
+            }
+        }
+        return cells;
+    }
+
+    // Gets the heap in use after a full collection.
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // A body representation under test. push() adds a head, move() pops the tail and pushes
+    // each cell of walk[from..to) in turn, and walk() visits every segment head first and
+    // returns the sum of their cells. The loops live in each class so their calls stay direct.
+    private interface Body {
+        String name();
+
+        Body create(int cell);
+
+        void push(int cell);
+
+        void move(int[] walk, int from, int to);
+
+        long walk();
+    }
+
+    // The original representation: one list node and one Point per segment
+    private static class ListBody implements Body {
+        private final LinkedList<Point> points = new LinkedList<>();
+        private static final int COLUMNS = 1 << 16;
+
+        public String name() {
+            return "LinkedList";
+        }
+
+        public Body create(int cell) {
+            ListBody body = new ListBody();
+            body.push(cell);
+            return body;
+        }
+
+        public void push(int cell) {
+            points.addFirst(new Point(cell % COLUMNS, cell / COLUMNS));
+        }
+
+        public void move(int[] walk, int from, int to) {
+            for (int i = from; i < to; i++) {
+                points.removeLast();
+                push(walk[i]);
+            }
+        }
+
+        public long walk() {
+            long sum = 0;
+            for (Point point : points) {
+                sum += point.y * COLUMNS + point.x;
+            }
+            return sum;
+        }
+    }
+
+    // A growable ring of int cells, as SnakeGame keeps its body
+    private static class RingBody implements Body {
+        private int[] cells = new int[16];
+        private int head = -1;
+        private int length = 0;
+
+        public String name() {
+            return "int ring";
+        }
+
+        public Body create(int cell) {
+            RingBody body = new RingBody();
+            body.push(cell);
+            return body;
+        }
+
+        public void push(int cell) {
+            if (length == cells.length) {
+                int[] bigger = new int[cells.length * 2];
+                for (int i = 0; i < length; i++) {
+                    bigger[length - 1 - i] = cells[(head - i) & (cells.length - 1)];
+                }
+                cells = bigger;
+                head = length - 1;
+            }
+            head = (head + 1) & (cells.length - 1);
+            cells[head] = cell;
+            length++;
+        }
+
+        public void move(int[] walk, int from, int to) {
+            for (int i = from; i < to; i++) {
+                length--;
+                push(walk[i]);
+            }
+        }
+
+        public long walk() {
+            long sum = 0;
+            for (int i = 0; i < length; i++) {
+                sum += cells[(head - i) & (cells.length - 1)];
+            }
+            return sum;
+        }
+    }
+
+    // The compact representation
+    private static class Packed implements Body {
+        private final int size;
+        private PackedBody body;
+
+        Packed(int size) {
+            this.size = size;
+        }
+
+        public String name() {
+            return "PackedBody";
+        }
+
+        public Body create(int cell) {
+            Packed packed = new Packed(size);
+            packed.body = new PackedBody(size, size, cell);
+            return packed;
+        }
+
+        public void push(int cell) {
+            body.pushHead(cell);
+        }
+
+        public void move(int[] walk, int from, int to) {
+            for (int i = from; i < to; i++) {
+                body.popTail();
+                body.pushHead(walk[i]);
+            }
+        }
+
+        public long walk() {
+            long sum = 0;
+            int cell = body.headCell();
+            for (int i = 0; i < body.getLength(); cell = body.following(cell, i++)) {
+                sum += cell;
+            }
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package snake;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Headless benchmark of the lockstep bot protocol.
+// Runs a BotServer in this process and, for each transport and batch size, connects a bot that
+// steers every game along a cycle through the board for a few seconds. Reports round trips and
+// game ticks per second, so the gain from batching games on one connection shows directly.
+// Usage: java snake.BotBenchmark [batch sizes, e.g. 1,8,64] [seconds] [difficulty]
+public class BotBenchmark {
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        String batches = args.length > 0 ? args[0] : "1,8,64,256";
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        Difficulty difficulty = args.length > 2 ? Difficulty.valueOf(args[2].toUpperCase()) : Difficulty.MEDIUM;
+
+        Path socket = Files.createTempDirectory("snake-bot").resolve("bot.sock");
+        SocketAddress[] addresses = {
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                UnixDomainSocketAddress.of(socket)
+        };
+        System.out.printf("%s, %d s per run%n", difficulty, seconds);
+        System.out.printf("%-5s %7s %14s %12s %14s %9s%n", "link", "games", "round trips/s", "us/step", "ticks/s", "games over");
+        for (SocketAddress address : addresses) {
+            try (BotServer server = new BotServer(address)) {
+                Thread thread = new Thread(server, "BotServer");
+                thread.setDaemon(true);
+                thread.start();
+                String link = address instanceof UnixDomainSocketAddress ? "unix" : "tcp";
+                for (String part : batches.split(",")) {
+                    int games = Integer.parseInt(part.trim());
+                    try (BotClient bot = new BotClient(server.getAddress(), games, difficulty, 1, 0)) {
+                        // Warm up, then measure
+                        play(bot, 1_000_000_000L);
+                        long start = System.nanoTime();
+                        long[] result = play(bot, seconds * 1_000_000_000L);
+                        double elapsed = (System.nanoTime() - start) / 1e9;
+                        System.out.printf("%-5s %7d %14.0f %12.1f %14.0f %9d%n", link, games, result[0] / elapsed,
+                                elapsed * 1e6 / result[0], result[0] * games / elapsed, result[1]);
+                    }
+                }
+            }
+        }
+        Files.deleteIfExists(socket.getParent());
+    }
+
+    // Steps every game along the board cycle for 'nanos'. Returns the steps and the games ended.
+    private static long[] play(BotClient bot, long nanos) throws IOException {
+        byte[] moves = new byte[bot.getGames()];
+        long steps = 0;
+        long ended = 0;
+        long end = System.nanoTime() + nanos;
+        while (System.nanoTime() - end < 0) {
+            for (int i = 0; i < moves.length; i++) {
+                if (bot.getStatus(i) != BotServer.RUNNING) ended++;
+                moves[i] = (byte) (JitWarmUp.nextDirection(bot.getHead(i)).ordinal() + 1);
+            }
+            bot.step(moves);
+            steps++;
+        }
+        return new long[]{steps, ended};
+    }
+}
@@ -0,0 +1,132 @@
+package snake;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+// Java side of the BotServer protocol, for bots written in Java and for BotBenchmark.
+// The observations of the batch are read in place from the last message received, so stepping
+// does not allocate. Not thread-safe.
+public class BotClient implements AutoCloseable {
+    private final SocketChannel channel;
+    private final int games;
+    private final int columns;
+    // Bytes of one game's observation, for the board size the server announced
+    private final int observationSize;
+    private final ByteBuffer observations;
+    private final ByteBuffer actions;
+
+    // Connects and starts 'games' games at 'difficulty', game i from seed + i. Games running for
+    // 'tickLimit' ticks are cut short, unless it is 0. Waits for the first observations.
+    public BotClient(SocketAddress address, int games, Difficulty difficulty, long seed, int tickLimit)
+            throws IOException {
+        // Opens a TCP or Unix domain socket to suit the address
+        channel = SocketChannel.open(address);
+        try {
+            if (channel.supportedOptions().contains(StandardSocketOptions.TCP_NODELAY)) {
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            }
+            ByteBuffer hello = ByteBuffer.allocate(BotServer.HELLO_SIZE);
+            hello.putInt(BotServer.MAGIC).putInt(BotServer.VERSION).putInt(games).putInt(difficulty.ordinal())
+                    .putLong(seed).putInt(tickLimit).flip();
+            write(hello);
+
+            ByteBuffer welcome = ByteBuffer.allocate(BotServer.WELCOME_SIZE);
+            read(welcome);
+            welcome.flip();
+            if (welcome.getInt() != BotServer.MAGIC || welcome.getInt() != BotServer.VERSION) {
+                throw new IOException("Not a bot server of version " + BotServer.VERSION);
+            }
+            columns = welcome.getInt();
+            int rows = welcome.getInt();
+            if (welcome.getInt() != games || columns <= 0 || rows <= 0) {
+                throw new IOException("Unexpected board or batch from the bot server");
+            }
+            observationSize = BotServer.OBSERVATION_HEADER + columns * rows;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        this.games = games;
+        observations = ByteBuffer.allocateDirect(games * observationSize);
+        actions = ByteBuffer.allocateDirect(games);
+        receive();
+    }
+
+    // Sends an action for every game, 0 or 1 + Direction ordinal, and waits for the observations
+    // after the tick.
+    public void step(byte[] moves) throws IOException {
+        actions.clear();
+        actions.put(moves, 0, games).flip();
+        write(actions);
+        receive();
+    }
+
+    // Gets the number of games in the batch.
+    public int getGames() {
+        return games;
+    }
+
+    // Gets the board width in cells.
+    public int getColumns() {
+        return columns;
+    }
+
+    // Gets the tick of game 'i'.
+    public long getTick(int i) {
+        return observations.getLong(i * observationSize);
+    }
+
+    // Gets the score of game 'i'.
+    public int getScore(int i) {
+        return observations.getInt(i * observationSize + Long.BYTES);
+    }
+
+    // Gets the head cell of game 'i'.
+    public int getHead(int i) {
+        return observations.getInt(i * observationSize + Long.BYTES + Integer.BYTES);
+    }
+
+    // Gets the food cell of game 'i', -1 if none.
+    public int getFood(int i) {
+        return observations.getInt(i * observationSize + Long.BYTES + 2 * Integer.BYTES);
+    }
+
+    // Gets the status of game 'i': BotServer.RUNNING, ENDED or TRUNCATED.
+    public byte getStatus(int i) {
+        return observations.get(i * observationSize + Long.BYTES + 3 * Integer.BYTES);
+    }
+
+    // Gets the grid code of a cell of game 'i'.
+    public byte getCell(int i, int cell) {
+        return observations.get(i * observationSize + BotServer.OBSERVATION_HEADER + cell);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Reads the observations of the whole batch.
+    private void receive() throws IOException {
+        observations.clear();
+        read(observations);
+    }
+
+    // Fills 'buffer'.
+    private void read(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) throw new EOFException("Bot server closed the connection");
+        }
+    }
+
+    // Writes all of 'buffer'.
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package snake;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+// One bot's connection to a BotServer, playing its batch of lockstep games; see BotServer for
+// the protocol. The observations of the whole batch go out in one write and the actions come
+// back in one read, and nothing is allocated per step.
+public class BotConnection implements Runnable {
+    // Cells of the board, and bytes of one game's observation
+    private static final int CELLS = SnakeGame.COLUMNS * SnakeGame.ROWS;
+    private static final int OBSERVATION_SIZE = BotServer.OBSERVATION_HEADER + CELLS;
+    // Directions by action - 1
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final SocketChannel channel;
+    // Board contents of the game being observed
+    private final byte[] board = new byte[CELLS];
+    // The batch and the status reported for each game
+    private SnakeGame[] games;
+    private byte[] status;
+    // Ticks after which a game is cut short, 0 for no limit
+    private int tickLimit;
+    // Seed of the next game started
+    private long nextSeed;
+    // Outgoing observations and incoming actions of the whole batch
+    private ByteBuffer observations;
+    private ByteBuffer actions;
+    // Counters
+    private long steps = 0;
+    private long gamesPlayed = 0;
+
+    // Constructs the handler of an accepted connection.
+    public BotConnection(SocketChannel channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public void run() {
+        try (channel) {
+            if (!handshake()) return;
+            System.out.printf("Bot connected: %d %s games%n", games.length, games[0].getDifficulty());
+            while (true) {
+                sendObservations();
+                actions.clear();
+                if (!read(actions)) break;
+                step();
+            }
+            System.out.printf("Bot disconnected after %d steps and %d finished games%n", steps, gamesPlayed);
+        } catch (IOException e) {
+            System.err.println("Bot connection lost: " + e.getMessage());
+        }
+    }
+
+    // Reads the bot's hello, sets up its games and answers. Returns false if the hello is refused.
+    private boolean handshake() throws IOException {
+        ByteBuffer hello = ByteBuffer.allocate(BotServer.HELLO_SIZE);
+        if (!read(hello)) return false;
+        hello.flip();
+        int magic = hello.getInt();
+        int version = hello.getInt();
+        int count = hello.getInt();
+        int difficulty = hello.getInt();
+        long seed = hello.getLong();
+        int limit = hello.getInt();
+        if (magic != BotServer.MAGIC || version != BotServer.VERSION || count < 1 || count > BotServer.MAX_GAMES
+                || difficulty < 0 || difficulty >= Difficulty.values().length || limit < 0) {
+            System.err.printf("Refusing bot: version %d, %d games, difficulty %d, tick limit %d%n",
+                    version, count, difficulty, limit);
+            return false;
+        }
+
+        games = new SnakeGame[count];
+        status = new byte[count];
+        for (int i = 0; i < count; i++) {
+            games[i] = new SnakeGame(Difficulty.values()[difficulty], seed + i);
+        }
+        nextSeed = seed + count;
+        tickLimit = limit;
+        observations = ByteBuffer.allocateDirect(count * OBSERVATION_SIZE);
+        actions = ByteBuffer.allocateDirect(count);
+
+        ByteBuffer welcome = ByteBuffer.allocate(BotServer.WELCOME_SIZE);
+        welcome.putInt(BotServer.MAGIC).putInt(BotServer.VERSION).putInt(SnakeGame.COLUMNS).putInt(SnakeGame.ROWS)
+                .putInt(count).flip();
+        write(welcome);
+        return true;
+    }
+
+    // Sends the observation of every game.
+    private void sendObservations() throws IOException {
+        observations.clear();
+        for (int i = 0; i < games.length; i++) {
+            SnakeGame game = games[i];
+            int head = game.getHeadCell();
+            int food = game.getFoodCell();
+            observations.putLong(game.getTick()).putInt(game.getScore()).putInt(head).putInt(food).put(status[i]);
+            game.copyBoard(board);
+            int grid = observations.position();
+            for (byte contents : board) {
+                observations.put(contents == 0 ? BotServer.EMPTY
+                        : (contents & SnakeGame.HIT_OBSTACLE) != 0 ? BotServer.OBSTACLE : BotServer.BODY);
+            }
+            observations.put(grid + head, BotServer.HEAD);
+            if (food >= 0) observations.put(grid + food, BotServer.FOOD);
+        }
+        observations.flip();
+        write(observations);
+    }
+
+    // Applies the actions and runs one tick of every game, or starts over the ones that ended.
+    private void step() throws IOException {
+        for (int i = 0; i < games.length; i++) {
+            SnakeGame game = games[i];
+            if (status[i] != BotServer.RUNNING) {
+                game.resetGame(nextSeed++);
+                status[i] = BotServer.RUNNING;
+                continue;
+            }
+            int action = actions.get(i);
+            if (action < 0 || action > DIRECTIONS.length) throw new IOException("Invalid action " + action);
+            if (action > 0) game.setDirection(DIRECTIONS[action - 1]);
+            if (game.tickHosted()) {
+                status[i] = BotServer.ENDED;
+                gamesPlayed++;
+            } else if (tickLimit > 0 && game.getTick() >= tickLimit) {
+                status[i] = BotServer.TRUNCATED;
+                gamesPlayed++;
+            }
+        }
+        steps++;
+    }
+
+    // Fills 'buffer'. Returns false if the bot closed the connection before sending anything.
+    private boolean read(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                if (buffer.position() == 0) return false;
+                throw new EOFException("Bot closed the connection mid-message");
+            }
+        }
+        return true;
+    }
+
+    // Writes all of 'buffer'.
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
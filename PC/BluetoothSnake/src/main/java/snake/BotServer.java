@@ -0,0 +1,123 @@
+package snake;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+
+// Local socket server letting external bots play SnakeGame in lockstep, so agents can be trained
+// against the game's own rules as fast as they can reply. There is no timer: each game ticks
+// once the bot has answered its observation. A connection plays a batch of games at once, which
+// shares every round trip between them.
+//
+// Listens on a loopback TCP port or on a Unix domain socket. All numbers are big-endian.
+//   bot:    int magic "SNKB", int version 1, int games (1..MAX_GAMES), int Difficulty ordinal,
+//           long seed, int tick limit per game (0 for none)
+//   server: int magic, int version, int columns, int rows, int games
+// Then, for as long as the bot stays connected:
+//   server: for each game in turn: long tick, int score, int head cell, int food cell,
+//           byte status, byte[columns * rows] grid
+//   bot:    byte[games] actions: 0 keeps going straight, 1 + Direction ordinal (UP, DOWN, LEFT,
+//           RIGHT) turns, where the game allows that turn
+// after which every game runs one tick. A cell is row * columns + column; the grid holds EMPTY,
+// BODY, HEAD, OBSTACLE (moving ones included) or FOOD per cell. Status is RUNNING, or ENDED or
+// TRUNCATED in the observation straight after the snake collided or the game reached the tick
+// limit; instead of its next tick such a game starts over, its action ignored. Game i starts
+// from seed + i and every restart takes the next seed not used yet, so the same hello and
+// actions always play out the same way. A hello the server cannot accept closes the connection.
+// Usage: java snake.BotServer [loopback port, 7425 by default, or Unix domain socket path]
+public class BotServer implements Runnable, AutoCloseable {
+    // Handshake
+    static final int MAGIC = 0x534E4B42; // "SNKB"
+    static final int VERSION = 1;
+    static final int HELLO_SIZE = 5 * Integer.BYTES + Long.BYTES;
+    static final int WELCOME_SIZE = 5 * Integer.BYTES;
+    // Games one connection may play
+    public static final int MAX_GAMES = 1024;
+    // Per game observation header, before the grid
+    static final int OBSERVATION_HEADER = Long.BYTES + 3 * Integer.BYTES + 1;
+    // Grid codes
+    public static final byte EMPTY = 0;
+    public static final byte BODY = 1;
+    public static final byte HEAD = 2;
+    public static final byte OBSTACLE = 3;
+    public static final byte FOOD = 4;
+    // Game status
+    public static final byte RUNNING = 0;
+    public static final byte ENDED = 1;
+    public static final byte TRUNCATED = 2;
+    // Default TCP port
+    private static final int DEFAULT_PORT = 7425;
+
+    private final ServerSocketChannel server;
+    // Address bound, with the port chosen when asked for port 0
+    private final SocketAddress address;
+    // Connections accepted so far, for thread names
+    private int connections = 0;
+
+    // Starts listening on 'address', a loopback InetSocketAddress or a UnixDomainSocketAddress.
+    public BotServer(SocketAddress address) throws IOException {
+        if (address instanceof UnixDomainSocketAddress unix) {
+            // A socket file left behind by a previous run would make binding fail
+            Files.deleteIfExists(unix.getPath());
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            server = ServerSocketChannel.open();
+        }
+        server.bind(address);
+        this.address = server.getLocalAddress();
+    }
+
+    // Gets the address bots connect to.
+    public SocketAddress getAddress() {
+        return address;
+    }
+
+    // Accepts bots until the server is closed, each on a thread of its own.
+    @Override
+    public void run() {
+        while (server.isOpen()) {
+            try {
+                SocketChannel channel = server.accept();
+                // Every message is answered before the next one is sent, so nothing is worth batching up
+                if (channel.supportedOptions().contains(StandardSocketOptions.TCP_NODELAY)) {
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                }
+                Thread thread = new Thread(new BotConnection(channel), "BotConnection-" + ++connections);
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                if (server.isOpen()) System.err.println("Bot server: " + e.getMessage());
+            }
+        }
+    }
+
+    // Stops accepting bots. Connections already made play on.
+    @Override
+    public void close() throws IOException {
+        server.close();
+        if (address instanceof UnixDomainSocketAddress unix) Files.deleteIfExists(unix.getPath());
+    }
+
+    // Parses a port number, which listens on loopback, or a Unix domain socket path.
+    public static SocketAddress parseAddress(String text) {
+        if (text.chars().allMatch(Character::isDigit)) {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(text));
+        }
+        return UnixDomainSocketAddress.of(text);
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        SocketAddress address = parseAddress(args.length > 0 ? args[0] : Integer.toString(DEFAULT_PORT));
+        BotServer server = new BotServer(address);
+        System.out.println("Waiting for bots on " + server.getAddress());
+        server.run();
+    }
+}
@@ -0,0 +1,62 @@
+package snake;
+
+// A headless single-player game driven by a SnakeBot, used to load a SessionHost.
+// Starts a new game whenever the snake dies.
+public class BotSession implements Runnable {
+    // Board size, matching the windowed game
+    private static final int COLUMNS = SnakeGame.COLUMNS;
+    private static final int ROWS = SnakeGame.ROWS;
+
+    // Difficulty the session is played at
+    private final Difficulty difficulty;
+    // Bot decisions
+    private final GameRandom random;
+    // Current game
+    private SharedBoard board;
+    // Games finished so far
+    private int gamesPlayed = 0;
+    // Ticks simulated so far
+    private long ticks = 0;
+
+    // Constructs a session with its own random seed.
+    public BotSession(Difficulty difficulty, long seed) {
+        this.difficulty = difficulty;
+        this.random = new GameRandom(seed);
+        newGame();
+    }
+
+    // Sets up a fresh board.
+    private void newGame() {
+        board = new SharedBoard(COLUMNS, ROWS, 1, random.nextInt(Integer.MAX_VALUE));
+        board.addSnake(COLUMNS / 2, ROWS / 2, Direction.RIGHT);
+        board.addRandomObstacles(difficulty.getNumObstacles(), ROWS / 2);
+        board.fillFood();
+    }
+
+    // Runs one tick.
+    @Override
+    public void run() {
+        SnakeBot.steer(board, board.getSnake(0), random);
+        board.tick();
+        ticks++;
+        if (board.getAliveCount() == 0) {
+            gamesPlayed++;
+            newGame();
+        }
+    }
+
+    // Gets the difficulty of the session.
+    public Difficulty getDifficulty() {
+        return difficulty;
+    }
+
+    // Gets the number of finished games.
+    public int getGamesPlayed() {
+        return gamesPlayed;
+    }
+
+    // Gets the number of ticks simulated.
+    public long getTicks() {
+        return ticks;
+    }
+}
@@ -0,0 +1,36 @@
+package snake;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Flight Recorder event for one controller command received over Bluetooth.
+@Name("snake.Command")
+@Label("Controller Command")
+@Category({"Bluetooth Snake", "Input"})
+@Description("A direction command received from the controller")
+@StackTrace(false)
+public class CommandEvent extends jdk.jfr.Event {
+    @Label("Direction")
+    public String direction;
+
+    @Label("Timestamped")
+    @Description("The controller sent its send time with the command")
+    public boolean timestamped;
+
+    @Label("Latency")
+    @Description("Delivery time above the fastest recent delivery, 0 if not timestamped")
+    @Timespan(Timespan.NANOSECONDS)
+    public long latency;
+
+    @Label("Queued")
+    @Description("The command was queued for a game; false if no game was running or its queue was full")
+    public boolean queued;
+
+    @Label("Coalesced")
+    @Description("The command repeated the direction queued just before it and was merged into it")
+    public boolean coalesced;
+}
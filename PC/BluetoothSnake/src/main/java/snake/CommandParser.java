@@ -0,0 +1,62 @@
+package snake;
+
+// Allocation-free parsing of controller command lines.
+// A line is a direction word, case-insensitive, optionally followed by "@<millis>" with the
+// controller's send time: "up", "LEFT", "down@123456".
+public class CommandParser {
+    // Direction words, in the order of the Direction enum
+    private static final byte[][] WORDS = {
+            {'u', 'p'}, {'d', 'o', 'w', 'n'}, {'l', 'e', 'f', 't'}, {'r', 'i', 'g', 'h', 't'}
+    };
+    private static final Direction[] DIRECTIONS = {Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT};
+
+    // Marker for a missing timestamp
+    public static final long NO_TIMESTAMP = -1;
+
+    private CommandParser() {
+    }
+
+    // Parses the direction of the line in data[offset, offset + length), or returns null.
+    public static Direction parseDirection(byte[] data, int offset, int length) {
+        int end = wordEnd(data, offset, length);
+        for (int d = 0; d < WORDS.length; d++) {
+            byte[] word = WORDS[d];
+            if (end - offset != word.length) continue;
+            boolean match = true;
+            for (int i = 0; i < word.length && match; i++) {
+                match = (data[offset + i] | 0x20) == word[i];
+            }
+            if (match) return DIRECTIONS[d];
+        }
+        return null;
+    }
+
+    // Parses the "@<millis>" suffix of the line, or returns NO_TIMESTAMP if there is none.
+    public static long parseTimestamp(byte[] data, int offset, int length) {
+        int at = wordEnd(data, offset, length);
+        int end = offset + length;
+        if (at >= end || data[at] != '@') return NO_TIMESTAMP;
+        long value = 0;
+        int digits = 0;
+        for (int i = at + 1; i < end; i++) {
+            byte b = data[i];
+            if (b >= '0' && b <= '9') {
+                if (digits++ == 18) return NO_TIMESTAMP; // Would overflow
+                value = value * 10 + (b - '0');
+            } else if (b != ' ' && b != '\r') {
+                return NO_TIMESTAMP;
+            }
+        }
+        return digits > 0 ? value : NO_TIMESTAMP;
+    }
+
+    // Finds the end of the direction word: the first '@', space or carriage return.
+    private static int wordEnd(byte[] data, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        while (i < end && data[i] != '@' && data[i] != ' ' && data[i] != '\r') {
+            i++;
+        }
+        return i;
+    }
+}
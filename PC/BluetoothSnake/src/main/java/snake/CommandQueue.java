@@ -0,0 +1,67 @@
+package snake;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bounded single-producer, single-consumer queue of timestamped direction commands.
+// The input thread offers commands and the game thread drains them at the start of each
+// tick. Entries live in preallocated arrays, so neither side allocates or takes a lock.
+// A command repeating the one queued just before it changes nothing and is coalesced into it.
+public class CommandQueue {
+    // Capacity, a power of two
+    private static final int CAPACITY = 64;
+    private static final int MASK = CAPACITY - 1;
+
+    // Outcomes of offer()
+    public static final int QUEUED = 0;
+    public static final int COALESCED = 1;
+    public static final int FULL = 2;
+
+    // Queued commands
+    private final Direction[] directions = new Direction[CAPACITY];
+    private final long[] issuedNanos = new long[CAPACITY];
+    // Next position to read, only advanced by the consumer
+    private final AtomicLong head = new AtomicLong();
+    // Next position to write, only advanced by the producer
+    private final AtomicLong tail = new AtomicLong();
+
+    // Consumer side callback
+    public interface Handler {
+        // Handles one command.
+        void onCommand(Direction direction, long issuedNanos);
+    }
+
+    // Adds a command. Returns QUEUED, COALESCED if it repeats the command still waiting last in
+    // the queue, which keeps its earlier issue time, or FULL if it was dropped.
+    public int offer(Direction direction, long issued) {
+        long t = tail.get();
+        long queued = t - head.get();
+        // The last slot was written by this thread; if the consumer takes it meanwhile, the
+        // repeat is just as redundant right after it was applied
+        if (queued > 0 && directions[(int) ((t - 1) & MASK)] == direction) return COALESCED;
+        if (queued >= CAPACITY) return FULL;
+        int slot = (int) (t & MASK);
+        directions[slot] = direction;
+        issuedNanos[slot] = issued;
+        // Publishes the slot to the consumer
+        tail.lazySet(t + 1);
+        return QUEUED;
+    }
+
+    // Hands every queued command to 'handler' in arrival order. Returns the number drained.
+    public int drain(Handler handler) {
+        long h = head.get();
+        long t = tail.get();
+        for (long i = h; i < t; i++) {
+            int slot = (int) (i & MASK);
+            handler.onCommand(directions[slot], issuedNanos[slot]);
+        }
+        // Frees the slots for the producer
+        head.lazySet(t);
+        return (int) (t - h);
+    }
+
+    // Gets the number of queued commands.
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+}
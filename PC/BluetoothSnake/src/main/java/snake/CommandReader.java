@@ -0,0 +1,64 @@
+package snake;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Splits a byte stream into newline-terminated command lines using one fixed buffer.
+// Lines are handed out as slices of the buffer, so reading does not allocate. A line longer
+// than the buffer is dropped up to its newline.
+public class CommandReader {
+    // Source of the command bytes
+    private final InputStream in;
+    // Read buffer; bytes [start, end) are received but not yet handed out
+    private final byte[] buffer;
+    private int start = 0;
+    private int end = 0;
+    // Set while skipping the rest of an overlong line
+    private boolean discarding = false;
+
+    // Receives each line, without its '\n'
+    public interface LineHandler {
+        // Handles the line in data[offset, offset + length). The bytes are only valid during the call.
+        void onLine(byte[] data, int offset, int length);
+
+        // Told when a line too long for the buffer has been dropped.
+        default void onOverlong() {
+        }
+    }
+
+    // Constructs a reader with room for lines of up to 'maxLineLength' bytes.
+    public CommandReader(InputStream in, int maxLineLength) {
+        this.in = in;
+        this.buffer = new byte[maxLineLength + 1];
+    }
+
+    // Reads and dispatches lines until the stream ends.
+    public void readLines(LineHandler handler) throws IOException {
+        while (true) {
+            // Hand out every complete line in the buffer
+            for (int i = start; i < end; i++) {
+                if (buffer[i] == '\n') {
+                    if (!discarding) handler.onLine(buffer, start, i - start);
+                    discarding = false;
+                    start = i + 1;
+                }
+            }
+
+            // Move the partial line to the front, or drop it if it cannot fit
+            if (start > 0) {
+                System.arraycopy(buffer, start, buffer, 0, end - start);
+                end -= start;
+                start = 0;
+            }
+            if (end == buffer.length) {
+                if (!discarding) handler.onOverlong();
+                discarding = true;
+                end = 0;
+            }
+
+            int read = in.read(buffer, end, buffer.length - end);
+            if (read < 0) return;
+            end += read;
+        }
+    }
+}
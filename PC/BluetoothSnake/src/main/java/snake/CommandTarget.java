@@ -0,0 +1,14 @@
+package snake;
+
+// A game that accepts controller commands from another thread.
+public interface CommandTarget {
+    // Queues a command issued at 'issuedNanos' (System.nanoTime() units) for the next tick.
+    // Returns CommandQueue.QUEUED, CommandQueue.COALESCED if it repeated the command queued
+    // before it, or CommandQueue.FULL if it was dropped.
+    int enqueueCommand(Direction direction, long issuedNanos);
+
+    // Tells the game whether a controller that stamps commands with their send time is feeding
+    // it, in which case a command may arrive after a tick it was meant for.
+    default void setLateInputPossible(boolean possible) {
+    }
+}
@@ -0,0 +1,39 @@
+package snake;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Flight Recorder event for a state change of the Bluetooth server.
+@Name("snake.Connection")
+@Label("Connection State")
+@Category({"Bluetooth Snake", "Bluetooth"})
+@Description("A state change of the Bluetooth server")
+@StackTrace(false)
+public class ConnectionEvent extends jdk.jfr.Event {
+    // States reported by BluetoothServer
+    public static final String OFF = "off";
+    public static final String WAITING = "waiting";
+    public static final String CONNECTED = "connected";
+    public static final String DISCONNECTED = "disconnected";
+    public static final String RETRY = "retry";
+
+    @Label("State")
+    public String state;
+
+    @Label("Detail")
+    @Description("Error message or other detail, if any")
+    public String detail;
+
+    // Records a state change.
+    public static void emit(String state, String detail) {
+        ConnectionEvent event = new ConnectionEvent();
+        if (event.shouldCommit()) {
+            event.state = state;
+            event.detail = detail;
+            event.commit();
+        }
+    }
+}
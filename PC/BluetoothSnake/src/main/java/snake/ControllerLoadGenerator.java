@@ -0,0 +1,230 @@
+package snake;
+
+import javax.swing.*;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+// Synthetic controller load for capacity testing the command input path.
+// Impersonates phone controllers over loopback TCP, standing in for the Bluetooth link: every
+// controller gets its own headless SnakeGame and ControllerSession, exactly as BluetoothServer
+// would set them up, and sends "<direction>@<millis>" lines at a fixed rate in bursts. The games
+// tick from one Swing Timer on the event dispatch thread, like the real ones.
+// Each second it reports sent and accepted commands, the share dropped, the deepest command
+// queue seen at a tick, and the time from issuing a command to a tick applying it.
+// Sessions apply their usual rate limit; run with -Dsnake.commandRate=0 to load the queues instead.
+// Usage: java snake.ControllerLoadGenerator [controllers] [commands/s per controller] [burst] [seconds] [tick ms]
+public class ControllerLoadGenerator {
+    // Direction words sent in turn, so about half of them actually turn the snake
+    private static final String[] WORDS = {"up", "left", "down", "right"};
+
+    // Controllers under test
+    private final List<Controller> controllers = new ArrayList<>();
+    // Deepest command queue seen at the start of a tick in the current report window
+    private volatile int maxQueueDepth;
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int rate = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        int burst = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        int tickMillis = args.length > 4 ? Integer.parseInt(args[4]) : Difficulty.MEDIUM.getDelay();
+
+        System.out.printf("%d controllers at %d commands/s in bursts of %d, ticking every %d ms%n",
+                count, rate, burst, tickMillis);
+        new ControllerLoadGenerator().run(count, rate, burst, seconds, tickMillis);
+        System.exit(0);
+    }
+
+    // Runs the load for the given number of seconds and prints the results.
+    private void run(int count, int rate, int burst, int seconds, int tickMillis) throws IOException, InterruptedException {
+        try (ServerSocket server = new ServerSocket(0, count, InetAddress.getLoopbackAddress())) {
+            for (int i = 0; i < count; i++) {
+                controllers.add(new Controller(i, server, rate, burst));
+            }
+        }
+
+        // Tick every game on the event dispatch thread
+        Timer timer = new Timer(tickMillis, e -> {
+            int depth = maxQueueDepth;
+            for (Controller controller : controllers) {
+                depth = Math.max(depth, controller.game.getQueuedCommands());
+                controller.game.tickHeadless();
+            }
+            maxQueueDepth = depth;
+        });
+        timer.start();
+        for (Controller controller : controllers) {
+            controller.start();
+        }
+
+        LatencyHistogram window = new LatencyHistogram();
+        LatencyHistogram total = new LatencyHistogram();
+        long lastSent = 0;
+        long lastQueued = 0;
+        for (int s = 1; s <= seconds; s++) {
+            Thread.sleep(1000);
+            long sent = 0;
+            long queued = 0;
+            window.reset();
+            for (Controller controller : controllers) {
+                sent += controller.sent;
+                queued += controller.session.getQueued();
+                // Move each game's latencies into the report window
+                LatencyHistogram latency = controller.game.getApplyLatency();
+                window.add(latency);
+                latency.reset();
+            }
+            total.add(window);
+            int depth = maxQueueDepth;
+            maxQueueDepth = 0;
+            // Report each second on its own so start-up does not hide the steady state
+            System.out.printf("%3ds sent %d/s accepted %d/s dropped %.1f%% max queue %d apply %s%n",
+                    s, sent - lastSent, queued - lastQueued, dropPercent(sent - lastSent, queued - lastQueued),
+                    depth, window.summary());
+            lastSent = sent;
+            lastQueued = queued;
+        }
+
+        // Stop sending first so everything sent has arrived by the time the totals are taken
+        for (Controller controller : controllers) {
+            controller.stopSending();
+        }
+        Thread.sleep(2L * tickMillis);
+        timer.stop();
+        long sent = 0;
+        long received = 0;
+        long queued = 0;
+        long coalesced = 0;
+        long rateLimited = 0;
+        long full = 0;
+        for (Controller controller : controllers) {
+            controller.stop();
+            sent += controller.sent;
+            received += controller.session.getCommands();
+            queued += controller.session.getQueued();
+            coalesced += controller.session.getCoalesced();
+            rateLimited += controller.session.getRateLimited();
+            full += controller.session.getDropped();
+        }
+        System.out.printf("total sent %d received %d accepted %d (coalesced %d) dropped %.1f%% (rate limited %d, queue full %d)%n",
+                sent, received, queued, coalesced, dropPercent(sent, queued), rateLimited, full);
+        System.out.printf("apply latency %s%n", total.summary());
+    }
+
+    // Gets the share of sent commands that were not accepted, in percent.
+    private static double dropPercent(long sent, long accepted) {
+        // Commands in flight at a window boundary can make a window accept more than it sent
+        return sent == 0 ? 0 : Math.max(0, 100.0 * (sent - accepted) / sent);
+    }
+
+    // One simulated phone: a sending thread on the client socket and a ControllerSession reading
+    // the server side into its own game.
+    private static class Controller implements Runnable {
+        private final SnakeGame game;
+        private final ControllerSession session;
+        private final Socket client;
+        private final Socket accepted;
+        private final Thread sender;
+        private final Thread reader;
+        // Time between bursts
+        private final long burstIntervalNanos;
+        private final int burst;
+        // Commands written to the socket, only written by the sending thread
+        private volatile long sent;
+        private volatile boolean running = true;
+
+        Controller(int id, ServerSocket server, int rate, int burst) throws IOException {
+            this.burst = burst;
+            this.burstIntervalNanos = 1_000_000_000L * burst / rate;
+            this.game = new SnakeGame(null, Difficulty.EASY);
+            game.stop(); // Ticked by the generator
+            this.session = new ControllerSession(() -> game);
+
+            client = new Socket(server.getInetAddress(), server.getLocalPort());
+            client.setTcpNoDelay(true);
+            accepted = server.accept();
+
+            reader = new Thread(() -> {
+                try {
+                    session.serve(accepted.getInputStream());
+                } catch (IOException ignored) {
+                    // Closed at the end of the run
+                }
+            }, "ControllerSession-" + id);
+            reader.setDaemon(true);
+            sender = new Thread(this, "Controller-" + id);
+            sender.setDaemon(true);
+        }
+
+        void start() {
+            reader.start();
+            sender.start();
+        }
+
+        void stopSending() throws InterruptedException {
+            running = false;
+            sender.join(1000);
+        }
+
+        void stop() throws InterruptedException {
+            stopSending();
+            try {
+                client.close();
+                accepted.close();
+            } catch (IOException ignored) {
+            }
+            reader.join(1000);
+        }
+
+        // Sends bursts of commands on a fixed schedule until stopped.
+        @Override
+        public void run() {
+            byte[] buffer = new byte[burst * 32];
+            int word = 0;
+            long next = System.nanoTime();
+            try {
+                OutputStream out = client.getOutputStream();
+                while (running) {
+                    long wait = next - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                        continue;
+                    }
+                    // The controller clock is this machine's monotonic clock in milliseconds
+                    long sentMillis = System.nanoTime() / 1_000_000;
+                    int length = 0;
+                    for (int i = 0; i < burst; i++) {
+                        length = appendLine(buffer, length, WORDS[word++ & 3], sentMillis);
+                    }
+                    out.write(buffer, 0, length);
+                    out.flush();
+                    sent += burst;
+                    next += burstIntervalNanos;
+                }
+            } catch (IOException e) {
+                if (running) System.err.println("Controller stopped: " + e.getMessage());
+            }
+        }
+
+        // Appends "<word>@<millis>\n" to the buffer and returns the new length.
+        private static int appendLine(byte[] buffer, int length, String word, long millis) {
+            for (int i = 0; i < word.length(); i++) {
+                buffer[length++] = (byte) word.charAt(i);
+            }
+            buffer[length++] = '@';
+            byte[] digits = Long.toString(millis).getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(digits, 0, buffer, length, digits.length);
+            length += digits.length;
+            buffer[length++] = '\n';
+            return length;
+        }
+    }
+}
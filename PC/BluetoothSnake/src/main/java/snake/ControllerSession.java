@@ -0,0 +1,153 @@
+package snake;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Supplier;
+
+// One controller connection's command stream.
+// Splits the stream into lines, parses each into a direction and an optional send time, and
+// queues the command for whichever game is current when it arrives. Works on the raw bytes,
+// so a command costs no allocation between the socket and the game's queue.
+// Whatever the peer sends, a connection holds a fixed amount of memory: lines longer than
+// MAX_LINE_LENGTH are dropped, lines beyond a token bucket's rate are dropped before they are
+// parsed, and the game's queue is bounded and coalesces repeated directions.
+public class ControllerSession implements CommandReader.LineHandler {
+    // Longest command line accepted; longer ones are dropped
+    private static final int MAX_LINE_LENGTH = 256;
+    // Lines accepted per second, and how many may come at once (-Dsnake.commandRate,
+    // -Dsnake.commandBurst); well above what a thumb can do. A rate of 0 disables the limit.
+    private static final int COMMAND_RATE = Integer.getInteger("snake.commandRate", 30);
+    private static final int COMMAND_BURST = Integer.getInteger("snake.commandBurst", 10);
+
+    // Gets the game commands go to, or null if none is running
+    private final Supplier<CommandTarget> targets;
+    // Maps controller send timestamps onto the local clock
+    private final InputClock inputClock = new InputClock();
+    // Game told that this controller's timestamped commands may arrive late, null if none
+    private CommandTarget lateTarget;
+    // Limits the rate of lines, null when unlimited
+    private final TokenBucket rateLimit = COMMAND_RATE > 0 ? new TokenBucket(COMMAND_RATE, COMMAND_BURST) : null;
+
+    // Counters, only written by the reading thread
+    private volatile long commands; // Lines that held a valid direction
+    private volatile long queued; // Commands accepted by a game
+    private volatile long coalesced; // Commands merged into the same direction queued just before
+    private volatile long dropped; // Commands lost to a full game queue
+    private volatile long rateLimited; // Lines dropped for arriving faster than the rate limit
+    private volatile long overlong; // Lines dropped for being longer than MAX_LINE_LENGTH
+    private volatile long invalid; // Lines that held no direction
+
+    // Constructs a session routing commands to the game returned by 'targets'.
+    public ControllerSession(Supplier<CommandTarget> targets) {
+        this.targets = targets;
+    }
+
+    // Reads commands from a newly connected controller until its stream ends.
+    public void serve(InputStream in) throws IOException {
+        inputClock.reset();
+        if (rateLimit != null) rateLimit.reset(System.nanoTime());
+        try {
+            new CommandReader(in, MAX_LINE_LENGTH).readLines(this);
+        } finally {
+            announceLateInput(null);
+        }
+    }
+
+    // Processes a received command line and queues it for the game's next tick.
+    // Commands may carry the controller's send time in milliseconds: "<direction>@<millis>".
+    @Override
+    public void onLine(byte[] data, int offset, int length) {
+        long arrivalNanos = System.nanoTime();
+        // A flood is turned away before it costs any parsing
+        if (rateLimit != null && !rateLimit.tryAcquire(arrivalNanos)) {
+            rateLimited++;
+            return;
+        }
+        Direction direction = CommandParser.parseDirection(data, offset, length);
+        if (direction == null) {
+            invalid++;
+            return;
+        }
+        commands++;
+        long sentMillis = CommandParser.parseTimestamp(data, offset, length);
+        long issuedNanos = sentMillis == CommandParser.NO_TIMESTAMP
+                ? arrivalNanos
+                : inputClock.issueTime(sentMillis, arrivalNanos);
+
+        // Only queue commands if a game is in progress
+        CommandTarget target = targets.get();
+        if (target != null && sentMillis != CommandParser.NO_TIMESTAMP) announceLateInput(target);
+        int outcome = target != null ? target.enqueueCommand(direction, issuedNanos) : CommandQueue.FULL;
+        boolean accepted = outcome != CommandQueue.FULL;
+        if (accepted) queued++;
+        if (outcome == CommandQueue.COALESCED) coalesced++;
+        if (outcome == CommandQueue.FULL && target != null) dropped++;
+
+        if (!FlightRecording.isActive()) return;
+        CommandEvent event = new CommandEvent();
+        if (event.shouldCommit()) {
+            event.direction = direction.name();
+            event.timestamped = sentMillis != CommandParser.NO_TIMESTAMP;
+            event.latency = arrivalNanos - issuedNanos;
+            event.queued = accepted;
+            event.coalesced = outcome == CommandQueue.COALESCED;
+            event.commit();
+        }
+    }
+
+    // Makes 'target' the game told to expect late commands from this controller, and the
+    // previous one no longer. Null withdraws it from the game told last.
+    private void announceLateInput(CommandTarget target) {
+        if (target == lateTarget) return;
+        if (lateTarget != null) lateTarget.setLateInputPossible(false);
+        if (target != null) target.setLateInputPossible(true);
+        lateTarget = target;
+    }
+
+    // Counts a line dropped for being too long.
+    @Override
+    public void onOverlong() {
+        overlong++;
+    }
+
+    // Gets the number of valid commands received.
+    public long getCommands() {
+        return commands;
+    }
+
+    // Gets the number of commands a game accepted, coalesced ones included.
+    public long getQueued() {
+        return queued;
+    }
+
+    // Gets the number of commands coalesced into the same direction queued just before.
+    public long getCoalesced() {
+        return coalesced;
+    }
+
+    // Gets the number of commands dropped because the game's queue was full.
+    public long getDropped() {
+        return dropped;
+    }
+
+    // Gets the number of lines dropped by the rate limit.
+    public long getRateLimited() {
+        return rateLimited;
+    }
+
+    // Gets the number of lines dropped for being too long.
+    public long getOverlong() {
+        return overlong;
+    }
+
+    // Gets the number of lines that were not a command.
+    public long getInvalid() {
+        return invalid;
+    }
+
+    // Formats the counters on one line.
+    public String summary() {
+        return String.format("commands %d queued %d coalesced %d dropped %d rate limited %d overlong %d invalid %d",
+                commands, queued, coalesced, dropped, rateLimited, overlong, invalid);
+    }
+}
@@ -1,7 +1,7 @@
 package snake;
 
 public enum Difficulty {
-    EASY(100, 0), MEDIUM(50, 0), HARD(50, 10);
+    EASY(100, 0, 0), MEDIUM(50, 0, 0), HARD(50, 10, 0), HAZARD(50, 4, 10);
 
     // The delay between snake movements in milliseconds
     private final int delay;
@@ -9,10 +9,14 @@ public enum Difficulty {
     // The number of obstacles for this difficulty level
     private final int numObstacles;
 
+    // The number of moving obstacles for this difficulty level
+    private final int numHazards;
+
     // Enum constructor for difficulty levels.
-    Difficulty(int delay, int numObstacles) {
+    Difficulty(int delay, int numObstacles, int numHazards) {
         this.delay = delay;
         this.numObstacles = numObstacles;
+        this.numHazards = numHazards;
     }
 
     // Gets the movement delay for this difficulty level.
@@ -24,4 +28,9 @@ public enum Difficulty {
     public int getNumObstacles() {
         return numObstacles;
     }
-}
\ No newline at end of file
+
+    // Gets the number of moving obstacles for this difficulty level.
+    public int getNumHazards() {
+        return numHazards;
+    }
+}
@@ -27,7 +27,8 @@ public class DifficultyButtonListener implements ActionListener {
         switch (currentDifficulty) {
             case EASY -> newDifficulty = Difficulty.MEDIUM;
             case MEDIUM -> newDifficulty = Difficulty.HARD;
-            default -> newDifficulty = Difficulty.EASY; // Wraps around from HARD to EASY
+            case HARD -> newDifficulty = Difficulty.HAZARD;
+            default -> newDifficulty = Difficulty.EASY; // Wraps around from HAZARD to EASY
         }
 
         // Update application with new difficulty
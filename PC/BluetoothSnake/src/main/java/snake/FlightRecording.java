@@ -0,0 +1,68 @@
+package snake;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+// Starts a Flight Recorder recording of the game when -Dsnake.jfr=<file> is given.
+// The recording combines the JDK's default settings, which cover GC pauses and safepoints,
+// with the bundled snake.jfc settings for the game's own events, so a stutter can be lined up
+// with what the JVM was doing at the time. The file is written when the application exits.
+public class FlightRecording {
+    // Settings bundled with the application
+    private static final String PROFILE = "/snake.jfc";
+    // How much history is kept on disk before the oldest chunks are dropped
+    private static final Duration MAX_AGE = Duration.ofMinutes(30);
+
+    private FlightRecording() {
+    }
+
+    // Checks whether Flight Recorder is running, in which case the game creates its events.
+    // While it is not, hot paths skip their events entirely rather than relying on escape
+    // analysis to remove the event objects.
+    public static boolean isActive() {
+        return FlightRecorder.isInitialized();
+    }
+
+    // Starts recording if requested on the command line. Failures are reported but not fatal.
+    public static void startIfRequested() {
+        String file = System.getProperty("snake.jfr");
+        if (file == null || file.isEmpty()) return;
+        try {
+            start(Path.of(file));
+        } catch (IOException | ParseException e) {
+            System.err.println("Could not start flight recording: " + e.getMessage());
+        }
+    }
+
+    // Starts a recording that is dumped to 'destination' on exit.
+    public static Recording start(Path destination) throws IOException, ParseException {
+        Map<String, String> settings = new HashMap<>(Configuration.getConfiguration("default").getSettings());
+        try (InputStream in = FlightRecording.class.getResourceAsStream(PROFILE)) {
+            if (in == null) throw new IOException(PROFILE + " is missing");
+            try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                settings.putAll(Configuration.create(reader).getSettings());
+            }
+        }
+
+        Recording recording = new Recording(settings);
+        recording.setName("Bluetooth Snake");
+        recording.setToDisk(true);
+        recording.setMaxAge(MAX_AGE);
+        recording.setDestination(destination);
+        recording.setDumpOnExit(true);
+        recording.start();
+        return recording;
+    }
+}
@@ -0,0 +1,93 @@
+package snake;
+
+// Rolling frame timing statistics.
+// Records how long each frame takes to draw and how long after a simulation tick its pixels
+// were presented. Values are aggregated over a one second window and then published as a
+// summary line, so recording a frame never allocates.
+// The summary text is only meant to be drawn by the thread that records the frames.
+public class FrameStats {
+    // Length of an aggregation window
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+
+    // Current window, only touched by the rendering thread
+    private long windowStart = System.nanoTime();
+    private int frames;
+    private long frameNanosSum;
+    private long frameNanosMax;
+    private int latencies;
+    private long latencyNanosSum;
+    private long latencyNanosMax;
+    // Last tick whose latency was recorded, so repeated frames of the same tick are not counted
+    private long lastTickNanos;
+
+    // Published results of the previous window
+    private final TextBuffer summaryText = new TextBuffer(96);
+    private volatile double fps;
+    private volatile double averageFrameMillis;
+    private volatile double averageLatencyMillis;
+
+    // Records one presented frame. 'tickNanos' is the System.nanoTime() of the tick it shows, or 0 if unknown.
+    public void recordFrame(long frameStartNanos, long presentedNanos, long tickNanos) {
+        long frameNanos = presentedNanos - frameStartNanos;
+        frames++;
+        frameNanosSum += frameNanos;
+        frameNanosMax = Math.max(frameNanosMax, frameNanos);
+
+        if (tickNanos != 0 && tickNanos != lastTickNanos) {
+            lastTickNanos = tickNanos;
+            long latency = presentedNanos - tickNanos;
+            latencies++;
+            latencyNanosSum += latency;
+            latencyNanosMax = Math.max(latencyNanosMax, latency);
+        }
+
+        if (presentedNanos - windowStart >= WINDOW_NANOS) {
+            publish(presentedNanos);
+        }
+    }
+
+    // Publishes the current window and starts a new one.
+    private void publish(long now) {
+        double seconds = (now - windowStart) / 1e9;
+        fps = frames / seconds;
+        averageFrameMillis = frames == 0 ? 0 : frameNanosSum / 1e6 / frames;
+        averageLatencyMillis = latencies == 0 ? 0 : latencyNanosSum / 1e6 / latencies;
+        summaryText.clear().append(fps, 0)
+                .append(" fps  frame ").append(averageFrameMillis, 2).append('/').append(frameNanosMax / 1e6, 2)
+                .append(" ms  tick-to-present ").append(averageLatencyMillis, 2).append('/').append(latencyNanosMax / 1e6, 2)
+                .append(" ms");
+
+        windowStart = now;
+        frames = 0;
+        frameNanosSum = 0;
+        frameNanosMax = 0;
+        latencies = 0;
+        latencyNanosSum = 0;
+        latencyNanosMax = 0;
+    }
+
+    // Gets a one line summary of the last window (average/max).
+    public String getSummary() {
+        return summaryText.toString();
+    }
+
+    // Gets the summary for drawing without allocating. Only valid on the thread recording frames.
+    public TextBuffer getSummaryText() {
+        return summaryText;
+    }
+
+    // Gets the frame rate of the last window.
+    public double getFps() {
+        return fps;
+    }
+
+    // Gets the average frame draw time of the last window in milliseconds.
+    public double getAverageFrameMillis() {
+        return averageFrameMillis;
+    }
+
+    // Gets the average tick-to-present latency of the last window in milliseconds.
+    public double getAverageLatencyMillis() {
+        return averageLatencyMillis;
+    }
+}
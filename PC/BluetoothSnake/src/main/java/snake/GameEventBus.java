@@ -0,0 +1,175 @@
+package snake;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Ring buffer of game events, in the style of a Disruptor, for observers of a running game.
+// The game publishes typed events into preallocated slots without locking or allocating.
+// Any number of consumers read through their own Subscriber at their own pace. Unlike a
+// Disruptor, the game never waits for consumers: one that falls more than a ring behind
+// loses the overwritten events and is told how many it missed.
+// Events are published under the game's lock, so publishing is single-writer.
+public class GameEventBus {
+    // Event types. 'a' and 'b' carry the details noted with each.
+    public static final int FOOD_EATEN = 1;        // a = cell, b = new score
+    public static final int COLLISION = 2;         // a = what was hit (SnakeGame board contents), b = final score
+    public static final int DIRECTION_CHANGED = 3; // a = new Direction ordinal, b = previous one
+    public static final int STATE_CHANGED = 4;     // a = GameState ordinal
+    public static final int PAUSED = 5;            // a = 1 when paused, 0 when resumed
+    // tick = first tick simulated again, a = FOOD_EATEN retracted, b = DIRECTION_CHANGED retracted.
+    // Retracts every FOOD_EATEN and DIRECTION_CHANGED published for that tick or later: consumers
+    // must take them back, as the re-simulated ticks publish the events that hold after the late
+    // command right after this one. The counts spare consumers keeping the ticks of past events.
+    public static final int ROLLBACK = 6;
+    public static final int RESET = 7;             // A new round started
+    public static final int TICK = 8;              // a = microseconds since the previous tick started, 0 if none; b = commands applied
+    public static final int COMMAND = 9;           // tick = the one it applies to; a = microseconds from issue to apply, b = Direction ordinal
+    public static final int CONTROLLER_LOST = 10;  // The controller disconnected
+
+    // Default capacity, a power of two
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private final int mask;
+    // Event slots
+    private final int[] types;
+    private final long[] ticks;
+    private final int[] as;
+    private final int[] bs;
+    // Sequence being written; a slot whose sequence is more than a ring behind it may be torn
+    private final AtomicLong claimed = new AtomicLong(-1);
+    // Last sequence fully written and visible to consumers
+    private final AtomicLong published = new AtomicLong(-1);
+
+    // Consumer side callback
+    public interface Handler {
+        // Handles one event.
+        void onEvent(int type, long tick, int a, int b);
+    }
+
+    // Constructs a bus with the default capacity.
+    public GameEventBus() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    // Constructs a bus holding the last 'capacity' events, rounded up to a power of two.
+    public GameEventBus(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        mask = size - 1;
+        types = new int[size];
+        ticks = new long[size];
+        as = new int[size];
+        bs = new int[size];
+    }
+
+    // Publishes an event. Never blocks, whatever the consumers are doing.
+    public void publish(int type, long tick, int a, int b) {
+        long sequence = published.get() + 1;
+        claimed.setOpaque(sequence);
+        // Readers must not see the slot's new contents before the claim
+        VarHandle.storeStoreFence();
+        int slot = (int) (sequence & mask);
+        types[slot] = type;
+        ticks[slot] = tick;
+        as[slot] = a;
+        bs[slot] = b;
+        // Publishes the slot to consumers
+        published.lazySet(sequence);
+    }
+
+    // Publishes an event without details.
+    public void publish(int type, long tick) {
+        publish(type, tick, 0, 0);
+    }
+
+    // Creates a consumer that sees every event published from now on.
+    public Subscriber subscribe() {
+        return new Subscriber(published.get() + 1);
+    }
+
+    // Gets the number of events published so far.
+    public long getPublished() {
+        return published.get() + 1;
+    }
+
+    // Gets the number of events the ring holds.
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    // Gets the name of an event type.
+    public static String typeName(int type) {
+        return switch (type) {
+            case FOOD_EATEN -> "food eaten";
+            case COLLISION -> "collision";
+            case DIRECTION_CHANGED -> "direction changed";
+            case STATE_CHANGED -> "state changed";
+            case PAUSED -> "paused";
+            case ROLLBACK -> "rollback";
+            case RESET -> "reset";
+            case TICK -> "tick";
+            case COMMAND -> "command";
+            case CONTROLLER_LOST -> "controller lost";
+            default -> "unknown";
+        };
+    }
+
+    // Read position of one consumer. Each Subscriber must be polled by one thread at a time.
+    public class Subscriber {
+        // Next sequence to read
+        private long next;
+        // Events overwritten before this consumer got to them
+        private volatile long lost = 0;
+
+        private Subscriber(long next) {
+            this.next = next;
+        }
+
+        // Hands up to 'limit' published events to 'handler' in order. Returns the number handled.
+        public int poll(Handler handler, int limit) {
+            long available = published.get();
+            int handled = 0;
+            while (next <= available && handled < limit) {
+                long oldest = available - mask;
+                if (next < oldest) {
+                    // Fell more than a ring behind; skip to the oldest event still there
+                    lost += oldest - next;
+                    next = oldest;
+                }
+                int slot = (int) (next & mask);
+                int type = types[slot];
+                long tick = ticks[slot];
+                int a = as[slot];
+                int b = bs[slot];
+                // The reads above must be done before checking they were not overwritten meanwhile
+                VarHandle.loadLoadFence();
+                long overwriting = claimed.getOpaque() - mask - 1;
+                if (next <= overwriting) {
+                    // The producer lapped this slot while it was being read
+                    lost += overwriting - next + 1;
+                    next = overwriting + 1;
+                    available = published.get();
+                    continue;
+                }
+                handler.onEvent(type, tick, a, b);
+                next++;
+                handled++;
+            }
+            return handled;
+        }
+
+        // Hands every published event to 'handler'. Returns the number handled.
+        public int poll(Handler handler) {
+            return poll(handler, Integer.MAX_VALUE);
+        }
+
+        // Gets the number of published events not read yet.
+        public long getBacklog() {
+            return published.get() + 1 - next;
+        }
+
+        // Gets the number of events lost by falling behind.
+        public long getLost() {
+            return lost;
+        }
+    }
+}
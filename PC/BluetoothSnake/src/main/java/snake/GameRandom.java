@@ -0,0 +1,34 @@
+package snake;
+
+// Small deterministic random generator (SplitMix64) whose whole state is one long.
+// Unlike java.util.Random the state can be read back and restored, so snapshots and
+// saved games reproduce exactly the same food and obstacle placements.
+public class GameRandom {
+    // Current generator state
+    private long state;
+
+    // Constructs a generator with the given seed.
+    public GameRandom(long seed) {
+        this.state = seed;
+    }
+
+    // Returns a uniformly distributed value in [0, bound).
+    public int nextInt(int bound) {
+        long z = (state += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        // Multiply-shift maps the top 32 bits onto the range without a division
+        return (int) (((z >>> 32) * bound) >>> 32);
+    }
+
+    // Gets the generator state.
+    public long getState() {
+        return state;
+    }
+
+    // Restores a previously read generator state.
+    public void setState(long state) {
+        this.state = state;
+    }
+}
@@ -0,0 +1,47 @@
+package snake;
+
+// Compact copy of everything that changes while a game is running.
+// Snake cells are stored head first as cell indices (row * columns + column) in a
+// preallocated array, so taking a snapshot every tick does not allocate.
+public class GameSnapshot {
+    // Snake cells, head first; only the first 'length' entries are valid
+    final int[] cells;
+    // Number of snake segments
+    int length;
+    // Movement direction
+    Direction direction;
+    // Food cell index
+    int food;
+    // Player score
+    int score;
+    // Random generator state
+    long randomState;
+    // Tick number the snapshot was taken before
+    long tick;
+
+    // Constructs a snapshot able to hold a snake covering the whole board.
+    public GameSnapshot(int boardCells) {
+        this.cells = new int[boardCells];
+    }
+
+    // Copies another snapshot into this one.
+    public void copyFrom(GameSnapshot other) {
+        System.arraycopy(other.cells, 0, cells, 0, other.length);
+        length = other.length;
+        direction = other.direction;
+        food = other.food;
+        score = other.score;
+        randomState = other.randomState;
+        tick = other.tick;
+    }
+
+    // Gets the tick number the snapshot was taken before.
+    public long getTick() {
+        return tick;
+    }
+
+    // Gets the score at the time of the snapshot.
+    public int getScore() {
+        return score;
+    }
+}
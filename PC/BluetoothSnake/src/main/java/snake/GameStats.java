@@ -0,0 +1,80 @@
+package snake;
+
+import java.util.concurrent.locks.LockSupport;
+
+// Statistics of one game, gathered from its event bus on a background thread.
+// Falls behind harmlessly: the game never waits for it.
+public class GameStats implements GameEventBus.Handler, AutoCloseable {
+    // Time between polls of the bus
+    private static final long POLL_NANOS = 50_000_000L;
+
+    private final GameEventBus.Subscriber subscriber;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    // Counters of the current round, guarded by this
+    private int foodEaten = 0;
+    private int turns = 0;
+    private int pauses = 0;
+    private int rollbacks = 0;
+
+    // Starts gathering statistics of a game.
+    public GameStats(GameEventBus events) {
+        subscriber = events.subscribe();
+        thread = new Thread(this::run, "GameStats");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Polls the bus until closed.
+    private void run() {
+        while (running) {
+            update();
+            LockSupport.parkNanos(POLL_NANOS);
+        }
+    }
+
+    // Reads the events published since the last update.
+    private synchronized void update() {
+        subscriber.poll(this);
+    }
+
+    @Override
+    public void onEvent(int type, long tick, int a, int b) {
+        switch (type) {
+            case GameEventBus.FOOD_EATEN -> foodEaten = b;
+            case GameEventBus.DIRECTION_CHANGED -> turns++;
+            case GameEventBus.PAUSED -> pauses += a;
+            case GameEventBus.ROLLBACK -> {
+                // The re-simulated ticks publish their food and turns again
+                rollbacks++;
+                foodEaten -= a;
+                turns -= b;
+            }
+            case GameEventBus.RESET -> {
+                foodEaten = 0;
+                turns = 0;
+                pauses = 0;
+                rollbacks = 0;
+            }
+            default -> {
+            }
+        }
+    }
+
+    // Formats the statistics of the current round, including events published up to now.
+    public synchronized String summary() {
+        update();
+        String text = String.format("Food eaten: %d, turns: %d, pauses: %d", foodEaten, turns, pauses);
+        if (rollbacks > 0) text += ", rollbacks: " + rollbacks;
+        if (subscriber.getLost() > 0) text += " (" + subscriber.getLost() + " events missed)";
+        return text;
+    }
+
+    // Stops gathering.
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+}
@@ -0,0 +1,70 @@
+package snake;
+
+import java.util.Arrays;
+
+// Headless benchmark of HazardField on large boards.
+// For each hazard count it moves the field tick by tick, timing the incremental index update
+// against rebuilding the whole collision index from scratch, and checks after every tick that
+// both agree. It also jumps back and forth as a rollback does and checks the index again.
+// Usage: java snake.HazardBenchmark [board size] [ticks] [hazard counts, e.g. 100,1000]
+public class HazardBenchmark {
+    // Bit hazards set in the index
+    private static final byte MARK = 2;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        String counts = args.length > 2 ? args[2] : "100,500,1000,10000";
+
+        System.out.printf("%dx%d board, %d ticks; hazards spawn one per tick%n", size, size, ticks);
+        System.out.printf("%8s %14s %14s %14s%n", "hazards", "incremental us", "rebuild us", "us/hazard");
+        for (String part : counts.split(",")) {
+            int number = Integer.parseInt(part.trim());
+            byte[] board = new byte[size * size];
+            byte[] rebuilt = new byte[size * size];
+            HazardField field = new HazardField(size, size, board, MARK);
+            field.generate(number, 42, -1, 1);
+
+            // Warm up, then time both ways of bringing the index up to date
+            long incremental = 0;
+            long rebuild = 0;
+            for (int round = 0; round < 2; round++) {
+                incremental = 0;
+                rebuild = 0;
+                for (long tick = 1; tick <= ticks; tick++) {
+                    long start = System.nanoTime();
+                    field.moveTo(round * ticks + tick);
+                    incremental += System.nanoTime() - start;
+
+                    start = System.nanoTime();
+                    rebuild(field, rebuilt);
+                    rebuild += System.nanoTime() - start;
+
+                    if (!Arrays.equals(board, rebuilt)) throw new IllegalStateException("Index differs at tick " + tick);
+                }
+            }
+
+            // A rollback moves back a few ticks and forward again
+            long now = field.getTick();
+            field.moveTo(now - 5);
+            rebuild(field, rebuilt);
+            if (!Arrays.equals(board, rebuilt)) throw new IllegalStateException("Index differs after moving back");
+            field.moveTo(now);
+            rebuild(field, rebuilt);
+            if (!Arrays.equals(board, rebuilt)) throw new IllegalStateException("Index differs after moving forward");
+
+            double incrementalMicros = incremental / 1000.0 / ticks;
+            System.out.printf("%8d %14.2f %14.2f %14.4f%n", field.getCount(), incrementalMicros,
+                    rebuild / 1000.0 / ticks, incrementalMicros / Math.max(1, field.getCount()));
+        }
+    }
+
+    // Rebuilds an index from scratch from where the hazards are.
+    private static void rebuild(HazardField field, byte[] index) {
+        Arrays.fill(index, (byte) 0);
+        for (int i = 0; i < field.getCount(); i++) {
+            int cell = field.getCell(i);
+            if (cell >= 0) index[cell] = MARK;
+        }
+    }
+}
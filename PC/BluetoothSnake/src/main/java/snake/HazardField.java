@@ -0,0 +1,199 @@
+package snake;
+
+import java.util.Arrays;
+
+// Moving obstacles that patrol, orbit and spawn over time, kept in a board's collision index.
+// Every hazard follows a fixed cyclic path of cells, taking one step every 'stride' ticks from
+// its spawn tick on, so where it is at any tick is a pure function of the tick. Moving to a
+// tick, forward or back after a rollback, only touches the cells of hazards that changed cell:
+// the index is updated incrementally and never rebuilt, so a tick costs O(hazards) however
+// large the board is. Hazards may overlap each other; a count per cell keeps the index right.
+// The board wraps around its edges.
+public class HazardField {
+    // Longest patrol, in cells
+    private static final int MAX_SPAN = 6;
+    // Moves around the ring of eight cells about a pivot, clockwise from its top left neighbour
+    private static final int[] ORBIT_MOVES = {3, 3, 1, 1, 2, 2, 0, 0};
+    // Placement attempts per hazard before giving up on it
+    private static final int ATTEMPTS = 100;
+
+    // Board and the bit hazards set in its collision index
+    private final int columns;
+    private final int rows;
+    private final byte[] board;
+    private final byte mark;
+    // Number of hazards on each cell
+    private final short[] counts;
+
+    // Path cells of every hazard, one after another
+    private int[] paths = new int[64];
+    private int pathSize = 0;
+    // Per hazard: first path cell, path length, ticks per step, starting path position, spawn tick
+    private int[] pathStart = new int[8];
+    private int[] pathLength = new int[8];
+    private int[] stride = new int[8];
+    private int[] phase = new int[8];
+    private long[] spawnTick = new long[8];
+    // Cell each hazard is on, -1 before it spawns
+    private int[] cells = new int[8];
+    private int count = 0;
+    // Tick the index reflects
+    private long tick = 0;
+
+    // Constructs an empty field over a board's collision index. Hazards set 'mark' in the cells
+    // they cover and clear it when they leave, leaving the other bits alone.
+    public HazardField(int columns, int rows, byte[] board, byte mark) {
+        this.columns = columns;
+        this.rows = rows;
+        this.board = board;
+        this.mark = mark;
+        this.counts = new short[columns * rows];
+    }
+
+    // Replaces the hazards with 'number' random ones derived from 'seed'. Paths avoid cells
+    // already carrying the mark, such as fixed obstacles sharing it, and the row 'safeRow' (-1
+    // for none). The same seed with the same marked cells gives the same hazards. The index is
+    // left at tick 0, and hazards spawn one every 'spawnInterval' ticks from then on.
+    public void generate(int number, long seed, int safeRow, int spawnInterval) {
+        clear();
+        GameRandom random = new GameRandom(seed);
+        int[] path = new int[2 * MAX_SPAN];
+        for (int i = 0; i < number; i++) {
+            for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+                int length = randomPath(random, path);
+                if (length > 0 && isClear(path, length, safeRow)) {
+                    add(path, length, 1 + random.nextInt(3), random.nextInt(length), (long) i * spawnInterval);
+                    break;
+                }
+            }
+        }
+        moveTo(0);
+    }
+
+    // Adds a hazard following 'path' (its first 'length' cells, each next to the previous one
+    // and the last next to the first), stepping every 'stride' ticks from path position
+    // 'phase' once tick 'spawn' is reached. It appears when the index next moves.
+    public void add(int[] path, int length, int stride, int phase, long spawn) {
+        if (count == cells.length) {
+            int capacity = count * 2;
+            pathStart = Arrays.copyOf(pathStart, capacity);
+            pathLength = Arrays.copyOf(pathLength, capacity);
+            this.stride = Arrays.copyOf(this.stride, capacity);
+            this.phase = Arrays.copyOf(this.phase, capacity);
+            spawnTick = Arrays.copyOf(spawnTick, capacity);
+            cells = Arrays.copyOf(cells, capacity);
+        }
+        if (pathSize + length > paths.length) paths = Arrays.copyOf(paths, Math.max(paths.length * 2, pathSize + length));
+        System.arraycopy(path, 0, paths, pathSize, length);
+        pathStart[count] = pathSize;
+        pathLength[count] = length;
+        this.stride[count] = stride;
+        this.phase[count] = phase;
+        spawnTick[count] = spawn;
+        cells[count] = -1;
+        pathSize += length;
+        count++;
+    }
+
+    // Moves every hazard to where it is at 'tick', updating only the cells that change.
+    public void moveTo(long tick) {
+        this.tick = tick;
+        for (int i = 0; i < count; i++) {
+            int cell = cellAt(i, tick);
+            int previous = cells[i];
+            if (cell == previous) continue;
+            if (previous >= 0 && --counts[previous] == 0) board[previous] &= (byte) ~mark;
+            if (cell >= 0 && counts[cell]++ == 0) board[cell] |= mark;
+            cells[i] = cell;
+        }
+    }
+
+    // Checks whether a hazard steps from cell 'from' to cell 'to' between 'tick' and the next
+    // tick, crossing whatever moves the other way without ever sharing a cell with it.
+    public boolean crosses(int from, int to, long tick) {
+        for (int i = 0; i < count; i++) {
+            if (cellAt(i, tick) == from && cellAt(i, tick + 1) == to) return true;
+        }
+        return false;
+    }
+
+    // Removes every hazard from the index and the field.
+    public void clear() {
+        for (int i = 0; i < count; i++) {
+            int cell = cells[i];
+            if (cell >= 0 && --counts[cell] == 0) board[cell] &= (byte) ~mark;
+        }
+        count = 0;
+        pathSize = 0;
+        tick = 0;
+    }
+
+    // Gets the cell a hazard is on at 'tick', or -1 before it spawns.
+    private int cellAt(int i, long tick) {
+        long age = tick - spawnTick[i];
+        if (age < 0) return -1;
+        return paths[pathStart[i] + (int) ((age / stride[i] + phase[i]) % pathLength[i])];
+    }
+
+    // Fills 'path' with a random patrol back and forth along a line or, one time in three, an
+    // orbit around the ring of eight cells about a pivot. Returns its length.
+    private int randomPath(GameRandom random, int[] path) {
+        int start = random.nextInt(columns * rows);
+        if (random.nextInt(3) == 0) {
+            int cell = step(step(start, 0), 2);
+            for (int k = 0; k < ORBIT_MOVES.length; k++) {
+                path[k] = cell;
+                cell = step(cell, ORBIT_MOVES[k]);
+            }
+            return ORBIT_MOVES.length;
+        }
+        // Out along a line and back, without repeating the two ends
+        int span = 3 + random.nextInt(MAX_SPAN - 2);
+        int direction = random.nextInt(4);
+        int cell = start;
+        for (int k = 0; k < span; k++) {
+            path[k] = cell;
+            path[2 * span - 2 - k] = cell;
+            cell = step(cell, direction);
+        }
+        return 2 * span - 2;
+    }
+
+    // Checks that no path cell carries the mark or is on the safe row.
+    private boolean isClear(int[] path, int length, int safeRow) {
+        for (int k = 0; k < length; k++) {
+            int cell = path[k];
+            if ((board[cell] & mark) != 0 || cell / columns == safeRow) return false;
+        }
+        return true;
+    }
+
+    // Gets the cell one move away, wrapping around the board edges. Moves are the ordinals of
+    // Direction: UP, DOWN, LEFT, RIGHT.
+    private int step(int cell, int move) {
+        int column = cell % columns;
+        int row = cell / columns;
+        switch (move) {
+            case 0 -> row = row == 0 ? rows - 1 : row - 1;
+            case 1 -> row = row == rows - 1 ? 0 : row + 1;
+            case 2 -> column = column == 0 ? columns - 1 : column - 1;
+            default -> column = column == columns - 1 ? 0 : column + 1;
+        }
+        return row * columns + column;
+    }
+
+    // Gets the number of hazards.
+    public int getCount() {
+        return count;
+    }
+
+    // Gets the cell of hazard i, or -1 if it has not spawned yet.
+    public int getCell(int i) {
+        return cells[i];
+    }
+
+    // Gets the tick the index reflects.
+    public long getTick() {
+        return tick;
+    }
+}
@@ -0,0 +1,233 @@
+package snake;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Persistent per-difficulty leaderboard.
+//
+// Every finished game is appended to "scores-<difficulty>.log" as a fixed 12 byte record
+// (long timestamp, int score). Next to it "scores-<difficulty>.idx" is a memory-mapped snapshot
+// of the top-K together with the log length it was computed from, so startup only has to
+// read the index and scan the log records appended after it. Appends and index updates run
+// on a single background thread so the game-over path never touches the disk.
+public class HighScoreStore implements AutoCloseable {
+    // Number of entries kept per difficulty
+    public static final int TOP_K = 10;
+
+    // Size of a single log record in bytes
+    private static final int RECORD_SIZE = Long.BYTES + Integer.BYTES;
+    // Index header: magic, version, valid log length, entry count
+    private static final int INDEX_MAGIC = 0x534E4B49; // "SNKI"
+    private static final int INDEX_VERSION = 1;
+    private static final int INDEX_LENGTH_OFFSET = 8;
+    private static final int INDEX_COUNT_OFFSET = 16;
+    private static final int INDEX_ENTRIES_OFFSET = 20;
+    private static final int INDEX_SIZE = INDEX_ENTRIES_OFFSET + TOP_K * RECORD_SIZE;
+
+    // Directory holding the log and index files
+    private final Path directory;
+    // In-memory top-K per difficulty, updated as soon as a game is recorded
+    private final Map<Difficulty, TopScores> topScores = new EnumMap<>(Difficulty.class);
+    // Top-K of the records already appended to each log, which is what the index may cover.
+    // Only touched by the writer thread after loading.
+    private final Map<Difficulty, TopScores> persisted = new EnumMap<>(Difficulty.class);
+    // Open log channels per difficulty, only touched by the writer thread
+    private final Map<Difficulty, FileChannel> logs = new EnumMap<>(Difficulty.class);
+    // Mapped index files per difficulty, only touched by the writer thread after loading
+    private final Map<Difficulty, MappedByteBuffer> indexes = new EnumMap<>(Difficulty.class);
+    // Single background thread performing all disk writes in submission order
+    private final ExecutorService writer;
+
+    // Opens the store in the default data directory (~/.bluetoothsnake, or -Dsnake.dataDir).
+    public HighScoreStore() {
+        this(defaultDirectory());
+    }
+
+    // Opens the store in the given directory and loads all leaderboards.
+    public HighScoreStore(Path directory) {
+        this.directory = directory;
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "HighScoreWriter");
+            t.setDaemon(true);
+            return t;
+        });
+
+        for (Difficulty difficulty : Difficulty.values()) {
+            topScores.put(difficulty, new TopScores(TOP_K));
+            persisted.put(difficulty, new TopScores(TOP_K));
+        }
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            // Leaderboards are not essential; keep running without them
+            System.err.println("High scores unavailable: " + e.getMessage());
+            return;
+        }
+        // Each difficulty loads on its own, so one bad file only loses its own leaderboard
+        for (Difficulty difficulty : Difficulty.values()) {
+            try {
+                load(difficulty);
+            } catch (IOException e) {
+                // Without an open log its scores are neither shown nor written
+                persisted.get(difficulty).clear();
+                topScores.get(difficulty).clear();
+                System.err.println("High scores for " + difficulty + " unavailable: " + e.getMessage());
+            }
+        }
+    }
+
+    // Gets the default data directory.
+    public static Path defaultDirectory() {
+        String override = System.getProperty("snake.dataDir");
+        if (override != null) return Paths.get(override);
+        return Paths.get(System.getProperty("user.home"), ".bluetoothsnake");
+    }
+
+    // Records a finished game. Updates the in-memory leaderboard immediately
+    // and queues the disk write; never blocks on I/O.
+    public void record(Difficulty difficulty, int score) {
+        long timestamp = System.currentTimeMillis();
+        topScores.get(difficulty).offer(score, timestamp);
+        writer.execute(() -> append(difficulty, score, timestamp));
+    }
+
+    // Gets the current top scores for a difficulty, best first.
+    public List<ScoreEntry> getTopScores(Difficulty difficulty) {
+        return topScores.get(difficulty).entries();
+    }
+
+    // Flushes pending writes and releases the files.
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (FileChannel log : logs.values()) {
+            try {
+                log.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    // Loads one difficulty's leaderboard from its index, catching up on any log tail.
+    private void load(Difficulty difficulty) throws IOException {
+        String name = "scores-" + difficulty.name().toLowerCase();
+        FileChannel log = FileChannel.open(directory.resolve(name + ".log"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer index;
+        TopScores top = persisted.get(difficulty);
+        try (FileChannel indexChannel = FileChannel.open(directory.resolve(name + ".idx"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_SIZE);
+
+            // Drop a torn record left behind by a crash mid-append
+            long logLength = log.size() - log.size() % RECORD_SIZE;
+            log.truncate(logLength);
+            log.position(logLength);
+
+            long indexed = readIndex(index, top, logLength);
+            scanLog(log, indexed, logLength, top);
+            if (indexed != logLength) {
+                writeIndex(index, top, logLength);
+            }
+        } catch (IOException e) {
+            log.close();
+            throw e;
+        }
+        TopScores shown = topScores.get(difficulty);
+        for (ScoreEntry entry : top.entries()) {
+            shown.offer(entry.score(), entry.timestamp());
+        }
+
+        logs.put(difficulty, log);
+        indexes.put(difficulty, index);
+    }
+
+    // Reads the index into 'top'. Returns the log length it covers, or 0 if it must be rebuilt.
+    private long readIndex(MappedByteBuffer index, TopScores top, long logLength) {
+        long indexed = index.getLong(INDEX_LENGTH_OFFSET);
+        int count = index.getInt(INDEX_COUNT_OFFSET);
+        if (index.getInt(0) != INDEX_MAGIC || index.getInt(4) != INDEX_VERSION
+                || indexed <= 0 || indexed > logLength || indexed % RECORD_SIZE != 0
+                || count < 0 || count > TOP_K) {
+            return 0;
+        }
+        for (int i = 0; i < count; i++) {
+            int offset = INDEX_ENTRIES_OFFSET + i * RECORD_SIZE;
+            top.offer(index.getInt(offset + Long.BYTES), index.getLong(offset));
+        }
+        return indexed;
+    }
+
+    // Feeds the log records in [from, to) into 'top' using a read-only mapping.
+    private void scanLog(FileChannel log, long from, long to, TopScores top) throws IOException {
+        if (from >= to) return;
+        MappedByteBuffer records = log.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        while (records.remaining() >= RECORD_SIZE) {
+            long timestamp = records.getLong();
+            int score = records.getInt();
+            if (score > top.threshold()) {
+                top.offer(score, timestamp);
+            }
+        }
+    }
+
+    // Writes the current top-K to the mapped index. The covered length is cleared first and
+    // written last so a crash in between leaves an index that is rebuilt rather than trusted.
+    private void writeIndex(MappedByteBuffer index, TopScores top, long logLength) {
+        index.putLong(INDEX_LENGTH_OFFSET, 0);
+        index.putInt(0, INDEX_MAGIC);
+        index.putInt(4, INDEX_VERSION);
+        List<ScoreEntry> entries = top.entries();
+        for (int i = 0; i < entries.size(); i++) {
+            int offset = INDEX_ENTRIES_OFFSET + i * RECORD_SIZE;
+            index.putLong(offset, entries.get(i).timestamp());
+            index.putInt(offset + Long.BYTES, entries.get(i).score());
+        }
+        index.putInt(INDEX_COUNT_OFFSET, entries.size());
+        index.putLong(INDEX_LENGTH_OFFSET, logLength);
+    }
+
+    // Appends one record to the log and refreshes the index if the top-K changed. Runs on the writer thread.
+    // The index only takes the score once its record is written, so it never lists an entry from
+    // past the log length it covers, which a reload would then count a second time.
+    private void append(Difficulty difficulty, int score, long timestamp) {
+        FileChannel log = logs.get(difficulty);
+        MappedByteBuffer index = indexes.get(difficulty);
+        if (log == null || index == null) return;
+        try {
+            ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+            record.putLong(timestamp).putInt(score).flip();
+            while (record.hasRemaining()) {
+                log.write(record);
+            }
+            long logLength = log.position();
+            TopScores top = persisted.get(difficulty);
+            if (top.offer(score, timestamp)) {
+                writeIndex(index, top, logLength);
+            } else {
+                // Entries are unchanged, only advance the covered length
+                index.putLong(INDEX_LENGTH_OFFSET, logLength);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to save score: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package snake;
+
+// Maps controller timestamps onto the local System.nanoTime() clock.
+// The controller's clock has an unknown offset, so the offset is estimated as the smallest
+// (arrival - sent) difference seen over the recent samples, i.e. the fastest delivery.
+// Issue times are therefore relative to the best-case link latency, which is exactly what
+// is needed to tell how late a command arrived compared to its siblings.
+public class InputClock {
+    // Number of recent samples the minimum is taken over
+    private static final int SAMPLES = 64;
+
+    // Recent (arrival - sent) differences in nanoseconds
+    private final long[] offsets = new long[SAMPLES];
+    // Number of samples recorded so far
+    private long count = 0;
+
+    // Records a command sent at 'sentMillis' on the controller clock and received at 'arrivalNanos'.
+    // Returns the estimated local issue time in System.nanoTime() units.
+    public long issueTime(long sentMillis, long arrivalNanos) {
+        long sentNanos = sentMillis * 1_000_000L;
+        offsets[(int) (count++ % SAMPLES)] = arrivalNanos - sentNanos;
+
+        long offset = Long.MAX_VALUE;
+        int valid = (int) Math.min(count, SAMPLES);
+        for (int i = 0; i < valid; i++) {
+            offset = Math.min(offset, offsets[i]);
+        }
+        return sentNanos + offset;
+    }
+
+    // Forgets all samples, e.g. when a new controller connects.
+    public void reset() {
+        count = 0;
+    }
+}
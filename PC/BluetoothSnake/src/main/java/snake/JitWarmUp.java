@@ -0,0 +1,112 @@
+package snake;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+// Compiles the game's hot paths before the first real game, so that game does not start out
+// interpreted. While the start menu is shown, a low priority background thread plays a few
+// thousand ticks of throwaway hosted games, going through every difficulty in turn and steering
+// along a cycle through the board, and draws each tick offscreen as the panel would. The games
+// are never shown and record no replays, statistics or telemetry; only the compiled code
+// outlives them. Their ticks do show up in a Flight Recorder recording, on the JitWarmUp thread.
+// Set the number of ticks with -Dsnake.warmUpTicks=<n>; 0 turns the warm-up off.
+public class JitWarmUp {
+    // Ticks played by the warm-up of the application
+    public static final int TICKS = Integer.getInteger("snake.warmUpTicks", 5000);
+
+    // Board size of SnakeGame
+    private static final int COLUMNS = SnakeGame.COLUMNS;
+    private static final int ROWS = SnakeGame.ROWS;
+    // Restart before the snake fills the board and food can no longer be placed
+    private static final int MAX_LENGTH = COLUMNS * ROWS / 2;
+    // Logical size of the offscreen surface, that of the game panel
+    private static final int SIZE = 400;
+
+    private final int ticks;
+    private final Thread thread;
+    private volatile boolean running = true;
+    // Progress, for reporting
+    private volatile int ticksRun;
+    private volatile long elapsedNanos;
+
+    // Constructs a warm-up of 'ticks' ticks; start() runs it.
+    public JitWarmUp(int ticks) {
+        this.ticks = ticks;
+        thread = new Thread(this::run, "JitWarmUp");
+        thread.setDaemon(true);
+        // The menu stays responsive and a game started early gets the processor first
+        thread.setPriority(Thread.MIN_PRIORITY);
+    }
+
+    // Starts the warm-up of the application unless it is turned off. Returns null if it is.
+    public static JitWarmUp startIfEnabled() {
+        if (TICKS <= 0) return null;
+        JitWarmUp warmUp = new JitWarmUp(TICKS);
+        warmUp.start();
+        return warmUp;
+    }
+
+    // Starts warming up in the background.
+    public void start() {
+        thread.start();
+    }
+
+    // Stops warming up after the current tick, as when the first game starts before it is done.
+    public void stop() {
+        running = false;
+    }
+
+    // Waits for the warm-up to finish.
+    public void await() throws InterruptedException {
+        thread.join();
+    }
+
+    // Gets the number of ticks played so far.
+    public int getTicksRun() {
+        return ticksRun;
+    }
+
+    // Gets how long the warm-up took, 0 while it is running.
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    private void run() {
+        long start = System.nanoTime();
+        BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        Difficulty[] difficulties = Difficulty.values();
+        int played = 0;
+        try {
+            SnakeGame game = null;
+            for (int i = 0; i < ticks && running; i++) {
+                // Each difficulty gets an equal share of the ticks, with a fresh game whenever one ends
+                Difficulty difficulty = difficulties[(int) ((long) i * difficulties.length / ticks)];
+                if (game == null || game.getDifficulty() != difficulty) game = new SnakeGame(difficulty);
+
+                game.enqueueCommand(nextDirection(game.getHeadCell()), System.nanoTime());
+                boolean over = game.tickHosted();
+                game.render(g, SIZE, SIZE, null);
+                ticksRun = ++played;
+                if (over || game.getLength() > MAX_LENGTH) game = null;
+            }
+        } catch (RuntimeException e) {
+            // A failed warm-up only means a less smooth first game
+            System.err.println("JIT warm-up stopped after " + played + " ticks: " + e);
+        } finally {
+            g.dispose();
+            elapsedNanos = System.nanoTime() - start;
+        }
+    }
+
+    // Gets the direction that keeps the head on a cycle through every cell: row 0 left to
+    // right, then a zigzag down through columns 1..19, and column 0 back up.
+    static Direction nextDirection(int head) {
+        int column = head % COLUMNS;
+        int row = head / COLUMNS;
+        if (column == 0) return row == 0 ? Direction.RIGHT : Direction.UP;
+        if (row == 0) return column < COLUMNS - 1 ? Direction.RIGHT : Direction.DOWN;
+        if (row % 2 == 1) return column > 1 || row == ROWS - 1 ? Direction.LEFT : Direction.DOWN;
+        return column < COLUMNS - 1 ? Direction.RIGHT : Direction.DOWN;
+    }
+}
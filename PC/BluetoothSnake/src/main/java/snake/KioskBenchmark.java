@@ -0,0 +1,119 @@
+package snake;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+// Headless measurement of what each kiosk of a KioskHost costs.
+// For each kiosk count it builds the hosted games exactly as KioskHost does, ticks them from one
+// SessionHost, feeds every kiosk's ControllerSession a command about five times a second as a
+// player would, and runs the shared render pass at 60 Hz, drawing each game that changed into one
+// tile-sized image. It reports heap and CPU per kiosk, the thread count, and how late ticks start.
+// CPU per kiosk is the growth over the smallest count, so the fixed cost of the host is left out.
+// Usage: java snake.KioskBenchmark [kiosk counts, e.g. 1,4,16] [seconds] [workers] [difficulty]
+public class KioskBenchmark {
+    // Interval of the render pass, as in KioskHost
+    private static final long FRAME_NANOS = 16_000_000L;
+    // Render passes between commands to a kiosk, about five commands a second
+    private static final int FRAMES_PER_COMMAND = 12;
+    // Command lines sent in turn
+    private static final byte[][] LINES = {{'u', 'p'}, {'l', 'e', 'f', 't'}, {'d', 'o', 'w', 'n'}, {'r', 'i', 'g', 'h', 't'}};
+
+    public static void main(String[] args) throws InterruptedException {
+        System.setProperty("java.awt.headless", "true");
+        String counts = args.length > 0 ? args[0] : "1,4,16,64";
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int workers = args.length > 2 ? Integer.parseInt(args[2]) : Math.min(4, Runtime.getRuntime().availableProcessors());
+        Difficulty difficulty = args.length > 3 ? Difficulty.valueOf(args[3].toUpperCase()) : Difficulty.MEDIUM;
+        com.sun.management.OperatingSystemMXBean os =
+                (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+
+        System.out.printf("%s, %d s per run, %d tick workers%n", difficulty, seconds, workers);
+        System.out.printf("%7s %12s %9s %13s %8s %12s %12s %9s %7s%n", "kiosks", "heap/kiosk", "cpu %",
+                "cpu %/kiosk", "threads", "late p99 us", "render p99", "overruns", "games");
+        double baseCpu = -1;
+        int baseCount = 0;
+        for (String part : counts.split(",")) {
+            int count = Integer.parseInt(part.trim());
+
+            long before = usedMemory();
+            List<KioskSession> sessions = new ArrayList<>(count);
+            for (int i = 1; i <= count; i++) {
+                sessions.add(new KioskSession(i, difficulty, null));
+            }
+            long heap = (usedMemory() - before) / count;
+
+            BufferedImage image = new BufferedImage(400, 400, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = image.createGraphics();
+            LatencyHistogram render = new LatencyHistogram();
+            int threads;
+            double cpu;
+            long overruns;
+            String lateness;
+            try (SessionHost host = new SessionHost(workers)) {
+                for (KioskSession session : sessions) {
+                    host.addSession(difficulty, session);
+                }
+                // Warm up for a second, then measure
+                runFrames(sessions, g, render, 1_000_000_000L);
+                render.reset();
+                host.getLateness().reset();
+                long startOverruns = host.getOverruns();
+                long startCpu = os.getProcessCpuTime();
+                long start = System.nanoTime();
+                runFrames(sessions, g, render, seconds * 1_000_000_000L);
+                cpu = 100.0 * (os.getProcessCpuTime() - startCpu) / (System.nanoTime() - start);
+                threads = Thread.activeCount();
+                lateness = Long.toString(host.getLateness().percentile(99));
+                overruns = host.getOverruns() - startOverruns;
+            }
+            g.dispose();
+
+            if (baseCpu < 0) {
+                baseCpu = cpu;
+                baseCount = count;
+            }
+            String perKiosk = count > baseCount ? String.format("%.3f", (cpu - baseCpu) / (count - baseCount)) : "-";
+            int games = 0;
+            for (KioskSession session : sessions) {
+                games += session.getGamesPlayed();
+            }
+            System.out.printf("%7d %12d %9.1f %13s %8d %12s %12d %9d %7d%n", count, heap, cpu, perKiosk, threads,
+                    lateness, render.percentile(99), overruns, games);
+        }
+        System.exit(0);
+    }
+
+    // Runs render passes for 'nanos', sending each kiosk a command every FRAMES_PER_COMMAND passes.
+    private static void runFrames(List<KioskSession> sessions, Graphics2D g, LatencyHistogram render, long nanos) {
+        long end = System.nanoTime() + nanos;
+        long next = System.nanoTime();
+        long frame = 0;
+        while (next < end) {
+            LockSupport.parkNanos(next - System.nanoTime());
+            next += FRAME_NANOS;
+            long start = System.nanoTime();
+            for (int i = 0; i < sessions.size(); i++) {
+                KioskSession session = sessions.get(i);
+                // Spread the commands over the frames rather than sending them all at once
+                if ((frame + i) % FRAMES_PER_COMMAND == 0) {
+                    byte[] line = LINES[(int) ((frame / FRAMES_PER_COMMAND + i) & 3)];
+                    session.getController().onLine(line, 0, line.length);
+                }
+                if (session.takeDirty()) session.getGame().render(g, 400, 400, null);
+            }
+            render.record((System.nanoTime() - start) / 1000);
+            frame++;
+        }
+    }
+
+    // Gets the used heap after a collection.
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
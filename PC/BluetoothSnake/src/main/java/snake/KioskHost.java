@@ -0,0 +1,139 @@
+package snake;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+// Runs several independent single player games in one process, one per phone, for venues with
+// a row of kiosks on one PC. The games are shown as tiles of one window, or one window each.
+// Instead of a Swing timer per game they tick from the shared timing wheel of a SessionHost on
+// a small worker pool, and one render timer repaints the games that changed, so all of them are
+// painted in the same pass on the event dispatch thread. Phones connect through one KioskServer.
+// Usage: java snake.KioskHost [kiosks] [difficulty] [tiles|windows] [workers]
+// KioskBenchmark measures what each extra kiosk costs.
+public class KioskHost {
+    // Interval of the shared render pass, about 60 frames per second
+    private static final int FRAME_MILLIS = 16;
+
+    // Kiosks, in the order phones are given them
+    private final List<KioskSession> sessions = new ArrayList<>();
+    // Ticks every kiosk
+    private final SessionHost host;
+    // Label per kiosk showing whether a phone is connected
+    private final List<JLabel> labels = new ArrayList<>();
+    // Bluetooth status
+    private final JLabel statusLabel = new JLabel("Bluetooth: Starting...", SwingConstants.CENTER);
+    // Scores of every kiosk, kept with those of the single game
+    private final HighScoreStore highScores = new HighScoreStore();
+
+    // Builds the kiosks and their windows. Called on the event dispatch thread.
+    public KioskHost(int kiosks, Difficulty difficulty, boolean tiled, int workers) {
+        host = new SessionHost(workers);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            host.close();
+            highScores.close();
+        }));
+
+        for (int i = 1; i <= kiosks; i++) {
+            KioskSession session = new KioskSession(i, difficulty, highScores);
+            sessions.add(session);
+            labels.add(new JLabel(connectionText(session), SwingConstants.CENTER));
+        }
+
+        if (tiled) {
+            // As square a grid as the number of kiosks allows
+            int columns = (int) Math.ceil(Math.sqrt(kiosks));
+            int rows = (kiosks + columns - 1) / columns;
+            // Boards scale to their tile, so shrink the tiles until the grid fits on the screen
+            Dimension screen = Toolkit.getDefaultToolkit().getScreenSize();
+            int size = Math.max(100, Math.min(400, Math.min(screen.width / columns, screen.height * 4 / 5 / rows) - 30));
+            for (KioskSession session : sessions) {
+                session.getGame().setPreferredSize(new Dimension(size, size));
+            }
+            JPanel grid = new JPanel(new GridLayout(0, columns, 4, 4));
+            grid.setBackground(Color.DARK_GRAY);
+            for (int i = 0; i < kiosks; i++) {
+                grid.add(tile(i));
+            }
+            JFrame frame = frame("Bluetooth Snake Kiosks");
+            frame.add(grid, BorderLayout.CENTER);
+            frame.add(statusLabel, BorderLayout.SOUTH);
+            show(frame, 0);
+        } else {
+            for (int i = 0; i < kiosks; i++) {
+                JFrame frame = frame("Bluetooth Snake Kiosk " + (i + 1));
+                frame.add(tile(i), BorderLayout.CENTER);
+                if (i == 0) frame.add(statusLabel, BorderLayout.SOUTH);
+                show(frame, i);
+            }
+        }
+
+        for (KioskSession session : sessions) {
+            host.addSession(difficulty, session);
+        }
+
+        // One pass repaints every game that ticked since the last one
+        new Timer(FRAME_MILLIS, e -> {
+            for (KioskSession session : sessions) {
+                if (session.takeDirty()) session.getGame().repaint();
+            }
+        }).start();
+
+        Thread serverThread = new Thread(new KioskServer(sessions, this), "KioskServer");
+        serverThread.setDaemon(true);
+        serverThread.start();
+    }
+
+    // Main entry point for hosting kiosks.
+    public static void main(String[] args) {
+        int kiosks = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        Difficulty difficulty = args.length > 1 ? Difficulty.valueOf(args[1].toUpperCase()) : Difficulty.EASY;
+        boolean tiled = args.length <= 2 || !"windows".equalsIgnoreCase(args[2]);
+        int workers = args.length > 3 ? Integer.parseInt(args[3]) : Math.min(4, Runtime.getRuntime().availableProcessors());
+        FlightRecording.startIfRequested();
+        SwingUtilities.invokeLater(() -> new KioskHost(kiosks, difficulty, tiled, workers));
+    }
+
+    // Builds the tile of one kiosk: its connection label above its game.
+    private JPanel tile(int index) {
+        JPanel tile = new JPanel(new BorderLayout());
+        tile.add(labels.get(index), BorderLayout.NORTH);
+        tile.add(sessions.get(index).getGame(), BorderLayout.CENTER);
+        return tile;
+    }
+
+    // Creates a window that ends the process when closed.
+    private static JFrame frame(String title) {
+        JFrame frame = new JFrame(title);
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame.setLayout(new BorderLayout());
+        return frame;
+    }
+
+    // Sizes and shows a window, cascading separate windows so none hides another.
+    private static void show(JFrame frame, int index) {
+        frame.pack();
+        frame.setLocation(40 + index * 30, 40 + index * 30);
+        frame.setVisible(true);
+    }
+
+    // Gets the connection label text of a kiosk.
+    private static String connectionText(KioskSession session) {
+        return "Kiosk " + session.getNumber() + (session.isClaimed() ? ": Phone connected" : ": Waiting for a phone");
+    }
+
+    // Shows the Bluetooth listener's status. Safe to call from any thread.
+    public void showStatus(String status) {
+        SwingUtilities.invokeLater(() -> statusLabel.setText(status));
+    }
+
+    // Refreshes the connection labels after a phone came or went. Safe to call from any thread.
+    public void controllersChanged() {
+        SwingUtilities.invokeLater(() -> {
+            for (int i = 0; i < sessions.size(); i++) {
+                labels.get(i).setText(connectionText(sessions.get(i)));
+            }
+        });
+    }
+}
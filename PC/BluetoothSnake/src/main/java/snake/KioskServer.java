@@ -0,0 +1,138 @@
+package snake;
+
+import javax.bluetooth.BluetoothStateException;
+import javax.bluetooth.DiscoveryAgent;
+import javax.bluetooth.LocalDevice;
+import javax.bluetooth.UUID;
+import javax.microedition.io.Connector;
+import javax.microedition.io.StreamConnection;
+import javax.microedition.io.StreamConnectionNotifier;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+// The single Bluetooth listener of a KioskHost.
+// Advertises the same service as BluetoothServer, so the phone app needs no change, and keeps
+// accepting connections on one notifier. Each phone is given the first kiosk without one and
+// its commands are read on a thread of its own, since Bluetooth streams only offer blocking
+// reads; a phone arriving while every kiosk is taken is turned away.
+public class KioskServer implements Runnable {
+    // UUID for the Serial Port Profile (SPP) service
+    private static final String UUID_STRING = "0000110100001000800000805F9B34FB";
+
+    // Kiosks phones are assigned to
+    private final List<KioskSession> sessions;
+    // Shows the listener's status
+    private final KioskHost host;
+    // Paces retries while Bluetooth is unavailable
+    private final BluetoothMonitor monitor = new BluetoothMonitor();
+    // Flag to control server execution
+    private boolean serverShouldBeRunning = true;
+
+    // Constructs a listener assigning phones to the given kiosks.
+    public KioskServer(List<KioskSession> sessions, KioskHost host) {
+        this.sessions = sessions;
+        this.host = host;
+    }
+
+    // Main server thread execution method
+    @Override
+    public void run() {
+        try {
+            serve();
+        } catch (InterruptedException e) {
+            // Restore the interrupted status and stop the server
+            Thread.currentThread().interrupt();
+            serverShouldBeRunning = false;
+        } finally {
+            monitor.close();
+        }
+    }
+
+    // Runs the listener until it is stopped.
+    private void serve() throws InterruptedException {
+        LocalDevice localDevice = null;
+        while (serverShouldBeRunning && localDevice == null) {
+            try {
+                localDevice = LocalDevice.getLocalDevice();
+                try {
+                    localDevice.setDiscoverable(DiscoveryAgent.GIAC);
+                } catch (BluetoothStateException ignored) {
+                    // Discovery mode setting may fail, but we can still proceed
+                }
+                monitor.succeeded();
+            } catch (BluetoothStateException bse) {
+                ConnectionEvent.emit(ConnectionEvent.OFF, bse.getMessage());
+                host.showStatus("Bluetooth: Off");
+                monitor.awaitRetry();
+            }
+        }
+
+        while (serverShouldBeRunning) {
+            StreamConnectionNotifier notifier = null;
+            try {
+                UUID uuid = new UUID(UUID_STRING, false);
+                String url = "btspp://localhost:" + uuid + ";name=SnakeControlService;authenticate=false;encrypt=false";
+                notifier = (StreamConnectionNotifier) Connector.open(url);
+                ConnectionEvent.emit(ConnectionEvent.WAITING, null);
+                host.showStatus("Bluetooth: Waiting for phones");
+                monitor.succeeded();
+
+                // The one notifier keeps accepting phones for as long as it stays open
+                while (serverShouldBeRunning) {
+                    StreamConnection connection = notifier.acceptAndOpen();
+                    assign(connection);
+                }
+            } catch (IOException e) {
+                if (serverShouldBeRunning) {
+                    ConnectionEvent.emit(ConnectionEvent.RETRY, e.getMessage());
+                    host.showStatus("Bluetooth: Off");
+                }
+            } finally {
+                try {
+                    if (notifier != null) notifier.close();
+                } catch (IOException ignored) {
+                }
+            }
+            if (serverShouldBeRunning) monitor.awaitRetry();
+        }
+    }
+
+    // Hands a new connection to the first free kiosk, or closes it if there is none.
+    private void assign(StreamConnection connection) {
+        for (KioskSession session : sessions) {
+            if (session.claim()) {
+                ConnectionEvent.emit(ConnectionEvent.CONNECTED, "Kiosk " + session.getNumber());
+                Thread reader = new Thread(() -> read(connection, session), "Controller-" + session.getNumber());
+                reader.setDaemon(true);
+                reader.start();
+                host.controllersChanged();
+                return;
+            }
+        }
+        ConnectionEvent.emit(ConnectionEvent.DISCONNECTED, "Every kiosk is taken");
+        try {
+            connection.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    // Feeds a phone's commands to its kiosk until the phone goes away.
+    private void read(StreamConnection connection, KioskSession session) {
+        String reason = "Closed by controller";
+        try (InputStream in = connection.openInputStream()) {
+            session.getController().serve(in);
+        } catch (IOException e) {
+            reason = e.getMessage();
+        } finally {
+            try {
+                connection.close();
+            } catch (IOException ignored) {
+            }
+            ConnectionEvent.emit(ConnectionEvent.DISCONNECTED,
+                    "Kiosk " + session.getNumber() + ": " + reason + "; " + session.getController().summary());
+            session.release();
+            host.controllersChanged();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package snake;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// One kiosk of a KioskHost: a hosted game, the phone controlling it, and its restarts.
+// The host's timing wheel runs it once per game tick on a shared worker thread. A finished game
+// shows its score for RESTART_MILLIS and then starts over, paused until the player moves.
+public class KioskSession implements Runnable {
+    // How long the game over screen stays up
+    private static final int RESTART_MILLIS = 3000;
+
+    // Number shown to players, from 1
+    private final int number;
+    // Game played at this kiosk
+    private final SnakeGame game;
+    // Parses the commands of the phone controlling this kiosk
+    private final ControllerSession controller;
+    // Where finished games are recorded, null to keep no scores
+    private final HighScoreStore highScores;
+    // Ticks the game over screen stays up
+    private final int restartTicks;
+    // Set by each tick and cleared by the host's render pass
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+    // Set while a phone is assigned to this kiosk
+    private final AtomicBoolean claimed = new AtomicBoolean();
+
+    // Ticks left before a finished game restarts, 0 while playing; only written by the tick
+    private volatile int restartIn = 0;
+    // Finished games
+    private volatile int gamesPlayed = 0;
+
+    // Constructs a kiosk playing at the given difficulty.
+    public KioskSession(int number, Difficulty difficulty, HighScoreStore highScores) {
+        this.number = number;
+        this.game = new SnakeGame(difficulty);
+        this.controller = new ControllerSession(() -> restartIn == 0 ? game : null);
+        this.highScores = highScores;
+        this.restartTicks = Math.max(1, RESTART_MILLIS / difficulty.getDelay());
+    }
+
+    // Runs one tick on a host worker.
+    @Override
+    public void run() {
+        if (restartIn > 0) {
+            if (--restartIn == 0) {
+                game.resetGame();
+                game.setPaused(true);
+            }
+            return;
+        }
+        if (game.tickHosted()) {
+            gamesPlayed++;
+            restartIn = restartTicks;
+            if (highScores != null) highScores.record(game.getDifficulty(), game.getScore());
+        }
+        dirty.lazySet(true);
+    }
+
+    // Assigns a phone to this kiosk. Returns false if it already has one.
+    public boolean claim() {
+        return claimed.compareAndSet(false, true);
+    }
+
+    // Frees the kiosk once its phone has gone, pausing the game until the next one moves.
+    public void release() {
+        game.controllerDisconnected();
+        game.setPaused(true);
+        claimed.set(false);
+    }
+
+    // Checks whether a phone is assigned to this kiosk.
+    public boolean isClaimed() {
+        return claimed.get();
+    }
+
+    // Clears and returns whether the game has changed since the last render pass.
+    public boolean takeDirty() {
+        return dirty.getAndSet(false);
+    }
+
+    // Gets the number shown to players.
+    public int getNumber() {
+        return number;
+    }
+
+    // Gets the game panel.
+    public SnakeGame getGame() {
+        return game;
+    }
+
+    // Gets the command stream parser of this kiosk's phone.
+    public ControllerSession getController() {
+        return controller;
+    }
+
+    // Gets the number of finished games.
+    public int getGamesPlayed() {
+        return gamesPlayed;
+    }
+}
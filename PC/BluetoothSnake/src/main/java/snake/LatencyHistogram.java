@@ -0,0 +1,81 @@
+package snake;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Lock-free histogram of latencies in microseconds.
+// Buckets are logarithmic with 16 linear sub-buckets per power of two, which keeps the
+// relative error of reported percentiles under about 6% with a fixed array of under 1,000 slots.
+public class LatencyHistogram {
+    // Linear sub-buckets per power of two
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Enough powers of two for any long value
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    // Count per bucket
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    // Records one value in microseconds; negative values count as zero.
+    public void record(long micros) {
+        counts.incrementAndGet(bucketOf(Math.max(0, micros)));
+    }
+
+    // Gets the value at the given percentile (0-100), as the upper bound of its bucket.
+    public long percentile(double percentile) {
+        long total = getCount();
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return upperBound(i);
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    // Gets the number of recorded values.
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    // Adds all values recorded by another histogram.
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = other.counts.get(i);
+            if (count != 0) counts.addAndGet(i, count);
+        }
+    }
+
+    // Forgets all recorded values.
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    // Formats the usual percentiles on one line.
+    public String summary() {
+        return String.format("n=%d p50=%dus p90=%dus p99=%dus p99.9=%dus max=%dus",
+                getCount(), percentile(50), percentile(90), percentile(99), percentile(99.9), percentile(100));
+    }
+
+    // Maps a value to its bucket.
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int magnitude = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1;
+        int sub = (int) (value >>> (magnitude - 1)) & (SUB_BUCKETS - 1);
+        return magnitude * SUB_BUCKETS + sub;
+    }
+
+    // Gets the largest value that maps to a bucket.
+    private static long upperBound(int bucket) {
+        int magnitude = bucket / SUB_BUCKETS;
+        long sub = bucket % SUB_BUCKETS;
+        if (magnitude == 0) return sub;
+        return ((SUB_BUCKETS + sub + 1) << (magnitude - 1)) - 1;
+    }
+}
@@ -0,0 +1,49 @@
+package snake;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Flight Recorder event for a missed deadline, a stall or a render quality change noticed by a
+// TickWatchdog.
+@Name("snake.Overrun")
+@Label("Deadline Overrun")
+@Category({"Bluetooth Snake", "Game Loop"})
+@Description("A tick that missed its deadline, a stalled event dispatch thread, or a render quality change")
+@StackTrace(false)
+public class OverrunEvent extends jdk.jfr.Event {
+    // Kinds reported by TickWatchdog
+    public static final String OVERRUN = "overrun";
+    public static final String LATE = "late";
+    public static final String STALL = "stall";
+    public static final String QUALITY = "quality";
+
+    @Label("Kind")
+    public String kind;
+
+    @Label("Tick")
+    public long tick;
+
+    @Label("Overrun")
+    @Description("Time spent, or waited, beyond what the deadline allowed for")
+    @Timespan(Timespan.NANOSECONDS)
+    public long overrun;
+
+    @Label("Detail")
+    public String detail;
+
+    // Records an event.
+    public static void emit(String kind, long tick, long overrun, String detail) {
+        OverrunEvent event = new OverrunEvent();
+        if (event.shouldCommit()) {
+            event.kind = kind;
+            event.tick = tick;
+            event.overrun = overrun;
+            event.detail = detail;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package snake;
+
+import java.util.Arrays;
+
+// Compact snake body for very long snakes on large boards.
+// Only the head and tail cells are stored as positions. In between, the body is a ring of the
+// moves that led from each segment to the next one towards the head, packed 2 bits per move
+// into a long[]. That is about a quarter of a byte per segment, against 4 for a ring of int
+// cells and around 50 for a LinkedList<Point>. Pushing a head and popping the tail are O(1),
+// and the body is walked from the head with following(), one shift and one step per segment.
+// The board wraps around its edges, as SharedBoard and ArenaBoard do.
+public class PackedBody {
+    // Moves per long
+    private static final int MOVES_PER_WORD = 32;
+
+    // Board width, for stepping between cells
+    private final int columns;
+    // First cell of the bottom row
+    private final int lastRow;
+    // Ring of 2-bit Direction ordinals; capacity in moves is always a power of two
+    private long[] moves = new long[1];
+    // Ring position of the oldest move, the one leading away from the tail
+    private int first = 0;
+    // Number of segments; there is one move fewer
+    private int length;
+    private int head;
+    private int tail;
+
+    // Constructs a one segment body at 'cell'.
+    public PackedBody(int columns, int rows, int cell) {
+        this.columns = columns;
+        this.lastRow = (rows - 1) * columns;
+        this.head = cell;
+        this.tail = cell;
+        this.length = 1;
+    }
+
+    // Adds a new head, which must be next to the current one.
+    // Throws IllegalArgumentException if it is not.
+    public void pushHead(int cell) {
+        if (length == 0) {
+            head = cell;
+            tail = cell;
+            length = 1;
+            return;
+        }
+        int move = moveTo(head, cell);
+        int count = length - 1;
+        if (count == capacity()) grow();
+        write((first + count) & (capacity() - 1), move);
+        head = cell;
+        length++;
+    }
+
+    // Removes the tail segment and returns its cell.
+    public int popTail() {
+        int cell = tail;
+        if (length > 1) {
+            tail = step(tail, read(first));
+            first = (first + 1) & (capacity() - 1);
+        }
+        length--;
+        return cell;
+    }
+
+    // Gets the cell of segment i + 1, given 'cell', the cell of segment i (0 being the head).
+    // Walks the body head first: for (c = headCell(), i = 0; i < length; c = following(c, i++)).
+    // Returns -1 past the tail.
+    public int following(int cell, int i) {
+        if (i + 1 >= length) return -1;
+        int move = read((first + length - 2 - i) & (capacity() - 1));
+        // Ordinals pair up as UP/DOWN and LEFT/RIGHT, so flipping the low bit reverses a move
+        return step(cell, move ^ 1);
+    }
+
+    // Gets the head cell.
+    public int headCell() {
+        return head;
+    }
+
+    // Gets the tail cell.
+    public int tailCell() {
+        return tail;
+    }
+
+    // Gets the number of segments.
+    public int getLength() {
+        return length;
+    }
+
+    // Gets the bytes held by the move ring, for memory accounting.
+    public long getRingBytes() {
+        return moves.length * 8L;
+    }
+
+    // Gets the ring capacity in moves.
+    private int capacity() {
+        return moves.length * MOVES_PER_WORD;
+    }
+
+    // Reads the move at a ring position.
+    private int read(int position) {
+        return (int) (moves[position >>> 5] >>> ((position & 31) << 1)) & 3;
+    }
+
+    // Writes the move at a ring position.
+    private void write(int position, int move) {
+        int shift = (position & 31) << 1;
+        int word = position >>> 5;
+        moves[word] = (moves[word] & ~(3L << shift)) | ((long) move << shift);
+    }
+
+    // Doubles the ring capacity, unwrapping the moves so the oldest is at position 0.
+    private void grow() {
+        int count = length - 1;
+        int mask = capacity() - 1;
+        if (first == 0) {
+            moves = Arrays.copyOf(moves, moves.length * 2);
+            return;
+        }
+        long[] old = moves;
+        int oldFirst = first;
+        moves = new long[old.length * 2];
+        first = 0;
+        for (int i = 0; i < count; i++) {
+            int position = (oldFirst + i) & mask;
+            write(i, (int) (old[position >>> 5] >>> ((position & 31) << 1)) & 3);
+        }
+    }
+
+    // Gets the Direction ordinal of the move from 'from' to the neighbouring cell 'to'.
+    private int moveTo(int from, int to) {
+        int delta = to - from;
+        int move;
+        if (delta == -columns || delta == lastRow) move = 0;
+        else if (delta == columns || delta == -lastRow) move = 1;
+        else if (delta == -1 || delta == columns - 1) move = 2;
+        else move = 3;
+        // On boards under three cells across, a delta can mean two moves; check and search
+        if (step(from, move) == to) return move;
+        for (move = 0; move < 4; move++) {
+            if (step(from, move) == to) return move;
+        }
+        throw new IllegalArgumentException("Cell " + to + " is not next to the head " + from);
+    }
+
+    // Gets the cell one move away, wrapping around the board edges. Moves are the ordinals of
+    // Direction: UP, DOWN, LEFT, RIGHT. Only sideways moves need the column.
+    private int step(int cell, int move) {
+        return switch (move) {
+            case 0 -> cell < columns ? cell + lastRow : cell - columns;
+            case 1 -> cell >= lastRow ? cell - lastRow : cell + columns;
+            case 2 -> cell % columns == 0 ? cell + columns - 1 : cell - 1;
+            default -> cell % columns == columns - 1 ? cell - columns + 1 : cell + 1;
+        };
+    }
+}
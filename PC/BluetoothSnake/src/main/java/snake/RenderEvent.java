@@ -0,0 +1,38 @@
+package snake;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Flight Recorder event for one render pass of the board.
+// The event's duration is the time spent drawing, not including presenting the frame.
+@Name("snake.Render")
+@Label("Render")
+@Category({"Bluetooth Snake", "Rendering"})
+@Description("One render pass of the board")
+@StackTrace(false)
+public class RenderEvent extends jdk.jfr.Event {
+    @Label("Active")
+    @Description("Drawn by the active render thread rather than Swing")
+    public boolean active;
+
+    @Label("Width")
+    @Description("Surface width in logical pixels")
+    public int width;
+
+    @Label("Height")
+    @Description("Surface height in logical pixels")
+    public int height;
+
+    @Label("Tick")
+    @Description("Tick whose state was drawn")
+    public long tick;
+
+    @Label("Tick Age")
+    @Description("Time since the drawn tick finished")
+    @Timespan(Timespan.NANOSECONDS)
+    public long tickAge;
+}
@@ -0,0 +1,298 @@
+package snake;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+// A recorded single player game, and its binary format.
+// The game is deterministic given its state and the direction in effect at each tick, so a
+// replay is the direction of every tick plus a full-state keyframe every KEYFRAME_INTERVAL
+// ticks. Reaching any tick costs one keyframe load and fewer than KEYFRAME_INTERVAL
+// re-simulated ticks, however long the game. Keyframes are only checked when a replay is
+// decoded and unpacked when loaded, through the index of their offsets.
+//
+// Layout (big endian), version 1:
+//   int magic "SNKR", byte version, byte difficulty, byte columns, byte rows,
+//   short obstacle count, short[] obstacle cells, int moving obstacle seed,
+//   long first tick, int tick count, byte[] directions (2 bits per tick, first tick in the
+//   low bits), int keyframe interval, int keyframe count, int[] keyframe offsets (from the
+//   start of the keyframes), keyframes, int CRC32 of all preceding bytes.
+//   A keyframe is: long tick, int score, byte direction, long random state, short food cell,
+//   short snake length, short[] snake cells (head first).
+public class ReplayLog {
+    // Format identification
+    private static final int MAGIC = 0x534E4B52; // "SNKR"
+    private static final byte VERSION = 1;
+    // Ticks between keyframes
+    public static final int KEYFRAME_INTERVAL = 100;
+    // Encoded size of a keyframe without its snake cells
+    private static final int KEYFRAME_HEADER = 8 + 4 + 1 + 8 + 2 + 2;
+
+    private final Difficulty difficulty;
+    private final int columns;
+    private final int rows;
+    private final int[] obstacles;
+    private final int hazardSeed;
+    // Tick the replay starts at, 0 unless recording began in a resumed game
+    private final long firstTick;
+    private final int interval;
+
+    // Direction ordinal per tick from firstTick on
+    private byte[] inputs;
+    private int ticks = 0;
+    // Encoded keyframes, one every 'interval' ticks from firstTick on, and where each starts
+    private byte[] keyframes;
+    private int[] offsets;
+    private int keyframeCount = 0;
+    private int keyframeBytes = 0;
+
+    // Starts an empty recording of a game from tick 'firstTick' on.
+    public ReplayLog(Difficulty difficulty, int columns, int rows, int[] obstacles, int hazardSeed, long firstTick) {
+        this(difficulty, columns, rows, obstacles, hazardSeed, firstTick, KEYFRAME_INTERVAL,
+                new byte[4096], new byte[16384], new int[64]);
+    }
+
+    private ReplayLog(Difficulty difficulty, int columns, int rows, int[] obstacles, int hazardSeed, long firstTick,
+                      int interval, byte[] inputs, byte[] keyframes, int[] offsets) {
+        this.difficulty = difficulty;
+        this.columns = columns;
+        this.rows = rows;
+        this.obstacles = obstacles;
+        this.hazardSeed = hazardSeed;
+        this.firstTick = firstTick;
+        this.interval = interval;
+        this.inputs = inputs;
+        this.keyframes = keyframes;
+        this.offsets = offsets;
+    }
+
+    // Records that 'tick' runs with 'direction'. A tick recorded again, as a rollback
+    // re-simulates it, replaces the recording from that tick on. Returns true if the state
+    // before the tick must be passed to addKeyframe() next.
+    public boolean record(long tick, Direction direction) {
+        int index = (int) (tick - firstTick);
+        ticks = index;
+        int kept = (index + interval - 1) / interval;
+        if (keyframeCount > kept) {
+            keyframeCount = kept;
+            keyframeBytes = offsets[kept];
+        }
+        if (ticks == inputs.length) inputs = Arrays.copyOf(inputs, ticks * 2);
+        inputs[ticks++] = (byte) direction.ordinal();
+        return index % interval == 0;
+    }
+
+    // Adds the keyframe of the state before the tick just recorded.
+    public void addKeyframe(GameSnapshot state) {
+        if (keyframeCount + 1 >= offsets.length) offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        int size = KEYFRAME_HEADER + 2 * state.length;
+        if (keyframeBytes + size > keyframes.length) {
+            keyframes = Arrays.copyOf(keyframes, Math.max(keyframes.length * 2, keyframeBytes + size));
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(keyframes, keyframeBytes, size);
+        buffer.putLong(state.tick);
+        buffer.putInt(state.score);
+        buffer.put((byte) state.direction.ordinal());
+        buffer.putLong(state.randomState);
+        buffer.putShort((short) state.food);
+        buffer.putShort((short) state.length);
+        for (int i = 0; i < state.length; i++) {
+            buffer.putShort((short) state.cells[i]);
+        }
+        offsets[keyframeCount] = keyframeBytes;
+        keyframeBytes += size;
+        offsets[++keyframeCount] = keyframeBytes;
+    }
+
+    // Loads the last keyframe at or before 'tick' into 'state'. Returns its tick.
+    public long loadKeyframe(long tick, GameSnapshot state) {
+        int k = (int) Math.min(keyframeCount - 1, Math.max(0, (tick - firstTick) / interval));
+        ByteBuffer buffer = ByteBuffer.wrap(keyframes, offsets[k], offsets[k + 1] - offsets[k]);
+        state.tick = buffer.getLong();
+        state.score = buffer.getInt();
+        state.direction = Direction.values()[buffer.get()];
+        state.randomState = buffer.getLong();
+        state.food = buffer.getShort(); // -1 when the board had no room for food
+        state.length = Short.toUnsignedInt(buffer.getShort());
+        for (int i = 0; i < state.length; i++) {
+            state.cells[i] = Short.toUnsignedInt(buffer.getShort());
+        }
+        return state.tick;
+    }
+
+    // Gets the direction in effect during a recorded tick.
+    public Direction getInput(long tick) {
+        return Direction.values()[inputs[(int) (tick - firstTick)]];
+    }
+
+    // Encodes the replay into its binary form.
+    public byte[] encode() {
+        int inputBytes = (ticks + 3) / 4;
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 1 + 1 + 1 + 1 + 2 + 2 * obstacles.length + 4 + 8 + 4
+                + inputBytes + 4 + 4 + 4 * keyframeCount + keyframeBytes + 4);
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+        buffer.put((byte) difficulty.ordinal());
+        buffer.put((byte) columns);
+        buffer.put((byte) rows);
+        buffer.putShort((short) obstacles.length);
+        for (int obstacle : obstacles) {
+            buffer.putShort((short) obstacle);
+        }
+        buffer.putInt(hazardSeed);
+        buffer.putLong(firstTick);
+        buffer.putInt(ticks);
+        for (int i = 0; i < inputBytes; i++) {
+            int packed = 0;
+            for (int j = 0; j < 4 && i * 4 + j < ticks; j++) {
+                packed |= inputs[i * 4 + j] << (2 * j);
+            }
+            buffer.put((byte) packed);
+        }
+        buffer.putInt(interval);
+        buffer.putInt(keyframeCount);
+        for (int k = 0; k < keyframeCount; k++) {
+            buffer.putInt(offsets[k]);
+        }
+        buffer.put(keyframes, 0, keyframeBytes);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        return buffer.array();
+    }
+
+    // Decodes a replay, leaving its keyframes encoded until they are loaded.
+    // Throws IllegalArgumentException if the data is not a valid replay.
+    public static ReplayLog decode(byte[] data) {
+        if (data.length < 4) throw new IllegalArgumentException("Replay is truncated");
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length - 4);
+        ByteBuffer buffer = ByteBuffer.wrap(data, 0, data.length - 4);
+        if (ByteBuffer.wrap(data).getInt(data.length - 4) != (int) crc.getValue()) {
+            throw new IllegalArgumentException("Replay checksum mismatch");
+        }
+
+        try {
+            if (buffer.getInt() != MAGIC) throw new IllegalArgumentException("Not a replay");
+            byte version = buffer.get();
+            if (version != VERSION) throw new IllegalArgumentException("Unsupported replay version " + version);
+            Difficulty difficulty = Difficulty.values()[buffer.get()];
+            int columns = Byte.toUnsignedInt(buffer.get());
+            int rows = Byte.toUnsignedInt(buffer.get());
+            int cells = columns * rows;
+            int[] obstacles = new int[Short.toUnsignedInt(buffer.getShort())];
+            if (obstacles.length > cells) throw new IllegalArgumentException("Replay has more obstacles than cells");
+            for (int i = 0; i < obstacles.length; i++) {
+                obstacles[i] = checkCell(Short.toUnsignedInt(buffer.getShort()), cells);
+            }
+            int hazardSeed = buffer.getInt();
+            long firstTick = buffer.getLong();
+            int ticks = buffer.getInt();
+            if (firstTick < 0 || ticks < 0) throw new IllegalArgumentException("Replay has a negative tick count");
+            byte[] inputs = new byte[ticks];
+            for (int i = 0; i < ticks; i += 4) {
+                int packed = buffer.get();
+                for (int j = 0; j < 4 && i + j < ticks; j++) {
+                    inputs[i + j] = (byte) ((packed >> (2 * j)) & 3);
+                }
+            }
+            int interval = buffer.getInt();
+            int keyframeCount = buffer.getInt();
+            if (interval <= 0 || keyframeCount <= 0) throw new IllegalArgumentException("Replay has no keyframes");
+            int[] offsets = new int[keyframeCount + 1];
+            for (int k = 0; k < keyframeCount; k++) {
+                offsets[k] = buffer.getInt();
+            }
+            // Keyframes stay encoded until loaded
+            byte[] keyframes = Arrays.copyOfRange(data, buffer.position(), data.length - 4);
+            offsets[keyframeCount] = keyframes.length;
+            checkKeyframes(keyframes, offsets, keyframeCount, cells);
+
+            ReplayLog replay = new ReplayLog(difficulty, columns, rows, obstacles, hazardSeed, firstTick, interval,
+                    inputs, keyframes, offsets);
+            replay.ticks = ticks;
+            replay.keyframeCount = keyframeCount;
+            replay.keyframeBytes = keyframes.length;
+            return replay;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Replay is malformed", e);
+        }
+    }
+
+    // Checks that the keyframes tile the keyframe bytes from the first offset on, and that each
+    // one holds a valid direction and only cells on a board of 'cells' cells, so loading any of
+    // them later cannot fail.
+    private static void checkKeyframes(byte[] keyframes, int[] offsets, int keyframeCount, int cells) {
+        if (offsets[0] != 0) throw new IllegalArgumentException("Replay keyframes do not start at offset 0");
+        for (int k = 0; k < keyframeCount; k++) {
+            int start = offsets[k];
+            int size = offsets[k + 1] - start;
+            if (size < KEYFRAME_HEADER || start + size > keyframes.length) {
+                throw new IllegalArgumentException("Replay keyframe " + k + " has a bad offset");
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(keyframes, start, size);
+            buffer.position(start + 8 + 4);
+            int direction = buffer.get();
+            if (direction < 0 || direction >= Direction.values().length) {
+                throw new IllegalArgumentException("Replay keyframe " + k + " has direction " + direction);
+            }
+            buffer.position(buffer.position() + 8);
+            int food = buffer.getShort();
+            if (food != -1) checkCell(food, cells);
+            int length = Short.toUnsignedInt(buffer.getShort());
+            if (length == 0 || length > cells || size != KEYFRAME_HEADER + 2 * length) {
+                throw new IllegalArgumentException("Replay keyframe " + k + " has a snake of length " + length);
+            }
+            for (int i = 0; i < length; i++) {
+                checkCell(Short.toUnsignedInt(buffer.getShort()), cells);
+            }
+        }
+    }
+
+    // Checks that a decoded cell lies on a board of 'cells' cells. Returns it.
+    private static int checkCell(int cell, int cells) {
+        if (cell < 0 || cell >= cells) throw new IllegalArgumentException("Replay has cell " + cell + " off the board");
+        return cell;
+    }
+
+    // Gets the difficulty the game was played at.
+    public Difficulty getDifficulty() {
+        return difficulty;
+    }
+
+    // Gets the board width in cells.
+    public int getColumns() {
+        return columns;
+    }
+
+    // Gets the board height in cells.
+    public int getRows() {
+        return rows;
+    }
+
+    // Gets the obstacle cells.
+    public int[] getObstacles() {
+        return obstacles;
+    }
+
+    // Gets the seed the moving obstacles were generated from.
+    public int getHazardSeed() {
+        return hazardSeed;
+    }
+
+    // Gets the first recorded tick.
+    public long getFirstTick() {
+        return firstTick;
+    }
+
+    // Gets the tick after the last recorded one.
+    public long getEndTick() {
+        return firstTick + ticks;
+    }
+
+    // Gets the number of keyframes.
+    public int getKeyframeCount() {
+        return keyframeCount;
+    }
+}
@@ -0,0 +1,111 @@
+package snake;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Keeps the replays of the most recent games on disk, one "replay-<epoch millis>.snkr" file
+// each. Replays are written on a background thread through a temporary file, and only the
+// newest MAX_REPLAYS are kept.
+public class ReplayStore implements AutoCloseable {
+    // Number of replays kept
+    private static final int MAX_REPLAYS = 20;
+
+    // Directory holding the replays
+    private final Path directory;
+    // Single background thread performing all disk writes in submission order
+    private final ExecutorService writer;
+
+    // Opens the store in the default data directory.
+    public ReplayStore() {
+        this(defaultDirectory());
+    }
+
+    // Opens the store in the given directory.
+    public ReplayStore(Path directory) {
+        this.directory = directory;
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "ReplayWriter");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Gets the directory replays are kept in by default.
+    public static Path defaultDirectory() {
+        return HighScoreStore.defaultDirectory().resolve("replays");
+    }
+
+    // Queues a replay for writing; never blocks on I/O. The replay must no longer be recorded to.
+    public void save(ReplayLog replay) {
+        long now = System.currentTimeMillis();
+        writer.execute(() -> write(replay, now));
+    }
+
+    // Loads the newest replay, or returns null if there is none or it cannot be read.
+    public ReplayLog loadLatest() {
+        List<Path> files = list();
+        if (files.isEmpty()) return null;
+        try {
+            return ReplayLog.decode(Files.readAllBytes(files.get(files.size() - 1)));
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Ignoring unreadable replay: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Checks whether any replay has been kept.
+    public boolean hasReplays() {
+        return !list().isEmpty();
+    }
+
+    // Writes a replay through a temporary file and drops the oldest ones. Runs on the writer thread.
+    private void write(ReplayLog replay, long millis) {
+        Path file = directory.resolve(String.format("replay-%013d.snkr", millis));
+        Path temporary = directory.resolve(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(directory);
+            Files.write(temporary, replay.encode());
+            try {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            List<Path> files = list();
+            for (int i = 0; i < files.size() - MAX_REPLAYS; i++) {
+                Files.deleteIfExists(files.get(i));
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to save replay: " + e.getMessage());
+        }
+    }
+
+    // Lists the replay files, oldest first; the zero padded names sort by time.
+    private List<Path> list() {
+        if (!Files.isDirectory(directory)) return List.of();
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".snkr")).sorted().collect(Collectors.toList());
+        } catch (IOException e) {
+            return List.of();
+        }
+    }
+
+    // Flushes pending writes.
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package snake;
+
+import javax.swing.*;
+import java.awt.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+// Plays back a replay with a scrub bar: play and pause, single tick steps, variable speed,
+// and dragging to any tick. Seeking loads the nearest keyframe and re-simulates at most a
+// keyframe interval of ticks, so the bar stays responsive on hour-long replays.
+// Also runs on its own: java snake.ReplayViewer [replay file], the newest replay by default.
+public class ReplayViewer extends JPanel {
+    // Playback speeds offered, as multiples of the game's own
+    private static final String[] SPEEDS = {"0.25x", "0.5x", "1x", "2x", "4x", "8x", "16x", "32x"};
+
+    // Game panel playing the replay
+    private final SnakeGame game;
+    // Scrub bar over the recorded ticks
+    private final JSlider scrubBar;
+    private final JButton playButton;
+    private final JLabel tickLabel;
+    // Ticks the replay covers
+    private final long firstTick;
+    private final long endTick;
+    // Set while the bar follows playback, so its change is not taken for a seek
+    private boolean following = false;
+
+    // Constructs a viewer for a replay, paused at its start. 'onClose' runs when the viewer is
+    // left through its Menu button; null hides the button.
+    public ReplayViewer(ReplayLog replay, Runnable onClose) {
+        super(new BorderLayout());
+        game = new SnakeGame(replay);
+        firstTick = replay.getFirstTick();
+        endTick = replay.getEndTick();
+
+        playButton = new JButton("Play");
+        playButton.addActionListener(e -> {
+            if (game.getReplayTick() >= endTick) seek(firstTick);
+            game.setPlaying(!game.isPlaying());
+            update();
+        });
+
+        JButton stepButton = new JButton("Step");
+        stepButton.addActionListener(e -> {
+            game.setPlaying(false);
+            seek(game.getReplayTick() + 1);
+        });
+
+        JComboBox<String> speedBox = new JComboBox<>(SPEEDS);
+        speedBox.setSelectedItem("1x");
+        speedBox.addActionListener(e -> {
+            String speed = (String) speedBox.getSelectedItem();
+            game.setPlaybackSpeed(Double.parseDouble(speed.substring(0, speed.length() - 1)));
+        });
+
+        // Slider positions are ticks from the start, which fit an int for any realistic game
+        scrubBar = new JSlider(0, (int) Math.min(Integer.MAX_VALUE, endTick - firstTick), 0);
+        scrubBar.addChangeListener(e -> {
+            if (!following) seek(firstTick + scrubBar.getValue());
+        });
+
+        tickLabel = new JLabel();
+        game.setPlaybackListener(this::update);
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.CENTER, 4, 0));
+        buttons.add(playButton);
+        buttons.add(stepButton);
+        buttons.add(speedBox);
+        buttons.add(tickLabel);
+        if (onClose != null) {
+            JButton menuButton = new JButton("Menu");
+            menuButton.addActionListener(e -> {
+                stop();
+                onClose.run();
+            });
+            buttons.add(menuButton);
+        }
+        JPanel controls = new JPanel(new BorderLayout());
+        controls.add(scrubBar, BorderLayout.CENTER);
+        controls.add(buttons, BorderLayout.SOUTH);
+
+        add(game, BorderLayout.CENTER);
+        add(controls, BorderLayout.SOUTH);
+        update();
+    }
+
+    // Main entry point for watching a replay file.
+    public static void main(String[] args) throws Exception {
+        ReplayLog replay = args.length > 0
+                ? ReplayLog.decode(Files.readAllBytes(Paths.get(args[0])))
+                : new ReplayStore().loadLatest();
+        if (replay == null) {
+            System.out.println("No replay found in " + ReplayStore.defaultDirectory());
+            return;
+        }
+        SwingUtilities.invokeLater(() -> {
+            JFrame frame = new JFrame("Bluetooth Snake Replay");
+            frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            frame.add(new ReplayViewer(replay, null));
+            frame.pack();
+            frame.setLocationRelativeTo(null);
+            frame.setVisible(true);
+        });
+    }
+
+    // Moves playback to a tick and refreshes the controls.
+    private void seek(long tick) {
+        game.seek(tick);
+        update();
+    }
+
+    // Brings the scrub bar, label and play button in line with playback.
+    private void update() {
+        long tick = game.getReplayTick();
+        following = true;
+        scrubBar.setValue((int) (tick - firstTick));
+        following = false;
+        tickLabel.setText(formatTime(tick) + " / " + formatTime(endTick));
+        playButton.setText(game.isPlaying() ? "Pause" : "Play");
+    }
+
+    // Formats a tick as the play time it was reached at.
+    private String formatTime(long tick) {
+        long seconds = tick * game.getDifficulty().getDelay() / 1000;
+        return String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+
+    // Stops playback for good.
+    public void stop() {
+        game.stop();
+    }
+
+    // Gets the game panel, for keyboard focus.
+    public SnakeGame getGame() {
+        return game;
+    }
+}
@@ -0,0 +1,140 @@
+package snake;
+
+import java.util.Arrays;
+
+// Ring of recent per-tick state used to re-simulate ticks when a command arrives late.
+// For every recent tick it keeps the state before the tick, when the tick ran and the
+// turns the player made before it. Everything is preallocated.
+public class RollbackBuffer {
+    // Maximum number of ticks a command may be moved back
+    private final int window;
+    // Ring capacity (window plus the tick being decided and the upcoming one)
+    private final int capacity;
+    // State before each tick
+    private final GameSnapshot[] snapshots;
+    // System.nanoTime() at which each tick ran, 0 if it has not run
+    private final long[] tickNanos;
+    // First and final direction turned to before each tick, null if the snake did not turn.
+    // Several turns within a tick replay as these two: the final direction alone, or the first
+    // one before it when the final one reverses the direction the tick started with.
+    private final Direction[] firstTurns;
+    private final Direction[] finalTurns;
+    // DIRECTION_CHANGED events published for each tick, so a rollback can say how many it retracts
+    private final int[] turnEvents;
+
+    // Number of rollbacks performed
+    private long rollbacks;
+    // Total number of ticks re-simulated by rollbacks
+    private long correctedTicks;
+
+    // Constructs a buffer for a rollback window of 'window' ticks on a board of 'boardCells' cells.
+    public RollbackBuffer(int window, int boardCells) {
+        this.window = window;
+        this.capacity = window + 2;
+        this.snapshots = new GameSnapshot[capacity];
+        this.tickNanos = new long[capacity];
+        this.firstTurns = new Direction[capacity];
+        this.finalTurns = new Direction[capacity];
+        this.turnEvents = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            snapshots[i] = new GameSnapshot(boardCells);
+        }
+    }
+
+    // Gets the snapshot slot for a tick.
+    public GameSnapshot snapshot(long tick) {
+        return snapshots[slot(tick)];
+    }
+
+    // Records when a tick ran.
+    public void setTickTime(long tick, long nanos) {
+        tickNanos[slot(tick)] = nanos;
+    }
+
+    // Gets the first direction turned to before a tick, or null.
+    public Direction getFirstTurn(long tick) {
+        return firstTurns[slot(tick)];
+    }
+
+    // Gets the final direction turned to before a tick, or null.
+    public Direction getFinalTurn(long tick) {
+        return finalTurns[slot(tick)];
+    }
+
+    // Records a turn made before a tick.
+    public void recordTurn(long tick, Direction direction) {
+        int slot = slot(tick);
+        if (firstTurns[slot] == null) firstTurns[slot] = direction;
+        finalTurns[slot] = direction;
+    }
+
+    // Forgets the turns made before a tick.
+    public void clearTurns(long tick) {
+        firstTurns[slot(tick)] = null;
+        finalTurns[slot(tick)] = null;
+        turnEvents[slot(tick)] = 0;
+    }
+
+    // Counts a DIRECTION_CHANGED event published for a tick.
+    public void countTurnEvent(long tick) {
+        turnEvents[slot(tick)]++;
+    }
+
+    // Gets the DIRECTION_CHANGED events published for ticks 'from' to 'to', and forgets them.
+    public int takeTurnEvents(long from, long to) {
+        int events = 0;
+        for (long tick = from; tick <= to; tick++) {
+            events += turnEvents[slot(tick)];
+            turnEvents[slot(tick)] = 0;
+        }
+        return events;
+    }
+
+    // Finds the earliest tick in (latest - window, latest] that ran after 'issuedNanos'.
+    // Returns -1 if the command is not late, or too late to be corrected.
+    public long findLateTick(long issuedNanos, long latest) {
+        if (latest < 0 || tickNanos[slot(latest)] - issuedNanos <= 0) return -1;
+        long oldest = Math.max(0, latest - window + 1);
+        long target = latest;
+        while (target > oldest && tickNanos[slot(target - 1)] - issuedNanos > 0) {
+            target--;
+        }
+        // If even the oldest kept tick ran after the command, it is older than the window
+        if (target == oldest && oldest > 0 && tickNanos[slot(oldest - 1)] - issuedNanos > 0) return -1;
+        return target;
+    }
+
+    // Records a completed rollback of 'ticks' ticks.
+    public void recordRollback(long ticks) {
+        rollbacks++;
+        correctedTicks += ticks;
+    }
+
+    // Clears all per-tick data, e.g. when a game is reset.
+    public void clear() {
+        Arrays.fill(tickNanos, 0);
+        Arrays.fill(firstTurns, null);
+        Arrays.fill(finalTurns, null);
+        Arrays.fill(turnEvents, 0);
+    }
+
+    // Gets the rollback window in ticks.
+    public int getWindow() {
+        return window;
+    }
+
+    // Gets the number of rollbacks performed.
+    public long getRollbacks() {
+        return rollbacks;
+    }
+
+    // Gets the total number of ticks re-simulated.
+    public long getCorrectedTicks() {
+        return correctedTicks;
+    }
+
+    // Maps a tick number to its ring slot.
+    private int slot(long tick) {
+        return (int) (tick % capacity);
+    }
+}
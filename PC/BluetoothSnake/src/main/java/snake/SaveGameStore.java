@@ -0,0 +1,92 @@
+package snake;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Keeps the single in-progress game on disk so it can be resumed after a restart.
+// Saves are encoded and written on a background thread; the file is replaced atomically
+// so a crash mid-write leaves the previous save intact.
+public class SaveGameStore implements AutoCloseable {
+    // The save file and its temporary sibling
+    private final Path file;
+    private final Path temporary;
+    // Single background thread performing all disk writes in submission order
+    private final ExecutorService writer;
+
+    // Opens the store in the default data directory.
+    public SaveGameStore() {
+        this(HighScoreStore.defaultDirectory());
+    }
+
+    // Opens the store in the given directory.
+    public SaveGameStore(Path directory) {
+        this.file = directory.resolve("savegame.bin");
+        this.temporary = directory.resolve("savegame.bin.tmp");
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "SaveGameWriter");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Loads the saved game, or returns null if there is none or it cannot be read.
+    public SavedGame load() {
+        try {
+            return SavedGame.decode(Files.readAllBytes(file));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Ignoring unreadable save: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Queues a save; never blocks on I/O.
+    public void save(SavedGame game) {
+        writer.execute(() -> write(game));
+    }
+
+    // Queues removal of the save, e.g. once the game has ended.
+    public void delete() {
+        writer.execute(() -> {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                System.err.println("Failed to delete save: " + e.getMessage());
+            }
+        });
+    }
+
+    // Writes a save through a temporary file. Runs on the writer thread.
+    private void write(SavedGame game) {
+        try {
+            Files.createDirectories(file.getParent());
+            Files.write(temporary, game.encode());
+            try {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to save game: " + e.getMessage());
+        }
+    }
+
+    // Flushes pending writes.
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package snake;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+// An in-progress game captured for saving, and its binary format.
+//
+// Layout (big endian), version 2:
+//   int magic "SNKS", byte version, byte difficulty, byte columns, byte rows,
+//   long tick, int score, byte direction, long random state, short food cell,
+//   short snake length, short[] snake cells (head first),
+//   short obstacle count, short[] obstacle cells, int moving obstacle seed,
+//   int CRC32 of all preceding bytes.
+// Version 1 has no moving obstacle seed. A typical save is well under a kilobyte.
+public class SavedGame {
+    // Format identification
+    private static final int MAGIC = 0x534E4B53; // "SNKS"
+    private static final byte VERSION = 2;
+    // Fixed part of the encoding, without the cell arrays
+    private static final int HEADER_SIZE = 4 + 1 + 1 + 1 + 1 + 8 + 4 + 1 + 8 + 2 + 2 + 2 + 4 + 4;
+
+    // Difficulty the game is played at
+    private final Difficulty difficulty;
+    // Board size in cells
+    private final int columns;
+    private final int rows;
+    // Snake, food, score, direction, random state and tick
+    private final GameSnapshot snapshot;
+    // Obstacle cells
+    private final int[] obstacles;
+    // Seed the moving obstacles are generated from
+    private final int hazardSeed;
+
+    // Constructs a saved game from captured state.
+    public SavedGame(Difficulty difficulty, int columns, int rows, GameSnapshot snapshot, int[] obstacles, int hazardSeed) {
+        this.difficulty = difficulty;
+        this.columns = columns;
+        this.rows = rows;
+        this.snapshot = snapshot;
+        this.obstacles = obstacles;
+        this.hazardSeed = hazardSeed;
+    }
+
+    // Encodes the game into its binary form.
+    public byte[] encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 2 * (snapshot.length + obstacles.length));
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+        buffer.put((byte) difficulty.ordinal());
+        buffer.put((byte) columns);
+        buffer.put((byte) rows);
+        buffer.putLong(snapshot.tick);
+        buffer.putInt(snapshot.score);
+        buffer.put((byte) snapshot.direction.ordinal());
+        buffer.putLong(snapshot.randomState);
+        buffer.putShort((short) snapshot.food);
+        buffer.putShort((short) snapshot.length);
+        for (int i = 0; i < snapshot.length; i++) {
+            buffer.putShort((short) snapshot.cells[i]);
+        }
+        buffer.putShort((short) obstacles.length);
+        for (int obstacle : obstacles) {
+            buffer.putShort((short) obstacle);
+        }
+        buffer.putInt(hazardSeed);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        return buffer.array();
+    }
+
+    // Decodes a saved game. Throws IllegalArgumentException if the data is not a valid save.
+    public static SavedGame decode(byte[] data) {
+        if (data.length < HEADER_SIZE - 4) throw new IllegalArgumentException("Save is truncated");
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length - 4);
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        if (buffer.getInt(data.length - 4) != (int) crc.getValue()) {
+            throw new IllegalArgumentException("Save checksum mismatch");
+        }
+
+        try {
+            if (buffer.getInt() != MAGIC) throw new IllegalArgumentException("Not a save file");
+            byte version = buffer.get();
+            if (version != 1 && version != VERSION) throw new IllegalArgumentException("Unsupported save version " + version);
+            Difficulty difficulty = Difficulty.values()[buffer.get()];
+            int columns = Byte.toUnsignedInt(buffer.get());
+            int rows = Byte.toUnsignedInt(buffer.get());
+
+            int cells = columns * rows;
+            GameSnapshot snapshot = new GameSnapshot(cells);
+            snapshot.tick = buffer.getLong();
+            snapshot.score = buffer.getInt();
+            snapshot.direction = Direction.values()[buffer.get()];
+            snapshot.randomState = buffer.getLong();
+            snapshot.food = buffer.getShort(); // -1 when the board had no room for food
+            if (snapshot.food != -1) checkCell(snapshot.food, cells);
+            snapshot.length = Short.toUnsignedInt(buffer.getShort());
+            if (snapshot.length == 0 || snapshot.length > cells) {
+                throw new IllegalArgumentException("Save has a snake of length " + snapshot.length);
+            }
+            for (int i = 0; i < snapshot.length; i++) {
+                snapshot.cells[i] = checkCell(Short.toUnsignedInt(buffer.getShort()), cells);
+            }
+            int[] obstacles = new int[Short.toUnsignedInt(buffer.getShort())];
+            if (obstacles.length > cells) throw new IllegalArgumentException("Save has more obstacles than cells");
+            for (int i = 0; i < obstacles.length; i++) {
+                obstacles[i] = checkCell(Short.toUnsignedInt(buffer.getShort()), cells);
+            }
+            int hazardSeed = version >= 2 ? buffer.getInt() : 0;
+            return new SavedGame(difficulty, columns, rows, snapshot, obstacles, hazardSeed);
+        } catch (BufferUnderflowException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Save is malformed", e);
+        }
+    }
+
+    // Checks that a decoded cell lies on a board of 'cells' cells. Returns it.
+    private static int checkCell(int cell, int cells) {
+        if (cell < 0 || cell >= cells) throw new IllegalArgumentException("Save has cell " + cell + " off the board");
+        return cell;
+    }
+
+    // Gets the difficulty the game is played at.
+    public Difficulty getDifficulty() {
+        return difficulty;
+    }
+
+    // Gets the board width in cells.
+    public int getColumns() {
+        return columns;
+    }
+
+    // Gets the board height in cells.
+    public int getRows() {
+        return rows;
+    }
+
+    // Gets the captured game state.
+    public GameSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    // Gets the obstacle cells.
+    public int[] getObstacles() {
+        return obstacles;
+    }
+
+    // Gets the seed the moving obstacles are generated from.
+    public int getHazardSeed() {
+        return hazardSeed;
+    }
+}
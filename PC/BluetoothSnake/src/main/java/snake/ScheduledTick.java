@@ -0,0 +1,56 @@
+package snake;
+
+// A periodic task registered with a TimingWheel.
+// The entry is its own wheel list node and its own Runnable for the worker pool, so keeping a
+// session ticking costs one small object and no allocation per tick.
+public class ScheduledTick implements Runnable {
+    // Work run on every tick
+    final Runnable task;
+    // Period in wheel ticks
+    final long periodTicks;
+    // Wheel this entry belongs to
+    final TimingWheel wheel;
+
+    // Neighbours in the wheel slot list
+    ScheduledTick next;
+    ScheduledTick prev;
+    // Wheel tick of the next expiry and its wall-clock time
+    long deadlineTick;
+    long deadlineNanos;
+    // Wall-clock deadline of the run handed to the workers
+    long dispatchedNanos;
+    // Set while the task runs on a worker, so overlapping ticks are skipped rather than queued
+    volatile boolean running;
+    // Set once cancelled
+    volatile boolean cancelled;
+
+    // Constructs an entry; only TimingWheel creates them.
+    ScheduledTick(TimingWheel wheel, Runnable task, long periodTicks) {
+        this.wheel = wheel;
+        this.task = task;
+        this.periodTicks = periodTicks;
+    }
+
+    // Runs one tick on a worker thread and records how late it started.
+    @Override
+    public void run() {
+        wheel.recordLateness(System.nanoTime() - dispatchedNanos);
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            System.err.println("Session tick failed: " + e);
+        } finally {
+            running = false;
+        }
+    }
+
+    // Stops the task from being run again.
+    public void cancel() {
+        cancelled = true;
+    }
+
+    // Checks whether the entry was cancelled.
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -0,0 +1,5 @@
+package snake;
+
+// A single leaderboard entry: the final score and when it was achieved (epoch millis).
+public record ScoreEntry(int score, long timestamp) {
+}
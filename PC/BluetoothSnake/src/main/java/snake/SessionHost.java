@@ -0,0 +1,128 @@
+package snake;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Hosts many headless game sessions in one process.
+// Every session ticks at its Difficulty delay from one shared TimingWheel, and the ticks run on a
+// small worker pool instead of one Swing Timer (and display) per game.
+// Usage: java snake.SessionHost [sessions] [seconds] [workers]
+public class SessionHost implements AutoCloseable {
+    // Runs the session ticks
+    private final ExecutorService workers;
+    // Schedules the session ticks
+    private final TimingWheel wheel;
+    // Scheduled sessions
+    private final List<ScheduledTick> sessions = new ArrayList<>();
+
+    // Constructs a host with the given number of worker threads.
+    public SessionHost(int workerThreads) {
+        this.workers = Executors.newFixedThreadPool(workerThreads, r -> {
+            Thread t = new Thread(r, "SessionWorker");
+            t.setDaemon(true);
+            return t;
+        });
+        this.wheel = new TimingWheel(workers);
+        wheel.start();
+    }
+
+    // Adds a session ticking at the given difficulty's rate.
+    // Sessions are phase-shifted across the period so they do not all tick in the same millisecond.
+    public synchronized ScheduledTick addSession(Difficulty difficulty, Runnable tick) {
+        int period = difficulty.getDelay();
+        ScheduledTick entry = wheel.schedule(tick, period, 1 + sessions.size() % period);
+        sessions.add(entry);
+        return entry;
+    }
+
+    // Removes a session.
+    public synchronized void removeSession(ScheduledTick entry) {
+        entry.cancel();
+        sessions.remove(entry);
+    }
+
+    // Gets the number of sessions.
+    public synchronized int getSessionCount() {
+        return sessions.size();
+    }
+
+    // Gets the tick start lateness across all sessions.
+    public LatencyHistogram getLateness() {
+        return wheel.getLateness();
+    }
+
+    // Gets the number of ticks skipped because a session's previous tick was still running.
+    public long getOverruns() {
+        return wheel.getOverruns();
+    }
+
+    // Stops ticking and shuts the workers down.
+    @Override
+    public void close() {
+        wheel.stop();
+        workers.shutdown();
+        try {
+            workers.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Runs bot sessions across all difficulties and reports lateness and memory per session.
+    public static void main(String[] args) throws InterruptedException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        System.out.printf("Scheduler state: ~%d bytes per session%n", measureEntryBytes(100_000));
+
+        long before = usedMemory();
+        List<BotSession> bots = new ArrayList<>(count);
+        Difficulty[] difficulties = Difficulty.values();
+        for (int i = 0; i < count; i++) {
+            bots.add(new BotSession(difficulties[i % difficulties.length], i));
+        }
+        try (SessionHost host = new SessionHost(threads)) {
+            for (BotSession bot : bots) {
+                host.addSession(bot.getDifficulty(), bot);
+            }
+            System.out.printf("%d sessions on %d workers, ~%d bytes per session including game state%n",
+                    count, threads, (usedMemory() - before) / count);
+
+            for (int s = 1; s <= seconds; s++) {
+                Thread.sleep(1000);
+                // Report each second on its own so start-up does not hide the steady state
+                System.out.printf("%3ds lateness %s overruns=%d%n", s, host.getLateness().summary(), host.getOverruns());
+                host.getLateness().reset();
+            }
+        }
+
+        long ticks = 0;
+        for (BotSession bot : bots) ticks += bot.getTicks();
+        System.out.printf("%d ticks in %d s (%.0f ticks/s)%n", ticks, seconds, ticks / (double) seconds);
+    }
+
+    // Measures the heap used by 'count' scheduled entries on an idle wheel.
+    private static long measureEntryBytes(int count) {
+        TimingWheel idle = new TimingWheel(Runnable::run);
+        Runnable noop = () -> { };
+        List<ScheduledTick> entries = new ArrayList<>(count);
+        long before = usedMemory();
+        for (int i = 0; i < count; i++) {
+            entries.add(idle.schedule(noop, 50));
+        }
+        long bytes = (usedMemory() - before) / count;
+        // Keep the entries reachable until measured
+        return entries.isEmpty() ? 0 : bytes;
+    }
+
+    // Gets the used heap after a collection.
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,267 @@
+package snake;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Headless engine for several snakes sharing one wrap-around board.
+//
+// A single occupancy array indexed by cell answers every collision question in O(1), so a
+// tick costs time proportional to the number of snakes, not their length. All snakes move
+// simultaneously and the rules are resolved deterministically:
+//  - moving into a cell that was occupied (by any body, including heads and tails, or an
+//    obstacle) at the start of the tick kills the mover; so two heads moving into each other
+//    both die;
+//  - when several snakes move into the same free cell the longest one takes it and the others
+//    die; if the longest is tied, all of them die.
+public class SharedBoard {
+    // Occupancy values besides snake ids (id + 1)
+    public static final int EMPTY = 0;
+    public static final int OBSTACLE = -1;
+    public static final int FOOD = -2;
+
+    // Board size in cells
+    private final int columns;
+    private final int rows;
+    // What each cell holds: EMPTY, OBSTACLE, FOOD or the id + 1 of the snake body on it
+    private final int[] occupancy;
+    // Tick stamp of the last claim on each cell and the snake holding it
+    private final int[] claimStamp;
+    private final int[] claimOwner;
+    // Whether the claim holder of each cell is tied with another claimant
+    private final boolean[] claimTied;
+    // All snakes ever added, indexed by id
+    private final List<BoardSnake> snakes = new ArrayList<>();
+    // Random placement of food
+    private final GameRandom random;
+    // Number of food items kept on the board
+    private final int foodCount;
+
+    // Per-tick scratch: next head cell and survival of every snake
+    private int[] targets = new int[8];
+    private boolean[] survives = new boolean[8];
+    // Number of ticks simulated
+    private int tick = 0;
+    // Number of snakes still alive
+    private int aliveCount = 0;
+    // Food items currently on the board
+    private int food = 0;
+
+    // Constructs an empty board with the given size, food count and random seed.
+    public SharedBoard(int columns, int rows, int foodCount, long seed) {
+        this.columns = columns;
+        this.rows = rows;
+        this.foodCount = foodCount;
+        this.random = new GameRandom(seed);
+        this.occupancy = new int[columns * rows];
+        this.claimStamp = new int[columns * rows];
+        this.claimOwner = new int[columns * rows];
+        this.claimTied = new boolean[columns * rows];
+    }
+
+    // Adds a one cell snake at a free cell. Returns its id.
+    public int addSnake(int column, int row, Direction direction) {
+        int cell = cellIndex(column, row);
+        if (occupancy[cell] != EMPTY) {
+            throw new IllegalArgumentException("Cell " + column + "," + row + " is not free");
+        }
+        int id = snakes.size();
+        snakes.add(new BoardSnake(id, columns, rows, cell, direction));
+        occupancy[cell] = id + 1;
+        aliveCount++;
+        if (id >= targets.length) {
+            targets = new int[targets.length * 2];
+            survives = new boolean[survives.length * 2];
+        }
+        return id;
+    }
+
+    // Places an obstacle on a free cell. Returns false if the cell is taken.
+    public boolean addObstacle(int column, int row) {
+        int cell = cellIndex(column, row);
+        if (occupancy[cell] != EMPTY) return false;
+        occupancy[cell] = OBSTACLE;
+        return true;
+    }
+
+    // Places a food item on a free cell. Returns false if the cell is taken.
+    public boolean addFood(int column, int row) {
+        int cell = cellIndex(column, row);
+        if (occupancy[cell] != EMPTY) return false;
+        occupancy[cell] = FOOD;
+        food++;
+        return true;
+    }
+
+    // Places random obstacles, keeping the rows in 'reservedRows' clear.
+    public void addRandomObstacles(int count, int... reservedRows) {
+        for (int placed = 0; placed < count; ) {
+            int column = random.nextInt(columns);
+            int row = random.nextInt(rows);
+            boolean reserved = false;
+            for (int r : reservedRows) reserved |= r == row;
+            if (!reserved && addObstacle(column, row)) placed++;
+        }
+    }
+
+    // Tops the food up to the configured count.
+    public void fillFood() {
+        while (food < foodCount && spawnFood()) {
+            food++;
+        }
+    }
+
+    // Turns a snake, ignoring reversals onto itself.
+    public void setDirection(int snakeId, Direction direction) {
+        snakes.get(snakeId).turn(direction);
+    }
+
+    // Advances all snakes by one cell.
+    public void tick() {
+        int stamp = ++tick;
+        int count = snakes.size();
+
+        // Intents and claims on the target cells
+        for (int i = 0; i < count; i++) {
+            BoardSnake snake = snakes.get(i);
+            survives[i] = snake.isAlive();
+            if (!survives[i]) continue;
+
+            int target = next(snake.headCell(), snake.getDirection());
+            targets[i] = target;
+            int held = occupancy[target];
+            if (held > 0 || held == OBSTACLE) {
+                // Blocked by something present at the start of the tick
+                survives[i] = false;
+            } else if (claimStamp[target] != stamp) {
+                claimStamp[target] = stamp;
+                claimOwner[target] = i;
+                claimTied[target] = false;
+            } else {
+                // Contested free cell: the longest snake takes it
+                int owner = claimOwner[target];
+                int ownerLength = snakes.get(owner).getLength();
+                if (snake.getLength() > ownerLength) {
+                    survives[owner] = false;
+                    claimOwner[target] = i;
+                    claimTied[target] = false;
+                } else {
+                    survives[i] = false;
+                    if (snake.getLength() == ownerLength) claimTied[target] = true;
+                }
+            }
+        }
+
+        // A tie between the longest claimants loses the cell for all of them
+        for (int i = 0; i < count; i++) {
+            if (survives[i] && claimTied[targets[i]]) survives[i] = false;
+        }
+
+        // Apply the moves of the survivors
+        int eaten = 0;
+        for (int i = 0; i < count; i++) {
+            BoardSnake snake = snakes.get(i);
+            if (!snake.isAlive()) continue;
+            if (!survives[i]) {
+                removeSnake(snake);
+                continue;
+            }
+            int target = targets[i];
+            if (occupancy[target] == FOOD) {
+                snake.addScore();
+                eaten++;
+            } else {
+                occupancy[snake.popTail()] = EMPTY;
+            }
+            snake.pushHead(target);
+            occupancy[target] = i + 1;
+        }
+
+        food -= eaten;
+        fillFood();
+    }
+
+    // Takes a dead snake's body off the board.
+    private void removeSnake(BoardSnake snake) {
+        int cell = snake.headCell();
+        for (int i = 0; i < snake.getLength(); cell = snake.following(cell, i++)) {
+            occupancy[cell] = EMPTY;
+        }
+        snake.kill();
+        aliveCount--;
+    }
+
+    // Puts one food item on a random free cell. Returns false if the board is full.
+    private boolean spawnFood() {
+        int size = occupancy.length;
+        // Random probing finds a free cell quickly unless the board is nearly full
+        for (int attempt = 0; attempt < 64; attempt++) {
+            int cell = random.nextInt(size);
+            if (occupancy[cell] == EMPTY) {
+                occupancy[cell] = FOOD;
+                return true;
+            }
+        }
+        int start = random.nextInt(size);
+        for (int i = 0; i < size; i++) {
+            int cell = (start + i) % size;
+            if (occupancy[cell] == EMPTY) {
+                occupancy[cell] = FOOD;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Gets the cell next to 'cell' in 'direction', wrapping around the edges.
+    public int next(int cell, Direction direction) {
+        int column = cell % columns;
+        int row = cell / columns;
+        switch (direction) {
+            case UP -> row = row == 0 ? rows - 1 : row - 1;
+            case DOWN -> row = row == rows - 1 ? 0 : row + 1;
+            case LEFT -> column = column == 0 ? columns - 1 : column - 1;
+            case RIGHT -> column = column == columns - 1 ? 0 : column + 1;
+        }
+        return row * columns + column;
+    }
+
+    // Converts a column and row to a cell index.
+    public int cellIndex(int column, int row) {
+        return row * columns + column;
+    }
+
+    // Gets what a cell holds: EMPTY, OBSTACLE, FOOD or a snake id + 1.
+    public int occupant(int cell) {
+        return occupancy[cell];
+    }
+
+    // Gets a snake by id.
+    public BoardSnake getSnake(int id) {
+        return snakes.get(id);
+    }
+
+    // Gets the number of snakes ever added.
+    public int getSnakeCount() {
+        return snakes.size();
+    }
+
+    // Gets the number of snakes still alive.
+    public int getAliveCount() {
+        return aliveCount;
+    }
+
+    // Gets the number of ticks simulated.
+    public int getTick() {
+        return tick;
+    }
+
+    // Gets the board width in cells.
+    public int getColumns() {
+        return columns;
+    }
+
+    // Gets the board height in cells.
+    public int getRows() {
+        return rows;
+    }
+}
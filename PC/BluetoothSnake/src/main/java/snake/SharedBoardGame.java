@@ -0,0 +1,244 @@
+package snake;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.awt.geom.AffineTransform;
+
+// Panel for a local multiplayer game where several snakes share one board.
+// Each snake is bound to a controller of its own: the n-th phone connected steers player n
+// through getController(). A snake without a phone falls back to the keyboard: the arrow keys
+// for player 1, WASD, IJKL and the numpad for players 2-4.
+public class SharedBoardGame extends JPanel implements ActionListener, KeyListener {
+    // Board constants, matching the single player board
+    private static final int COLUMNS = SnakeGame.COLUMNS;
+    private static final int ROWS = SnakeGame.ROWS;
+    private static final int CELL_SIZE = 20;
+
+    // Keys of players 2-4 in UP, DOWN, LEFT, RIGHT order
+    private static final int[][] PLAYER_KEYS = {
+            {KeyEvent.VK_W, KeyEvent.VK_S, KeyEvent.VK_A, KeyEvent.VK_D},
+            {KeyEvent.VK_I, KeyEvent.VK_K, KeyEvent.VK_J, KeyEvent.VK_L},
+            {KeyEvent.VK_NUMPAD8, KeyEvent.VK_NUMPAD5, KeyEvent.VK_NUMPAD4, KeyEvent.VK_NUMPAD6},
+    };
+    private static final Direction[] KEY_DIRECTIONS = {Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT};
+
+    // Game objects
+    private final SharedBoard board; // Shared board engine
+    private final Timer timer; // Game timer for updates
+    private final SnakeApp app; // Reference to main application
+    private final int players; // Number of snakes on the board
+    private final TileAtlas atlas = new TileAtlas(); // Pre-rendered tiles for the current scale
+    private final PlayerController[] controllers; // Phone input of each snake
+    private final TextBuffer scoreText = new TextBuffer(64); // Score line, rebuilt every frame
+
+    // Game state variables
+    private boolean gameOver = false; // Game over flag
+    private long lastTickStartNanos; // When the last tick started, for tick interval events
+
+    // Constructs a shared board game for 'players' players at the given difficulty.
+    public SharedBoardGame(SnakeApp app, Difficulty difficulty, int players) {
+        this.app = app;
+        this.players = players;
+        controllers = new PlayerController[players];
+        for (int i = 0; i < players; i++) {
+            controllers[i] = new PlayerController(i);
+        }
+
+        // Set up panel properties
+        setPreferredSize(new Dimension(COLUMNS * CELL_SIZE, ROWS * CELL_SIZE));
+        setBackground(Color.BLACK);
+        setFocusable(true);
+        addKeyListener(this);
+
+        // Spread the players over separate rows, alternating direction
+        board = new SharedBoard(COLUMNS, ROWS, players, System.nanoTime());
+        int[] startRows = new int[players];
+        for (int i = 0; i < players; i++) {
+            startRows[i] = (i + 1) * ROWS / (players + 1);
+            boolean right = i % 2 == 0;
+            board.addSnake(right ? COLUMNS / 4 : COLUMNS * 3 / 4, startRows[i], right ? Direction.RIGHT : Direction.LEFT);
+        }
+        board.addRandomObstacles(difficulty.getNumObstacles(), startRows);
+        board.fillFood();
+
+        // Set up game timer with difficulty-based delay
+        timer = new Timer(difficulty.getDelay(), this);
+        timer.start();
+    }
+
+    // Turns a player's snake.
+    public void setDirection(int player, Direction direction) {
+        if (player < players) board.setDirection(player, direction);
+    }
+
+    // Gets the controller input of a player's snake, or null if there is no such player.
+    public CommandTarget getController(int player) {
+        return player >= 0 && player < players ? controllers[player] : null;
+    }
+
+    // Stops ticking for good. Called once the game has been left.
+    public void stop() {
+        timer.stop();
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        if (gameOver) return;
+        TickEvent event = FlightRecording.isActive() ? new TickEvent() : null;
+        if (event != null) event.begin();
+        long start = System.nanoTime();
+        int commandsApplied = 0;
+        for (PlayerController controller : controllers) {
+            commandsApplied += controller.commands.drain(controller);
+        }
+        board.tick();
+        if (event != null) commitTick(event, start, commandsApplied);
+        lastTickStartNanos = start;
+        repaint();
+
+        // The game ends when at most one snake is left (or none, when playing alone)
+        if (board.getAliveCount() <= (players > 1 ? 1 : 0)) {
+            gameOver = true;
+            repaint();
+            app.setGameState(GameState.GAME_OVER);
+        }
+    }
+
+    // Completes the Flight Recorder event of a tick that started at 'start'.
+    private void commitTick(TickEvent event, long start, int commandsApplied) {
+        event.end();
+        if (event.shouldCommit()) {
+            int longest = 0;
+            for (int id = 0; id < board.getSnakeCount(); id++) {
+                longest = Math.max(longest, board.getSnake(id).getLength());
+            }
+            event.game = "shared";
+            event.tick = board.getTick();
+            event.length = longest;
+            event.score = board.getSnake(0).getScore();
+            event.commands = commandsApplied;
+            event.interval = lastTickStartNanos != 0 ? start - lastTickStartNanos : 0;
+            event.period = timer.getDelay();
+            event.commit();
+        }
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g;
+
+        // Work in device pixels and fit whole-pixel cells, as in SnakeGame
+        AffineTransform saved = g2.getTransform();
+        double deviceScale = saved.getScaleX();
+        int width = (int) Math.round(getWidth() * deviceScale);
+        int height = (int) Math.round(getHeight() * deviceScale);
+        int cell = Math.max(1, Math.min(width / COLUMNS, height / ROWS));
+        int originX = (width - cell * COLUMNS) / 2;
+        int originY = (height - cell * ROWS) / 2;
+        atlas.ensure(getGraphicsConfiguration(), cell);
+
+        g2.scale(1 / deviceScale, 1 / deviceScale);
+        g2.setColor(Color.BLACK);
+        g2.fillRect(0, 0, width, height);
+
+        // Draw food and obstacles
+        for (int i = 0; i < COLUMNS * ROWS; i++) {
+            int occupant = board.occupant(i);
+            if (occupant == SharedBoard.FOOD || occupant == SharedBoard.OBSTACLE) {
+                Image tile = atlas.get(occupant == SharedBoard.FOOD ? TileAtlas.Tile.FOOD : TileAtlas.Tile.OBSTACLE);
+                g2.drawImage(tile, originX + i % COLUMNS * cell, originY + i / COLUMNS * cell, null);
+            }
+        }
+
+        // Draw snakes, one color per player
+        for (int id = 0; id < board.getSnakeCount(); id++) {
+            BoardSnake snake = board.getSnake(id);
+            if (!snake.isAlive()) continue;
+            Image tile = atlas.get(TileAtlas.Tile.snake(id));
+            int c = snake.headCell();
+            for (int i = 0; i < snake.getLength(); c = snake.following(c, i++)) {
+                g2.drawImage(tile, originX + c % COLUMNS * cell, originY + c / COLUMNS * cell, null);
+            }
+        }
+
+        // Draw scores (white) or the result
+        g2.setColor(Color.WHITE);
+        g2.setFont(atlas.getScoreFont());
+        scoreText.clear();
+        for (int id = 0; id < players; id++) {
+            scoreText.append('P').append(id + 1).append(": ").append(board.getSnake(id).getScore()).append("  ");
+        }
+        scoreText.draw(g2, originX + cell / 2, originY + cell);
+
+        if (gameOver) {
+            g2.setColor(Color.RED);
+            g2.setFont(atlas.getGameOverFont());
+            String result = getResult();
+            g2.drawString(result, originX + (cell * COLUMNS - g2.getFontMetrics().stringWidth(result)) / 2,
+                    originY + cell * ROWS / 2);
+        }
+
+        g2.setTransform(saved);
+    }
+
+    // Describes the outcome of a finished game.
+    public String getResult() {
+        for (int id = 0; id < players; id++) {
+            if (board.getSnake(id).isAlive()) return "Player " + (id + 1) + " wins!";
+        }
+        return players > 1 ? "Draw!" : "Game Over!";
+    }
+
+    // Unused KeyListener methods
+    @Override public void keyTyped(KeyEvent e) {}
+    @Override public void keyReleased(KeyEvent e) {}
+
+    @Override
+    public void keyPressed(KeyEvent e) {
+        int key = e.getKeyCode();
+        // Player 1 uses the arrow keys
+        switch (key) {
+            case KeyEvent.VK_UP -> keyDirection(0, Direction.UP);
+            case KeyEvent.VK_DOWN -> keyDirection(0, Direction.DOWN);
+            case KeyEvent.VK_LEFT -> keyDirection(0, Direction.LEFT);
+            case KeyEvent.VK_RIGHT -> keyDirection(0, Direction.RIGHT);
+        }
+        // Other players use their own key sets
+        for (int player = 0; player < PLAYER_KEYS.length; player++) {
+            for (int k = 0; k < KEY_DIRECTIONS.length; k++) {
+                if (PLAYER_KEYS[player][k] == key) keyDirection(player + 1, KEY_DIRECTIONS[k]);
+            }
+        }
+    }
+
+    // Turns a player's snake from the keyboard, unless a phone is steering it.
+    private void keyDirection(int player, Direction direction) {
+        if (!app.isControllerConnected(player)) setDirection(player, direction);
+    }
+
+    // Phone input of one snake. Each has its own queue, so one player's flood of commands
+    // cannot crowd out another's, and all are drained at the start of the tick.
+    private class PlayerController implements CommandTarget, CommandQueue.Handler {
+        private final int player;
+        private final CommandQueue commands = new CommandQueue();
+
+        PlayerController(int player) {
+            this.player = player;
+        }
+
+        // Queues a command for the snake's next tick. Called from the controller's input thread.
+        @Override
+        public int enqueueCommand(Direction direction, long issuedNanos) {
+            return commands.offer(direction, issuedNanos);
+        }
+
+        @Override
+        public void onCommand(Direction direction, long issuedNanos) {
+            setDirection(player, direction);
+        }
+    }
+}
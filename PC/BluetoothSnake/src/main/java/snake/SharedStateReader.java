@@ -0,0 +1,159 @@
+package snake;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.LockSupport;
+
+// Reads consistent snapshots of the game state published by a SharedStateWriter in another
+// process, or the same one. Reading never blocks or slows the game: a snapshot that was being
+// written while it was copied is simply copied again. See SharedStateWriter for the layout.
+// Not thread-safe: each reading thread uses its own reader.
+// Usage: java snake.SharedStateReader <file> [interval ms]
+public class SharedStateReader {
+    // Copies given up on before read() reports failure, which only a writer stuck halfway through
+    // a publish, such as one that crashed, can cause
+    private static final int MAX_ATTEMPTS = 1000;
+    // States by ordinal
+    private static final GameState[] STATES = GameState.values();
+
+    private final MappedByteBuffer buffer;
+    private final int columns;
+    private final int rows;
+    private final int capacity;
+    // Copies that had to be made again
+    private long retries;
+
+    // One consistent copy of the published state
+    public static class Snapshot {
+        // Sequence it was published under
+        public long sequence;
+        public long tick;
+        public GameState state;
+        public boolean paused;
+        public int score;
+        // Food cell, -1 if none
+        public int food;
+        // Snake cells, head first, of which 'length' are valid
+        public int length;
+        public final int[] cells;
+
+        // Constructs a snapshot for a board of 'capacity' cells.
+        public Snapshot(int capacity) {
+            cells = new int[capacity];
+        }
+    }
+
+    // Maps a file written by a SharedStateWriter.
+    public SharedStateReader(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < SharedStateWriter.CELLS_OFFSET) throw new IOException(file + " is not a game state file");
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt(0) != SharedStateWriter.MAGIC || buffer.getInt(4) != SharedStateWriter.VERSION) {
+            throw new IOException(file + " is not a game state file of version " + SharedStateWriter.VERSION);
+        }
+        columns = buffer.getInt(SharedStateWriter.COLUMNS_OFFSET);
+        rows = buffer.getInt(SharedStateWriter.ROWS_OFFSET);
+        capacity = buffer.getInt(SharedStateWriter.CAPACITY_OFFSET);
+        if (capacity < 0 || buffer.capacity() < SharedStateWriter.size(capacity)) {
+            throw new IOException(file + " is truncated");
+        }
+    }
+
+    // Gets the sequence of the latest snapshot, odd while one is being written. Cheap enough to
+    // poll for a change before copying the whole snapshot.
+    public long getSequence() {
+        return (long) SharedStateWriter.SEQUENCE.getAcquire(buffer, SharedStateWriter.SEQUENCE_OFFSET);
+    }
+
+    // Copies the latest snapshot into 'into'. Returns false if no consistent copy could be made.
+    // Does not allocate.
+    public boolean read(Snapshot into) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (attempt > 0) {
+                retries++;
+                Thread.onSpinWait();
+            }
+            long sequence = getSequence();
+            if ((sequence & 1) != 0) continue;
+
+            long tick = buffer.getLong(SharedStateWriter.TICK_OFFSET);
+            int state = buffer.getInt(SharedStateWriter.STATE_OFFSET);
+            int flags = buffer.getInt(SharedStateWriter.FLAGS_OFFSET);
+            int score = buffer.getInt(SharedStateWriter.SCORE_OFFSET);
+            int food = buffer.getInt(SharedStateWriter.FOOD_OFFSET);
+            int length = Math.max(0, Math.min(buffer.getInt(SharedStateWriter.LENGTH_OFFSET), into.cells.length));
+            for (int i = 0, offset = SharedStateWriter.CELLS_OFFSET; i < length; i++, offset += Integer.BYTES) {
+                into.cells[i] = buffer.getInt(offset);
+            }
+            // The reads above must be done before checking the writer did not start meanwhile
+            VarHandle.loadLoadFence();
+            if ((long) SharedStateWriter.SEQUENCE.getOpaque(buffer, SharedStateWriter.SEQUENCE_OFFSET) != sequence) continue;
+
+            into.sequence = sequence;
+            into.tick = tick;
+            into.state = state >= 0 && state < STATES.length ? STATES[state] : GameState.MENU;
+            into.paused = (flags & SharedStateWriter.PAUSED) != 0;
+            into.score = score;
+            into.food = food;
+            into.length = length;
+            return true;
+        }
+        return false;
+    }
+
+    // Creates a snapshot big enough for this file's board.
+    public Snapshot newSnapshot() {
+        return new Snapshot(capacity);
+    }
+
+    // Gets the board width in cells.
+    public int getColumns() {
+        return columns;
+    }
+
+    // Gets the board height in cells.
+    public int getRows() {
+        return rows;
+    }
+
+    // Gets the number of copies that had to be made again because the writer was busy.
+    public long getRetries() {
+        return retries;
+    }
+
+    // Prints every new snapshot, checking for one every 'interval' milliseconds.
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java snake.SharedStateReader <file> [interval ms]");
+            return;
+        }
+        long intervalNanos = (args.length > 1 ? Long.parseLong(args[1]) : 100) * 1_000_000L;
+        SharedStateReader reader = new SharedStateReader(Path.of(args[0]));
+        Snapshot snapshot = reader.newSnapshot();
+        long shown = -1;
+        while (true) {
+            if (reader.getSequence() != shown && reader.read(snapshot)) {
+                shown = snapshot.sequence;
+                int head = snapshot.length > 0 ? snapshot.cells[0] : -1;
+                System.out.printf("tick %d %s%s score %d length %d head %s food %s%n", snapshot.tick,
+                        snapshot.state, snapshot.paused ? " paused" : "", snapshot.score, snapshot.length,
+                        cell(head, reader.columns), cell(snapshot.food, reader.columns));
+            }
+            LockSupport.parkNanos(intervalNanos);
+        }
+    }
+
+    // Formats a cell as column,row.
+    private static String cell(int cell, int columns) {
+        return cell < 0 ? "-" : cell % columns + "," + cell / columns;
+    }
+}
@@ -0,0 +1,156 @@
+package snake;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Publishes the live game state to a memory-mapped file for overlay processes on this machine,
+// such as streaming and signage tools, which read it with SharedStateReader or directly.
+//
+// The file is a fixed size block of little-endian fields:
+//   0  int   magic "SNKS"            32  long  tick
+//   4  int   version                 40  int   GameState ordinal (MENU, GAME, GAME_OVER)
+//   8  int   board columns           44  int   flags, PAUSED
+//   12 int   board rows              48  int   score
+//   16 int   cell capacity           52  int   food cell, -1 if none
+//   24 long  sequence                56  int   snake length
+//                                    64  int[capacity] snake cells, head first
+// A cell is row * columns + column. Everything from offset 32 on is guarded by a seqlock: the
+// writer makes the sequence odd, writes, then makes it even again. A reader reads the sequence,
+// retries if it is odd, copies what it needs, and keeps the copy only if the sequence is still
+// the same afterwards. Readers never block the writer and need no lock, so any language that can
+// map a file and issue acquire loads (or read with a full fence) can follow the game.
+// Publishing is thread-safe but meant for one background thread; see StateExporter.
+public class SharedStateWriter implements AutoCloseable {
+    // Header
+    static final int MAGIC = 0x534E4B53; // "SNKS"
+    static final int VERSION = 1;
+    static final int COLUMNS_OFFSET = 8;
+    static final int ROWS_OFFSET = 12;
+    static final int CAPACITY_OFFSET = 16;
+    static final int SEQUENCE_OFFSET = 24;
+    // Snapshot, guarded by the sequence
+    static final int TICK_OFFSET = 32;
+    static final int STATE_OFFSET = 40;
+    static final int FLAGS_OFFSET = 44;
+    static final int SCORE_OFFSET = 48;
+    static final int FOOD_OFFSET = 52;
+    static final int LENGTH_OFFSET = 56;
+    static final int CELLS_OFFSET = 64;
+    // Flag bits
+    public static final int PAUSED = 1;
+
+    // Ordered access to the sequence, shared with SharedStateReader
+    static final VarHandle SEQUENCE = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    // Last sequence published, always even
+    private long sequence;
+
+    // Maps 'file' for a board of the given size, creating it if needed. Readers that have the
+    // file mapped already keep following it; the sequence carries on from where it was.
+    public SharedStateWriter(Path file, int columns, int rows) throws IOException {
+        this.capacity = columns * rows;
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size(capacity));
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        boolean reused = buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION;
+        sequence = reused ? ((long) SEQUENCE.getAcquire(buffer, SEQUENCE_OFFSET) + 1) & ~1L : 0;
+        // Readers check the header before trusting the rest
+        SEQUENCE.setRelease(buffer, SEQUENCE_OFFSET, sequence);
+        buffer.putInt(COLUMNS_OFFSET, columns);
+        buffer.putInt(ROWS_OFFSET, rows);
+        buffer.putInt(CAPACITY_OFFSET, capacity);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(0, MAGIC);
+        if (!reused) {
+            // A new file starts out at the menu with no food
+            begin();
+            buffer.putInt(STATE_OFFSET, GameState.MENU.ordinal());
+            buffer.putInt(FOOD_OFFSET, -1);
+            end();
+        }
+    }
+
+    // Opens the file given with -Dsnake.stateExport=<file> for the game's board, or returns null
+    // if none was given. Failures are reported but not fatal.
+    public static SharedStateWriter openIfRequested() {
+        String file = System.getProperty("snake.stateExport");
+        if (file == null || file.isEmpty()) return null;
+        try {
+            return new SharedStateWriter(Path.of(file), SnakeGame.COLUMNS, SnakeGame.ROWS);
+        } catch (IOException e) {
+            System.err.println("Could not export game state: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Gets the file size needed for 'capacity' cells.
+    public static int size(int capacity) {
+        return CELLS_OFFSET + capacity * Integer.BYTES;
+    }
+
+    // Publishes a snapshot. The snake is read from a ring of cells whose length is a power of
+    // two, from the head at ring[head] backwards, as SnakeGame keeps it. Does not allocate.
+    public synchronized void publish(long tick, GameState state, int flags, int score, int food,
+                                     int[] ring, int head, int length) {
+        int count = Math.min(length, capacity);
+        int mask = ring.length - 1;
+        begin();
+        buffer.putLong(TICK_OFFSET, tick);
+        buffer.putInt(STATE_OFFSET, state.ordinal());
+        buffer.putInt(FLAGS_OFFSET, flags);
+        buffer.putInt(SCORE_OFFSET, score);
+        buffer.putInt(FOOD_OFFSET, food);
+        buffer.putInt(LENGTH_OFFSET, count);
+        for (int i = 0, offset = CELLS_OFFSET; i < count; i++, offset += Integer.BYTES) {
+            buffer.putInt(offset, ring[(head - i) & mask]);
+        }
+        end();
+    }
+
+    // Publishes a change of the application's state alone, as when it goes back to the menu.
+    public synchronized void publishState(GameState state) {
+        begin();
+        buffer.putInt(STATE_OFFSET, state.ordinal());
+        end();
+    }
+
+    // Gets the sequence of the last snapshot published.
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    // Marks the snapshot as being written.
+    private void begin() {
+        SEQUENCE.setOpaque(buffer, SEQUENCE_OFFSET, sequence + 1);
+        // Readers must not see any of the new contents before the odd sequence
+        VarHandle.storeStoreFence();
+    }
+
+    // Marks the snapshot as complete.
+    private void end() {
+        sequence += 2;
+        SEQUENCE.setRelease(buffer, SEQUENCE_OFFSET, sequence);
+    }
+
+    // Writes the mapped pages back to the file. Readers see every publish without this; it only
+    // matters for one that opens the file after the writer has gone.
+    @Override
+    public synchronized void close() {
+        buffer.force();
+    }
+}
@@ -2,6 +2,8 @@ package snake;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 
 public class SnakeApp extends JFrame {
     // CardLayout for switching between different views (menu/game)
@@ -10,19 +12,67 @@ public class SnakeApp extends JFrame {
     private final JPanel mainPanel;
     // The start menu component
     private final StartMenu startMenu;
+    // Persistent leaderboards
+    private final HighScoreStore highScores;
+    // Saved in-progress game
+    private final SaveGameStore saveStore;
+    // Replays of recent games
+    private final ReplayStore replayStore;
+    // Replay being watched, null if none
+    private ReplayViewer replayViewer;
+    // Game that can be resumed from the start menu, null if none
+    private SavedGame savedGame;
     // Current game instance
     public SnakeGame game;
+    // Statistics of the current game, gathered from its event bus
+    private GameStats gameStats;
+    // Telemetry of the current game's sessions, null when disabled
+    private TelemetryRecorder telemetry;
+    // Live game state for overlay processes, null unless requested (-Dsnake.stateExport=<file>)
+    private final SharedStateWriter stateWriter;
+    // Keeps stateWriter up to date with the current game, null when not exporting
+    private StateExporter stateExporter;
+    // Current shared board game instance, when playing with several snakes
+    public SharedBoardGame sharedGame;
     // Current state of the game
     public GameState gameState = GameState.MENU;
     // Current difficulty setting
     private Difficulty difficulty = Difficulty.EASY;
+    // Number of snakes on the board
+    private int players = 1;
+    // Compiles the game's hot paths while the menu is shown, null when turned off
+    private JitWarmUp warmUp;
+    // Accepts the phone controllers
+    private final BluetoothServer bluetoothServer;
 
     // Constructs the main application window and initializes components.
     public SnakeApp() {
         // Set up the main window
         setTitle("Bluetooth Snake");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        setResizable(false);
+        // The board scales to fit, so the window can be resized freely
+        setResizable(true);
+
+        // Load leaderboards before the menu so it can show them right away
+        highScores = new HighScoreStore();
+        saveStore = new SaveGameStore();
+        savedGame = saveStore.load();
+        replayStore = new ReplayStore();
+        stateWriter = SharedStateWriter.openIfRequested();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            highScores.close();
+            saveStore.close();
+            replayStore.close();
+            if (stateWriter != null) stateWriter.close();
+        }));
+
+        // Keep a game in progress when the window is closed
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                saveCurrentGame();
+            }
+        });
 
         // Initialize the card layout for view switching
         cardLayout = new CardLayout();
@@ -40,51 +90,214 @@ public class SnakeApp extends JFrame {
         setLocationRelativeTo(null);
         setVisible(true);
 
+        // Warm up the game loop while the player looks at the menu
+        warmUp = JitWarmUp.startIfEnabled();
+
         // Start the Bluetooth server in a separate thread
-        BluetoothServer server = new BluetoothServer(this);
-        Thread serverThread = new Thread(server);
+        bluetoothServer = new BluetoothServer(this);
+        Thread serverThread = new Thread(bluetoothServer);
         serverThread.start();
     }
 
     // Main entry point for the application.
     public static void main(String[] args) {
+        // Record game and JVM events for later analysis if requested (-Dsnake.jfr=<file>)
+        FlightRecording.startIfRequested();
+
         // Ensure GUI creation happens on the Event Dispatch Thread
         SwingUtilities.invokeLater(SnakeApp::new);
     }
 
     // Starts a new game session.
     public void startGame() {
+        stopWarmUp();
+
+        // Several players share one board
+        if (players > 1) {
+            startSharedGame();
+            return;
+        }
+
+        // A fresh game replaces any saved one
+        discardSavedGame();
+
         // Only create new game if none exists or previous game ended
         if (game == null || gameState == GameState.GAME_OVER) {
             game = new SnakeGame(this, difficulty);
+            watchGame();
             mainPanel.add(game, "game");
         }
 
         // Show the game panel and update state
         cardLayout.show(mainPanel, "game");
-        gameState = GameState.GAME;
+        setGameState(GameState.GAME);
 
         // Ensure game has focus for keyboard input
         game.requestFocusInWindow();
         game.resetGame();
     }
 
+    // Continues the saved game, paused until the player moves.
+    public void resumeGame() {
+        if (savedGame == null) return;
+        stopWarmUp();
+        if (game != null) {
+            game.stop();
+            mainPanel.remove(game);
+        }
+        game = new SnakeGame(this, savedGame.getDifficulty());
+        watchGame();
+        game.restore(savedGame);
+        mainPanel.add(game, "game");
+        cardLayout.show(mainPanel, "game");
+        setGameState(GameState.GAME);
+        game.requestFocusInWindow();
+    }
+
+    // Pauses or resumes the current game. Pausing also saves it, so it survives a restart.
+    public void setPaused(boolean paused) {
+        if (game == null || gameState != GameState.GAME) return;
+        game.setPaused(paused);
+        if (paused) saveCurrentGame();
+    }
+
+    // Checks whether a phone steers a player, 0 being the single player or the first snake.
+    public boolean isControllerConnected(int player) {
+        return bluetoothServer.isConnected(player);
+    }
+
+    // Pauses the game when the controller goes away.
+    public void controllerDisconnected() {
+        if (game != null) game.controllerDisconnected();
+        setPaused(true);
+    }
+
+    // Saves the game in progress, if any, in the background.
+    public void saveCurrentGame() {
+        if (game == null || gameState != GameState.GAME) return;
+        SavedGame capture = game.capture();
+        if (capture != null) {
+            savedGame = capture;
+            saveStore.save(capture);
+            startMenu.updateResumeButton();
+        }
+    }
+
+    // Starts gathering statistics and telemetry of a new game, replacing those of the previous one.
+    private void watchGame() {
+        if (gameStats != null) gameStats.close();
+        if (telemetry != null) telemetry.close();
+        if (stateExporter != null) stateExporter.close();
+        game.recordReplays();
+        gameStats = new GameStats(game.getEvents());
+        telemetry = TelemetryRecorder.ENABLED ? new TelemetryRecorder(game.getEvents(), game.getDifficulty()) : null;
+        stateExporter = stateWriter != null ? new StateExporter(game, stateWriter) : null;
+    }
+
+    // Stops the warm-up, if still running, so it does not compete with the game for the processor.
+    private void stopWarmUp() {
+        if (warmUp == null) return;
+        warmUp.stop();
+        warmUp = null;
+    }
+
+    // Forgets the saved game.
+    private void discardSavedGame() {
+        if (savedGame == null) return;
+        savedGame = null;
+        saveStore.delete();
+        startMenu.updateResumeButton();
+    }
+
+    // Gets the game that can be resumed, or null.
+    public SavedGame getSavedGame() {
+        return savedGame;
+    }
+
+    // Plays back the replay of the most recent game.
+    public void watchReplay() {
+        ReplayLog replay = replayStore.loadLatest();
+        if (replay == null) return;
+        stopWarmUp();
+        if (replayViewer != null) mainPanel.remove(replayViewer);
+        replayViewer = new ReplayViewer(replay, () -> {
+            mainPanel.remove(replayViewer);
+            replayViewer = null;
+            showStartMenu();
+        });
+        mainPanel.add(replayViewer, "replay");
+        cardLayout.show(mainPanel, "replay");
+        pack();
+        replayViewer.getGame().requestFocusInWindow();
+    }
+
+    // Checks whether a replay can be watched.
+    public boolean hasReplay() {
+        return replayStore.hasReplays();
+    }
+
+    // Starts a new shared board game for the selected number of players.
+    private void startSharedGame() {
+        sharedGame = new SharedBoardGame(this, difficulty, players);
+        mainPanel.add(sharedGame, "game");
+        cardLayout.show(mainPanel, "game");
+        gameState = GameState.GAME;
+        sharedGame.requestFocusInWindow();
+    }
+
     // Shows the start menu view.
     public void showStartMenu() {
         cardLayout.show(mainPanel, "startMenu");
-        gameState = GameState.MENU;
+        setGameState(GameState.MENU);
+        if (stateWriter != null) stateWriter.publishState(GameState.MENU);
     }
 
     // Sets the game state and handles state transitions.
     public void setGameState(GameState state) {
         gameState = state;
+        if (game != null) game.stateChanged(state);
 
         // Special handling for game over state
         if (gameState == GameState.GAME_OVER) {
+            // Record the score; the disk write happens in the background
+            if (game != null) {
+                highScores.record(game.getDifficulty(), game.getScore());
+                startMenu.updateHighScores();
+                discardSavedGame();
+                ReplayLog replay = game.getRecording();
+                if (replay != null && replay.getEndTick() > replay.getFirstTick()) {
+                    replayStore.save(replay);
+                    startMenu.updateReplayButton();
+                }
+            }
+            SnakeGame finished = game;
+            SharedBoardGame finishedShared = sharedGame;
+            GameStats finishedStats = finished != null ? gameStats : null;
+            TelemetryRecorder finishedTelemetry = finished != null ? telemetry : null;
+            StateExporter finishedExporter = finished != null ? stateExporter : null;
             game = null; // Clear current game instance
+            sharedGame = null;
+            gameStats = null;
+            telemetry = null;
+            stateExporter = null;
 
-            // Show play again dialog
-            int choice = JOptionPane.showConfirmDialog(this, "Play Again?", "Game Over", JOptionPane.YES_NO_OPTION);
+            // Show play again dialog, with the statistics of a single player game
+            String title = finishedShared != null ? finishedShared.getResult() : "Game Over";
+            String message = finishedStats != null ? finishedStats.summary() + "\nPlay Again?" : "Play Again?";
+            int choice = JOptionPane.showConfirmDialog(this, message, title, JOptionPane.YES_NO_OPTION);
+
+            // Release the finished game's timer and render thread
+            if (finished != null) {
+                finished.stop();
+                mainPanel.remove(finished);
+            }
+            if (finishedStats != null) finishedStats.close();
+            if (finishedTelemetry != null) finishedTelemetry.close();
+            if (finishedExporter != null) finishedExporter.close();
+            if (finishedShared != null) {
+                finishedShared.stop();
+                mainPanel.remove(finishedShared);
+            }
 
             if (choice == JOptionPane.YES_OPTION) {
                 startGame();
@@ -102,6 +315,22 @@ public class SnakeApp extends JFrame {
     // Sets the game difficulty.
     public void setDifficulty(Difficulty difficulty) {
         this.difficulty = difficulty;
+        startMenu.updateHighScores();
+    }
+
+    // Gets the number of players.
+    public int getPlayers() {
+        return players;
+    }
+
+    // Sets the number of players sharing the board.
+    public void setPlayers(int players) {
+        this.players = players;
+    }
+
+    // Gets the persistent leaderboards.
+    public HighScoreStore getHighScores() {
+        return highScores;
     }
 
     // Updates the Bluetooth status display in the start menu.
@@ -0,0 +1,36 @@
+package snake;
+
+// Simple bot for snakes on a SharedBoard.
+// Keeps going straight while the way is free, occasionally turns at random, and otherwise
+// turns towards a free side.
+public class SnakeBot {
+    // Perpendicular directions for vertical and horizontal movement
+    private static final Direction[] HORIZONTAL = {Direction.LEFT, Direction.RIGHT};
+    private static final Direction[] VERTICAL = {Direction.UP, Direction.DOWN};
+
+    private SnakeBot() {
+    }
+
+    // Chooses the next direction of 'snake'.
+    public static void steer(SharedBoard board, BoardSnake snake, GameRandom random) {
+        if (!snake.isAlive()) return;
+        Direction current = snake.getDirection();
+        boolean free = isFree(board, board.next(snake.headCell(), current));
+        if (free && random.nextInt(10) != 0) return;
+        Direction[] sides = current == Direction.UP || current == Direction.DOWN ? HORIZONTAL : VERTICAL;
+        int first = random.nextInt(2);
+        for (int i = 0; i < 2; i++) {
+            Direction side = sides[(first + i) % 2];
+            if (isFree(board, board.next(snake.headCell(), side))) {
+                board.setDirection(snake.getId(), side);
+                return;
+            }
+        }
+    }
+
+    // Checks whether a cell can be entered.
+    public static boolean isFree(SharedBoard board, int cell) {
+        int occupant = board.occupant(cell);
+        return occupant == SharedBoard.EMPTY || occupant == SharedBoard.FOOD;
+    }
+}
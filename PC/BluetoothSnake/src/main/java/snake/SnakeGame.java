@@ -6,32 +6,115 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
-import java.util.LinkedList;
-import java.util.Random;
 
-public class SnakeGame extends JPanel implements ActionListener, KeyListener {
+public class SnakeGame extends JPanel implements ActionListener, KeyListener, CommandTarget {
     // Game constants
     private static final int GRID_SIZE = 20; // Size of each grid cell
     private static final int GAME_WIDTH = 400; // Total game width
     private static final int GAME_HEIGHT = 400; // Total game height
+    static final int COLUMNS = GAME_WIDTH / GRID_SIZE; // Number of cells per row
+    static final int ROWS = GAME_HEIGHT / GRID_SIZE; // Number of cells per column
+    private static final int START_CELL = ROWS / 2 * COLUMNS + COLUMNS / 2; // Where the snake starts
+
+    // Contents of a board cell, as bits since a moving obstacle may pass over the snake's body
+    private static final byte EMPTY = 0;
+    private static final byte SNAKE = 1;
+    private static final byte OBSTACLE = 2;
+    // Ticks between moving obstacles appearing
+    private static final int HAZARD_SPAWN_TICKS = 40;
+    // What a collision hit, for observers
+    static final int HIT_SNAKE = SNAKE;
+    static final int HIT_OBSTACLE = OBSTACLE;
+
+    // Rendering options (-Dsnake.render=active, -Dsnake.fps=<cap>, -Dsnake.showStats=true)
+    private static final boolean ACTIVE_RENDERING = "active".equalsIgnoreCase(System.getProperty("snake.render"));
+    private static final int FRAME_CAP = Integer.getInteger("snake.fps", 120);
+    private static final boolean SHOW_FRAME_STATS = Boolean.getBoolean("snake.showStats") || ACTIVE_RENDERING;
+    // Number of ticks a late controller command may be moved back (-Dsnake.rollbackTicks, 0 disables)
+    private static final int ROLLBACK_TICKS = Integer.getInteger("snake.rollbackTicks", 3);
 
     // Game objects
-    private final LinkedList<Point> snake; // Stores snake segments
-    private final LinkedList<Point> obstacles; // Stores obstacle positions
+    private final int[] body = new int[Integer.highestOneBit(COLUMNS * ROWS) * 2]; // Ring of snake cells, head at bodyHead
+    private final byte[] board = new byte[COLUMNS * ROWS]; // What each cell holds, for constant time collision checks
+    private final int[] obstacles; // Obstacle cells
+    private final HazardField hazards; // Moving obstacles, null if the difficulty has none
     private final Timer timer; // Game timer for updates
     private final SnakeApp app; // Reference to main application
     private final Difficulty difficulty; // Current difficulty level
+    private final boolean hosted; // Ticked by a host through tickHosted() instead of its own timer
+    private final TileAtlas atlas = new TileAtlas(); // Pre-rendered tiles for the current scale
+    private final FrameStats frameStats = new FrameStats(); // Frame time and tick-to-present latency
+    private final ActiveRenderer activeRenderer; // Render thread in active mode, null when painting passively
+    private final GameRandom random = new GameRandom(System.nanoTime()); // Food and obstacle placement
+    private final RollbackBuffer rollback; // Recent tick history for late input, null when disabled
+    private final CommandQueue commands = new CommandQueue(); // Controller commands waiting for the next tick
+    private final LatencyHistogram applyLatency = new LatencyHistogram(); // Controller issue to tick, in microseconds
+    private final CommandQueue.Handler commandHandler = (direction, issuedNanos) -> { // Bound once so draining does not allocate
+        applyLatency.record((System.nanoTime() - issuedNanos) / 1000);
+        applyCommand(direction, issuedNanos);
+    };
+    private final TextBuffer scoreText = new TextBuffer(32); // "Score: N", rebuilt when the score changes
+    private final TextBuffer rollbackText = new TextBuffer(64); // Rollback counters overlay
+    private final GameEventBus events = new GameEventBus(); // What happens in the game, for observers
+    private final GameSnapshot replayState = new GameSnapshot(COLUMNS * ROWS); // Keyframe being recorded or loaded
+    private final TickWatchdog watchdog; // Deadline misses, stalls and the render quality they lead to
 
     // Game state variables
     private Direction currentDirection = Direction.RIGHT; // Current movement direction
-    private Point food; // Current food position
+    private int bodyHead = 0; // Ring position of the head
+    private int length = 0; // Number of snake segments
+    private int obstacleCount = 0; // Number of obstacles placed
+    private int hazardSeed; // Seed the moving obstacles were generated from
+    private int food; // Current food cell, -1 once the snake leaves no room for any
     private int score = 0; // Player score
+    private int scoreShown = -1; // Score held by scoreText
     private boolean gameOver = false; // Game over flag
+    private volatile long lastTickNanos; // When the last tick finished, for latency measurements
+    private long lastTickStartNanos; // When the last tick started, for tick interval events
+    private long lastTickIntervalNanos; // Time between the starts of the last two ticks, 0 after a pause
+    private long tick = 0; // Number of ticks simulated
+    private boolean deathPending = false; // Snake collided, waiting for a late command that may avert it
+    private volatile boolean lateInputPossible = false; // A timestamped controller feeds the game, so commands may come in late
+    private int graceTicksLeft = 0; // Ticks left before a pending death becomes final
+    private volatile boolean paused = false; // Ticking suspended until the player resumes
+    private long droppedCommands = 0; // Controller commands lost to a full queue
+    private byte lastHit = EMPTY; // What the last collision hit
+    private boolean recordReplays = false; // Record a replay of every session
+    private ReplayLog recording; // Replay of the current session, null when not recording
+    private ReplayLog replay; // Replay being played back, null for a live game
+    private int playbackSteps = 1; // Replay ticks per timer event
+    private Runnable playbackListener; // Told when playback moves on by itself
+
+    // Device scale of the configuration last drawn to; reading it from a transform allocates
+    private GraphicsConfiguration scaleConfiguration;
+    private double deviceScale = 1;
 
     // Constructs the SnakeGame panel.
     public SnakeGame(SnakeApp app, Difficulty difficulty) {
+        this(app, difficulty, false, ROLLBACK_TICKS);
+    }
+
+    // Constructs a game panel for a host running many games in one process. It has no timer
+    // or render thread of its own: the host calls tickHosted() from its shared tick threads
+    // and repaints the panel, which always paints passively. The game starts paused.
+    public SnakeGame(Difficulty difficulty) {
+        this(null, difficulty, true, ROLLBACK_TICKS);
+        paused = true;
+    }
+
+    // Constructs a game stepped in lockstep by an external bot through tickHosted(), starting from
+    // 'seed' so episodes can be reproduced. Input is never late, so collisions are final at once
+    // rather than held back for a late command.
+    public SnakeGame(Difficulty difficulty, long seed) {
+        this(null, difficulty, true, 0);
+        resetGame(seed);
+    }
+
+    private SnakeGame(SnakeApp app, Difficulty difficulty, boolean hosted, int rollbackTicks) {
         this.app = app;
         this.difficulty = difficulty;
+        this.hosted = hosted;
+        this.watchdog = new TickWatchdog(difficulty + " game", difficulty.getDelay());
 
         // Set up panel properties
         setPreferredSize(new Dimension(GAME_WIDTH, GAME_HEIGHT));
@@ -39,168 +122,923 @@ public class SnakeGame extends JPanel implements ActionListener, KeyListener {
         setFocusable(true);
         addKeyListener(this);
 
+        // In active mode a canvas drawn by its own thread covers the whole panel
+        if (ACTIVE_RENDERING && !hosted) {
+            activeRenderer = new ActiveRenderer(this, FRAME_CAP, frameStats);
+            Canvas canvas = activeRenderer.getCanvas();
+            canvas.setFocusable(true);
+            canvas.addKeyListener(this);
+            setLayout(new BorderLayout());
+            add(canvas, BorderLayout.CENTER);
+        } else {
+            activeRenderer = null;
+        }
+
         // Initialize snake with starting position
-        snake = new LinkedList<>();
-        snake.add(new Point(GAME_WIDTH / 2, GAME_HEIGHT / 2));
+        pushHead(START_CELL);
 
         // Initialize obstacles
-        obstacles = new LinkedList<>();
+        obstacles = new int[difficulty.getNumObstacles()];
+        hazards = difficulty.getNumHazards() > 0 ? new HazardField(COLUMNS, ROWS, board, OBSTACLE) : null;
         generateFood();
         generateObstacles();
 
+        // Keep recent ticks around so late commands can be applied where they belong
+        rollback = rollbackTicks > 0 ? new RollbackBuffer(rollbackTicks, COLUMNS * ROWS) : null;
+        if (rollback != null) saveSnapshot(rollback.snapshot(0));
+
         // Set up game timer with difficulty-based delay
         timer = new Timer(difficulty.getDelay(), this);
-        timer.start();
+        if (!hosted) timer.start();
     }
 
-    // Moves the snake according to current direction.
-    // Handles collision detection, food eating, and game over conditions.
+    // Constructs a game panel playing back a replay, paused at its first tick.
+    public SnakeGame(ReplayLog replay) {
+        this(null, replay.getDifficulty());
+        timer.stop();
+        if (replay.getColumns() != COLUMNS || replay.getRows() != ROWS) {
+            throw new IllegalArgumentException("Replay board size does not match");
+        }
+        if (replay.getObstacles().length > obstacles.length) {
+            throw new IllegalArgumentException("Replay has more obstacles than its difficulty allows");
+        }
+        this.replay = replay;
+        clearObstacles();
+        for (int cell : replay.getObstacles()) {
+            addObstacle(cell);
+        }
+        if (hazards != null) {
+            hazardSeed = replay.getHazardSeed();
+            generateHazards();
+        }
+        replay.loadKeyframe(replay.getFirstTick(), replayState);
+        restoreSnapshot(replayState);
+    }
+
+    // Moves the snake according to current direction and ends the game on a collision.
+    // The game over dialog is shown outside the state lock so a render thread is never held up by it.
     private void move() {
-        if (gameOver) return;
+        boolean over = runTick();
+        judgeTick();
+        if (over) {
+            requestRender(); // Show the game over screen behind the dialog
+            app.setGameState(GameState.GAME_OVER);
+        }
+    }
 
-        // Calculate new head position
-        Point head = snake.getFirst();
-        Point newHead = new Point(head);
-        switch (currentDirection) {
-            case UP -> newHead.y -= GRID_SIZE;
-            case DOWN -> newHead.y += GRID_SIZE;
-            case LEFT -> newHead.x -= GRID_SIZE;
-            case RIGHT -> newHead.x += GRID_SIZE;
+    // Applies the queued commands and runs one tick, recording it for Flight Recorder.
+    // Returns true if the game just ended.
+    private boolean runTick() {
+        TickEvent event = FlightRecording.isActive() ? new TickEvent() : null;
+        if (event != null) event.begin();
+        long start = System.nanoTime();
+        int commandsApplied = drainCommands();
+        boolean collided;
+        synchronized (this) {
+            collided = advance();
+            long interval = lastTickStartNanos != 0 ? (start - lastTickStartNanos) / 1000 : 0;
+            events.publish(GameEventBus.TICK, tick, (int) Math.min(interval, Integer.MAX_VALUE), commandsApplied);
+            if (event != null) commitTick(event, start, commandsApplied);
         }
+        lastTickIntervalNanos = lastTickStartNanos != 0 ? start - lastTickStartNanos : 0;
+        lastTickStartNanos = start;
+        lastTickNanos = System.nanoTime();
+        return collided;
+    }
 
-        // Handle screen wrapping
-        if (newHead.x < 0) newHead.x = GAME_WIDTH - GRID_SIZE;
-        else if (newHead.x >= GAME_WIDTH) newHead.x = 0;
-        if (newHead.y < 0) newHead.y = GAME_HEIGHT - GRID_SIZE;
-        else if (newHead.y >= GAME_HEIGHT) newHead.y = 0;
+    // Checks the tick just run against its deadline. Only live ticks are judged, so headless
+    // tools never reach the watchdog.
+    private void judgeTick() {
+        watchdog.tickDone(tick, lastTickStartNanos, lastTickNanos, lastTickIntervalNanos);
+    }
 
-        // Check for collisions
-        if (snake.contains(newHead)) {
-            gameOver = true;
-            app.setGameState(GameState.GAME_OVER);
-            return;
+    // Completes the Flight Recorder event of a tick that started at 'start'.
+    private void commitTick(TickEvent event, long start, int commandsApplied) {
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.game = "single";
+        event.tick = tick;
+        event.length = length;
+        event.score = score;
+        event.commands = commandsApplied;
+        event.interval = lastTickStartNanos != 0 ? start - lastTickStartNanos : 0;
+        event.period = difficulty.getDelay();
+        event.commit();
+    }
+
+    // Runs one live tick. Returns true if the game just ended.
+    // With rollback enabled and a timestamped controller feeding the game, a collision is held
+    // back for a few ticks, since a command issued in time may still be on its way. Without
+    // such a controller no command can be late, so the collision is final at once.
+    private boolean advance() {
+        if (gameOver) return false;
+        if (rollback == null) {
+            gameOver = step();
+            if (gameOver) events.publish(GameEventBus.COLLISION, tick, lastHit, score);
+            return gameOver;
         }
-        if (obstacles.contains(newHead)) {
+
+        if (deathPending) {
+            if (--graceTicksLeft > 0) return false;
             gameOver = true;
-            app.setGameState(GameState.GAME_OVER);
-            return;
+            events.publish(GameEventBus.COLLISION, tick, lastHit, score);
+            return true;
+        }
+
+        rollback.setTickTime(tick, System.nanoTime());
+        if (step()) {
+            if (!lateInputPossible) {
+                gameOver = true;
+                events.publish(GameEventBus.COLLISION, tick, lastHit, score);
+                return true;
+            }
+            deathPending = true;
+            graceTicksLeft = rollback.getWindow();
+        } else {
+            // The upcoming tick has not seen any input yet
+            rollback.clearTurns(tick);
+        }
+        return false;
+    }
+
+    // Advances the snake by one cell.
+    // Handles collision detection and food eating. Returns true if the snake collided, in which
+    // case the state is left untouched.
+    private boolean step() {
+        if (recording != null && recording.record(tick, currentDirection)) {
+            saveSnapshot(replayState);
+            recording.addKeyframe(replayState);
+        }
+
+        // Calculate new head position, wrapping around the screen edges
+        int head = body[bodyHead];
+        int column = head % COLUMNS;
+        int row = head / COLUMNS;
+        switch (currentDirection) {
+            case UP -> row = row == 0 ? ROWS - 1 : row - 1;
+            case DOWN -> row = row == ROWS - 1 ? 0 : row + 1;
+            case LEFT -> column = column == 0 ? COLUMNS - 1 : column - 1;
+            case RIGHT -> column = column == COLUMNS - 1 ? 0 : column + 1;
+        }
+        int newHead = row * COLUMNS + column;
+
+        // Moving obstacles take their step first, so the head cannot slip past one coming at it
+        if (hazards != null) hazards.moveTo(tick + 1);
+
+        // Check for collisions with the snake, tail included, and obstacles, and for a moving
+        // obstacle swapping cells with the head
+        if (board[newHead] != EMPTY || (hazards != null && hazards.crosses(newHead, head, tick))) {
+            lastHit = board[newHead] == SNAKE ? SNAKE : OBSTACLE;
+            if (hazards != null) hazards.moveTo(tick);
+            return true;
         }
 
         // Move snake
-        snake.addFirst(newHead);
+        pushHead(newHead);
 
         // Check if food was eaten
-        if (newHead.equals(food)) {
+        if (newHead == food) {
             score++;
+            events.publish(GameEventBus.FOOD_EATEN, tick, newHead, score);
             generateFood();
         } else {
-            snake.removeLast(); // Remove tail if no food eaten
+            popTail(); // Remove tail if no food eaten
+        }
+
+        tick++;
+        if (rollback != null) saveSnapshot(rollback.snapshot(tick));
+        return false;
+    }
+
+    // Adds a segment in front of the head.
+    private void pushHead(int cell) {
+        bodyHead = (bodyHead + 1) & (body.length - 1);
+        body[bodyHead] = cell;
+        board[cell] |= SNAKE;
+        length++;
+    }
+
+    // Removes the last segment.
+    private void popTail() {
+        board[segment(length - 1)] &= ~SNAKE;
+        length--;
+    }
+
+    // Removes every segment.
+    private void clearSnake() {
+        for (int i = 0; i < length; i++) {
+            board[segment(i)] &= ~SNAKE;
+        }
+        length = 0;
+    }
+
+    // Gets the cell of a segment, 0 being the head.
+    private int segment(int i) {
+        return body[(bodyHead - i) & (body.length - 1)];
+    }
+
+    // Queues a controller command for the next tick. Called from the controller's input thread.
+    // Returns how the queue took it.
+    @Override
+    public int enqueueCommand(Direction direction, long issuedNanos) {
+        int queued = commands.offer(direction, issuedNanos);
+        if (queued == CommandQueue.FULL) droppedCommands++;
+        // A paused game does not tick, so resume it right away; a host drains it on its next tick
+        if (paused && !hosted) SwingUtilities.invokeLater(this::drainCommands);
+        return queued;
+    }
+
+    // Arms or disarms the grace period before a collision becomes final.
+    @Override
+    public void setLateInputPossible(boolean possible) {
+        lateInputPossible = possible;
+    }
+
+    // Applies the queued controller commands. Called on the thread that ticks the game.
+    // Returns the number of commands applied.
+    private int drainCommands() {
+        return commands.drain(commandHandler);
+    }
+
+    // Applies a controller command issued at 'issuedNanos' (System.nanoTime() units).
+    // If ticks have already run since the command was issued, the game is rolled back to the
+    // first of them, the command applied there, and the ticks simulated again.
+    public synchronized void applyCommand(Direction direction, long issuedNanos) {
+        int latency = (int) Math.min((System.nanoTime() - issuedNanos) / 1000, Integer.MAX_VALUE);
+        if (rollback != null && !gameOver) {
+            long latest = deathPending ? tick : tick - 1;
+            long target = rollback.findLateTick(issuedNanos, latest);
+            if (target >= 0) {
+                // A late command takes effect at the tick it is moved back to
+                events.publish(GameEventBus.COMMAND, target, latency, direction.ordinal());
+                rollBack(target, latest, direction);
+                return;
+            }
         }
+        events.publish(GameEventBus.COMMAND, tick, latency, direction.ordinal());
+        setDirection(direction);
+    }
+
+    // Re-simulates ticks 'target'..'latest' with a late direction change applied before 'target'.
+    private void rollBack(long target, long latest, Direction late) {
+        // Turns already made for the tick that has not run yet
+        Direction upcomingFirst = rollback.getFirstTurn(latest + 1);
+        Direction upcomingFinal = deathPending ? null : rollback.getFinalTurn(latest + 1);
+        // Observers drop the events of the ticks re-simulated, which publish them again as corrected
+        int foodRetracted = score - rollback.snapshot(target).score;
+        int turnsRetracted = rollback.takeTurnEvents(target, latest + 1);
+        events.publish(GameEventBus.ROLLBACK, target, foodRetracted, turnsRetracted);
+
+        restoreSnapshot(rollback.snapshot(target));
+        deathPending = false;
+        // The late command comes first in its tick; the tick's turns are recorded again after it
+        // so a later rollback replays the corrected choice
+        Direction targetFirst = rollback.getFirstTurn(target);
+        Direction targetFinal = rollback.getFinalTurn(target);
+        rollback.clearTurns(target);
+        turnRecorded(late);
+        replayTurns(targetFirst, targetFinal, true);
+        for (long t = target; t <= latest; t++) {
+            if (t > target) replayTurns(rollback.getFirstTurn(t), rollback.getFinalTurn(t), false);
+            if (step()) {
+                deathPending = true;
+                graceTicksLeft = rollback.getWindow();
+                break;
+            }
+        }
+        if (!deathPending) {
+            rollback.clearTurns(tick);
+            replayTurns(upcomingFirst, upcomingFinal, true);
+        }
+
+        rollback.recordRollback(latest - target + 1);
+        requestRender();
+    }
+
+    // Copies the current state into a snapshot.
+    private void saveSnapshot(GameSnapshot snapshot) {
+        for (int i = 0; i < length; i++) {
+            snapshot.cells[i] = segment(i);
+        }
+        snapshot.length = length;
+        snapshot.direction = currentDirection;
+        snapshot.food = food;
+        snapshot.score = score;
+        snapshot.randomState = random.getState();
+        snapshot.tick = tick;
+    }
+
+    // Restores the state from a snapshot.
+    private void restoreSnapshot(GameSnapshot snapshot) {
+        clearSnake();
+        // Push from the tail so the snapshot's first cell ends up as the head
+        for (int i = snapshot.length - 1; i >= 0; i--) {
+            pushHead(snapshot.cells[i]);
+        }
+        currentDirection = snapshot.direction;
+        food = snapshot.food;
+        score = snapshot.score;
+        random.setState(snapshot.randomState);
+        tick = snapshot.tick;
+        if (hazards != null) hazards.moveTo(tick);
     }
 
     // Generates obstacles based on current difficulty.
     private void generateObstacles() {
-        obstacles.clear();
-        Random random = new Random();
-        Point startingPoint = new Point(GAME_WIDTH / 2, GAME_HEIGHT / 2);
+        clearObstacles();
 
-        for (int i = 0; i < difficulty.getNumObstacles(); i++) {
-            int x, y;
-            Point newObstacle;
+        for (int i = 0; i < obstacles.length; i++) {
+            int cell;
             do {
                 // Generate random position that doesn't overlap with snake, food, or starting line
-                x = random.nextInt(GAME_WIDTH / GRID_SIZE) * GRID_SIZE;
-                y = random.nextInt(GAME_HEIGHT / GRID_SIZE) * GRID_SIZE;
-                newObstacle = new Point(x, y);
-            } while (snake.contains(newObstacle) || newObstacle.equals(food) || isOnInitialLine(newObstacle, startingPoint));
-            obstacles.add(newObstacle);
+                cell = random.nextInt(COLUMNS * ROWS);
+            } while (board[cell] != EMPTY || cell == food || isOnInitialLine(cell));
+            addObstacle(cell);
+        }
+
+        // Moving obstacles keep off the fixed ones and the snake's starting line
+        if (hazards != null) {
+            hazardSeed = random.nextInt(Integer.MAX_VALUE);
+            generateHazards();
+        }
+    }
+
+    // Generates the moving obstacles from hazardSeed and puts them where they are at the current tick.
+    private void generateHazards() {
+        hazards.generate(difficulty.getNumHazards(), hazardSeed, START_CELL / COLUMNS, HAZARD_SPAWN_TICKS);
+        hazards.moveTo(tick);
+    }
+
+    // Places an obstacle.
+    private void addObstacle(int cell) {
+        obstacles[obstacleCount++] = cell;
+        board[cell] = OBSTACLE;
+    }
+
+    // Removes every obstacle, moving ones included.
+    private void clearObstacles() {
+        if (hazards != null) hazards.clear();
+        for (int i = 0; i < obstacleCount; i++) {
+            board[obstacles[i]] = EMPTY;
         }
+        obstacleCount = 0;
     }
 
-    // Checks if a point is on the snake's initial horizontal line.
-    private boolean isOnInitialLine(Point point, Point startingPoint) {
-        return point.y == startingPoint.y;
+    // Checks if a cell is on the snake's initial horizontal line.
+    private static boolean isOnInitialLine(int cell) {
+        return cell / COLUMNS == START_CELL / COLUMNS;
     }
 
-    // Generates new food at a random valid position.
+    // Generates new food at a random valid position, or none if there is no such position left.
     private void generateFood() {
-        Random random = new Random();
-        Point startingPoint = new Point(GAME_WIDTH / 2, GAME_HEIGHT / 2);
-        int x, y;
-        Point newFood;
+        if (!hasRoomForFood()) {
+            food = -1;
+            return;
+        }
+        int cell;
         do {
             // Find position that doesn't overlap with snake, obstacles, or starting line
-            x = random.nextInt(GAME_WIDTH / GRID_SIZE) * GRID_SIZE;
-            y = random.nextInt(GAME_HEIGHT / GRID_SIZE) * GRID_SIZE;
-            newFood = new Point(x, y);
-        } while (snake.contains(newFood) || obstacles.contains(newFood) || isOnInitialLine(newFood, startingPoint));
-        food = new Point(x, y);
+            cell = random.nextInt(COLUMNS * ROWS);
+        } while (board[cell] != EMPTY || isOnInitialLine(cell));
+        food = cell;
+    }
+
+    // Checks whether any cell could take food. Draws no random numbers, so a board with room
+    // gets exactly the food it always did.
+    private boolean hasRoomForFood() {
+        for (int cell = 0; cell < board.length; cell++) {
+            if (board[cell] == EMPTY && !isOnInitialLine(cell)) return true;
+        }
+        return false;
     }
 
     @Override
     protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
+        // In active mode the canvas covers the panel and is drawn by the render thread
+        if (activeRenderer != null) return;
+
+        long start = System.nanoTime();
+        long tickNanos = render((Graphics2D) g, getWidth(), getHeight(), getGraphicsConfiguration());
+        frameStats.recordFrame(start, System.nanoTime(), tickNanos);
+    }
+
+    // Draws the whole board, background included, onto a surface of the given logical size.
+    // Safe to call from any thread, and does not allocate while the game is running.
+    // Returns the System.nanoTime() of the tick that was drawn.
+    public synchronized long render(Graphics2D g2, int logicalWidth, int logicalHeight, GraphicsConfiguration gc) {
+        RenderEvent event = FlightRecording.isActive() ? new RenderEvent() : null;
+        if (event != null) event.begin();
+        long start = System.nanoTime();
+        long tickNanos = draw(g2, logicalWidth, logicalHeight, gc);
+        watchdog.frameDrawn(System.nanoTime() - start);
+        if (event == null) return tickNanos;
+        event.end();
+        if (event.shouldCommit()) {
+            event.active = activeRenderer != null;
+            event.width = logicalWidth;
+            event.height = logicalHeight;
+            event.tick = tick;
+            event.tickAge = tickNanos != 0 ? System.nanoTime() - tickNanos : 0;
+            event.commit();
+        }
+        return tickNanos;
+    }
+
+    // Draws the board. Called with the state lock held.
+    private long draw(Graphics2D g2, int logicalWidth, int logicalHeight, GraphicsConfiguration gc) {
+        // Work in device pixels so tiles are blitted 1:1 and stay sharp on HiDPI screens
+        if (gc != scaleConfiguration) {
+            scaleConfiguration = gc;
+            deviceScale = gc != null ? gc.getDefaultTransform().getScaleX() : 1;
+        }
+        // At the lowest quality draw in logical pixels and let the scale transform stretch them
+        TickWatchdog.Quality quality = watchdog.getQuality();
+        boolean minimal = quality == TickWatchdog.Quality.MINIMAL;
+        double scale = minimal ? 1 : deviceScale;
+        if (minimal && deviceScale != 1) {
+            g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        }
+        int width = (int) Math.round(logicalWidth * scale);
+        int height = (int) Math.round(logicalHeight * scale);
+
+        // Fit the board into the panel using whole-pixel cells and center it
+        int cell = Math.max(1, Math.min(width / COLUMNS, height / ROWS));
+        int boardWidth = cell * COLUMNS;
+        int boardHeight = cell * ROWS;
+        int originX = (width - boardWidth) / 2;
+        int originY = (height - boardHeight) / 2;
+        atlas.ensure(gc, cell);
+
+        if (scale != 1) g2.scale(1 / scale, 1 / scale);
+        g2.setColor(Color.BLACK);
+        g2.fillRect(0, 0, width, height);
 
         // Draw game over screen if applicable
         if (gameOver) {
-            g.setColor(Color.RED);
-            g.setFont(new Font("Arial", Font.BOLD, 30));
+            g2.setColor(Color.RED);
+            g2.setFont(atlas.getGameOverFont());
             String gameOverText = "Game Over! Score: " + score;
             // Center the game over text
-            g.drawString(gameOverText, (GAME_WIDTH - g.getFontMetrics().stringWidth(gameOverText)) / 2, GAME_HEIGHT / 2);
-            return;
+            g2.drawString(gameOverText, originX + (boardWidth - g2.getFontMetrics().stringWidth(gameOverText)) / 2,
+                    originY + boardHeight / 2);
+            if (scale != 1) g2.scale(scale, scale);
+            return lastTickNanos;
+        }
+
+        // Outline the board when the window aspect ratio leaves margins
+        if (quality == TickWatchdog.Quality.FULL && (boardWidth < width || boardHeight < height)) {
+            g2.setColor(Color.DARK_GRAY);
+            g2.drawRect(originX - 1, originY - 1, boardWidth + 1, boardHeight + 1);
         }
 
         // Draw snake (green)
-        g.setColor(Color.GREEN);
-        for (Point p : snake) {
-            g.fillRect(p.x, p.y, GRID_SIZE, GRID_SIZE);
+        Image snakeTile = atlas.get(TileAtlas.Tile.SNAKE);
+        for (int i = 0; i < length; i++) {
+            int c = segment(i);
+            g2.drawImage(snakeTile, originX + c % COLUMNS * cell, originY + c / COLUMNS * cell, null);
         }
 
         // Draw food (red)
-        g.setColor(Color.RED);
-        g.fillRect(food.x, food.y, GRID_SIZE, GRID_SIZE);
+        if (food >= 0) {
+            g2.drawImage(atlas.get(TileAtlas.Tile.FOOD), originX + food % COLUMNS * cell, originY + food / COLUMNS * cell, null);
+        }
 
         // Draw obstacles (gray)
-        g.setColor(Color.GRAY);
-        for (Point p : obstacles) {
-            g.fillRect(p.x, p.y, GRID_SIZE, GRID_SIZE);
+        Image obstacleTile = atlas.get(TileAtlas.Tile.OBSTACLE);
+        for (int i = 0; i < obstacleCount; i++) {
+            int c = obstacles[i];
+            g2.drawImage(obstacleTile, originX + c % COLUMNS * cell, originY + c / COLUMNS * cell, null);
+        }
+
+        // Draw moving obstacles (orange), over the snake's body they may be crossing
+        if (hazards != null) {
+            Image hazardTile = atlas.get(TileAtlas.Tile.HAZARD);
+            for (int i = 0; i < hazards.getCount(); i++) {
+                int c = hazards.getCell(i);
+                if (c >= 0) g2.drawImage(hazardTile, originX + c % COLUMNS * cell, originY + c / COLUMNS * cell, null);
+            }
         }
 
         // Draw score (white)
-        g.setColor(Color.WHITE);
-        g.setFont(new Font("Arial", Font.BOLD, 16));
-        g.drawString("Score: " + score, 10, 20);
+        g2.setColor(Color.WHITE);
+        g2.setFont(atlas.getScoreFont());
+        if (scoreShown != score) {
+            scoreShown = score;
+            scoreText.clear().append("Score: ").append(score);
+        }
+        scoreText.draw(g2, originX + cell / 2, originY + cell);
+
+        // Draw pause notice (white)
+        if (paused) {
+            g2.setFont(atlas.getGameOverFont());
+            String pausedText = "Paused";
+            g2.drawString(pausedText, originX + (boardWidth - g2.getFontMetrics().stringWidth(pausedText)) / 2,
+                    originY + boardHeight / 2);
+            g2.setFont(atlas.getScoreFont());
+        }
+
+        // Draw frame timing overlay (gray), the first thing given up when frames run late
+        if (SHOW_FRAME_STATS && quality == TickWatchdog.Quality.FULL) {
+            g2.setColor(Color.LIGHT_GRAY);
+            frameStats.getSummaryText().draw(g2, originX + cell / 2, originY + boardHeight - cell / 2);
+            if (rollback != null) {
+                rollbackText.clear().append("rollbacks ").append(rollback.getRollbacks())
+                        .append("  corrected ticks ").append(rollback.getCorrectedTicks());
+                rollbackText.draw(g2, originX + cell / 2, originY + boardHeight - cell * 3 / 2);
+            }
+        }
+
+        if (scale != 1) g2.scale(scale, scale);
+        return lastTickNanos;
     }
 
     @Override
     public void actionPerformed(ActionEvent e) {
-        move();
-        repaint(); // Update the display
+        // The watchdog reports the event if it gets stuck, as behind the game over dialog
+        watchdog.busy(System.nanoTime());
+        try {
+            if (replay != null) {
+                playBack();
+            } else {
+                move();
+            }
+            requestRender(); // Update the display
+        } finally {
+            watchdog.idle();
+        }
     }
 
-    // Changes the snake's direction if the new direction is valid.
-    public void setDirection(Direction newDirection) {
+    // Runs one tick without the timer or the game over dialog, for headless tools.
+    void tickHeadless() {
+        runTick();
+    }
+
+    // Runs one tick of a hosted game on the host's tick thread. The host repaints the panel.
+    // A paused game only applies its commands, the first of which resumes it.
+    // Returns true if the game just ended.
+    public boolean tickHosted() {
+        watchdog.busy(System.nanoTime());
+        try {
+            if (paused) {
+                drainCommands();
+                return false;
+            }
+            boolean over = runTick();
+            judgeTick();
+            return over;
+        } finally {
+            watchdog.idle();
+        }
+    }
+
+    // Asks for the board to be drawn again, either by Swing or by the active render thread.
+    private void requestRender() {
+        if (activeRenderer != null) {
+            activeRenderer.requestFrame();
+        } else {
+            repaint();
+        }
+    }
+
+    // Starts watching for stalls once the panel is on screen.
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        watchdog.watch();
+    }
+
+    // Stops watching for stalls once the panel has left the screen.
+    @Override
+    public void removeNotify() {
+        watchdog.unwatch();
+        super.removeNotify();
+    }
+
+    // Stops ticking and rendering for good. Called once the game has been left.
+    public void stop() {
+        watchdog.unwatch();
+        timer.stop();
+        if (activeRenderer != null) activeRenderer.stop();
+    }
+
+    // Gets the number of rollbacks caused by late commands, 0 when rollback is disabled.
+    public long getRollbackCount() {
+        return rollback != null ? rollback.getRollbacks() : 0;
+    }
+
+    // Gets the number of ticks re-simulated by rollbacks.
+    public long getCorrectedTicks() {
+        return rollback != null ? rollback.getCorrectedTicks() : 0;
+    }
+
+    // Gets the number of controller commands dropped because the queue was full.
+    public long getDroppedCommands() {
+        return droppedCommands;
+    }
+
+    // Gets the number of controller commands waiting for the next tick.
+    public int getQueuedCommands() {
+        return commands.size();
+    }
+
+    // Gets the time from a controller command being issued to it being applied by a tick.
+    public LatencyHistogram getApplyLatency() {
+        return applyLatency;
+    }
+
+    // Gets the bus announcing what happens in this game.
+    public GameEventBus getEvents() {
+        return events;
+    }
+
+    // Announces a change of the application's state to the game's observers.
+    public synchronized void stateChanged(GameState state) {
+        events.publish(GameEventBus.STATE_CHANGED, tick, state.ordinal(), 0);
+    }
+
+    // Announces that the controller went away to the game's observers.
+    public synchronized void controllerDisconnected() {
+        events.publish(GameEventBus.CONTROLLER_LOST, tick);
+    }
+
+    // Gets the frame timing statistics of this game.
+    public FrameStats getFrameStats() {
+        return frameStats;
+    }
+
+    // Gets the watchdog of this game's deadlines.
+    public TickWatchdog getWatchdog() {
+        return watchdog;
+    }
+
+    @Override
+    public boolean requestFocusInWindow() {
+        // Keyboard input goes to whichever component actually covers the board
+        if (activeRenderer != null) return activeRenderer.getCanvas().requestFocusInWindow();
+        return super.requestFocusInWindow();
+    }
+
+    // Changes the snake's direction if the new direction is valid. Resumes a paused game.
+    public synchronized void setDirection(Direction newDirection) {
+        // A snake waiting on a pending death only reacts to late, rolled back commands
+        if (deathPending) return;
+        if (paused) setPaused(false);
+        turnRecorded(newDirection);
+    }
+
+    // Turns the snake and records the turn for the current tick, so a rollback can replay it.
+    private void turnRecorded(Direction newDirection) {
+        Direction previous = currentDirection;
+        turn(newDirection);
+        if (rollback != null && currentDirection != previous) rollback.recordTurn(tick, currentDirection);
+    }
+
+    // Replays the turns of a tick kept as its first and final direction. The final direction
+    // alone reproduces the tick unless it reverses the current one; then the first turn, at right
+    // angles, is taken before it. With 'record' the turns that apply are recorded again.
+    private void replayTurns(Direction first, Direction last, boolean record) {
+        if (last == null) return;
+        if (record) turnRecorded(last); else turn(last);
+        if (currentDirection == last) return;
+        if (record) turnRecorded(first); else turn(first);
+        if (record) turnRecorded(last); else turn(last);
+    }
+
+    // Turns the snake unless that would reverse it onto itself.
+    private void turn(Direction newDirection) {
         if ((currentDirection == Direction.UP && newDirection != Direction.DOWN) ||
                 (currentDirection == Direction.DOWN && newDirection != Direction.UP) ||
                 (currentDirection == Direction.LEFT && newDirection != Direction.RIGHT) ||
                 (currentDirection == Direction.RIGHT && newDirection != Direction.LEFT)) {
+            if (newDirection != currentDirection) {
+                events.publish(GameEventBus.DIRECTION_CHANGED, tick, newDirection.ordinal(), currentDirection.ordinal());
+                if (rollback != null) rollback.countTurnEvent(tick);
+            }
             currentDirection = newDirection;
         }
     }
 
+    // Pauses or resumes ticking.
+    public synchronized void setPaused(boolean paused) {
+        if (gameOver || this.paused == paused) return;
+        this.paused = paused;
+        events.publish(GameEventBus.PAUSED, tick, paused ? 1 : 0, 0);
+        if (paused) {
+            timer.stop();
+        } else {
+            lastTickStartNanos = 0; // The pause is not a late tick
+            if (!hosted) timer.start();
+        }
+        requestRender();
+    }
+
+    // Checks whether the game is paused.
+    public boolean isPaused() {
+        return paused;
+    }
+
+    // Captures the game for saving, or returns null if it has already been lost.
+    public synchronized SavedGame capture() {
+        if (gameOver || deathPending) return null;
+        GameSnapshot snapshot = new GameSnapshot(COLUMNS * ROWS);
+        saveSnapshot(snapshot);
+        int[] obstacleCells = new int[obstacleCount];
+        System.arraycopy(obstacles, 0, obstacleCells, 0, obstacleCount);
+        return new SavedGame(difficulty, COLUMNS, ROWS, snapshot, obstacleCells, hazardSeed);
+    }
+
+    // Publishes the game's state to an overlay file, as the application is in 'state'.
+    // Called from the export thread; the tick thread only waits for it if it needs the lock.
+    public synchronized void exportState(SharedStateWriter writer, GameState state) {
+        writer.publish(tick, state, paused ? SharedStateWriter.PAUSED : 0, score, food, body, bodyHead, length);
+    }
+
+    // Continues a saved game from the exact tick it was saved at. The game starts paused.
+    public synchronized void restore(SavedGame saved) {
+        if (saved.getColumns() != COLUMNS || saved.getRows() != ROWS) {
+            throw new IllegalArgumentException("Saved board size does not match");
+        }
+        if (saved.getObstacles().length > obstacles.length) {
+            throw new IllegalArgumentException("Saved game has more obstacles than its difficulty allows");
+        }
+        clearObstacles();
+        restoreSnapshot(saved.getSnapshot());
+        for (int cell : saved.getObstacles()) {
+            addObstacle(cell);
+        }
+        if (hazards != null) {
+            hazardSeed = saved.getHazardSeed();
+            generateHazards();
+        }
+        gameOver = false;
+        deathPending = false;
+        if (rollback != null) {
+            rollback.clear();
+            saveSnapshot(rollback.snapshot(tick));
+        }
+        if (recordReplays) startRecording();
+        paused = false;
+        setPaused(true);
+    }
+
+    // Gets the current score.
+    public int getScore() {
+        return score;
+    }
+
+    // Gets the difficulty this game is played at.
+    public Difficulty getDifficulty() {
+        return difficulty;
+    }
+
+    // Gets the number of ticks simulated.
+    synchronized long getTick() {
+        return tick;
+    }
+
+    // Gets the food cell.
+    synchronized int getFoodCell() {
+        return food;
+    }
+
+    // Copies what each cell holds into 'cells': HIT_SNAKE and HIT_OBSTACLE bits, both where a
+    // moving obstacle passes over the snake.
+    synchronized void copyBoard(byte[] cells) {
+        System.arraycopy(board, 0, cells, 0, board.length);
+    }
+
+    // Gets the cell of the snake's head, row-major from the top left.
+    synchronized int getHeadCell() {
+        return body[bodyHead];
+    }
+
+    // Gets the number of snake segments.
+    synchronized int getLength() {
+        return length;
+    }
+
+    // Checks whether the snake has collided, even if the game has not ended yet.
+    synchronized boolean hasCollided() {
+        return gameOver || deathPending;
+    }
+
+    // Records a replay of the current session and of every session after a reset.
+    public synchronized void recordReplays() {
+        recordReplays = true;
+        startRecording();
+    }
+
+    // Starts a new replay recording from the current state.
+    private void startRecording() {
+        int[] obstacleCells = new int[obstacleCount];
+        System.arraycopy(obstacles, 0, obstacleCells, 0, obstacleCount);
+        recording = new ReplayLog(difficulty, COLUMNS, ROWS, obstacleCells, hazardSeed, tick);
+    }
+
+    // Gets the replay of the current session, or null if none is being recorded.
+    public synchronized ReplayLog getRecording() {
+        return recording;
+    }
+
+    // Moves playback to 'target': loads the keyframe at or before it and re-simulates the
+    // ticks from there, or just runs on if the target is a little ahead of the current tick.
+    public synchronized void seek(long target) {
+        target = Math.max(replay.getFirstTick(), Math.min(target, replay.getEndTick()));
+        if (gameOver || target < tick || target - tick >= ReplayLog.KEYFRAME_INTERVAL) {
+            replay.loadKeyframe(target, replayState);
+            restoreSnapshot(replayState);
+            gameOver = false;
+        }
+        while (tick < target && !gameOver) {
+            playBackTick();
+        }
+        requestRender();
+    }
+
+    // Runs the next recorded tick.
+    private void playBackTick() {
+        currentDirection = replay.getInput(tick);
+        if (step()) gameOver = true;
+    }
+
+    // Advances playback on a timer event, stopping at the end of the replay.
+    private synchronized void playBack() {
+        for (int i = 0; i < playbackSteps && !isReplayFinished(); i++) {
+            playBackTick();
+        }
+        if (isReplayFinished()) timer.stop();
+        if (playbackListener != null) playbackListener.run();
+    }
+
+    // Starts or stops playback.
+    public synchronized void setPlaying(boolean playing) {
+        if (playing && !isReplayFinished()) {
+            timer.start();
+        } else {
+            timer.stop();
+        }
+    }
+
+    // Checks whether playback is running.
+    public boolean isPlaying() {
+        return timer.isRunning();
+    }
+
+    // Sets the playback speed as a multiple of the game's own. Fast speeds run several ticks
+    // per timer event rather than firing the timer faster than the screen can show.
+    public synchronized void setPlaybackSpeed(double speed) {
+        int period = (int) Math.max(10, Math.round(difficulty.getDelay() / speed));
+        playbackSteps = (int) Math.max(1, Math.round(speed * period / difficulty.getDelay()));
+        timer.setDelay(period);
+    }
+
+    // Sets what to tell when playback moves on by itself, on the event dispatch thread.
+    public void setPlaybackListener(Runnable listener) {
+        this.playbackListener = listener;
+    }
+
+    // Gets the tick playback is at; the end tick once the recorded game has ended.
+    public synchronized long getReplayTick() {
+        return gameOver ? replay.getEndTick() : tick;
+    }
+
+    // Checks whether playback has reached the end of the replay.
+    private boolean isReplayFinished() {
+        return gameOver || tick >= replay.getEndTick();
+    }
+
     // Resets the game to initial state.
     public void resetGame() {
-        snake.clear();
-        snake.add(new Point(GAME_WIDTH / 2, GAME_HEIGHT / 2));
+        resetGame(System.nanoTime());
+    }
+
+    // Resets the game with food and obstacles placed from 'seed'.
+    public synchronized void resetGame(long seed) {
+        clearSnake();
+        pushHead(START_CELL);
         currentDirection = Direction.RIGHT;
         score = 0;
         gameOver = false;
+        tick = 0;
+        lastTickStartNanos = 0;
+        deathPending = false;
+        random.setState(seed);
+        // The old obstacles go before the food is placed, so a seed always gives the same board
+        clearObstacles();
         generateFood();
         generateObstacles();
-        timer.setDelay(difficulty.getDelay());
-        timer.start();
-        repaint();
+        if (rollback != null) {
+            rollback.clear();
+            saveSnapshot(rollback.snapshot(0));
+        }
+        paused = false;
+        events.publish(GameEventBus.RESET, 0);
+        if (recordReplays) startRecording();
+        if (!hosted) {
+            timer.setDelay(difficulty.getDelay());
+            timer.start();
+        }
+        requestRender();
     }
 
     // Unused KeyListener methods
@@ -209,9 +1047,20 @@ public class SnakeGame extends JPanel implements ActionListener, KeyListener {
 
     @Override
     public void keyPressed(KeyEvent e) {
-        // Handle arrow key inputs
+        // A replay is driven by its controls only
+        if (replay != null) return;
+
+        // Handle arrow key inputs, and P or Escape to pause
         int key = e.getKeyCode();
         switch (key) {
+            case KeyEvent.VK_P:
+            case KeyEvent.VK_ESCAPE:
+                if (app != null) {
+                    app.setPaused(!isPaused());
+                } else {
+                    setPaused(!isPaused());
+                }
+                break;
             case KeyEvent.VK_UP:
                 setDirection(Direction.UP);
                 break;
@@ -226,4 +1075,4 @@ public class SnakeGame extends JPanel implements ActionListener, KeyListener {
                 break;
         }
     }
-}
\ No newline at end of file
+}
@@ -2,39 +2,106 @@ package snake;
 
 import javax.swing.*;
 import java.awt.*;
+import java.util.List;
 
 public class StartMenu extends JPanel {
     // Label to display the current Bluetooth connection status
     private final JLabel bluetoothStatusLabel;
+    // Label to display the leaderboard for the selected difficulty
+    private final JLabel highScoresLabel;
+    // Reference to the main application for difficulty and leaderboard lookups
+    private final SnakeApp app;
+    // Button to continue a saved game
+    private final JButton resumeButton;
+    // Button to watch the replay of the last game
+    private final JButton replayButton;
 
     // Constructs the StartMenu panel with game controls.
     public StartMenu(SnakeApp app) {
+        this.app = app;
+
         // Set the preferred size of the menu panel
         setPreferredSize(new Dimension(400, 400));
 
-        // Use GridLayout with 3 rows and 1 column for vertical stacking
-        setLayout(new GridLayout(3, 1));
+        // Use GridLayout with 7 rows and 1 column for vertical stacking
+        setLayout(new GridLayout(7, 1));
 
         // Create and configure the Start Game button
         JButton startButton = new JButton("Start Game");
         // Add action listener to start the game when clicked
         startButton.addActionListener(e -> app.startGame());
 
+        // Create and configure the Resume button, enabled while a saved game exists
+        resumeButton = new JButton();
+        resumeButton.addActionListener(e -> app.resumeGame());
+        updateResumeButton();
+
+        // Create and configure the Replay button, enabled once a game has been recorded
+        replayButton = new JButton("Watch Last Game");
+        replayButton.addActionListener(e -> app.watchReplay());
+        replayButton.setEnabled(app.hasReplay());
+
         // Create and configure the Difficulty button
         JButton difficultyButton = new JButton("Difficulty: EASY");
         // Add specialized listener to handle difficulty cycling
         difficultyButton.addActionListener(new DifficultyButtonListener(app, difficultyButton));
 
+        // Create and configure the Players button, cycling through 1-4 snakes on one board
+        JButton playersButton = new JButton("Players: 1");
+        playersButton.addActionListener(e -> {
+            int players = app.getPlayers() % 4 + 1;
+            app.setPlayers(players);
+            playersButton.setText("Players: " + players);
+        });
+
         // Initialize and configure the Bluetooth status label
         bluetoothStatusLabel = new JLabel();
         bluetoothStatusLabel.setHorizontalAlignment(SwingConstants.CENTER); // Center-align text
 
+        // Initialize the leaderboard label
+        highScoresLabel = new JLabel();
+        highScoresLabel.setHorizontalAlignment(SwingConstants.CENTER);
+        updateHighScores();
+
         // Add components to the panel in order
         add(startButton);
+        add(resumeButton);
+        add(replayButton);
         add(difficultyButton);
+        add(playersButton);
+        add(highScoresLabel);
         add(bluetoothStatusLabel);
     }
 
+    // Refreshes the Resume button for the current saved game.
+    public void updateResumeButton() {
+        SavedGame saved = app.getSavedGame();
+        resumeButton.setEnabled(saved != null);
+        resumeButton.setText(saved == null ? "Resume Game"
+                : "Resume Game (" + saved.getDifficulty() + ", score " + saved.getSnapshot().getScore() + ")");
+    }
+
+    // Enables the Replay button once a game has been recorded.
+    public void updateReplayButton() {
+        replayButton.setEnabled(true);
+    }
+
+    // Refreshes the leaderboard shown for the currently selected difficulty.
+    public void updateHighScores() {
+        Difficulty difficulty = app.getDifficulty();
+        List<ScoreEntry> entries = app.getHighScores().getTopScores(difficulty);
+
+        StringBuilder text = new StringBuilder("<html><center>Top scores (").append(difficulty).append(")<br>");
+        if (entries.isEmpty()) {
+            text.append("No games played yet");
+        }
+        for (int i = 0; i < entries.size(); i++) {
+            if (i > 0) text.append(i % 5 == 0 ? "<br>" : " &middot; ");
+            text.append(i + 1).append(". ").append(entries.get(i).score());
+        }
+        highScoresLabel.setText(text.append("</center></html>").toString());
+    }
+
     // Updates the Bluetooth status text displayed on the menu.
     public void updateBluetoothStatus(String status) {
         bluetoothStatusLabel.setText(status);
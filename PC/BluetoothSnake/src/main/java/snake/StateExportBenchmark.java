@@ -0,0 +1,132 @@
+package snake;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Headless benchmark of publishing the game state through SharedStateWriter.
+// For each snake length it moves a snake one cell per publish, as a tick does, and times the
+// publishes alone and then with a reader copying snapshots as fast as it can through its own
+// mapping of the file, as an overlay process would. Every snapshot the reader accepts is checked
+// against what was published at its tick, so a torn read shows up as an error.
+// Usage: java snake.StateExportBenchmark [publishes] [snake lengths, e.g. 1,100,400]
+public class StateExportBenchmark {
+    // Board size of SnakeGame
+    private static final int COLUMNS = SnakeGame.COLUMNS;
+    private static final int ROWS = SnakeGame.ROWS;
+    private static final int CAPACITY = COLUMNS * ROWS;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int publishes = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        String lengths = args.length > 1 ? args[1] : "1,25,100,400";
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        Path file = Files.createTempFile("snake-state", ".bin");
+        try {
+            System.out.printf("%d publishes per run, %dx%d board%n", publishes, COLUMNS, ROWS);
+            System.out.printf("%7s %11s %13s %13s %12s %9s %6s%n", "length", "publish ns", "bytes/publish",
+                    "+reader ns", "reads/s", "retry %", "torn");
+            for (String part : lengths.split(",")) {
+                int length = Integer.parseInt(part.trim());
+                SharedStateWriter writer = new SharedStateWriter(file, COLUMNS, ROWS);
+                Mover mover = new Mover(writer, length);
+
+                // Warm up, then publish alone
+                mover.run(publishes);
+                long allocated = threads.getCurrentThreadAllocatedBytes();
+                long start = System.nanoTime();
+                mover.run(publishes);
+                double alone = (System.nanoTime() - start) / (double) publishes;
+                allocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+
+                // Publish again with a reader racing the writer
+                Reader reader = new Reader(new SharedStateReader(file));
+                Thread thread = new Thread(reader, "StateReader");
+                thread.start();
+                while (reader.reads == 0) Thread.onSpinWait();
+                start = System.nanoTime();
+                mover.run(publishes);
+                long elapsed = System.nanoTime() - start;
+                reader.running.set(false);
+                thread.join();
+                writer.close();
+
+                System.out.printf("%7d %11.1f %13.3f %13.1f %12.0f %9.3f %6d%n", length, alone,
+                        allocated / (double) publishes, elapsed / (double) publishes,
+                        reader.reads * 1e9 / elapsed, 100.0 * reader.state.getRetries() / Math.max(1, reader.reads),
+                        reader.torn);
+                if (reader.torn > 0) System.exit(1);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // Moves a snake of fixed length one cell per publish. At tick t the cell i segments behind
+    // the head is (t - i) mod CAPACITY, the score is t and the food is at t mod CAPACITY.
+    private static class Mover {
+        private final SharedStateWriter writer;
+        private final int[] ring = new int[Integer.highestOneBit(CAPACITY) * 2];
+        private final int mask = ring.length - 1;
+        private final int length;
+        private long tick;
+
+        Mover(SharedStateWriter writer, int length) {
+            this.writer = writer;
+            this.length = length;
+            tick = length;
+            for (int i = 0; i < length; i++) {
+                ring[(int) (tick - i) & mask] = expected(tick, i);
+            }
+        }
+
+        void run(int publishes) {
+            for (int i = 0; i < publishes; i++) {
+                tick++;
+                ring[(int) tick & mask] = expected(tick, 0);
+                writer.publish(tick, GameState.GAME, 0, (int) tick, (int) (tick % CAPACITY), ring, (int) tick & mask, length);
+            }
+        }
+    }
+
+    // Copies snapshots as fast as it can and checks each one.
+    private static class Reader implements Runnable {
+        private final SharedStateReader state;
+        private final AtomicBoolean running = new AtomicBoolean(true);
+        private volatile long reads;
+        private long torn;
+
+        Reader(SharedStateReader state) {
+            this.state = state;
+        }
+
+        @Override
+        public void run() {
+            SharedStateReader.Snapshot snapshot = state.newSnapshot();
+            long count = 0;
+            while (running.get()) {
+                if (!state.read(snapshot)) continue;
+                count++;
+                if (count % 1024 == 0) reads = count;
+                if (!consistent(snapshot)) torn++;
+            }
+            reads = count;
+        }
+
+        private static boolean consistent(SharedStateReader.Snapshot snapshot) {
+            long tick = snapshot.tick;
+            if (snapshot.score != (int) tick || snapshot.food != tick % CAPACITY) return false;
+            for (int i = 0; i < snapshot.length; i++) {
+                if (snapshot.cells[i] != expected(tick, i)) return false;
+            }
+            return true;
+        }
+    }
+
+    // Gets the cell 'i' segments behind the head at 'tick'.
+    private static int expected(long tick, int i) {
+        return (int) Math.floorMod(tick - i, (long) CAPACITY);
+    }
+}
@@ -0,0 +1,61 @@
+package snake;
+
+import java.util.concurrent.locks.LockSupport;
+
+// Keeps a SharedStateWriter up to date with one game, from a background thread, so the game's
+// tick thread does no work for it. The thread watches the game's event bus and copies the game
+// state under the game's lock whenever something was published, which every tick does. A tick
+// can wait on that lock for as long as the copy takes, as it can for a frame being drawn.
+public class StateExporter implements GameEventBus.Handler, AutoCloseable {
+    // Time between polls of the bus, well under the shortest tick
+    private static final long POLL_NANOS = 2_000_000L;
+    // States by ordinal
+    private static final GameState[] STATES = GameState.values();
+
+    private final SnakeGame game;
+    private final SharedStateWriter writer;
+    private final GameEventBus.Subscriber subscriber;
+    private final Thread thread;
+    private volatile boolean running = true;
+    // Application state, as last announced on the bus; only touched by the export thread
+    private GameState state = GameState.GAME;
+
+    // Starts exporting the state of 'game' to 'writer'.
+    public StateExporter(SnakeGame game, SharedStateWriter writer) {
+        this.game = game;
+        this.writer = writer;
+        this.subscriber = game.getEvents().subscribe();
+        thread = new Thread(this::run, "StateExporter");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Exports the state whenever the game published something since the last poll, and once at
+    // the start and the end.
+    private void run() {
+        game.exportState(writer, state);
+        while (running) {
+            if (subscriber.poll(this) > 0) game.exportState(writer, state);
+            LockSupport.parkNanos(POLL_NANOS);
+        }
+        subscriber.poll(this);
+        game.exportState(writer, state);
+    }
+
+    @Override
+    public void onEvent(int type, long tick, int a, int b) {
+        if (type == GameEventBus.STATE_CHANGED && a >= 0 && a < STATES.length) state = STATES[a];
+    }
+
+    // Stops exporting after a last export, so the file ends with the game's final state.
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package snake;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Offline summary of a directory of TelemetryLog session files, such as months of kiosk data.
+// Files are read and decoded in parallel on all cores, each worker folding sessions into its own
+// totals that are merged at the end; only the columns the tables need are inflated.
+// Usage: java snake.TelemetryAggregator [directory] [threads]
+public class TelemetryAggregator {
+    // Columns the summary reads
+    private static final int COLUMNS = 1 << TelemetryLog.TICK_INTERVAL | 1 << TelemetryLog.COMMAND_LATENCY;
+
+    public static void main(String[] args) throws Exception {
+        Path directory = args.length > 0 ? Paths.get(args[0]) : TelemetryRecorder.defaultDirectory();
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(p -> p.getFileName().toString().endsWith(".snkt")).collect(Collectors.toList());
+        }
+
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        Totals totals = pool.submit(() -> files.parallelStream()
+                .collect(Totals::new, Totals::add, Totals::merge)).get();
+        pool.shutdown();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        totals.print();
+        System.out.printf("%nread %d files (%.1f MB), %d unreadable, in %d ms on %d threads: %.0f files/s%n",
+                totals.files, totals.bytes / 1e6, totals.unreadable, elapsedMillis, threads,
+                totals.files * 1000.0 / Math.max(1, elapsedMillis));
+    }
+
+    // Sums over a set of sessions, kept per difficulty.
+    private static class Totals {
+        private final int levels = Difficulty.values().length;
+        private final long[] sessions = new long[levels];
+        private final long[] scoreSum = new long[levels];
+        private final long[] ticks = new long[levels];
+        private final long[] playMillis = new long[levels];
+        private final long[] commands = new long[levels];
+        private final long[] disconnects = new long[levels];
+        private final long[] pauses = new long[levels];
+        private final long[] lostEvents = new long[levels];
+        private final long[][] deaths = new long[levels][3];
+        private final LatencyHistogram[] scores = new LatencyHistogram[levels];
+        private final LatencyHistogram[] tickIntervals = new LatencyHistogram[levels];
+        private final LatencyHistogram[] commandLatency = new LatencyHistogram[levels];
+        private long files = 0;
+        private long bytes = 0;
+        private long unreadable = 0;
+
+        Totals() {
+            for (int i = 0; i < levels; i++) {
+                scores[i] = new LatencyHistogram();
+                tickIntervals[i] = new LatencyHistogram();
+                commandLatency[i] = new LatencyHistogram();
+            }
+        }
+
+        // Folds one session file in.
+        void add(Path file) {
+            TelemetryLog log;
+            try {
+                byte[] data = Files.readAllBytes(file);
+                bytes += data.length;
+                log = TelemetryLog.decode(data, COLUMNS);
+            } catch (IOException | IllegalArgumentException e) {
+                unreadable++;
+                return;
+            }
+            files++;
+            int d = log.getDifficulty().ordinal();
+            sessions[d]++;
+            scoreSum[d] += log.getScore();
+            scores[d].record(log.getScore());
+            ticks[d] += log.getTicks();
+            playMillis[d] += log.getDurationMillis();
+            disconnects[d] += log.getCount(TelemetryLog.DISCONNECT_TICK);
+            pauses[d] += log.getCount(TelemetryLog.PAUSE_TICK);
+            lostEvents[d] += log.getLostEvents();
+            deaths[d][Math.min(2, Math.max(0, log.getDeathCause()))]++;
+            for (int interval : log.getColumn(TelemetryLog.TICK_INTERVAL)) {
+                // The first tick has no interval
+                if (interval > 0) tickIntervals[d].record(interval);
+            }
+            int[] latencies = log.getColumn(TelemetryLog.COMMAND_LATENCY);
+            commands[d] += latencies.length;
+            for (int latency : latencies) {
+                commandLatency[d].record(latency);
+            }
+        }
+
+        // Adds the totals of another worker.
+        void merge(Totals other) {
+            for (int d = 0; d < levels; d++) {
+                sessions[d] += other.sessions[d];
+                scoreSum[d] += other.scoreSum[d];
+                ticks[d] += other.ticks[d];
+                playMillis[d] += other.playMillis[d];
+                commands[d] += other.commands[d];
+                disconnects[d] += other.disconnects[d];
+                pauses[d] += other.pauses[d];
+                lostEvents[d] += other.lostEvents[d];
+                for (int c = 0; c < 3; c++) {
+                    deaths[d][c] += other.deaths[d][c];
+                }
+                scores[d].add(other.scores[d]);
+                tickIntervals[d].add(other.tickIntervals[d]);
+                commandLatency[d].add(other.commandLatency[d]);
+            }
+            files += other.files;
+            bytes += other.bytes;
+            unreadable += other.unreadable;
+        }
+
+        // Prints the summary tables.
+        void print() {
+            System.out.println("Sessions by difficulty (score percentiles are bucketed, within about 6%)");
+            System.out.printf("%-8s %9s %8s %6s %6s %6s %9s %9s %9s %9s %9s%n", "level", "sessions", "score", "p50",
+                    "p90", "max", "min/sess", "cmds/min", "disc/sess", "paus/sess", "lost evts");
+            for (Difficulty difficulty : Difficulty.values()) {
+                int d = difficulty.ordinal();
+                long n = sessions[d];
+                if (n == 0) continue;
+                double minutes = playMillis[d] / 60_000.0;
+                System.out.printf("%-8s %9d %8.1f %6d %6d %6d %9.2f %9.1f %9.3f %9.3f %9d%n", difficulty, n,
+                        scoreSum[d] / (double) n, scores[d].percentile(50), scores[d].percentile(90),
+                        scores[d].percentile(100), minutes / n, commands[d] / Math.max(minutes, 1e-9),
+                        disconnects[d] / (double) n, pauses[d] / (double) n, lostEvents[d]);
+            }
+
+            System.out.println();
+            System.out.println("Death causes");
+            System.out.printf("%-8s %9s %9s %9s%n", "level", "self", "obstacle", "unknown");
+            for (Difficulty difficulty : Difficulty.values()) {
+                int d = difficulty.ordinal();
+                if (sessions[d] == 0) continue;
+                System.out.printf("%-8s %9d %9d %9d%n", difficulty, deaths[d][TelemetryLog.DEATH_SELF],
+                        deaths[d][TelemetryLog.DEATH_OBSTACLE], deaths[d][TelemetryLog.DEATH_UNKNOWN]);
+            }
+
+            System.out.println();
+            System.out.println("Tick interval and command latency");
+            for (Difficulty difficulty : Difficulty.values()) {
+                int d = difficulty.ordinal();
+                if (sessions[d] == 0) continue;
+                System.out.printf("%-8s ticks    %s (%d ms period)%n", difficulty, tickIntervals[d].summary(),
+                        difficulty.getDelay());
+                System.out.printf("%-8s commands %s%n", "", commandLatency[d].summary());
+            }
+        }
+    }
+}
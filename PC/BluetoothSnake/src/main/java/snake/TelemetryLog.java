@@ -0,0 +1,264 @@
+package snake;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Telemetry of one finished game session, and its compact binary format.
+// Values are stored by column rather than by record: each column is delta encoded as zigzag
+// varints and then deflated on its own, which compresses the slowly varying series well and
+// lets a reader inflate only the columns it needs.
+//
+// Layout (big endian), version 1:
+//   int magic "SNKT", byte version, byte difficulty, long start (epoch millis), int duration
+//   millis, int ticks, int score, byte death cause, int lost events, byte column count,
+//   then per column: byte column id, int value count, int encoded length, int deflated length,
+//   deflated bytes; and finally int CRC32 of all preceding bytes.
+public class TelemetryLog {
+    // Format identification
+    private static final int MAGIC = 0x534E4B54; // "SNKT"
+    private static final byte VERSION = 1;
+    // Fixed part of the encoding, without the columns and checksum
+    private static final int HEADER_SIZE = 4 + 1 + 1 + 8 + 4 + 4 + 4 + 1 + 4 + 1;
+
+    // Columns
+    public static final int TICK_INTERVAL = 0;   // Microseconds since the previous tick, per tick
+    public static final int TICK_COMMANDS = 1;   // Commands applied, per tick
+    public static final int COMMAND_TICK = 2;    // Tick each controller command was applied at
+    public static final int COMMAND_LATENCY = 3; // Microseconds from issue to apply, per command
+    public static final int FOOD_TICK = 4;       // Tick each food was eaten at
+    public static final int PAUSE_TICK = 5;      // Tick each pause started at
+    public static final int DISCONNECT_TICK = 6; // Tick each controller disconnect happened at
+    public static final int COLUMNS = 7;
+    // Column mask selecting every column when decoding
+    public static final int ALL_COLUMNS = (1 << COLUMNS) - 1;
+
+    // Causes of death
+    public static final int DEATH_UNKNOWN = 0;
+    public static final int DEATH_SELF = SnakeGame.HIT_SNAKE;
+    public static final int DEATH_OBSTACLE = SnakeGame.HIT_OBSTACLE;
+
+    private final Difficulty difficulty;
+    private final long startMillis;
+    private final int durationMillis;
+    private final int ticks;
+    private final int score;
+    private final int deathCause;
+    // Events the recorder missed by falling behind the game
+    private final int lostEvents;
+    // Column values by column id; null for a column not decoded
+    private final int[][] columns;
+    // Number of values in each column, known even for columns not decoded
+    private final int[] counts;
+
+    // Constructs a log. 'columns' is indexed by column id.
+    public TelemetryLog(Difficulty difficulty, long startMillis, int durationMillis, int ticks, int score,
+                        int deathCause, int lostEvents, int[][] columns) {
+        this(difficulty, startMillis, durationMillis, ticks, score, deathCause, lostEvents, columns, new int[COLUMNS]);
+        for (int id = 0; id < COLUMNS; id++) {
+            counts[id] = columns[id].length;
+        }
+    }
+
+    private TelemetryLog(Difficulty difficulty, long startMillis, int durationMillis, int ticks, int score,
+                         int deathCause, int lostEvents, int[][] columns, int[] counts) {
+        this.difficulty = difficulty;
+        this.startMillis = startMillis;
+        this.durationMillis = durationMillis;
+        this.ticks = ticks;
+        this.score = score;
+        this.deathCause = deathCause;
+        this.lostEvents = lostEvents;
+        this.columns = columns;
+        this.counts = counts;
+    }
+
+    // Encodes the log into its binary form.
+    public byte[] encode() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.put(VERSION);
+        header.put((byte) difficulty.ordinal());
+        header.putLong(startMillis);
+        header.putInt(durationMillis);
+        header.putInt(ticks);
+        header.putInt(score);
+        header.put((byte) deathCause);
+        header.putInt(lostEvents);
+        header.put((byte) COLUMNS);
+        out.writeBytes(header.array());
+
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        byte[] deflated = new byte[1024];
+        for (int id = 0; id < COLUMNS; id++) {
+            int[] values = columns[id];
+            byte[] encoded = encodeColumn(values);
+            deflater.reset();
+            deflater.setInput(encoded);
+            deflater.finish();
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == deflated.length) deflated = Arrays.copyOf(deflated, length * 2);
+                length += deflater.deflate(deflated, length, deflated.length - length);
+            }
+            ByteBuffer column = ByteBuffer.allocate(13);
+            column.put((byte) id);
+            column.putInt(values.length);
+            column.putInt(encoded.length);
+            column.putInt(length);
+            out.writeBytes(column.array());
+            out.write(deflated, 0, length);
+        }
+        deflater.end();
+
+        byte[] data = out.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return ByteBuffer.allocate(data.length + 4).put(data).putInt((int) crc.getValue()).array();
+    }
+
+    // Decodes a log, inflating only the columns whose bit is set in 'columnMask'.
+    // Throws IllegalArgumentException if the data is not a valid log.
+    public static TelemetryLog decode(byte[] data, int columnMask) {
+        if (data.length < HEADER_SIZE + 4) throw new IllegalArgumentException("Log is truncated");
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length - 4);
+        ByteBuffer buffer = ByteBuffer.wrap(data, 0, data.length - 4);
+        if (ByteBuffer.wrap(data).getInt(data.length - 4) != (int) crc.getValue()) {
+            throw new IllegalArgumentException("Log checksum mismatch");
+        }
+
+        Inflater inflater = null;
+        try {
+            if (buffer.getInt() != MAGIC) throw new IllegalArgumentException("Not a telemetry log");
+            byte version = buffer.get();
+            if (version != VERSION) throw new IllegalArgumentException("Unsupported log version " + version);
+            Difficulty difficulty = Difficulty.values()[buffer.get()];
+            long startMillis = buffer.getLong();
+            int durationMillis = buffer.getInt();
+            int ticks = buffer.getInt();
+            int score = buffer.getInt();
+            int deathCause = buffer.get();
+            int lostEvents = buffer.getInt();
+            int columnCount = buffer.get();
+
+            int[][] columns = new int[COLUMNS][];
+            int[] counts = new int[COLUMNS];
+            for (int i = 0; i < columnCount; i++) {
+                int id = buffer.get();
+                int count = buffer.getInt();
+                int encodedLength = buffer.getInt();
+                int deflatedLength = buffer.getInt();
+                int offset = buffer.position();
+                buffer.position(offset + deflatedLength);
+                // Columns from a later version, or not asked for, are skipped without inflating
+                if (id < 0 || id >= COLUMNS) continue;
+                counts[id] = count;
+                if ((columnMask & (1 << id)) == 0) continue;
+
+                if (inflater == null) inflater = new Inflater();
+                inflater.reset();
+                inflater.setInput(data, offset, deflatedLength);
+                byte[] encoded = new byte[encodedLength];
+                if (inflater.inflate(encoded) != encodedLength) {
+                    throw new IllegalArgumentException("Column " + id + " is truncated");
+                }
+                columns[id] = decodeColumn(encoded, count);
+            }
+            return new TelemetryLog(difficulty, startMillis, durationMillis, ticks, score, deathCause, lostEvents, columns, counts);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | DataFormatException e) {
+            throw new IllegalArgumentException("Log is malformed", e);
+        } finally {
+            if (inflater != null) inflater.end();
+        }
+    }
+
+    // Encodes values as zigzag varints of the difference to the previous value.
+    private static byte[] encodeColumn(int[] values) {
+        byte[] out = new byte[values.length * 5];
+        int length = 0;
+        int previous = 0;
+        for (int value : values) {
+            int delta = value - previous;
+            previous = value;
+            int zigzag = (delta << 1) ^ (delta >> 31);
+            while ((zigzag & ~0x7F) != 0) {
+                out[length++] = (byte) ((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            out[length++] = (byte) zigzag;
+        }
+        return Arrays.copyOf(out, length);
+    }
+
+    // Decodes 'count' values written by encodeColumn.
+    private static int[] decodeColumn(byte[] encoded, int count) {
+        int[] values = new int[count];
+        int position = 0;
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            int zigzag = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = encoded[position++];
+                zigzag |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            previous += (zigzag >>> 1) ^ -(zigzag & 1);
+            values[i] = previous;
+        }
+        return values;
+    }
+
+    // Gets the difficulty the session was played at.
+    public Difficulty getDifficulty() {
+        return difficulty;
+    }
+
+    // Gets when the session started, in epoch milliseconds.
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    // Gets the wall clock length of the session in milliseconds, pauses included.
+    public int getDurationMillis() {
+        return durationMillis;
+    }
+
+    // Gets the number of ticks played.
+    public int getTicks() {
+        return ticks;
+    }
+
+    // Gets the final score.
+    public int getScore() {
+        return score;
+    }
+
+    // Gets what the snake ran into, one of the DEATH_ constants.
+    public int getDeathCause() {
+        return deathCause;
+    }
+
+    // Gets the number of events the recorder missed.
+    public int getLostEvents() {
+        return lostEvents;
+    }
+
+    // Gets the values of a column, or null if it was not decoded.
+    public int[] getColumn(int id) {
+        return columns[id];
+    }
+
+    // Gets the number of values in a column, whether it was decoded or not.
+    public int getCount(int id) {
+        return counts[id];
+    }
+}
@@ -0,0 +1,171 @@
+package snake;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+// Records the telemetry of a game's sessions from its event bus, on a background thread,
+// and writes each session to its own TelemetryLog file at game over.
+// Disable with -Dsnake.telemetry=false.
+public class TelemetryRecorder implements GameEventBus.Handler, AutoCloseable {
+    // Whether sessions are recorded at all
+    public static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("snake.telemetry"));
+    // Time between polls of the bus
+    private static final long POLL_NANOS = 50_000_000L;
+
+    private final GameEventBus.Subscriber subscriber;
+    private final Difficulty difficulty;
+    private final Path directory;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    // Columns of the session being recorded, by column id
+    private final Column[] columns = new Column[TelemetryLog.COLUMNS];
+    // Whether a session is being recorded; off from game over until the next reset
+    private boolean recording = true;
+    private long startMillis;
+    private int ticks;
+    private int score;
+    private long lostAtStart;
+
+    // Starts recording the sessions of a game into the default telemetry directory.
+    public TelemetryRecorder(GameEventBus events, Difficulty difficulty) {
+        this(events, difficulty, defaultDirectory());
+    }
+
+    // Starts recording the sessions of a game into the given directory.
+    public TelemetryRecorder(GameEventBus events, Difficulty difficulty, Path directory) {
+        this.subscriber = events.subscribe();
+        this.difficulty = difficulty;
+        this.directory = directory;
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new Column();
+        }
+        startSession();
+        thread = new Thread(this::run, "TelemetryRecorder");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Gets the directory sessions are written to by default.
+    public static Path defaultDirectory() {
+        return HighScoreStore.defaultDirectory().resolve("telemetry");
+    }
+
+    // Polls the bus until closed, then once more so a game over just before closing is written.
+    private void run() {
+        while (running) {
+            subscriber.poll(this);
+            LockSupport.parkNanos(POLL_NANOS);
+        }
+        subscriber.poll(this);
+    }
+
+    @Override
+    public void onEvent(int type, long tick, int a, int b) {
+        if (type == GameEventBus.RESET) {
+            startSession();
+            return;
+        }
+        if (!recording) return;
+        switch (type) {
+            case GameEventBus.TICK -> {
+                ticks++;
+                columns[TelemetryLog.TICK_INTERVAL].add(a);
+                columns[TelemetryLog.TICK_COMMANDS].add(b);
+            }
+            case GameEventBus.COMMAND -> {
+                columns[TelemetryLog.COMMAND_TICK].add((int) tick);
+                columns[TelemetryLog.COMMAND_LATENCY].add(a);
+            }
+            case GameEventBus.FOOD_EATEN -> {
+                columns[TelemetryLog.FOOD_TICK].add((int) tick);
+                score = b;
+            }
+            case GameEventBus.ROLLBACK -> {
+                // The re-simulated ticks publish their food again. The other columns hold what
+                // happened once in real time, ticks run, commands, pauses and disconnects, which
+                // a rollback does not publish again.
+                columns[TelemetryLog.FOOD_TICK].removeLast(a);
+                score -= a;
+            }
+            case GameEventBus.PAUSED -> {
+                if (a == 1) columns[TelemetryLog.PAUSE_TICK].add((int) tick);
+            }
+            case GameEventBus.CONTROLLER_LOST -> columns[TelemetryLog.DISCONNECT_TICK].add((int) tick);
+            case GameEventBus.COLLISION -> {
+                score = b;
+                finishSession(a);
+            }
+            default -> {
+            }
+        }
+    }
+
+    // Starts recording a new session.
+    private void startSession() {
+        for (Column column : columns) {
+            column.size = 0;
+        }
+        recording = true;
+        startMillis = System.currentTimeMillis();
+        ticks = 0;
+        score = 0;
+        lostAtStart = subscriber.getLost();
+    }
+
+    // Writes the session that just ended, through a temporary file so readers never see half of it.
+    private void finishSession(int deathCause) {
+        recording = false;
+        int[][] values = new int[columns.length][];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = Arrays.copyOf(columns[i].values, columns[i].size);
+        }
+        int duration = (int) Math.min(Integer.MAX_VALUE, System.currentTimeMillis() - startMillis);
+        int lost = (int) Math.min(Integer.MAX_VALUE, subscriber.getLost() - lostAtStart);
+        TelemetryLog log = new TelemetryLog(difficulty, startMillis, duration, ticks, score, deathCause, lost, values);
+
+        String name = String.format("session-%d-%08x", startMillis, ThreadLocalRandom.current().nextInt());
+        Path file = directory.resolve(name + ".snkt");
+        Path temporary = directory.resolve(name + ".tmp");
+        try {
+            Files.createDirectories(directory);
+            Files.write(temporary, log.encode());
+            try {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to write telemetry: " + e.getMessage());
+        }
+    }
+
+    // Stops recording. A session that has not ended is not written.
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    // Growable column of int values
+    private static class Column {
+        private int[] values = new int[256];
+        private int size = 0;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        // Removes the last 'count' values.
+        void removeLast(int count) {
+            size = Math.max(0, size - count);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package snake;
+
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+
+// Reusable character buffer for text drawn every frame.
+// Numbers are formatted straight into the buffer and drawn with Graphics.drawChars, so
+// building and drawing a label does not allocate.
+public class TextBuffer {
+    // Characters of the text; only the first 'length' are valid
+    private final char[] chars;
+    // Number of valid characters
+    private int length = 0;
+
+    // Constructs a buffer holding up to 'capacity' characters; longer text is cut off.
+    public TextBuffer(int capacity) {
+        this.chars = new char[capacity];
+    }
+
+    // Empties the buffer.
+    public TextBuffer clear() {
+        length = 0;
+        return this;
+    }
+
+    // Appends a string.
+    public TextBuffer append(String text) {
+        int count = Math.min(text.length(), chars.length - length);
+        text.getChars(0, count, chars, length);
+        length += count;
+        return this;
+    }
+
+    // Appends a single character.
+    public TextBuffer append(char c) {
+        if (length < chars.length) chars[length++] = c;
+        return this;
+    }
+
+    // Appends a whole number.
+    public TextBuffer append(long value) {
+        if (value < 0) {
+            append('-');
+            value = -value;
+        }
+        // Write the digits backwards after the current end, then reverse them in place
+        int start = length;
+        do {
+            append((char) ('0' + value % 10));
+            value /= 10;
+        } while (value > 0);
+        for (int i = start, j = length - 1; i < j; i++, j--) {
+            char c = chars[i];
+            chars[i] = chars[j];
+            chars[j] = c;
+        }
+        return this;
+    }
+
+    // Appends a number rounded to the given count of decimals.
+    public TextBuffer append(double value, int decimals) {
+        long scale = 1;
+        for (int i = 0; i < decimals; i++) scale *= 10;
+        long scaled = Math.round(Math.abs(value) * scale);
+        if (value < 0 && scaled != 0) append('-');
+        append(scaled / scale);
+        if (decimals > 0) {
+            append('.');
+            long fraction = scaled % scale;
+            for (long digit = scale / 10; digit > 0; digit /= 10) {
+                append((char) ('0' + fraction / digit % 10));
+            }
+        }
+        return this;
+    }
+
+    // Draws the text with its baseline at (x, y).
+    public void draw(Graphics g, int x, int y) {
+        if (length > 0) g.drawChars(chars, 0, length, x, y);
+    }
+
+    // Measures the width of the text.
+    public int width(FontMetrics metrics) {
+        return metrics.charsWidth(chars, 0, length);
+    }
+
+    // Gets the number of characters.
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+}
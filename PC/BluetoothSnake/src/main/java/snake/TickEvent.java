@@ -0,0 +1,47 @@
+package snake;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Flight Recorder event for one simulation tick.
+// The event's duration is the time spent simulating. 'interval' is the time since the previous
+// tick started, so a tick delayed by a GC pause or a busy event queue shows up as an interval
+// well above 'period'.
+@Name("snake.Tick")
+@Label("Tick")
+@Category({"Bluetooth Snake", "Game Loop"})
+@Description("One simulation tick")
+@StackTrace(false)
+public class TickEvent extends jdk.jfr.Event {
+    @Label("Game")
+    @Description("Kind of game: single or shared")
+    public String game;
+
+    @Label("Tick")
+    public long tick;
+
+    @Label("Snake Length")
+    @Description("Length of the snake, or of the longest one on a shared board")
+    public int length;
+
+    @Label("Score")
+    public int score;
+
+    @Label("Commands")
+    @Description("Controller commands applied at the start of the tick")
+    public int commands;
+
+    @Label("Interval")
+    @Description("Time since the previous tick started")
+    @Timespan(Timespan.NANOSECONDS)
+    public long interval;
+
+    @Label("Period")
+    @Description("Configured time between ticks")
+    @Timespan(Timespan.MILLISECONDS)
+    public long period;
+}
@@ -0,0 +1,265 @@
+package snake;
+
+import javax.swing.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+// Watches one game's ticks and frames against the tick period and lowers its render quality
+// when it keeps missing them, so drawing gives way before the simulation rate does.
+//
+// A tick misses its deadline when the tick plus the last frame took longer than the period, or
+// when it started more than half a period late. After DEGRADE_MISSES misses within the last
+// WINDOW ticks the quality steps down one level; after RECOVER_MILLIS without a miss it steps
+// back up. Stalls are caught by one shared monitor thread: a timer event of a game that has
+// been running for longer than STALL_MILLIS (for instance one blocked in a modal dialog) and an
+// event dispatch thread that has not run a posted event for STALL_MILLIS are reported with what
+// the stuck thread is doing. Every miss, stall and quality change is logged to stderr and as a
+// Flight Recorder event. Nothing is allocated unless there is something to report.
+public class TickWatchdog {
+    // Render quality levels, from best to cheapest
+    public enum Quality {
+        // Everything, including the timing overlay when enabled
+        FULL,
+        // No timing overlay or board outline
+        REDUCED,
+        // Also draws in logical rather than device pixels with nearest-neighbour scaling, which
+        // cuts the pixels filled on HiDPI screens by the square of the scale
+        MINIMAL
+    }
+
+    // Ticks looked back over, and the misses among them that lower the quality
+    private static final int WINDOW = 20;
+    private static final long WINDOW_MASK = (1L << WINDOW) - 1;
+    private static final int DEGRADE_MISSES = 3;
+    // Time without a miss before the quality is raised again
+    private static final int RECOVER_MILLIS = 30_000;
+    // How long a timer event or the event dispatch thread may be busy before it counts as stalled
+    private static final int STALL_MILLIS = 250;
+    // How often the monitor thread looks for stalls
+    private static final long MONITOR_NANOS = 50_000_000L;
+    // Stack frames shown for a stalled thread
+    private static final int STACK_FRAMES = 4;
+
+    // Watchdogs of the games on screen
+    private static final CopyOnWriteArrayList<TickWatchdog> watched = new CopyOnWriteArrayList<>();
+    // Shared monitor thread, started with the first watched game
+    private static Thread monitor;
+    // When the pending event dispatch thread heartbeat was posted, 0 if none is pending
+    private static volatile long heartbeatPosted;
+    // Event dispatch thread, learnt from the first heartbeat
+    private static volatile Thread dispatchThread;
+    // Set once the pending heartbeat has been reported as stalled
+    private static volatile boolean heartbeatReported;
+
+    // Name used in the log
+    private final String name;
+    // Tick deadline
+    private final long periodNanos;
+    // Ticks without a miss before the quality is raised again
+    private final long recoverTicks;
+
+    // Set while the game is on screen; headless tools tick at their own pace and are not judged
+    private volatile boolean watching;
+    // Current render quality, read by the drawing thread
+    private volatile Quality quality = Quality.FULL;
+    // Duration of the last frame drawn
+    private volatile long lastFrameNanos;
+    // Start of the timer event or hosted tick in progress, 0 if none, and the thread running it
+    private volatile long busySince;
+    private volatile Thread busyThread;
+    // Nesting depth of busy(), as a modal dialog runs timer events inside another one
+    private int busyDepth;
+    // Set once the event in progress has been reported as stalled
+    private volatile boolean busyReported;
+
+    // Miss history of the last WINDOW ticks, newest in the low bit; only touched by the tick thread
+    private long history;
+    private long cleanTicks;
+    // Counters
+    private volatile long overruns;
+    private volatile long stalls;
+
+    // Constructs a watchdog for a game ticking every 'periodMillis'.
+    public TickWatchdog(String name, int periodMillis) {
+        this.name = name;
+        this.periodNanos = periodMillis * 1_000_000L;
+        this.recoverTicks = RECOVER_MILLIS / periodMillis;
+    }
+
+    // Starts watching for stalls, once the game is on screen.
+    public void watch() {
+        watching = true;
+        synchronized (TickWatchdog.class) {
+            if (!watched.contains(this)) watched.add(this);
+            if (monitor == null) {
+                monitor = new Thread(TickWatchdog::monitor, "TickWatchdog");
+                monitor.setDaemon(true);
+                monitor.start();
+            }
+        }
+    }
+
+    // Stops watching for stalls.
+    public void unwatch() {
+        watching = false;
+        watched.remove(this);
+    }
+
+    // Marks the start of a timer event or hosted tick, which may be nested in another one.
+    public void busy(long nowNanos) {
+        if (busyDepth++ > 0) return;
+        busyThread = Thread.currentThread();
+        busyReported = false;
+        busySince = nowNanos;
+    }
+
+    // Marks the end of what busy() started.
+    public void idle() {
+        if (--busyDepth > 0) return;
+        long since = busySince;
+        busySince = 0;
+        if (busyReported) {
+            long busyNanos = System.nanoTime() - since;
+            log(OverrunEvent.STALL, -1, busyNanos, "timer event finished after " + millis(busyNanos));
+        }
+    }
+
+    // Records the time taken to draw a frame.
+    public void frameDrawn(long frameNanos) {
+        lastFrameNanos = frameNanos;
+    }
+
+    // Checks a finished tick against its deadline and adjusts the render quality. 'interval' is
+    // the time since the previous tick started, 0 if unknown, as after a pause.
+    public void tickDone(long tick, long startNanos, long endNanos, long intervalNanos) {
+        if (watching) judge(tick, startNanos, endNanos, intervalNanos);
+    }
+
+    // Judges a tick of a game on screen.
+    private void judge(long tick, long startNanos, long endNanos, long intervalNanos) {
+        long frame = lastFrameNanos;
+        long work = endNanos - startNanos + frame;
+        long lateness = intervalNanos - periodNanos;
+        boolean missed = false;
+        if (work > periodNanos) {
+            missed = true;
+            log(OverrunEvent.OVERRUN, tick, work - periodNanos, "tick " + millis(endNanos - startNanos)
+                    + " + frame " + millis(frame) + " > period " + millis(periodNanos));
+        } else if (intervalNanos != 0 && lateness > periodNanos / 2) {
+            missed = true;
+            log(OverrunEvent.LATE, tick, lateness, "started " + millis(intervalNanos)
+                    + " after the previous tick, period " + millis(periodNanos));
+        }
+
+        history = (history << 1 | (missed ? 1 : 0)) & WINDOW_MASK;
+        cleanTicks = missed ? 0 : cleanTicks + 1;
+        if (missed) overruns++;
+        int misses = Long.bitCount(history);
+        if (misses >= DEGRADE_MISSES && quality != Quality.MINIMAL) {
+            setQuality(tick, Quality.values()[quality.ordinal() + 1],
+                    misses + " of the last " + WINDOW + " ticks missed their deadline");
+        } else if (cleanTicks >= recoverTicks && quality != Quality.FULL) {
+            setQuality(tick, Quality.values()[quality.ordinal() - 1],
+                    "no missed deadline for " + millis(cleanTicks * periodNanos));
+        }
+    }
+
+    // Changes the render quality and starts judging it afresh.
+    private void setQuality(long tick, Quality next, String reason) {
+        log(OverrunEvent.QUALITY, tick, 0, "render quality " + quality + " -> " + next + ": " + reason);
+        quality = next;
+        history = 0;
+        cleanTicks = 0;
+    }
+
+    // Gets the quality frames should be drawn at.
+    public Quality getQuality() {
+        return quality;
+    }
+
+    // Gets the number of ticks that missed their deadline.
+    public long getOverruns() {
+        return overruns;
+    }
+
+    // Gets the number of stalls reported.
+    public long getStalls() {
+        return stalls;
+    }
+
+    // Logs a finding to stderr and Flight Recorder.
+    private void log(String kind, long tick, long nanos, String detail) {
+        System.err.println("[watchdog] " + name + (tick >= 0 ? " tick " + tick : "") + " " + kind + ": " + detail);
+        OverrunEvent.emit(kind, tick, nanos, name + ": " + detail);
+    }
+
+    // Monitor thread: keeps a heartbeat going through the event dispatch thread and looks for
+    // timer events and heartbeats that have been stuck for too long.
+    private static void monitor() {
+        Runnable heartbeat = () -> {
+            dispatchThread = Thread.currentThread();
+            long posted = heartbeatPosted;
+            heartbeatPosted = 0;
+            if (posted != 0 && heartbeatReported) {
+                report(null, "event dispatch thread ran events again after " + millis(System.nanoTime() - posted), null);
+            }
+        };
+        long stallNanos = STALL_MILLIS * 1_000_000L;
+        while (true) {
+            LockSupport.parkNanos(MONITOR_NANOS);
+            long now = System.nanoTime();
+
+            // No heartbeat while nothing is watched, so AWT can still shut down when idle
+            long posted = heartbeatPosted;
+            if (posted == 0) {
+                if (!watched.isEmpty()) {
+                    heartbeatReported = false;
+                    heartbeatPosted = now;
+                    SwingUtilities.invokeLater(heartbeat);
+                }
+            } else if (!heartbeatReported && now - posted > stallNanos) {
+                heartbeatReported = true;
+                report(null, "event dispatch thread has not run an event for " + millis(now - posted), dispatchThread);
+            }
+
+            for (TickWatchdog watchdog : watched) {
+                long since = watchdog.busySince;
+                if (since != 0 && !watchdog.busyReported && now - since > stallNanos) {
+                    watchdog.busyReported = true;
+                    watchdog.stalls++;
+                    report(watchdog, "timer event has been running for " + millis(now - since), watchdog.busyThread);
+                }
+            }
+        }
+    }
+
+    // Reports a stall, for a game or the whole event dispatch thread, with where 'stuck' is.
+    private static void report(TickWatchdog watchdog, String detail, Thread stuck) {
+        StringBuilder message = new StringBuilder(detail);
+        if (stuck != null) {
+            message.append(" on ").append(stuck.getName()).append(" at");
+            StackTraceElement[] stack = stuck.getStackTrace();
+            for (int i = 0; i < Math.min(STACK_FRAMES, stack.length); i++) {
+                message.append(i == 0 ? " " : " <- ").append(stack[i]);
+            }
+            // Name the game code that led there and what it called, if they are further down
+            for (int i = STACK_FRAMES; i < stack.length; i++) {
+                if (stack[i].getClassName().startsWith("snake.")) {
+                    message.append(" ... ").append(stack[i - 1]).append(" <- ").append(stack[i]);
+                    break;
+                }
+            }
+        }
+        if (watchdog != null) {
+            watchdog.log(OverrunEvent.STALL, -1, 0, message.toString());
+        } else {
+            System.err.println("[watchdog] " + OverrunEvent.STALL + ": " + message);
+            OverrunEvent.emit(OverrunEvent.STALL, -1, 0, message.toString());
+        }
+    }
+
+    // Formats nanoseconds as milliseconds.
+    private static String millis(long nanos) {
+        return String.format("%.1f ms", nanos / 1e6);
+    }
+}
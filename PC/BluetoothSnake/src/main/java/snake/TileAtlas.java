@@ -0,0 +1,95 @@
+package snake;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.EnumMap;
+import java.util.Map;
+
+// Cache of pre-rendered board tiles and fonts for the current cell size.
+// Tiles are created compatible with the target GraphicsConfiguration so drawing them is a
+// plain blit, and everything is rebuilt only when the cell size or the screen changes.
+public class TileAtlas {
+    // The kinds of cells drawn on the board
+    public enum Tile {
+        SNAKE(Color.GREEN), FOOD(Color.RED), OBSTACLE(Color.GRAY), HAZARD(Color.ORANGE),
+        SNAKE_2(Color.CYAN), SNAKE_3(Color.YELLOW), SNAKE_4(Color.MAGENTA);
+
+        // Snake tiles in player order
+        private static final Tile[] SNAKES = {SNAKE, SNAKE_2, SNAKE_3, SNAKE_4};
+
+        // Fill color of the tile
+        private final Color color;
+
+        Tile(Color color) {
+            this.color = color;
+        }
+
+        // Gets the tile of the given player's snake, cycling through the snake colors.
+        public static Tile snake(int player) {
+            return SNAKES[player % SNAKES.length];
+        }
+    }
+
+    // Base font sizes at the default 20 px cell
+    private static final int SCORE_FONT_SIZE = 16;
+    private static final int GAME_OVER_FONT_SIZE = 30;
+    private static final int BASE_CELL_SIZE = 20;
+
+    // Rendered tiles for the current cell size
+    private final Map<Tile, Image> tiles = new EnumMap<>(Tile.class);
+    // Configuration the tiles were created for
+    private GraphicsConfiguration configuration;
+    // Cell size in device pixels the tiles were created for
+    private int cellSize = -1;
+    // Fonts scaled to the current cell size
+    private Font scoreFont;
+    private Font gameOverFont;
+
+    // Makes sure the tiles match the given configuration and cell size, rebuilding them if not.
+    // Returns true if a rebuild happened.
+    public boolean ensure(GraphicsConfiguration gc, int cellSize) {
+        if (cellSize == this.cellSize && gc == configuration) return false;
+        this.configuration = gc;
+        this.cellSize = cellSize;
+
+        for (Tile tile : Tile.values()) {
+            tiles.put(tile, render(gc, tile, cellSize));
+        }
+        float scale = (float) cellSize / BASE_CELL_SIZE;
+        scoreFont = new Font("Arial", Font.BOLD, Math.max(1, Math.round(SCORE_FONT_SIZE * scale)));
+        gameOverFont = new Font("Arial", Font.BOLD, Math.max(1, Math.round(GAME_OVER_FONT_SIZE * scale)));
+        return true;
+    }
+
+    // Renders a single tile image.
+    private Image render(GraphicsConfiguration gc, Tile tile, int size) {
+        BufferedImage image = gc != null
+                ? gc.createCompatibleImage(size, size, Transparency.OPAQUE)
+                : new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(tile.color);
+        g.fillRect(0, 0, size, size);
+        g.dispose();
+        return image;
+    }
+
+    // Gets the pre-rendered image for a tile.
+    public Image get(Tile tile) {
+        return tiles.get(tile);
+    }
+
+    // Gets the current cell size in device pixels.
+    public int getCellSize() {
+        return cellSize;
+    }
+
+    // Gets the score font for the current cell size.
+    public Font getScoreFont() {
+        return scoreFont;
+    }
+
+    // Gets the game over font for the current cell size.
+    public Font getGameOverFont() {
+        return gameOverFont;
+    }
+}
@@ -0,0 +1,223 @@
+package snake;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Hierarchical timing wheel dispatching periodic ticks onto an Executor.
+//
+// Four levels of 64 slots at 1 ms resolution cover deadlines up to 64^4 ms (about 4.6 hours).
+// Inserting, cancelling and expiring an entry are O(1); entries in higher levels cascade down
+// as the wheel turns. A single timer thread owns the wheel; other threads hand new entries
+// over through a queue. Periodic entries are rescheduled at a fixed rate from their previous
+// deadline, so they do not drift, and a tick whose previous run is still busy is skipped and
+// counted as an overrun instead of piling up on the workers.
+public class TimingWheel implements Runnable {
+    // Wheel geometry
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final long MAX_DELTA = (1L << (SLOT_BITS * LEVELS)) - 1;
+    // Resolution of one wheel tick
+    private static final long TICK_NANOS = 1_000_000L;
+
+    // Slot list sentinels, [level][slot]
+    private final ScheduledTick[][] slots = new ScheduledTick[LEVELS][SLOTS];
+    // Entries added by other threads, inserted by the timer thread
+    private final ConcurrentLinkedQueue<ScheduledTick> pending = new ConcurrentLinkedQueue<>();
+    // Where expired ticks run
+    private final Executor workers;
+    // Start lateness of every dispatched tick
+    private final LatencyHistogram lateness = new LatencyHistogram();
+    // Ticks skipped because the previous one was still running
+    private final AtomicLong overruns = new AtomicLong();
+
+    // Wall clock of wheel tick 0
+    private final long startNanos = System.nanoTime();
+    // Last wheel tick processed, only touched by the timer thread
+    private long currentTick = 0;
+    // Timer thread, null when stopped
+    private volatile Thread timerThread;
+
+    // Constructs a wheel dispatching onto the given executor.
+    public TimingWheel(Executor workers) {
+        this.workers = workers;
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                ScheduledTick sentinel = new ScheduledTick(this, null, 0);
+                sentinel.next = sentinel;
+                sentinel.prev = sentinel;
+                slots[level][slot] = sentinel;
+            }
+        }
+    }
+
+    // Starts the timer thread.
+    public synchronized void start() {
+        if (timerThread != null) return;
+        timerThread = new Thread(this, "TimingWheel");
+        timerThread.setDaemon(true);
+        timerThread.start();
+    }
+
+    // Stops the timer thread. Ticks already handed to the workers still run.
+    public synchronized void stop() {
+        Thread thread = timerThread;
+        timerThread = null;
+        if (thread != null) LockSupport.unpark(thread);
+    }
+
+    // Schedules 'task' every 'periodMillis' milliseconds, the first run one period from now.
+    public ScheduledTick schedule(Runnable task, long periodMillis) {
+        return schedule(task, periodMillis, periodMillis);
+    }
+
+    // Schedules 'task' every 'periodMillis' milliseconds, the first run 'initialDelayMillis' from now.
+    public ScheduledTick schedule(Runnable task, long periodMillis, long initialDelayMillis) {
+        ScheduledTick entry = new ScheduledTick(this, task, Math.max(1, periodMillis));
+        long now = (System.nanoTime() - startNanos) / TICK_NANOS;
+        setDeadline(entry, now + Math.max(1, initialDelayMillis));
+        pending.add(entry);
+        return entry;
+    }
+
+    // Timer thread loop.
+    @Override
+    public void run() {
+        Thread self = Thread.currentThread();
+        while (timerThread == self) {
+            // Catch up on every wheel tick that has passed
+            turnTo((System.nanoTime() - startNanos) / TICK_NANOS);
+
+            long wake = startNanos + (currentTick + 1) * TICK_NANOS;
+            long sleep = wake - System.nanoTime();
+            if (sleep > 0) LockSupport.parkNanos(this, sleep);
+        }
+    }
+
+    // Processes every wheel tick up to 'target', then inserts the entries handed over since.
+    void turnTo(long target) {
+        while (currentTick < target) {
+            advance();
+        }
+        ScheduledTick entry;
+        while ((entry = pending.poll()) != null) {
+            insert(entry);
+        }
+    }
+
+    // Moves the wheel forward by one tick, cascading higher levels and expiring due entries.
+    private void advance() {
+        currentTick++;
+        // Cascade from the highest level whose slot boundary was crossed
+        for (int level = LEVELS - 1; level > 0; level--) {
+            if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                int slot = (int) (currentTick >>> (SLOT_BITS * level)) & SLOT_MASK;
+                cascade(slots[level][slot]);
+            }
+        }
+
+        // Detach the slot first: expired entries are rescheduled and may land in the same slot
+        ScheduledTick entry = detach(slots[0][(int) currentTick & SLOT_MASK]);
+        while (entry != null) {
+            ScheduledTick following = entry.next;
+            entry.next = null;
+            entry.prev = null;
+            if (entry.deadlineTick > currentTick) {
+                // Wrapped around from a later lap; put it back where it belongs
+                insert(entry);
+            } else {
+                expire(entry);
+            }
+            entry = following;
+        }
+    }
+
+    // Re-inserts every entry of a higher level slot into the lower levels. An entry due on this
+    // very tick expires at once, keeping its deadline and so its period.
+    private void cascade(ScheduledTick sentinel) {
+        ScheduledTick entry = detach(sentinel);
+        while (entry != null) {
+            ScheduledTick following = entry.next;
+            entry.next = null;
+            entry.prev = null;
+            if (entry.deadlineTick > currentTick) {
+                insert(entry);
+            } else {
+                expire(entry);
+            }
+            entry = following;
+        }
+    }
+
+    // Empties a slot and returns its entries as a null-terminated chain.
+    private static ScheduledTick detach(ScheduledTick sentinel) {
+        if (sentinel.next == sentinel) return null;
+        ScheduledTick first = sentinel.next;
+        sentinel.prev.next = null;
+        sentinel.next = sentinel;
+        sentinel.prev = sentinel;
+        return first;
+    }
+
+    // Dispatches an expired entry and schedules its next run.
+    private void expire(ScheduledTick entry) {
+        if (entry.cancelled) return;
+        if (entry.running) {
+            overruns.incrementAndGet();
+        } else {
+            entry.running = true;
+            entry.dispatchedNanos = entry.deadlineNanos;
+            workers.execute(entry);
+        }
+        setDeadline(entry, entry.deadlineTick + entry.periodTicks);
+        insert(entry);
+    }
+
+    // Puts an entry into the slot matching its deadline.
+    private void insert(ScheduledTick entry) {
+        if (entry.cancelled) return;
+        long delta = entry.deadlineTick - currentTick;
+        int level = 0;
+        int slot;
+        if (delta <= 0) {
+            // Already due: run it on the next wheel tick, keeping its deadline so the next run
+            // still comes one period after it
+            slot = (int) (currentTick + 1) & SLOT_MASK;
+        } else {
+            delta = Math.min(delta, MAX_DELTA);
+            while (level < LEVELS - 1 && delta >= (1L << (SLOT_BITS * (level + 1)))) {
+                level++;
+            }
+            slot = (int) (entry.deadlineTick >>> (SLOT_BITS * level)) & SLOT_MASK;
+        }
+        ScheduledTick sentinel = slots[level][slot];
+        entry.prev = sentinel.prev;
+        entry.next = sentinel;
+        sentinel.prev.next = entry;
+        sentinel.prev = entry;
+    }
+
+    // Sets an entry's deadline in wheel ticks and wall clock time.
+    private void setDeadline(ScheduledTick entry, long tick) {
+        entry.deadlineTick = tick;
+        entry.deadlineNanos = startNanos + tick * TICK_NANOS;
+    }
+
+    // Records how late a tick started. Called from the workers.
+    void recordLateness(long nanos) {
+        lateness.record(nanos / 1_000);
+    }
+
+    // Gets the start lateness of all dispatched ticks.
+    public LatencyHistogram getLateness() {
+        return lateness;
+    }
+
+    // Gets the number of ticks skipped because the previous run was still busy.
+    public long getOverruns() {
+        return overruns.get();
+    }
+}
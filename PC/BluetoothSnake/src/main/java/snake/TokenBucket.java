@@ -0,0 +1,38 @@
+package snake;
+
+// Token bucket rate limiter on the System.nanoTime() clock.
+// Tokens accrue at 'rate' per second up to 'burst' saved; each accepted event spends one. The
+// bucket is kept as nanoseconds of credit, so refilling is one addition and nothing allocates.
+// Not thread-safe: one connection's reading thread owns it.
+public class TokenBucket {
+    // Credit one token costs
+    private final long intervalNanos;
+    // Most credit that can be saved up
+    private final long capacityNanos;
+    // Credit saved up, and when it was last topped up
+    private long creditNanos;
+    private long lastNanos;
+
+    // Constructs a full bucket allowing 'rate' events per second in bursts of up to 'burst'.
+    public TokenBucket(int rate, int burst) {
+        if (rate <= 0 || burst <= 0) throw new IllegalArgumentException("Rate and burst must be positive");
+        this.intervalNanos = 1_000_000_000L / rate;
+        this.capacityNanos = intervalNanos * burst;
+        reset(System.nanoTime());
+    }
+
+    // Fills the bucket, as at the start of a new connection.
+    public void reset(long nowNanos) {
+        creditNanos = capacityNanos;
+        lastNanos = nowNanos;
+    }
+
+    // Takes a token for an event at 'nowNanos'. Returns false if none is left.
+    public boolean tryAcquire(long nowNanos) {
+        creditNanos = Math.min(capacityNanos, creditNanos + Math.max(0, nowNanos - lastNanos));
+        lastNanos = nowNanos;
+        if (creditNanos < intervalNanos) return false;
+        creditNanos -= intervalNanos;
+        return true;
+    }
+}
@@ -0,0 +1,64 @@
+package snake;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TopScores {
+    // Maximum number of entries kept
+    private final int capacity;
+    // Scores sorted from best to worst, only the first 'size' slots are valid
+    private final int[] scores;
+    // Timestamps matching the scores array
+    private final long[] timestamps;
+    // Number of valid entries
+    private int size = 0;
+
+    // Constructs an empty bounded top-K list.
+    public TopScores(int capacity) {
+        this.capacity = capacity;
+        this.scores = new int[capacity];
+        this.timestamps = new long[capacity];
+    }
+
+    // Offers a score to the list. Returns true if it made it into the top-K.
+    // Ties keep the older entry ranked first.
+    public synchronized boolean offer(int score, long timestamp) {
+        if (size == capacity && score <= scores[size - 1]) return false;
+
+        // Find insertion point, shifting worse entries down by one
+        int i = Math.min(size, capacity - 1);
+        while (i > 0 && scores[i - 1] < score) {
+            scores[i] = scores[i - 1];
+            timestamps[i] = timestamps[i - 1];
+            i--;
+        }
+        scores[i] = score;
+        timestamps[i] = timestamp;
+        if (size < capacity) size++;
+        return true;
+    }
+
+    // Gets the lowest score needed to enter the list, or Integer.MIN_VALUE if it is not full yet.
+    public synchronized int threshold() {
+        return size == capacity ? scores[size - 1] : Integer.MIN_VALUE;
+    }
+
+    // Returns a copy of the current entries, best first.
+    public synchronized List<ScoreEntry> entries() {
+        List<ScoreEntry> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(new ScoreEntry(scores[i], timestamps[i]));
+        }
+        return result;
+    }
+
+    // Removes all entries.
+    public synchronized void clear() {
+        size = 0;
+    }
+
+    // Gets the maximum number of entries.
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,101 @@
+package snake;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+// Headless measurement of how smooth the first seconds of play are, with and without JitWarmUp.
+// Each run starts two fresh JVMs, one going straight into a game and one running the warm-up
+// first as the start menu does. Both then play a game at its real tick rate for a few seconds,
+// steering along a cycle through the board and drawing offscreen at 60 Hz as the panel would, and
+// report percentiles of the time taken by ticks and frames.
+// Usage: java snake.WarmUpBenchmark [runs] [seconds] [difficulty] [warm-up ticks]
+//        java snake.WarmUpBenchmark cold|warm [seconds] [difficulty] [warm-up ticks]
+// The second form measures once in the current JVM.
+public class WarmUpBenchmark {
+    // Interval between frames
+    private static final long FRAME_NANOS = 16_000_000L;
+    // Logical size of the offscreen surface, that of the game panel
+    private static final int SIZE = 400;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        boolean single = args.length > 0 && (args[0].equals("cold") || args[0].equals("warm"));
+        int runs = args.length > 0 && !single ? Integer.parseInt(args[0]) : 3;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        Difficulty difficulty = args.length > 2 ? Difficulty.valueOf(args[2].toUpperCase()) : Difficulty.MEDIUM;
+        int warmUpTicks = args.length > 3 ? Integer.parseInt(args[3]) : JitWarmUp.TICKS;
+
+        if (single) {
+            measure(args[0].equals("warm"), seconds, difficulty, warmUpTicks);
+            return;
+        }
+
+        System.out.printf("%s, first %d s of play, %d warm-up ticks, %d runs%n", difficulty, seconds, warmUpTicks, runs);
+        System.out.printf("%-5s %10s %6s %9s %9s %9s %9s %11s %11s %11s%n", "mode", "warm-up ms", "ticks",
+                "tick p50", "tick p90", "tick p99", "tick max", "frame p50", "frame p99", "frame max");
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        for (int run = 0; run < runs; run++) {
+            for (String mode : new String[]{"cold", "warm"}) {
+                List<String> command = new ArrayList<>(List.of(java, "-cp", System.getProperty("java.class.path"),
+                        WarmUpBenchmark.class.getName(), mode, Integer.toString(seconds), difficulty.name(),
+                        Integer.toString(warmUpTicks)));
+                int status = new ProcessBuilder(command).inheritIO().start().waitFor();
+                if (status != 0) throw new IllegalStateException(mode + " run exited with status " + status);
+            }
+        }
+    }
+
+    // Plays the first seconds of a game in this JVM, after warming up if asked to, and prints
+    // one row of results. Times are in microseconds.
+    private static void measure(boolean warm, int seconds, Difficulty difficulty, int warmUpTicks)
+            throws InterruptedException {
+        System.setProperty("java.awt.headless", "true");
+        long warmUpMillis = 0;
+        if (warm) {
+            JitWarmUp warmUp = new JitWarmUp(warmUpTicks);
+            warmUp.start();
+            warmUp.await();
+            warmUpMillis = warmUp.getElapsedNanos() / 1_000_000;
+        }
+
+        BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        LatencyHistogram ticks = new LatencyHistogram();
+        LatencyHistogram frames = new LatencyHistogram();
+        long tickNanos = difficulty.getDelay() * 1_000_000L;
+        SnakeGame game = new SnakeGame(difficulty);
+
+        long start = System.nanoTime();
+        long end = start + seconds * 1_000_000_000L;
+        long nextTick = start;
+        long nextFrame = start;
+        while (nextTick < end) {
+            long next = Math.min(nextTick, nextFrame);
+            LockSupport.parkNanos(next - System.nanoTime());
+            long now = System.nanoTime();
+            if (now - nextTick >= 0) {
+                nextTick += tickNanos;
+                game.enqueueCommand(JitWarmUp.nextDirection(game.getHeadCell()), now);
+                boolean over = game.tickHosted();
+                ticks.record((System.nanoTime() - now) / 1000);
+                if (over) game = new SnakeGame(difficulty);
+            }
+            if (now - nextFrame >= 0) {
+                nextFrame += FRAME_NANOS;
+                long frameStart = System.nanoTime();
+                game.render(g, SIZE, SIZE, null);
+                frames.record((System.nanoTime() - frameStart) / 1000);
+            }
+        }
+        g.dispose();
+
+        System.out.printf("%-5s %10s %6d %9d %9d %9d %9d %11d %11d %11d%n", warm ? "warm" : "cold",
+                warm ? Long.toString(warmUpMillis) : "-", ticks.getCount(), ticks.percentile(50), ticks.percentile(90),
+                ticks.percentile(99), ticks.percentile(100), frames.percentile(50), frames.percentile(99),
+                frames.percentile(100));
+    }
+}
@@ -0,0 +1,170 @@
+package snake;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+// Allocation budget of the steady-state game loop, so GC-driven stutter cannot creep back.
+// Drives a SnakeGame without its timer along a cycle that visits every cell, so the snake
+// never dies, and measures the bytes the test thread allocates per tick, per rendered frame
+// and per controller command once the JIT has warmed up.
+public class AllocationBudgetTest {
+    // Allowed bytes over a whole measured run. Steady state allocation fails these by orders of
+    // magnitude (8 bytes per op is already 160 KB); the slack only covers one-off allocations by
+    // the JVM, such as a deoptimization, and by Java2D caching the glyph of a new digit.
+    private static final long TICK_BUDGET = 1024;
+    private static final long COMMAND_BUDGET = 1024;
+    private static final long FRAME_BUDGET = 4096;
+
+    // Ticks, frames and command batches measured
+    private static final int OPERATIONS = 20_000;
+    // Shortest warm-up, so the JIT has compiled and optimised the measured paths
+    private static final long WARM_UP_NANOS = 3_000_000_000L;
+    // Restart before the snake fills the board and food can no longer be placed
+    private static final int MAX_LENGTH = SnakeGame.COLUMNS * SnakeGame.ROWS / 2;
+
+    // Controller lines fed through the input path, one per direction
+    private static final byte[] COMMANDS = "up@1000\nright@1010\nDOWN@1020\nleft@1030\n".getBytes(StandardCharsets.US_ASCII);
+
+    // Results of the measured run, shared by the tests
+    private static long tickBytes;
+    private static long frameBytes;
+    private static long commandBytes;
+    private static int frames;
+    private static int commands;
+    private static long parsed;
+
+    @BeforeClass
+    public static void measure() throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue("Thread allocation accounting is not supported by this JVM", threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        SnakeGame game = newGame();
+        BufferedImage image = new BufferedImage(400, 400, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+
+        InputPath input = new InputPath();
+        ByteArrayInputStream stream = new ByteArrayInputStream(COMMANDS);
+        CommandReader reader = new CommandReader(stream, 64);
+
+        // Warm up so the measured code runs compiled
+        long warmUpEnd = System.nanoTime() + WARM_UP_NANOS;
+        for (int i = 0; i < OPERATIONS || System.nanoTime() - warmUpEnd < 0; i++) {
+            runTick(game);
+            game.render(g, 400, 400, null);
+            stream.reset();
+            reader.readLines(input);
+            if (game.getLength() > MAX_LENGTH) game = restart(game);
+        }
+        game = restart(game);
+        game.render(g, 400, 400, null); // Builds the new game's tiles
+        input.parsed = 0;
+
+        for (int i = 0; i < OPERATIONS; i++) {
+            long before = threads.getCurrentThreadAllocatedBytes();
+            runTick(game);
+            long afterTick = threads.getCurrentThreadAllocatedBytes();
+            game.render(g, 400, 400, null);
+            long afterFrame = threads.getCurrentThreadAllocatedBytes();
+            tickBytes += afterTick - before;
+            frameBytes += afterFrame - afterTick;
+            frames++;
+            if (game.getLength() > MAX_LENGTH || game.hasCollided()) break;
+        }
+
+        for (int i = 0; i < OPERATIONS; i++) {
+            stream.reset();
+            long before = threads.getCurrentThreadAllocatedBytes();
+            reader.readLines(input);
+            commandBytes += threads.getCurrentThreadAllocatedBytes() - before;
+            commands += 4;
+        }
+        parsed = input.parsed;
+        g.dispose();
+        game.stop();
+    }
+
+    @Test
+    public void tickStaysWithinBudget() {
+        assertWithinBudget("tick", tickBytes, frames, TICK_BUDGET);
+    }
+
+    @Test
+    public void frameStaysWithinBudget() {
+        assertWithinBudget("frame", frameBytes, frames, FRAME_BUDGET);
+    }
+
+    @Test
+    public void commandStaysWithinBudget() {
+        assertWithinBudget("command", commandBytes, commands, COMMAND_BUDGET);
+    }
+
+    @Test
+    public void inputPathParsesEveryCommand() {
+        assertEquals(commands, parsed);
+    }
+
+    @Test
+    public void runCoversEnoughTicks() {
+        // A snake that died early would leave the budgets measured over too few ticks
+        assertTrue("Only " + frames + " ticks were measured", frames > MAX_LENGTH);
+    }
+
+    // Fails if 'bytes' allocated over 'operations' exceed 'budget'.
+    private static void assertWithinBudget(String name, long bytes, int operations, long budget) {
+        assertTrue(String.format("%s allocated %d bytes over %d ops, %.3f bytes/op (budget %d)",
+                name, bytes, operations, bytes / (double) Math.max(1, operations), budget), bytes <= budget);
+    }
+
+    // Steers along the cycle and runs one tick through the game's command queue.
+    private static void runTick(SnakeGame game) {
+        game.enqueueCommand(JitWarmUp.nextDirection(game.getHeadCell()), System.nanoTime());
+        game.tickHeadless();
+    }
+
+    // Creates a game whose ticks are driven from here.
+    private static SnakeGame newGame() {
+        SnakeGame game = new SnakeGame(null, Difficulty.EASY);
+        game.stop();
+        return game;
+    }
+
+    // Replaces a game whose snake has grown too long with a fresh one.
+    private static SnakeGame restart(SnakeGame game) {
+        game.stop();
+        return newGame();
+    }
+
+    // The controller input path of BluetoothServer: parse a line and queue the command.
+    private static class InputPath implements CommandReader.LineHandler, CommandQueue.Handler {
+        private final InputClock clock = new InputClock();
+        private final CommandQueue queue = new CommandQueue();
+        private long parsed = 0;
+
+        @Override
+        public void onLine(byte[] data, int offset, int length) {
+            long arrival = System.nanoTime();
+            Direction direction = CommandParser.parseDirection(data, offset, length);
+            long sent = CommandParser.parseTimestamp(data, offset, length);
+            if (direction == null || sent == CommandParser.NO_TIMESTAMP) return;
+            queue.offer(direction, clock.issueTime(sent, arrival));
+            if (queue.size() == 4) queue.drain(this);
+        }
+
+        @Override
+        public void onCommand(Direction direction, long issuedNanos) {
+            parsed++;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package snake;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+// Collision rules of the ArenaBoard engine on small boards split between two workers, so claims
+// cross workers, and a bot arena that must end in the same state whatever the worker count.
+public class ArenaBoardTest {
+    @Test
+    public void headOnKillsBoth() {
+        // Heads moving into each other both die
+        try (ArenaBoard board = new ArenaBoard(10, 3, 0, 1, 2, false, false)) {
+            board.addSnake(4, 1, Direction.RIGHT);
+            board.addSnake(5, 1, Direction.LEFT);
+            board.tick();
+            assertEquals(0, board.getAliveCount());
+        }
+    }
+
+    @Test
+    public void headToBodyKillsOnlyTheRunner() {
+        try (ArenaBoard board = new ArenaBoard(10, 10, 0, 1, 2, false, false)) {
+            int wall = board.addSnake(3, 4, Direction.RIGHT);
+            int runner = board.addSnake(3, 6, Direction.UP);
+            grow(board, wall);
+            board.tick();
+            assertFalse("runner should die on the body", board.getSnake(runner).isAlive());
+            assertTrue("body owner should survive", board.getSnake(wall).isAlive());
+        }
+    }
+
+    @Test
+    public void tiedClaimOnFreeCellKillsBoth() {
+        try (ArenaBoard board = new ArenaBoard(10, 3, 0, 1, 2, false, false)) {
+            board.addSnake(3, 1, Direction.RIGHT);
+            board.addSnake(5, 1, Direction.LEFT);
+            board.tick();
+            assertEquals(0, board.getAliveCount());
+        }
+    }
+
+    @Test
+    public void longerSnakeWinsContestedCell() {
+        try (ArenaBoard board = new ArenaBoard(12, 3, 0, 1, 2, false, false)) {
+            int shortId = board.addSnake(3, 1, Direction.RIGHT);
+            int longId = board.addSnake(7, 1, Direction.LEFT);
+            grow(board, longId);
+            board.tick();
+            assertTrue("longer snake should take the cell", board.getSnake(longId).isAlive());
+            assertFalse("shorter snake should die", board.getSnake(shortId).isAlive());
+        }
+    }
+
+    @Test
+    public void stateIsTheSameForAnyWorkerCount() {
+        long expected = 0;
+        for (int workers : new int[] {1, 2, 4}) {
+            try (ArenaBoard board = ArenaBenchmark.createArena(200, 400, workers)) {
+                for (int t = 0; t < 500; t++) {
+                    board.tick();
+                }
+                ArenaBenchmark.checkOccupancy(board);
+                long state = ArenaBenchmark.fingerprint(board);
+                if (workers == 1) expected = state;
+                assertEquals(workers + " workers ended in a different state", expected, state);
+            }
+        }
+    }
+
+    // Makes a snake one cell longer by placing food right in front of it and ticking once.
+    private static void grow(ArenaBoard board, int id) {
+        BoardSnake snake = board.getSnake(id);
+        int front = board.next(snake.headCell(), snake.getDirection());
+        board.addFood(front % board.getColumns(), front / board.getColumns());
+        board.tick();
+        assertEquals("snake should have grown", 2, snake.getLength());
+    }
+}
@@ -0,0 +1,53 @@
+package snake;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// Reloading leaderboards from the score logs and their indexes.
+public class HighScoreStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void scoresSurviveReopening() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (HighScoreStore store = new HighScoreStore(directory)) {
+            for (int score = 1; score <= 15; score++) {
+                store.record(Difficulty.MEDIUM, score * 10);
+            }
+        }
+        try (HighScoreStore store = new HighScoreStore(directory)) {
+            assertEquals(HighScoreStore.TOP_K, store.getTopScores(Difficulty.MEDIUM).size());
+            assertEquals(150, store.getTopScores(Difficulty.MEDIUM).get(0).score());
+            assertEquals(60, store.getTopScores(Difficulty.MEDIUM).get(HighScoreStore.TOP_K - 1).score());
+        }
+    }
+
+    @Test
+    public void badFileOnlyLosesItsOwnLeaderboard() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (HighScoreStore store = new HighScoreStore(directory)) {
+            store.record(Difficulty.EASY, 5);
+            store.record(Difficulty.MEDIUM, 7);
+            store.record(Difficulty.HARD, 9);
+        }
+        // EASY loads first; a log that cannot be opened must not stop the others loading
+        Path easyLog = directory.resolve("scores-easy.log");
+        Files.delete(easyLog);
+        Files.createDirectory(easyLog);
+
+        try (HighScoreStore store = new HighScoreStore(directory)) {
+            assertTrue(store.getTopScores(Difficulty.EASY).isEmpty());
+            assertEquals(7, store.getTopScores(Difficulty.MEDIUM).get(0).score());
+            assertEquals(9, store.getTopScores(Difficulty.HARD).get(0).score());
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package snake;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+import static org.junit.Assert.assertEquals;
+
+// PackedBody against a plain list of cells, head first, on boards of every shape it supports.
+public class PackedBodyTest {
+    @Test
+    public void randomWalkAcrossTheEdges() {
+        // A small board, so the walk wraps around every edge many times
+        check(7, 5, 1, 20_000, 60);
+    }
+
+    @Test
+    public void pushAndPopCyclesGrowAWrappedRing() {
+        GameRandom random = new GameRandom(2);
+        PackedBody body = new PackedBody(20, 20, 0);
+        ArrayDeque<Integer> cells = new ArrayDeque<>();
+        cells.addFirst(0);
+        // Each cycle leaves the ring's oldest move further along, so it grows while wrapped
+        for (int cycle = 0; cycle < 200; cycle++) {
+            for (int i = 0; i < 45; i++) push(body, cells, random, 20, 20);
+            for (int i = 0; i < 40; i++) pop(body, cells);
+            assertSame(body, cells);
+        }
+        assertEquals(1 + 200 * 5, body.getLength());
+    }
+
+    @Test
+    public void narrowBoards() {
+        // Under three cells across, one move and its reverse can lead to the same cell
+        int[][] shapes = {{1, 1}, {1, 2}, {2, 1}, {2, 2}, {1, 7}, {7, 1}, {2, 5}, {5, 2}};
+        for (int[] shape : shapes) {
+            check(shape[0], shape[1], shape[0] * 31 + shape[1], 2_000, 10);
+        }
+    }
+
+    // Walks a body of random length over a 'columns' x 'rows' board for 'steps' steps, comparing
+    // it with the plain list every 'interval' steps and at the end.
+    private static void check(int columns, int rows, long seed, int steps, int interval) {
+        GameRandom random = new GameRandom(seed);
+        int start = random.nextInt(columns * rows);
+        PackedBody body = new PackedBody(columns, rows, start);
+        ArrayDeque<Integer> cells = new ArrayDeque<>();
+        cells.addFirst(start);
+        for (int i = 0; i < steps; i++) {
+            // Grow a little more often than shrink, popping the last segment now and then too
+            if (cells.size() > 1 && random.nextInt(5) < 2) {
+                pop(body, cells);
+            } else {
+                push(body, cells, random, columns, rows);
+            }
+            if (i % interval == 0) assertSame(body, cells);
+        }
+        assertSame(body, cells);
+    }
+
+    // Moves the head one random step, on both bodies.
+    private static void push(PackedBody body, ArrayDeque<Integer> cells, GameRandom random, int columns, int rows) {
+        int head = cells.peekFirst();
+        int column = head % columns;
+        int row = head / columns;
+        switch (random.nextInt(4)) {
+            case 0 -> row = (row + rows - 1) % rows;
+            case 1 -> row = (row + 1) % rows;
+            case 2 -> column = (column + columns - 1) % columns;
+            default -> column = (column + 1) % columns;
+        }
+        int cell = row * columns + column;
+        body.pushHead(cell);
+        cells.addFirst(cell);
+    }
+
+    // Removes the tail, on both bodies.
+    private static void pop(PackedBody body, ArrayDeque<Integer> cells) {
+        assertEquals("popped tail", (int) cells.removeLast(), body.popTail());
+    }
+
+    // Checks that the packed body walks through exactly the listed cells.
+    private static void assertSame(PackedBody body, ArrayDeque<Integer> cells) {
+        assertEquals("length", cells.size(), body.getLength());
+        assertEquals("head", (int) cells.peekFirst(), body.headCell());
+        assertEquals("tail", (int) cells.peekLast(), body.tailCell());
+        Iterator<Integer> expected = cells.iterator();
+        int cell = body.headCell();
+        for (int i = 0; i < body.getLength(); cell = body.following(cell, i++)) {
+            assertEquals("segment " + i, (int) expected.next(), cell);
+        }
+        assertEquals("past the tail", -1, cell);
+    }
+}
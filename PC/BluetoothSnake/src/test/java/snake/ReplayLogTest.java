@@ -0,0 +1,133 @@
+package snake;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+// Replays recorded from a live game with late commands rolled back into it: seeking in the
+// decoded replay must give the state the live game had at that tick.
+public class ReplayLogTest {
+    // Ticks played live
+    private static final int TICKS = 3 * ReplayLog.KEYFRAME_INTERVAL + 50;
+    // Ticks a late command is moved back, within the rollback window
+    private static final int LATENESS = 2;
+
+    @Test
+    public void seekMatchesTheLiveGame() {
+        SnakeGame game = new SnakeGame(Difficulty.EASY);
+        game.recordReplays();
+        game.resetGame(11);
+        List<Frame> live = new ArrayList<>();
+        long[] tickStarts = new long[TICKS];
+        int rollbacks = 0;
+        live.add(new Frame(game));
+        for (int t = 0; t < TICKS; t++) {
+            game.setDirection(JitWarmUp.nextDirection(game.getHeadCell()));
+            tickStarts[t] = System.nanoTime();
+            game.tickHosted();
+            live.add(new Frame(game));
+
+            // Now and then a command arrives late, some of them moving back across a keyframe
+            int sinceKeyframe = (t + 1) % ReplayLog.KEYFRAME_INTERVAL;
+            if (t >= LATENESS && (sinceKeyframe == 1 || t % 37 == 0)) {
+                int target = t - LATENESS;
+                game.applyCommand(sideways(game.getRecording().getInput(target)), tickStarts[target]);
+                assertEquals("rollbacks", ++rollbacks, game.getRollbackCount());
+                // The ticks from the target on were simulated again; only the state now is known
+                for (int tick = target + 1; tick <= t; tick++) {
+                    live.set(tick, null);
+                }
+                live.set(t + 1, new Frame(game));
+            }
+        }
+        assertFalse("the snake should survive the run", game.hasCollided());
+
+        ReplayLog recording = game.getRecording();
+        byte[] encoded = recording.encode();
+        ReplayLog replay = ReplayLog.decode(encoded);
+        assertArrayEquals("encoding survives decoding", encoded, replay.encode());
+        assertEquals(TICKS, replay.getEndTick());
+        assertEquals(TICKS / ReplayLog.KEYFRAME_INTERVAL + 1, replay.getKeyframeCount());
+
+        SnakeGame viewer = new SnakeGame(replay);
+        // Forward one tick at a time, then jumping back and forth across keyframes
+        for (int t = 0; t <= TICKS; t++) {
+            assertSeek(viewer, live, t);
+        }
+        GameRandom random = new GameRandom(3);
+        for (int i = 0; i < 200; i++) {
+            assertSeek(viewer, live, random.nextInt(TICKS + 1));
+        }
+        viewer.stop();
+        game.stop();
+    }
+
+    @Test
+    public void loadKeyframeClampsToTheRecordedOnes() {
+        SnakeGame game = new SnakeGame(Difficulty.EASY);
+        game.recordReplays();
+        game.resetGame(5);
+        for (int t = 0; t < 2 * ReplayLog.KEYFRAME_INTERVAL + 10; t++) {
+            game.setDirection(JitWarmUp.nextDirection(game.getHeadCell()));
+            game.tickHosted();
+        }
+        ReplayLog replay = ReplayLog.decode(game.getRecording().encode());
+        GameSnapshot state = new GameSnapshot(SnakeGame.COLUMNS * SnakeGame.ROWS);
+        int interval = ReplayLog.KEYFRAME_INTERVAL;
+        long[][] cases = {
+                {-5, 0}, {0, 0}, {interval - 1, 0}, {interval, interval}, {interval + 1, interval},
+                {2 * interval, 2 * interval}, {replay.getEndTick(), 2 * interval}, {Long.MAX_VALUE / 2, 2 * interval},
+        };
+        for (long[] c : cases) {
+            assertEquals("keyframe loaded for tick " + c[0], c[1], replay.loadKeyframe(c[0], state));
+            assertEquals(c[1], state.tick);
+        }
+        game.stop();
+    }
+
+    // Seeks the viewer to 'tick' and compares it with the live frame, if one was kept.
+    private static void assertSeek(SnakeGame viewer, List<Frame> live, int tick) {
+        if (live.get(tick) == null) return;
+        viewer.seek(tick);
+        assertEquals("tick", tick, viewer.getTick());
+        live.get(tick).assertMatches(viewer, tick);
+    }
+
+    // Gets a turn at right angles to 'direction'.
+    private static Direction sideways(Direction direction) {
+        return direction == Direction.UP || direction == Direction.DOWN ? Direction.RIGHT : Direction.DOWN;
+    }
+
+    // The state of a game between two ticks.
+    private static class Frame {
+        final byte[] board = new byte[SnakeGame.COLUMNS * SnakeGame.ROWS];
+        final int food;
+        final int score;
+        final int head;
+        final int length;
+
+        Frame(SnakeGame game) {
+            game.copyBoard(board);
+            food = game.getFoodCell();
+            score = game.getScore();
+            head = game.getHeadCell();
+            length = game.getLength();
+        }
+
+        void assertMatches(SnakeGame game, int tick) {
+            Frame other = new Frame(game);
+            assertTrue("board at tick " + tick, Arrays.equals(board, other.board));
+            assertEquals("food at tick " + tick, food, other.food);
+            assertEquals("score at tick " + tick, score, other.score);
+            assertEquals("head at tick " + tick, head, other.head);
+            assertEquals("length at tick " + tick, length, other.length);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package snake;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+// Collision rules of the SharedBoard engine on small hand-built boards, and a run of dozens
+// of simple bots on a large board checking that the occupancy index always matches the bodies.
+public class SharedBoardTest {
+    @Test
+    public void headOnKillsBoth() {
+        // Heads moving into each other both die
+        SharedBoard board = new SharedBoard(10, 3, 0, 1);
+        board.addSnake(4, 1, Direction.RIGHT);
+        board.addSnake(5, 1, Direction.LEFT);
+        board.tick();
+        assertEquals(0, board.getAliveCount());
+    }
+
+    @Test
+    public void headToBodyKillsOnlyTheRunner() {
+        SharedBoard board = new SharedBoard(10, 10, 0, 1);
+        int wall = board.addSnake(3, 4, Direction.RIGHT);
+        int runner = board.addSnake(3, 6, Direction.UP);
+        grow(board, wall);
+        board.tick();
+        assertFalse("runner should die on the body", board.getSnake(runner).isAlive());
+        assertTrue("body owner should survive", board.getSnake(wall).isAlive());
+    }
+
+    @Test
+    public void tiedClaimOnFreeCellKillsBoth() {
+        SharedBoard board = new SharedBoard(10, 3, 0, 1);
+        board.addSnake(3, 1, Direction.RIGHT);
+        board.addSnake(5, 1, Direction.LEFT);
+        board.tick();
+        assertEquals(0, board.getAliveCount());
+    }
+
+    @Test
+    public void longerSnakeWinsContestedCell() {
+        SharedBoard board = new SharedBoard(12, 3, 0, 1);
+        int shortId = board.addSnake(3, 1, Direction.RIGHT);
+        int longId = board.addSnake(7, 1, Direction.LEFT);
+        grow(board, longId);
+        board.tick();
+        assertTrue("longer snake should take the cell", board.getSnake(longId).isAlive());
+        assertFalse("shorter snake should die", board.getSnake(shortId).isAlive());
+    }
+
+    @Test
+    public void dozensOfSnakesKeepOccupancyConsistent() {
+        int snakes = 48;
+        SharedBoard board = new SharedBoard(120, 120, snakes, 42);
+        for (int i = 0; i < snakes; i++) {
+            board.addSnake(i * 120 / snakes, (i * 7) % 120, Direction.values()[i % 4]);
+        }
+        board.fillFood();
+
+        GameRandom random = new GameRandom(7);
+        int ticks = 0;
+        for (int t = 0; t < 20_000 && board.getAliveCount() > 0; t++) {
+            for (int id = 0; id < snakes; id++) {
+                SnakeBot.steer(board, board.getSnake(id), random);
+            }
+            board.tick();
+            ticks++;
+            if (t % 1000 == 0) assertOccupancy(board);
+        }
+        assertOccupancy(board);
+        assertTrue("Only " + ticks + " ticks ran", ticks > 1000);
+    }
+
+    // Checks that the occupancy index holds exactly the live snakes' bodies.
+    private static void assertOccupancy(SharedBoard board) {
+        int[] expected = new int[board.getColumns() * board.getRows()];
+        for (int id = 0; id < board.getSnakeCount(); id++) {
+            BoardSnake snake = board.getSnake(id);
+            if (!snake.isAlive()) continue;
+            int cell = snake.headCell();
+            for (int i = 0; i < snake.getLength(); cell = snake.following(cell, i++)) {
+                assertEquals("Cell " + cell + " holds two bodies", 0, expected[cell]);
+                expected[cell] = id + 1;
+            }
+        }
+        for (int cell = 0; cell < expected.length; cell++) {
+            int occupant = board.occupant(cell);
+            assertEquals("Occupancy of cell " + cell + " at tick " + board.getTick(),
+                    expected[cell], occupant > 0 ? occupant : 0);
+        }
+    }
+
+    // Makes a snake one cell longer by placing food right in front of it and ticking once.
+    private static void grow(SharedBoard board, int id) {
+        BoardSnake snake = board.getSnake(id);
+        int front = board.next(snake.headCell(), snake.getDirection());
+        board.addFood(front % board.getColumns(), front / board.getColumns());
+        board.tick();
+        assertEquals("snake should have grown", 2, snake.getLength());
+    }
+}
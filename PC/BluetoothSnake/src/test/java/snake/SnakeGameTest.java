@@ -0,0 +1,183 @@
+package snake;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+// Game rules of SnakeGame driven tick by tick without its timer.
+public class SnakeGameTest {
+    @Test
+    public void seedGivesTheSameBoardForEveryDifficulty() {
+        for (Difficulty difficulty : Difficulty.values()) {
+            // Two games with different boards of their own, reset to the same seeds
+            SnakeGame first = new SnakeGame(difficulty, 1);
+            SnakeGame second = new SnakeGame(difficulty, 2);
+            for (long seed = 100; seed < 200; seed++) {
+                for (int i = 0; i < 5; i++) second.tickHosted();
+                first.resetGame(seed);
+                second.resetGame(seed);
+                assertEquals(difficulty + " food of seed " + seed, first.getFoodCell(), second.getFoodCell());
+                assertArrayEquals(difficulty + " board of seed " + seed, board(first), board(second));
+                assertArrayEquals(difficulty + " board of seed " + seed + " after a tick", board(tick(first)), board(tick(second)));
+            }
+            first.stop();
+            second.stop();
+        }
+    }
+
+    @Test
+    public void rollbackReplaysEveryTurnOfATick() throws InterruptedException {
+        SnakeGame game = new SnakeGame(Difficulty.EASY);
+        game.setPaused(false);
+        tick(tick(game));
+        Thread.sleep(2);
+        long issued = System.nanoTime();
+        Thread.sleep(2);
+        // Right, down and left within one tick: left alone would be a reversal
+        game.setDirection(Direction.DOWN);
+        game.setDirection(Direction.LEFT);
+        tick(tick(game));
+        byte[] live = game.capture().encode();
+
+        // A late command that does not turn the snake re-simulates the two ticks unchanged
+        game.applyCommand(Direction.RIGHT, issued);
+        assertEquals(1, game.getRollbackCount());
+        assertEquals(2, game.getCorrectedTicks());
+        assertArrayEquals(live, game.capture().encode());
+        // The turns were recorded again after the late command, so a second rollback agrees
+        game.applyCommand(Direction.RIGHT, issued);
+        assertEquals(2, game.getRollbackCount());
+        assertArrayEquals(live, game.capture().encode());
+        game.stop();
+    }
+
+    @Test
+    public void headSwappingCellsWithAMovingObstacleCollides() {
+        SnakeGame game = new SnakeGame(Difficulty.HAZARD, 3);
+        SavedGame start = game.capture();
+        // Find a moving obstacle stepping from one cell to the next, and send the head the other way
+        for (long tick = 0; tick < 400; tick++) {
+            byte[] before = board(restore(game, start, tick, start.getSnapshot().cells[0], Direction.RIGHT));
+            byte[] after = board(restore(game, start, tick + 1, start.getSnapshot().cells[0], Direction.RIGHT));
+            for (int from = 0; from < before.length; from++) {
+                if ((before[from] & SnakeGame.HIT_OBSTACLE) == 0 || (after[from] & SnakeGame.HIT_OBSTACLE) != 0) continue;
+                for (Direction direction : Direction.values()) {
+                    int to = next(from, direction);
+                    if ((before[to] & SnakeGame.HIT_OBSTACLE) != 0 || (after[to] & SnakeGame.HIT_OBSTACLE) == 0) continue;
+
+                    // The head sits where the obstacle is going and moves to where it comes from
+                    restore(game, start, tick, to, reverse(direction));
+                    game.tickHosted();
+                    assertTrue("head passed through the obstacle at tick " + tick, game.hasCollided());
+                    game.stop();
+                    return;
+                }
+            }
+        }
+        fail("no moving obstacle found");
+    }
+
+    @Test
+    public void rollbackCountsTheEventsItRetracts() {
+        SnakeGame game = new SnakeGame(Difficulty.EASY);
+        game.resetGame(17);
+        GameEventBus.Subscriber subscriber = game.getEvents().subscribe();
+        List<long[]> published = new ArrayList<>();
+        int[] rollbacks = new int[1];
+        // Keeps the food and turns that still hold, checking each rollback's counts against them
+        GameEventBus.Handler handler = (type, tick, a, b) -> {
+            if (type == GameEventBus.FOOD_EATEN || type == GameEventBus.DIRECTION_CHANGED) {
+                published.add(new long[] {type, tick});
+            } else if (type == GameEventBus.ROLLBACK) {
+                rollbacks[0]++;
+                assertEquals("food retracted", count(published, GameEventBus.FOOD_EATEN, tick), a);
+                assertEquals("turns retracted", count(published, GameEventBus.DIRECTION_CHANGED, tick), b);
+                published.removeIf(event -> event[1] >= tick);
+            }
+        };
+
+        long[] tickStarts = new long[400];
+        for (int t = 0; t < tickStarts.length; t++) {
+            tickStarts[t] = System.nanoTime();
+            game.tickHosted();
+            // Steer for the next tick first, so its turns are retracted too
+            game.setDirection(JitWarmUp.nextDirection(game.getHeadCell()));
+            if (t >= 2 && t % 9 == 0) {
+                // A late turn, moved two ticks back
+                game.applyCommand(t % 2 == 0 ? Direction.DOWN : Direction.RIGHT, tickStarts[t - 2]);
+            }
+            subscriber.poll(handler);
+        }
+        assertEquals("events lost", 0, subscriber.getLost());
+        assertTrue("only " + rollbacks[0] + " rollbacks", rollbacks[0] > 30);
+        assertTrue("no food eaten", game.getScore() > 0);
+        assertEquals("food left after the retractions", game.getScore(), count(published, GameEventBus.FOOD_EATEN, 0));
+        game.stop();
+    }
+
+    // Counts the events of 'type' published for 'from' or later.
+    private static int count(List<long[]> published, int type, long from) {
+        int count = 0;
+        for (long[] event : published) {
+            if (event[0] == type && event[1] >= from) count++;
+        }
+        return count;
+    }
+
+    // Copies the board of 'game'.
+    private static byte[] board(SnakeGame game) {
+        byte[] cells = new byte[SnakeGame.COLUMNS * SnakeGame.ROWS];
+        game.copyBoard(cells);
+        return cells;
+    }
+
+    // Restores 'start' at 'tick' with a one cell snake on 'head' heading 'direction', and resumes it.
+    private static SnakeGame restore(SnakeGame game, SavedGame start, long tick, int head, Direction direction) {
+        GameSnapshot snapshot = new GameSnapshot(SnakeGame.COLUMNS * SnakeGame.ROWS);
+        snapshot.copyFrom(start.getSnapshot());
+        snapshot.cells[0] = head;
+        snapshot.length = 1;
+        snapshot.direction = direction;
+        snapshot.food = -1;
+        snapshot.tick = tick;
+        game.restore(new SavedGame(start.getDifficulty(), SnakeGame.COLUMNS, SnakeGame.ROWS, snapshot,
+                start.getObstacles(), start.getHazardSeed()));
+        game.setPaused(false);
+        return game;
+    }
+
+    // Gets the cell next to 'cell' in 'direction', wrapping around the board edges.
+    private static int next(int cell, Direction direction) {
+        int column = cell % SnakeGame.COLUMNS;
+        int row = cell / SnakeGame.COLUMNS;
+        switch (direction) {
+            case UP -> row = (row + SnakeGame.ROWS - 1) % SnakeGame.ROWS;
+            case DOWN -> row = (row + 1) % SnakeGame.ROWS;
+            case LEFT -> column = (column + SnakeGame.COLUMNS - 1) % SnakeGame.COLUMNS;
+            case RIGHT -> column = (column + 1) % SnakeGame.COLUMNS;
+        }
+        return row * SnakeGame.COLUMNS + column;
+    }
+
+    // Gets the opposite of 'direction'.
+    private static Direction reverse(Direction direction) {
+        return switch (direction) {
+            case UP -> Direction.DOWN;
+            case DOWN -> Direction.UP;
+            case LEFT -> Direction.RIGHT;
+            case RIGHT -> Direction.LEFT;
+        };
+    }
+
+    // Runs one tick of 'game'.
+    private static SnakeGame tick(SnakeGame game) {
+        game.tickHosted();
+        return game;
+    }
+}
@@ -0,0 +1,44 @@
+package snake;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// Expiry times of periodic TimingWheel entries. The wheel is turned by hand one tick at a time
+// rather than by its timer thread, and expired ticks run on the turning thread.
+public class TimingWheelTest {
+    // Wheel ticks turned, past the first level 2 boundary
+    private static final long TICKS = 3 * 4096;
+
+    @Test
+    public void periodicEntriesExpireExactlyOnTheirPeriod() {
+        // Periods below, on and across the 64 tick level boundary, and on the 4096 tick one
+        long[] periods = {1, 7, 63, 64, 65, 100, 128, 1000, 4096};
+        List<List<Long>> expiries = new ArrayList<>();
+        long[] turning = new long[1];
+        TimingWheel wheel = new TimingWheel(Runnable::run);
+        for (long period : periods) {
+            List<Long> ticks = new ArrayList<>();
+            expiries.add(ticks);
+            wheel.schedule(() -> ticks.add(turning[0]), period);
+        }
+
+        for (turning[0] = 1; turning[0] <= TICKS; turning[0]++) {
+            wheel.turnTo(turning[0]);
+        }
+
+        for (int i = 0; i < periods.length; i++) {
+            List<Long> ticks = expiries.get(i);
+            // The first run depends on when the entry was scheduled, the rest on the period only
+            assertTrue("Period " + periods[i] + " ran " + ticks.size() + " times",
+                    !ticks.isEmpty() && ticks.size() > (TICKS - ticks.get(0)) / periods[i]);
+            for (int run = 1; run < ticks.size(); run++) {
+                assertEquals("Period " + periods[i] + ", run " + run, periods[i], ticks.get(run) - ticks.get(run - 1));
+            }
+        }
+    }
+}
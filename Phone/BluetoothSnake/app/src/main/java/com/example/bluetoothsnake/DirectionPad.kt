@@ -0,0 +1,127 @@
+package com.example.bluetoothsnake
+
+import android.view.HapticFeedbackConstants
+import androidx.compose.foundation.background
+import androidx.compose.foundation.gestures.awaitEachGesture
+import androidx.compose.foundation.gestures.awaitFirstDown
+import androidx.compose.foundation.layout.Box
+import androidx.compose.foundation.layout.padding
+import androidx.compose.foundation.layout.size
+import androidx.compose.foundation.shape.CircleShape
+import androidx.compose.material3.MaterialTheme
+import androidx.compose.material3.Text
+import androidx.compose.runtime.Composable
+import androidx.compose.runtime.getValue
+import androidx.compose.runtime.mutableStateOf
+import androidx.compose.runtime.remember
+import androidx.compose.runtime.rememberUpdatedState
+import androidx.compose.runtime.setValue
+import androidx.compose.ui.Alignment
+import androidx.compose.ui.Modifier
+import androidx.compose.ui.draw.alpha
+import androidx.compose.ui.geometry.Offset
+import androidx.compose.ui.input.pointer.pointerInput
+import androidx.compose.ui.platform.LocalDensity
+import androidx.compose.ui.platform.LocalView
+import androidx.compose.ui.unit.dp
+import androidx.compose.ui.unit.sp
+import kotlin.math.abs
+
+// Size of the pad
+private val PAD_SIZE = 240.dp
+// Drag distance that counts as a swipe
+private val SWIPE_THRESHOLD = 24.dp
+// Share of the pad's size around the centre where a touch alone sends nothing
+private const val DEAD_ZONE_FRACTION = 0.12f
+
+// Direction surface that sends on pointer-down rather than on release like a Button.
+// Touching one of the four zones sends that direction at once. With swipes enabled, dragging
+// further than a short threshold also sends the drag's direction, so turns can be chained
+// without lifting the finger. 'onDirection' gets the direction and the uptime of the touch
+// event that issued it.
+@Composable
+fun DirectionPad(
+    enabled: Boolean,
+    swipes: Boolean,
+    haptics: Boolean,
+    onDirection: (String, Long) -> Unit,
+    modifier: Modifier = Modifier
+) {
+    val view = LocalView.current
+    val swipeThreshold = with(LocalDensity.current) { SWIPE_THRESHOLD.toPx() }
+    val currentOnDirection by rememberUpdatedState(onDirection)
+    // Direction of the current touch, highlighted until it lifts
+    var active by remember { mutableStateOf<String?>(null) }
+
+    // Sends first, so the confirmation never delays the command
+    fun emit(direction: String, uptimeMillis: Long) {
+        currentOnDirection(direction, uptimeMillis)
+        active = direction
+        if (haptics) view.performHapticFeedback(HapticFeedbackConstants.KEYBOARD_TAP)
+    }
+
+    Box(
+        modifier = modifier
+            .size(PAD_SIZE)
+            .alpha(if (enabled) 1f else 0.4f)
+            .background(MaterialTheme.colorScheme.surfaceVariant, CircleShape)
+            .pointerInput(enabled, swipes, haptics, swipeThreshold) {
+                if (!enabled) return@pointerInput
+                awaitEachGesture {
+                    val down = awaitFirstDown()
+                    down.consume()
+                    val center = Offset(size.width / 2f, size.height / 2f)
+                    val deadZone = minOf(size.width, size.height) * DEAD_ZONE_FRACTION
+                    var last: String? = null
+                    if ((down.position - center).getDistance() > deadZone) {
+                        last = directionOf(down.position - center)
+                        emit(last, down.uptimeMillis)
+                    }
+
+                    // Follow the finger until it lifts, measuring swipes from the last turn
+                    var anchor = down.position
+                    while (true) {
+                        val change = awaitPointerEvent().changes.firstOrNull { it.id == down.id } ?: break
+                        if (!change.pressed) break
+                        change.consume()
+                        if (!swipes) continue
+                        val moved = change.position - anchor
+                        if (moved.getDistance() < swipeThreshold) continue
+                        val direction = directionOf(moved)
+                        if (direction != last) {
+                            emit(direction, change.uptimeMillis)
+                            last = direction
+                        }
+                        anchor = change.position
+                    }
+                    active = null
+                }
+            },
+        contentAlignment = Alignment.Center
+    ) {
+        PadArrow("▲", active == "up", Modifier.align(Alignment.TopCenter))
+        PadArrow("◀", active == "left", Modifier.align(Alignment.CenterStart))
+        PadArrow("▶", active == "right", Modifier.align(Alignment.CenterEnd))
+        PadArrow("▼", active == "down", Modifier.align(Alignment.BottomCenter))
+    }
+}
+
+// Arrow marking one zone of the pad
+@Composable
+private fun PadArrow(arrow: String, active: Boolean, modifier: Modifier) {
+    Text(
+        text = arrow,
+        fontSize = 36.sp,
+        color = if (active) MaterialTheme.colorScheme.primary else MaterialTheme.colorScheme.onSurfaceVariant,
+        modifier = modifier.padding(20.dp)
+    )
+}
+
+// Gets the direction an offset mostly points in
+private fun directionOf(offset: Offset): String {
+    return if (abs(offset.x) > abs(offset.y)) {
+        if (offset.x > 0) "right" else "left"
+    } else {
+        if (offset.y > 0) "down" else "up"
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.bluetoothsnake
+
+// Tap-to-send latency of one input surface: the time from the touch that issued a command until
+// the command was written to the socket. Keeps the most recent samples so the figures follow
+// the current connection.
+class InputLatency(private val name: String) {
+    private val samples = LongArray(WINDOW)
+    // Samples recorded in total
+    private var count = 0
+
+    // Records one command's latency in milliseconds.
+    @Synchronized
+    fun record(millis: Long) {
+        samples[count % WINDOW] = millis
+        count++
+    }
+
+    // Gets a one-line summary of the recent samples.
+    @Synchronized
+    fun summary(): String {
+        val n = minOf(count, WINDOW)
+        if (n == 0) return "$name: no taps yet"
+        val sorted = samples.copyOf(n)
+        sorted.sort()
+        return "$name: median ${sorted[n / 2]} ms, p95 ${sorted[(n * 95 - 1) / 100]} ms ($count taps)"
+    }
+
+    companion object {
+        // Number of recent samples summarised
+        private const val WINDOW = 100
+    }
+}
@@ -13,11 +13,14 @@ import android.content.IntentFilter
 import android.content.pm.PackageManager
 import android.os.Build
 import android.os.Bundle
+import android.os.SystemClock
 import android.widget.Toast
 import androidx.activity.ComponentActivity
 import androidx.activity.compose.setContent
 import androidx.activity.result.contract.ActivityResultContracts
 import androidx.compose.foundation.clickable
+import androidx.compose.foundation.gestures.awaitEachGesture
+import androidx.compose.foundation.gestures.awaitFirstDown
 import androidx.compose.foundation.layout.Arrangement
 import androidx.compose.foundation.layout.Column
 import androidx.compose.foundation.layout.Row
@@ -35,14 +38,18 @@ import androidx.compose.material3.Card
 import androidx.compose.material3.CircularProgressIndicator
 import androidx.compose.material3.MaterialTheme
 import androidx.compose.material3.Surface
+import androidx.compose.material3.Switch
 import androidx.compose.material3.Text
 import androidx.compose.runtime.Composable
 import androidx.compose.runtime.getValue
 import androidx.compose.runtime.mutableStateListOf
 import androidx.compose.runtime.mutableStateOf
+import androidx.compose.runtime.remember
 import androidx.compose.runtime.setValue
 import androidx.compose.ui.Alignment
 import androidx.compose.ui.Modifier
+import androidx.compose.ui.input.pointer.PointerEventPass
+import androidx.compose.ui.input.pointer.pointerInput
 import androidx.compose.ui.text.style.TextAlign
 import androidx.compose.ui.unit.dp
 import androidx.compose.ui.unit.sp
@@ -51,6 +58,9 @@ import androidx.lifecycle.lifecycleScope
 import kotlinx.coroutines.CancellationException
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.Job
+import kotlinx.coroutines.NonCancellable
+import kotlinx.coroutines.asCoroutineDispatcher
+import kotlinx.coroutines.delay
 import kotlinx.coroutines.isActive
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
@@ -58,7 +68,9 @@ import java.io.IOException
 import java.io.InputStream
 import java.io.OutputStream
 import java.util.UUID
+import java.util.concurrent.Executors
 import kotlin.coroutines.coroutineContext
+import kotlin.random.Random
 
 // Enum representing all possible connection states
 enum class ConnectionState {
@@ -72,6 +84,13 @@ enum class ConnectionState {
     DEVICE_SELECTION
 }
 
+// Choice of input surface and its options
+data class InputSettings(
+    val pad: Boolean = true,     // Press-down D-pad instead of the classic buttons
+    val swipes: Boolean = true,  // Swipes on the pad send directions too
+    val haptics: Boolean = true  // Confirm each pad command with a haptic tick
+)
+
 // Data class to hold Bluetooth device information
 data class BluetoothDeviceInfo(
     val name: String?,    // Device name (may be null)
@@ -100,9 +119,36 @@ class MainActivity : ComponentActivity() {
     // Job for monitoring the connection
     private var monitorConnectionJob: Job? = null
 
+    // Job reconnecting to the last device in the background
+    private var reconnectJob: Job? = null
+
+    // Whether to reconnect to the last device on its own; off once the user disconnects
+    private var autoReconnect = true
+
+    // When the current way to a connection began: app open, link loss or a Connect tap
+    private var connectStartedAt = SystemClock.elapsedRealtime()
+
+    // Background reconnection in progress (observable)
+    private var reconnecting by mutableStateOf(false)
+
+    // How long the last connection took to come up (observable)
+    private var connectTime by mutableStateOf("")
+
     // List of paired devices (observable)
     private val pairedDevices = mutableStateListOf<BluetoothDeviceInfo>()
 
+    // Input surface settings (observable, persisted)
+    private var inputSettings by mutableStateOf(InputSettings())
+
+    // Tap-to-send latency of each input surface, and its summary (observable)
+    private val padLatency = InputLatency("D-pad")
+    private val buttonLatency = InputLatency("Buttons")
+    private var latencySummary by mutableStateOf("")
+
+    // Single thread writing commands, so each goes out in order without waiting for the shared IO pool
+    private val commandDispatcher = Executors.newSingleThreadExecutor { Thread(it, "CommandWriter") }
+        .asCoroutineDispatcher()
+
     // Required permissions based on Android version
     private val requiredPermissions = if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
         // Android 12+ requires these new Bluetooth permissions
@@ -125,6 +171,7 @@ class MainActivity : ComponentActivity() {
                     connectionState = ConnectionState.DISCONNECTED
                     showToast("Permissions granted. Ready to connect.")
                     loadPairedDevices()
+                    startAutoReconnect()
                 } else {
                     connectionState = ConnectionState.BLUETOOTH_DISABLED
                     showToast("Permissions granted, but Bluetooth is disabled.")
@@ -167,6 +214,10 @@ class MainActivity : ComponentActivity() {
             connectionState = ConnectionState.BLUETOOTH_UNSUPPORTED
         }
 
+        // Restore the input surface settings
+        loadInputSettings()
+        updateLatencySummary()
+
         // Set up Compose UI
         setContent {
             MaterialTheme {
@@ -175,12 +226,18 @@ class MainActivity : ComponentActivity() {
                         state = connectionState,
                         pairedDevices = pairedDevices,
                         selectedDevice = selectedDevice,
+                        reconnecting = reconnecting,
+                        connectTime = connectTime,
                         onDeviceSelect = { device ->
                             selectedDevice = device
                             connectionState = ConnectionState.DISCONNECTED
                         },
                         onShowDevices = { showDeviceSelection() },
-                        onDirectionClick = { direction -> sendCommand(direction) },
+                        inputSettings = inputSettings,
+                        latencySummary = latencySummary,
+                        onInputSettingsChange = { settings -> saveInputSettings(settings) },
+                        onPadDirection = { direction, tappedAt -> sendCommand(direction, tappedAt, padLatency) },
+                        onButtonDirection = { direction, tappedAt -> sendCommand(direction, tappedAt, buttonLatency) },
                         onConnectClick = { tryConnect() },
                         onRequestPermissions = {
                             requestMultiplePermissionsLauncher.launch(requiredPermissions)
@@ -219,6 +276,33 @@ class MainActivity : ComponentActivity() {
         super.onDestroy()
         // Clean up connection when activity is destroyed
         closeConnection()
+        commandDispatcher.close()
+    }
+
+    // Load the input surface settings saved last time
+    private fun loadInputSettings() {
+        val prefs = getSharedPreferences(INPUT_PREFS, MODE_PRIVATE)
+        val defaults = InputSettings()
+        inputSettings = InputSettings(
+            pad = prefs.getBoolean("pad", defaults.pad),
+            swipes = prefs.getBoolean("swipes", defaults.swipes),
+            haptics = prefs.getBoolean("haptics", defaults.haptics)
+        )
+    }
+
+    // Apply and persist new input surface settings
+    private fun saveInputSettings(settings: InputSettings) {
+        inputSettings = settings
+        getSharedPreferences(INPUT_PREFS, MODE_PRIVATE).edit()
+            .putBoolean("pad", settings.pad)
+            .putBoolean("swipes", settings.swipes)
+            .putBoolean("haptics", settings.haptics)
+            .apply()
+    }
+
+    // Refresh the latency comparison shown in the settings
+    private fun updateLatencySummary() {
+        latencySummary = "${padLatency.summary()}\n${buttonLatency.summary()}"
     }
 
     // Check current Bluetooth and permission state
@@ -246,6 +330,8 @@ class MainActivity : ComponentActivity() {
             loadPairedDevices()
             if (connectionState != ConnectionState.DEVICE_SELECTION) {
                 connectionState = ConnectionState.DISCONNECTED
+                // Go straight back to the last device, skipping the device list
+                startAutoReconnect()
             }
         }
     }
@@ -322,9 +408,15 @@ class MainActivity : ComponentActivity() {
         state: ConnectionState,
         pairedDevices: List<BluetoothDeviceInfo>,
         selectedDevice: BluetoothDeviceInfo?,
+        reconnecting: Boolean,
+        connectTime: String,
         onDeviceSelect: (BluetoothDeviceInfo) -> Unit,
         onShowDevices: () -> Unit,
-        onDirectionClick: (String) -> Unit,
+        inputSettings: InputSettings,
+        latencySummary: String,
+        onInputSettingsChange: (InputSettings) -> Unit,
+        onPadDirection: (String, Long) -> Unit,
+        onButtonDirection: (String, Long) -> Unit,
         onConnectClick: () -> Unit,
         onRequestPermissions: () -> Unit,
         onDisconnectClick: () -> Unit
@@ -351,8 +443,12 @@ class MainActivity : ComponentActivity() {
                 Spacer(modifier = Modifier.height(10.dp))
             }
 
-            // Disconnect button when connected
+            // Disconnect button and time to connect when connected
             if (state == ConnectionState.CONNECTED) {
+                if (connectTime.isNotEmpty()) {
+                    Text(text = connectTime, fontSize = 14.sp)
+                    Spacer(modifier = Modifier.height(10.dp))
+                }
                 Button(onClick = onDisconnectClick) {
                     Text("Disconnect")
                 }
@@ -362,6 +458,14 @@ class MainActivity : ComponentActivity() {
             when (state) {
                 ConnectionState.CONNECTING -> {
                     CircularProgressIndicator()
+                    // A background reconnection can be stopped to pick another device
+                    if (reconnecting) {
+                        Spacer(modifier = Modifier.height(10.dp))
+                        Text(text = "Reconnecting to last device...", fontSize = 14.sp)
+                        Button(onClick = onDisconnectClick) {
+                            Text("Cancel")
+                        }
+                    }
                 }
                 ConnectionState.DEVICE_SELECTION -> {
                     DeviceSelectionList(
@@ -394,14 +498,25 @@ class MainActivity : ComponentActivity() {
                 ConnectionState.CONNECTED -> Unit // No additional UI needed when connected
             }
 
-            Spacer(modifier = Modifier.height(if (state == ConnectionState.DEVICE_SELECTION) 16.dp else 64.dp))
+            Spacer(modifier = Modifier.height(if (state == ConnectionState.DEVICE_SELECTION) 16.dp else 32.dp))
 
-            // Show control buttons unless in device selection mode
+            // Show the selected input surface unless in device selection mode
             if (state != ConnectionState.DEVICE_SELECTION) {
-                ControlButtons(
-                    enabled = (state == ConnectionState.CONNECTED),
-                    onDirectionClick = onDirectionClick
-                )
+                if (inputSettings.pad) {
+                    DirectionPad(
+                        enabled = (state == ConnectionState.CONNECTED),
+                        swipes = inputSettings.swipes,
+                        haptics = inputSettings.haptics,
+                        onDirection = onPadDirection
+                    )
+                } else {
+                    ControlButtons(
+                        enabled = (state == ConnectionState.CONNECTED),
+                        onDirectionClick = onButtonDirection
+                    )
+                }
+                Spacer(modifier = Modifier.height(24.dp))
+                InputSettingsPanel(inputSettings, latencySummary, onInputSettingsChange)
             }
         }
     }
@@ -545,14 +660,59 @@ class MainActivity : ComponentActivity() {
         }
     }
 
-    // Composable for the snake game control buttons
+    // Composable for the input surface settings and the latency comparison
     @Composable
-    private fun ControlButtons(enabled: Boolean, onDirectionClick: (String) -> Unit) {
+    private fun InputSettingsPanel(
+        settings: InputSettings,
+        latencySummary: String,
+        onSettingsChange: (InputSettings) -> Unit
+    ) {
+        Column(modifier = Modifier.fillMaxWidth()) {
+            SettingSwitch("Press-down D-pad", settings.pad) { onSettingsChange(settings.copy(pad = it)) }
+            if (settings.pad) {
+                SettingSwitch("Swipe gestures", settings.swipes) { onSettingsChange(settings.copy(swipes = it)) }
+                SettingSwitch("Haptic feedback", settings.haptics) { onSettingsChange(settings.copy(haptics = it)) }
+            }
+            // Tap-to-send latency of both surfaces, for comparison
+            Text(
+                text = latencySummary,
+                fontSize = 12.sp,
+                textAlign = TextAlign.Center,
+                modifier = Modifier.fillMaxWidth()
+            )
+        }
+    }
+
+    // Composable for one labelled on/off setting
+    @Composable
+    private fun SettingSwitch(label: String, checked: Boolean, onCheckedChange: (Boolean) -> Unit) {
+        Row(
+            verticalAlignment = Alignment.CenterVertically,
+            horizontalArrangement = Arrangement.SpaceBetween,
+            modifier = Modifier.fillMaxWidth()
+        ) {
+            Text(label)
+            Switch(checked = checked, onCheckedChange = onCheckedChange)
+        }
+    }
+
+    // Composable for the snake game control buttons.
+    // Buttons fire on release; the press time is noted on the way down so the latency
+    // comparison includes the time the button was held.
+    @Composable
+    private fun ControlButtons(enabled: Boolean, onDirectionClick: (String, Long) -> Unit) {
+        var pressedAt by remember { mutableStateOf(0L) }
+        val pressTime = Modifier.pointerInput(Unit) {
+            awaitEachGesture {
+                // Observe only, leaving the event to the button
+                pressedAt = awaitFirstDown(requireUnconsumed = false, pass = PointerEventPass.Initial).uptimeMillis
+            }
+        }
         Column(horizontalAlignment = Alignment.CenterHorizontally) {
             // Up button
             Button(
-                onClick = { onDirectionClick("up") },
-                modifier = Modifier.size(100.dp, 50.dp),
+                onClick = { onDirectionClick("up", pressedAt) },
+                modifier = pressTime.size(100.dp, 50.dp),
                 enabled = enabled
             ) { Text("UP") }
 
@@ -561,14 +721,14 @@ class MainActivity : ComponentActivity() {
             // Left/Right buttons
             Row(verticalAlignment = Alignment.CenterVertically) {
                 Button(
-                    onClick = { onDirectionClick("left") },
-                    modifier = Modifier.size(100.dp, 50.dp),
+                    onClick = { onDirectionClick("left", pressedAt) },
+                    modifier = pressTime.size(100.dp, 50.dp),
                     enabled = enabled
                 ) { Text("LEFT") }
                 Spacer(modifier = Modifier.width(16.dp))
                 Button(
-                    onClick = { onDirectionClick("right") },
-                    modifier = Modifier.size(100.dp, 50.dp),
+                    onClick = { onDirectionClick("right", pressedAt) },
+                    modifier = pressTime.size(100.dp, 50.dp),
                     enabled = enabled
                 ) { Text("RIGHT") }
             }
@@ -577,8 +737,8 @@ class MainActivity : ComponentActivity() {
 
             // Down button
             Button(
-                onClick = { onDirectionClick("down") },
-                modifier = Modifier.size(100.dp, 50.dp),
+                onClick = { onDirectionClick("down", pressedAt) },
+                modifier = pressTime.size(100.dp, 50.dp),
                 enabled = enabled
             ) { Text("DOWN") }
         }
@@ -622,6 +782,7 @@ class MainActivity : ComponentActivity() {
 
         // Start connection process
         connectionState = ConnectionState.CONNECTING
+        connectStartedAt = SystemClock.elapsedRealtime()
         showToast("Connecting to ${selectedDevice?.name ?: selectedDevice?.address}...")
 
         // Launch connection in IO thread
@@ -631,11 +792,7 @@ class MainActivity : ComponentActivity() {
     }
 
     // Actual device connection logic
-    @SuppressLint("MissingPermission") // Permissions are checked before calling this
     private suspend fun connectToDevice() {
-        // Clean up any existing connection
-        closeConnectionResources()
-
         // Get the device to connect to
         val deviceToConnect = selectedDevice?.device ?: run {
             withContext(Dispatchers.Main) {
@@ -646,24 +803,8 @@ class MainActivity : ComponentActivity() {
         }
 
         try {
-            // Create and connect socket
-            bluetoothSocket = deviceToConnect.createRfcommSocketToServiceRecord(uuid)
-            bluetoothSocket?.connect()
-
-            // Get input/output streams
-            outputStream = bluetoothSocket?.outputStream
-            inputStream = bluetoothSocket?.inputStream
-
-            // Start monitoring the connection
-            monitorConnectionJob = lifecycleScope.launch(Dispatchers.IO) {
-                monitorConnection()
-            }
-
-            // Update UI on successful connection
-            withContext(Dispatchers.Main) {
-                connectionState = ConnectionState.CONNECTED
-                showToast("Connected to ${selectedDevice?.name ?: deviceToConnect.address}")
-            }
+            openConnection(deviceToConnect)
+            connectionOpened(deviceToConnect)
         } catch (e: IOException) {
             // Connection failed
             withContext(Dispatchers.Main) {
@@ -680,6 +821,87 @@ class MainActivity : ComponentActivity() {
         }
     }
 
+    // Open the socket and streams to a device, replacing any existing connection
+    @SuppressLint("MissingPermission") // Permissions are checked before calling this
+    private fun openConnection(device: BluetoothDevice) {
+        // Clean up any existing connection
+        closeConnectionResources()
+
+        // A running discovery slows connecting down
+        bluetoothAdapter?.cancelDiscovery()
+
+        // Create and connect socket
+        bluetoothSocket = device.createRfcommSocketToServiceRecord(uuid)
+        bluetoothSocket?.connect()
+
+        // Get input/output streams
+        outputStream = bluetoothSocket?.outputStream
+        inputStream = bluetoothSocket?.inputStream
+    }
+
+    // Start using a newly opened connection and remember its device for next time
+    private suspend fun connectionOpened(device: BluetoothDevice) {
+        // Start monitoring the connection
+        monitorConnectionJob = lifecycleScope.launch(Dispatchers.IO) {
+            monitorConnection()
+        }
+        val elapsed = SystemClock.elapsedRealtime() - connectStartedAt
+        getSharedPreferences(CONNECTION_PREFS, MODE_PRIVATE).edit()
+            .putString("last_device", device.address)
+            .apply()
+
+        // Update UI on successful connection
+        withContext(Dispatchers.Main) {
+            connectionState = ConnectionState.CONNECTED
+            autoReconnect = true
+            connectTime = "Connected in $elapsed ms"
+            showToast("Connected to ${selectedDevice?.name ?: device.address}")
+        }
+    }
+
+    // Reconnect to the last connected device in the background, retrying with backoff
+    // until it answers, Bluetooth goes off or the user disconnects
+    private fun startAutoReconnect() {
+        if (!autoReconnect || reconnectJob?.isActive == true) return
+        if (connectionState != ConnectionState.DISCONNECTED) return
+        val address = getSharedPreferences(CONNECTION_PREFS, MODE_PRIVATE).getString("last_device", null) ?: return
+        // Only devices that are still paired
+        val device = pairedDevices.firstOrNull { it.address == address } ?: return
+
+        selectedDevice = device
+        connectionState = ConnectionState.CONNECTING
+        reconnecting = true
+        reconnectJob = lifecycleScope.launch(Dispatchers.IO) {
+            var failures = 0
+            try {
+                while (isActive && bluetoothAdapter?.isEnabled == true) {
+                    try {
+                        openConnection(device.device)
+                        connectionOpened(device.device)
+                        break
+                    } catch (e: CancellationException) {
+                        throw e
+                    } catch (_: Exception) {
+                        // The PC may not be listening yet; try again shortly
+                        closeConnectionResources()
+                    }
+                    delay(reconnectDelayMillis(failures++))
+                }
+            } finally {
+                withContext(NonCancellable + Dispatchers.Main) {
+                    reconnecting = false
+                }
+            }
+        }
+    }
+
+    // Get the delay before reconnect attempt 'failures' + 2: doubling up to a maximum,
+    // with half of it jittered
+    private fun reconnectDelayMillis(failures: Int): Long {
+        val delay = minOf(RECONNECT_MAX_DELAY_MS, RECONNECT_INITIAL_DELAY_MS shl minOf(failures, 16))
+        return delay / 2 + Random.nextLong(delay / 2 + 1)
+    }
+
     // Monitor the connection for disconnects
     private suspend fun monitorConnection() {
         val stream = inputStream ?: return
@@ -702,30 +924,41 @@ class MainActivity : ComponentActivity() {
             withContext(Dispatchers.Main) {
                 if (connectionState == ConnectionState.CONNECTED) {
                     showToast("Connection lost.")
-                    handleDisconnect(ConnectionState.DISCONNECTED)
+                    connectStartedAt = SystemClock.elapsedRealtime()
+                    handleDisconnect(ConnectionState.DISCONNECTED, reconnect = true)
                 }
             }
         }
     }
 
-    // Send a command to the connected device
-    private fun sendCommand(command: String) {
+    // Send a command to the connected device, recording its latency from the tap at 'tappedAt'
+    // (uptime milliseconds) against the input surface that issued it
+    private fun sendCommand(command: String, tappedAt: Long, latency: InputLatency) {
         // Check connection state
         if (connectionState != ConnectionState.CONNECTED) {
             showToast("Cannot send: Not connected.")
             return
         }
 
-        // Send command in IO thread
-        lifecycleScope.launch(Dispatchers.IO) {
+        // Stamp the command with its send time so the game can place late commands on the right tick
+        val sentAt = SystemClock.elapsedRealtime()
+
+        // Send command on the writer thread
+        lifecycleScope.launch(commandDispatcher) {
             try {
-                outputStream?.write("$command\n".toByteArray())
-                outputStream?.flush()
+                val stream = outputStream ?: return@launch
+                stream.write("$command@$sentAt\n".toByteArray())
+                stream.flush()
+                latency.record(SystemClock.uptimeMillis() - tappedAt)
+                withContext(Dispatchers.Main) {
+                    updateLatencySummary()
+                }
             } catch (e: IOException) {
                 // Connection lost
                 withContext(Dispatchers.Main) {
                     showToast("Send failed: Connection lost.")
-                    handleDisconnect(ConnectionState.DISCONNECTED)
+                    connectStartedAt = SystemClock.elapsedRealtime()
+                    handleDisconnect(ConnectionState.DISCONNECTED, reconnect = true)
                 }
             } catch (e: Exception) {
                 // Other errors
@@ -737,17 +970,20 @@ class MainActivity : ComponentActivity() {
         }
     }
 
-    // Handle disconnection
-    private fun handleDisconnect(newState: ConnectionState = ConnectionState.DISCONNECTED) {
-        // Cancel monitoring job
+    // Handle disconnection, reconnecting to the same device afterwards if 'reconnect' is set
+    private fun handleDisconnect(newState: ConnectionState = ConnectionState.DISCONNECTED, reconnect: Boolean = false) {
+        // Cancel monitoring and reconnecting jobs
         monitorConnectionJob?.cancel()
         monitorConnectionJob = null
+        reconnectJob?.cancel()
+        reconnectJob = null
 
-        // Clean up resources in IO thread
+        // Clean up resources in IO thread; reconnecting waits for this so it cannot close the new socket
         lifecycleScope.launch(Dispatchers.IO) {
             closeConnectionResources()
             withContext(Dispatchers.Main) {
                 connectionState = newState
+                if (reconnect) startAutoReconnect()
             }
         }
     }
@@ -775,8 +1011,9 @@ class MainActivity : ComponentActivity() {
         bluetoothSocket = null
     }
 
-    // Initiate disconnection
+    // Initiate disconnection; stays disconnected until the user connects again
     private fun closeConnection() {
+        autoReconnect = false
         showToast("Disconnecting...")
         handleDisconnect(ConnectionState.DISCONNECTED)
     }
@@ -785,4 +1022,16 @@ class MainActivity : ComponentActivity() {
     private fun showToast(message: String) {
         Toast.makeText(this, message, Toast.LENGTH_SHORT).show()
     }
+
+    companion object {
+        // Preferences file holding the input surface settings
+        private const val INPUT_PREFS = "input"
+
+        // Preferences file holding the last connected device
+        private const val CONNECTION_PREFS = "connection"
+
+        // Wait after the first failed reconnect, doubled after each further one up to the maximum
+        private const val RECONNECT_INITIAL_DELAY_MS = 250L
+        private const val RECONNECT_MAX_DELAY_MS = 8000L
+    }
 }
\ No newline at end of file